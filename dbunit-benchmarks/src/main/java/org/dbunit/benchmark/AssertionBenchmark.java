@@ -0,0 +1,91 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.dbunit.assertion.DbUnitAssert;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.SortedTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link DbUnitAssert#assertEquals(ITable, ITable)} and
+ * {@link DbUnitAssert#assertEqualsByKey(ITable, ITable, String[], org.dbunit.assertion.FailureHandler)}
+ * for large equal tables.
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AssertionBenchmark
+{
+    @Param({"10000", "100000"})
+    public int rowCount;
+
+    private final DbUnitAssert _assert = new DbUnitAssert();
+    private ITable _expected;
+    private ITable _actual;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        _expected = BenchmarkData.createTable(BenchmarkData.TABLE_NAME, rowCount, 0);
+        _actual = BenchmarkData.createTable(BenchmarkData.TABLE_NAME, rowCount, 0);
+    }
+
+    @Benchmark
+    public void assertEquals() throws Exception
+    {
+        _assert.assertEquals(_expected, _actual);
+    }
+
+    @Benchmark
+    public void assertEqualsSorted() throws Exception
+    {
+        _assert.assertEquals(new SortedTable(_expected), new SortedTable(_actual));
+    }
+
+    @Benchmark
+    public void assertEqualsByKey() throws Exception
+    {
+        _assert.assertEqualsByKey(_expected, _actual, new String[] {"ID"}, null);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.csv.CsvDataSetWriter;
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.dataset.excel.XlsDataSet;
+import org.dbunit.dataset.xml.FlatXmlWriter;
+
+/**
+ * Generates the deterministic synthetic data used by the benchmarks.
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class BenchmarkData
+{
+    public static final String TABLE_NAME = "BENCHMARK_TABLE";
+
+    private static final long BASE_TIME = 1262304000000L;
+
+    private BenchmarkData()
+    {
+    }
+
+    /**
+     * @return The columns of the table created by {@link BenchmarkDatabase#createTable}
+     */
+    public static Column[] createColumns()
+    {
+        return new Column[] {
+                new Column("ID", DataType.INTEGER),
+                new Column("NAME", DataType.VARCHAR),
+                new Column("AMOUNT", DataType.NUMERIC),
+                new Column("CREATED", DataType.TIMESTAMP),
+                new Column("ACTIVE", DataType.BOOLEAN),
+        };
+    }
+
+    /**
+     * @param tableName The table name
+     * @param rowCount The number of rows
+     * @param variant Changes the non key values so that rows of different variants differ
+     */
+    public static ITable createTable(String tableName, int rowCount, int variant) throws DataSetException
+    {
+        DefaultTable table = new DefaultTable(tableName, createColumns());
+        for (int i = 0; i < rowCount; i++)
+        {
+            int value = i + variant;
+            table.addRow(new Object[] {
+                    new Integer(i),
+                    "name " + value,
+                    BigDecimal.valueOf(value * 101L, 2),
+                    new Timestamp(BASE_TIME + value * 1000L),
+                    Boolean.valueOf(value % 2 == 0),
+            });
+        }
+        return table;
+    }
+
+    public static String[] getColumnNames(ITable table) throws DataSetException
+    {
+        Column[] columns = table.getTableMetaData().getColumns();
+        String[] columnNames = new String[columns.length];
+        for (int i = 0; i < columns.length; i++)
+        {
+            columnNames[i] = columns[i].getColumnName();
+        }
+        return columnNames;
+    }
+
+    public static IDataSet createDataSet(int rowCount, int variant) throws DataSetException
+    {
+        return new DefaultDataSet(createTable(TABLE_NAME, rowCount, variant));
+    }
+
+    public static byte[] toFlatXml(IDataSet dataSet) throws IOException, DataSetException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new FlatXmlWriter(out).write(dataSet);
+        return out.toByteArray();
+    }
+
+    public static byte[] toXls(IDataSet dataSet) throws IOException, DataSetException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XlsDataSet.write(dataSet, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * @return A new empty temporary directory
+     */
+    public static File createTempDirectory(String prefix) throws IOException
+    {
+        File directory = File.createTempFile(prefix, "");
+        if (!directory.delete() || !directory.mkdir())
+        {
+            throw new IOException("Could not create directory " + directory);
+        }
+        return directory;
+    }
+
+    public static File toCsv(IDataSet dataSet) throws IOException, DataSetException
+    {
+        File directory = createTempDirectory("dbunit-csv");
+        CsvDataSetWriter.write(dataSet, directory);
+        return directory;
+    }
+
+    /**
+     * Deletes the given directory and the files in it.
+     */
+    public static void delete(File directory)
+    {
+        File[] files = directory.listFiles();
+        for (int i = 0; files != null && i < files.length; i++)
+        {
+            files[i].delete();
+        }
+        directory.delete();
+    }
+}
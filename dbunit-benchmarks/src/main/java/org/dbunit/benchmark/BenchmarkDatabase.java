@@ -0,0 +1,192 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.dbunit.database.DatabaseConfig;
+import org.dbunit.database.DatabaseConnection;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.datatype.IDataTypeFactory;
+import org.dbunit.ext.h2.H2DataTypeFactory;
+import org.dbunit.ext.hsqldb.HsqldbDataTypeFactory;
+
+/**
+ * The in-process databases the benchmarks run against.
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class BenchmarkDatabase
+{
+    public static final String HSQLDB = "hsqldb";
+    public static final String H2 = "h2";
+
+    private static int databaseCount = 0;
+
+    private final String _url;
+    private final Connection _jdbcConnection;
+    private final IDatabaseConnection _connection;
+    private final String _type;
+
+    /**
+     * Creates a new empty in-memory database.
+     * @param type {@link #HSQLDB} or {@link #H2}
+     */
+    public BenchmarkDatabase(String type) throws Exception
+    {
+        _type = type;
+        String name = "benchmark" + nextDatabaseNumber();
+        IDataTypeFactory dataTypeFactory;
+        if (HSQLDB.equals(type))
+        {
+            Class.forName("org.hsqldb.jdbcDriver");
+            _url = "jdbc:hsqldb:mem:" + name;
+            dataTypeFactory = new HsqldbDataTypeFactory();
+        }
+        else if (H2.equals(type))
+        {
+            Class.forName("org.h2.Driver");
+            _url = "jdbc:h2:mem:" + name;
+            dataTypeFactory = new H2DataTypeFactory();
+        }
+        else
+        {
+            throw new IllegalArgumentException("Unknown database type '" + type + "'");
+        }
+
+        _jdbcConnection = DriverManager.getConnection(_url, "sa", "");
+        _connection = new DatabaseConnection(_jdbcConnection);
+        _connection.getConfig().setProperty(DatabaseConfig.PROPERTY_DATATYPE_FACTORY, dataTypeFactory);
+    }
+
+    private static synchronized int nextDatabaseNumber()
+    {
+        return ++databaseCount;
+    }
+
+    public IDatabaseConnection getConnection()
+    {
+        return _connection;
+    }
+
+    /**
+     * @return A data source opening further connections to this database
+     */
+    public DataSource createDataSource()
+    {
+        return (DataSource)Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[] {DataSource.class}, new InvocationHandler()
+        {
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+            {
+                if (method.getName().equals("getConnection"))
+                {
+                    return DriverManager.getConnection(_url, "sa", "");
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    /**
+     * Executes the given DDL or DML statements.
+     */
+    public void execute(String[] sqls) throws SQLException
+    {
+        Statement statement = _jdbcConnection.createStatement();
+        try
+        {
+            for (int i = 0; i < sqls.length; i++)
+            {
+                statement.execute(sqls[i]);
+            }
+        }
+        finally
+        {
+            statement.close();
+        }
+    }
+
+    /**
+     * Creates the table filled by {@link BenchmarkData#createTable}.
+     */
+    public void createTable(String tableName) throws SQLException
+    {
+        execute(new String[] {"CREATE TABLE " + tableName
+                + " (ID INTEGER NOT NULL, NAME VARCHAR(64), AMOUNT NUMERIC(12,2),"
+                + " CREATED TIMESTAMP, ACTIVE BOOLEAN, PRIMARY KEY (ID))"});
+    }
+
+    /**
+     * Creates a schema of the given number of tables where each table except the first
+     * one has a foreign key to the table at half its index, which results in a balanced
+     * dependency tree.
+     */
+    public void createWideSchema(int tableCount) throws SQLException
+    {
+        String[] sqls = new String[tableCount * 2 - 1];
+        int count = 0;
+        for (int i = 0; i < tableCount; i++)
+        {
+            sqls[count++] = "CREATE TABLE " + getWideTableName(i)
+                    + " (ID INTEGER NOT NULL, PARENT_ID INTEGER, PRIMARY KEY (ID))";
+        }
+        for (int i = 1; i < tableCount; i++)
+        {
+            sqls[count++] = "ALTER TABLE " + getWideTableName(i) + " ADD CONSTRAINT FK_"
+                    + getWideTableName(i) + " FOREIGN KEY (PARENT_ID) REFERENCES "
+                    + getWideTableName((i - 1) / 2) + " (ID)";
+        }
+        execute(sqls);
+    }
+
+    public static String getWideTableName(int index)
+    {
+        return "W" + index;
+    }
+
+    /**
+     * Drops the database and closes the connection.
+     */
+    public void close() throws SQLException
+    {
+        try
+        {
+            execute(new String[] {HSQLDB.equals(_type) ? "SHUTDOWN" : "DROP ALL OBJECTS"});
+        }
+        finally
+        {
+            _connection.close();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.dbunit.database.CachedResultSetTableFactory;
+import org.dbunit.database.IResultSetTable;
+import org.dbunit.dataset.ColumnarTable;
+import org.dbunit.operation.DatabaseOperation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures reading a table into memory with the {@link CachedResultSetTableFactory},
+ * storing the rows as <code>Object[]</code> or in a {@link ColumnarTable}. Run with
+ * <code>-prof gc</code> to compare the allocated bytes per table.
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CachedTableBenchmark
+{
+    @Param({"10000", "100000"})
+    public int rowCount;
+
+    @Param({"false", "true"})
+    public boolean columnar;
+
+    private BenchmarkDatabase _database;
+    private CachedResultSetTableFactory _factory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        _database = new BenchmarkDatabase(BenchmarkDatabase.H2);
+        _database.createTable(BenchmarkData.TABLE_NAME);
+        DatabaseOperation.INSERT.execute(_database.getConnection(),
+                BenchmarkData.createDataSet(rowCount, 0));
+        _factory = new CachedResultSetTableFactory(columnar);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception
+    {
+        _database.close();
+    }
+
+    @Benchmark
+    public IResultSetTable cacheTable() throws Exception
+    {
+        return _factory.createTable(BenchmarkData.TABLE_NAME,
+                "select * from " + BenchmarkData.TABLE_NAME + " order by ID",
+                _database.getConnection());
+    }
+}
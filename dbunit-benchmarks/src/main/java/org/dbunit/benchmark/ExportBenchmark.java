@@ -0,0 +1,143 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+
+package org.dbunit.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.database.IPartConsumerFactory;
+import org.dbunit.database.ParallelExportProducer;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.stream.IDataSetConsumer;
+import org.dbunit.dataset.xml.FlatXmlWriter;
+import org.dbunit.operation.DatabaseOperation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time needed to export a table as flat XML sequentially and with the
+ * {@link ParallelExportProducer}.
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExportBenchmark
+{
+    private static final String[] TABLE_NAMES = {BenchmarkData.TABLE_NAME};
+
+    private static final int THREAD_COUNT = 4;
+
+    @Param({BenchmarkDatabase.HSQLDB, BenchmarkDatabase.H2})
+    public String database;
+
+    @Param({"100000"})
+    public int rowCount;
+
+    private BenchmarkDatabase _database;
+    private DataSource _dataSource;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        _database = new BenchmarkDatabase(database);
+        _database.createTable(BenchmarkData.TABLE_NAME);
+        DatabaseOperation.INSERT.execute(_database.getConnection(),
+                BenchmarkData.createDataSet(rowCount, 0));
+        _dataSource = _database.createDataSource();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception
+    {
+        _database.close();
+    }
+
+    private ParallelExportProducer createProducer()
+    {
+        ParallelExportProducer producer = new ParallelExportProducer(
+                _database.getConnection(), TABLE_NAMES, _dataSource, THREAD_COUNT);
+        producer.setChunkSize(rowCount / (THREAD_COUNT * 4));
+        return producer;
+    }
+
+    @Benchmark
+    public void sequential() throws Exception
+    {
+        IDatabaseConnection connection = _database.getConnection();
+        new FlatXmlWriter(new NullOutputStream()).write(connection.createDataSet(TABLE_NAMES));
+    }
+
+    @Benchmark
+    public void parallel() throws Exception
+    {
+        ParallelExportProducer producer = createProducer();
+        producer.setConsumer(new FlatXmlWriter(new NullOutputStream()));
+        producer.produce();
+    }
+
+    @Benchmark
+    public void parallelParts() throws Exception
+    {
+        createProducer().produceParts(new IPartConsumerFactory()
+        {
+            public IDataSetConsumer createConsumer(String tableName, int part)
+                    throws DataSetException
+            {
+                try
+                {
+                    return new FlatXmlWriter(new NullOutputStream());
+                }
+                catch (IOException e)
+                {
+                    throw new DataSetException(e);
+                }
+            }
+
+            public void releaseConsumer(IDataSetConsumer consumer) throws DataSetException
+            {
+            }
+        });
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.dbunit.database.DatabaseConfig;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.operation.DatabaseOperation;
+import org.dbunit.operation.MultiRowInsertBulkLoader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time of {@link DatabaseOperation#INSERT}, {@link DatabaseOperation#BULK_INSERT}
+ * with the {@link MultiRowInsertBulkLoader}, {@link DatabaseOperation#REFRESH},
+ * {@link DatabaseOperation#DELETE}, {@link DatabaseOperation#CLEAN_INSERT} and
+ * {@link DatabaseOperation#SYNC} for one table.
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OperationBenchmark
+{
+    /**
+     * A database containing the benchmark table
+     */
+    @State(Scope.Thread)
+    public abstract static class TableState
+    {
+        @Param({BenchmarkDatabase.HSQLDB, BenchmarkDatabase.H2})
+        public String database;
+
+        @Param({"1000", "10000"})
+        public int rowCount;
+
+        BenchmarkDatabase _database;
+        IDataSet _dataSet;
+        IDataSet _modifiedDataSet;
+
+        @Setup(Level.Trial)
+        public void setUpTrial() throws Exception
+        {
+            _database = new BenchmarkDatabase(database);
+            _database.createTable(BenchmarkData.TABLE_NAME);
+            _database.getConnection().getConfig().setProperty(
+                    DatabaseConfig.PROPERTY_BULK_LOADER, new MultiRowInsertBulkLoader());
+            _dataSet = BenchmarkData.createDataSet(rowCount, 0);
+            _modifiedDataSet = BenchmarkData.createDataSet(rowCount, 1);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDownTrial() throws Exception
+        {
+            _database.close();
+        }
+    }
+
+    /**
+     * State of the insert benchmark which requires an empty table
+     */
+    public static class EmptyTable extends TableState
+    {
+        @Setup(Level.Invocation)
+        public void setUp() throws Exception
+        {
+            DatabaseOperation.DELETE_ALL.execute(_database.getConnection(), _dataSet);
+        }
+    }
+
+    /**
+     * State of the refresh and delete benchmarks which require a filled table
+     */
+    public static class FilledTable extends TableState
+    {
+        @Setup(Level.Invocation)
+        public void setUp() throws Exception
+        {
+            DatabaseOperation.CLEAN_INSERT.execute(_database.getConnection(), _dataSet);
+        }
+    }
+
+    @Benchmark
+    public void insert(EmptyTable table) throws Exception
+    {
+        DatabaseOperation.INSERT.execute(table._database.getConnection(), table._dataSet);
+    }
+
+    @Benchmark
+    public void bulkInsert(EmptyTable table) throws Exception
+    {
+        DatabaseOperation.BULK_INSERT.execute(table._database.getConnection(), table._dataSet);
+    }
+
+    @Benchmark
+    public void refresh(FilledTable table) throws Exception
+    {
+        DatabaseOperation.REFRESH.execute(table._database.getConnection(), table._modifiedDataSet);
+    }
+
+    @Benchmark
+    public void delete(FilledTable table) throws Exception
+    {
+        DatabaseOperation.DELETE.execute(table._database.getConnection(), table._dataSet);
+    }
+
+    @Benchmark
+    public void cleanInsert(FilledTable table) throws Exception
+    {
+        DatabaseOperation.CLEAN_INSERT.execute(table._database.getConnection(), table._dataSet);
+    }
+
+    @Benchmark
+    public void syncUnchanged(FilledTable table) throws Exception
+    {
+        DatabaseOperation.SYNC.execute(table._database.getConnection(), table._dataSet);
+    }
+
+    @Benchmark
+    public void syncModified(FilledTable table) throws Exception
+    {
+        DatabaseOperation.SYNC.execute(table._database.getConnection(), table._modifiedDataSet);
+    }
+}
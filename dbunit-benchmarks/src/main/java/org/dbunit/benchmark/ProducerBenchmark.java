@@ -0,0 +1,179 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableIterator;
+import org.dbunit.dataset.RowOutOfBoundsException;
+import org.dbunit.dataset.binary.BinaryDataSet;
+import org.dbunit.dataset.binary.BinaryDataSetWriter;
+import org.dbunit.dataset.csv.CsvDataSet;
+import org.dbunit.dataset.excel.XlsDataSet;
+import org.dbunit.dataset.stream.StreamingDataSet;
+import org.dbunit.dataset.xml.FlatXmlDataSetBuilder;
+import org.dbunit.dataset.xml.FlatXmlProducer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xml.sax.InputSource;
+
+/**
+ * Measures the time needed to parse flat XML, CSV, Excel and binary datasets and to read all of
+ * their values.
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ProducerBenchmark
+{
+    @Param({"1000", "10000"})
+    public int rowCount;
+
+    private byte[] _flatXml;
+    private byte[] _xls;
+    private File _csvDirectory;
+    private File _binaryFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        IDataSet dataSet = BenchmarkData.createDataSet(rowCount, 0);
+        _flatXml = BenchmarkData.toFlatXml(dataSet);
+        _xls = BenchmarkData.toXls(dataSet);
+        _csvDirectory = BenchmarkData.toCsv(dataSet);
+        _binaryFile = File.createTempFile("dbunit-binary", ".dbub");
+        BinaryDataSetWriter.write(dataSet, _binaryFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        BenchmarkData.delete(_csvDirectory);
+        _binaryFile.delete();
+    }
+
+    @Benchmark
+    public void flatXml(Blackhole blackhole) throws Exception
+    {
+        consume(new FlatXmlDataSetBuilder().build(new ByteArrayInputStream(_flatXml)), blackhole);
+    }
+
+    @Benchmark
+    public void flatXmlStreaming(Blackhole blackhole) throws Exception
+    {
+        FlatXmlProducer producer = new FlatXmlProducer(
+                new InputSource(new ByteArrayInputStream(_flatXml)));
+        consume(new StreamingDataSet(producer), blackhole);
+    }
+
+    @Benchmark
+    public void flatXmlStax(Blackhole blackhole) throws Exception
+    {
+        consume(new FlatXmlDataSetBuilder().setStax(true).build(new ByteArrayInputStream(_flatXml)),
+                blackhole);
+    }
+
+    @Benchmark
+    public void flatXmlColumnSensing(Blackhole blackhole) throws Exception
+    {
+        consume(new FlatXmlDataSetBuilder().setColumnSensing(true).build(
+                new ByteArrayInputStream(_flatXml)), blackhole);
+    }
+
+    @Benchmark
+    public void flatXmlStaxColumnSensing(Blackhole blackhole) throws Exception
+    {
+        consume(new FlatXmlDataSetBuilder().setStax(true).setColumnSensing(true).build(
+                new ByteArrayInputStream(_flatXml)), blackhole);
+    }
+
+    @Benchmark
+    public void csv(Blackhole blackhole) throws Exception
+    {
+        consume(new CsvDataSet(_csvDirectory), blackhole);
+    }
+
+    @Benchmark
+    public void xls(Blackhole blackhole) throws Exception
+    {
+        consume(new XlsDataSet(new ByteArrayInputStream(_xls)), blackhole);
+    }
+
+    @Benchmark
+    public void binary(Blackhole blackhole) throws Exception
+    {
+        consume(new BinaryDataSet(_binaryFile), blackhole);
+    }
+
+    /**
+     * Reads every value once, since some datasets convert values lazily. The rows are
+     * read until the end of the table is reached, because streamed tables do not know
+     * their row count.
+     */
+    static void consume(IDataSet dataSet, Blackhole blackhole) throws Exception
+    {
+        ITableIterator iterator = dataSet.iterator();
+        while (iterator.next())
+        {
+            ITable table = iterator.getTable();
+            String[] columnNames = BenchmarkData.getColumnNames(table);
+            for (int row = 0; ; row++)
+            {
+                try
+                {
+                    for (int i = 0; i < columnNames.length; i++)
+                    {
+                        blackhole.consume(table.getValue(row, columnNames[i]));
+                    }
+                }
+                catch (RowOutOfBoundsException e)
+                {
+                    break;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.benchmark;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.csv.CsvDataSetWriter;
+import org.dbunit.dataset.xml.FlatXmlWriter;
+import org.dbunit.dataset.xml.XmlDataSetWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time needed to export a dataset as flat XML, XML and CSV.
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class WriterBenchmark
+{
+    @Param({"1000", "10000"})
+    public int rowCount;
+
+    private IDataSet _dataSet;
+    private File _csvDirectory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        _dataSet = BenchmarkData.createDataSet(rowCount, 0);
+        _csvDirectory = BenchmarkData.createTempDirectory("dbunit-csv");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        BenchmarkData.delete(_csvDirectory);
+    }
+
+    @Benchmark
+    public void flatXml() throws Exception
+    {
+        new FlatXmlWriter(new NullOutputStream()).write(_dataSet);
+    }
+
+    @Benchmark
+    public void flatXmlBackgroundFlush() throws Exception
+    {
+        FlatXmlWriter writer = new FlatXmlWriter(new NullOutputStream());
+        writer.setBackgroundFlush(true);
+        writer.write(_dataSet);
+    }
+
+    @Benchmark
+    public void xml() throws Exception
+    {
+        new XmlDataSetWriter(new NullOutputStream(), null).write(_dataSet);
+    }
+
+    @Benchmark
+    public void csv() throws Exception
+    {
+        CsvDataSetWriter.write(_dataSet, _csvDirectory);
+    }
+}
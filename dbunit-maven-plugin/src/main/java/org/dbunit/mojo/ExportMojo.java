@@ -83,6 +83,12 @@ public class ExportMojo
      * @parameter expression="${encoding}" default-value="${project.build.sourceEncoding}"
      */
     protected String encoding;
+
+    /**
+     * Set to true to write flat XML and XML output in a background thread.
+     * @parameter expression="${backgroundFlush}" default-value="false"
+     */
+    protected boolean backgroundFlush;
     
 
     public void execute()
@@ -119,6 +125,7 @@ public class ExportMojo
                 export.setDoctype( doctype );
                 export.setFormat( format );
                 export.setEncoding( encoding );
+                export.setBackgroundFlush( backgroundFlush );
                 
                 export.execute( connection );
             }
@@ -139,4 +139,32 @@ public class Assertion {
         INSTANCE.assertEquals(expectedTable, actualTable, failureHandler);
     }
 
+    /**
+     * @see DbUnitAssert#assertEqualsByKey(IDataSet, IDataSet, FailureHandler)
+     * @since 2.5.1
+     */
+    public static void assertEqualsByKey(IDataSet expectedDataSet,
+            IDataSet actualDataSet) throws DatabaseUnitException {
+        INSTANCE.assertEqualsByKey(expectedDataSet, actualDataSet, null);
+    }
+
+    /**
+     * @see DbUnitAssert#assertEqualsByKey(ITable, ITable)
+     * @since 2.5.1
+     */
+    public static void assertEqualsByKey(ITable expectedTable, ITable actualTable)
+            throws DatabaseUnitException {
+        INSTANCE.assertEqualsByKey(expectedTable, actualTable);
+    }
+
+    /**
+     * @see DbUnitAssert#assertEqualsByKey(ITable, ITable, String[], FailureHandler)
+     * @since 2.5.1
+     */
+    public static void assertEqualsByKey(ITable expectedTable, ITable actualTable,
+            String[] keyColumnNames, FailureHandler failureHandler)
+            throws DatabaseUnitException {
+        INSTANCE.assertEqualsByKey(expectedTable, actualTable, keyColumnNames, failureHandler);
+    }
+
 }
@@ -0,0 +1,430 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+
+import org.dbunit.database.DatabaseConnection;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.operation.DatabaseOperation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * DatabaseTester that isolates the tests by rolling back their transaction instead of
+ * resetting the database before every test.
+ * <p>
+ * The first {@link #onSetup()} executes the setup operation with the dataset and commits
+ * it. Every test then runs in a transaction of a single connection which is kept open
+ * until {@link #close()} and which {@link #onTearDown()} rolls back, so the setup of the
+ * following tests costs nearly nothing. The tear down operation is not executed. The
+ * connection returned by {@link #getConnection()} ignores calls to
+ * {@link Connection#commit()} and {@link Connection#close()} made by the code under test.
+ * </p>
+ * <p>
+ * Changes that cannot be rolled back are detected: enabling auto commit and statements
+ * that commit implicitly on many databases, like DDL, <code>truncate</code> or
+ * <code>commit</code>. The next setup then resets the database by executing the setup
+ * operation again, as it also does when a different dataset is set. Changes made on other
+ * connections are neither isolated nor detected.
+ * </p>
+ *
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class RollbackDatabaseTester extends AbstractDatabaseTester
+{
+
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(RollbackDatabaseTester.class);
+
+    private static final String[] IMPLICIT_COMMIT_COMMANDS = {
+        "ALTER", "COMMIT", "CREATE", "DROP", "GRANT", "RENAME", "REVOKE", "TRUNCATE"
+    };
+
+    private final IDatabaseTester connectionTester;
+    private IOperationListener operationListener = new DefaultOperationListener();
+    private IDatabaseConnection physicalConnection;
+    private IDatabaseConnection connection;
+    private TransactionGuard guard;
+    private boolean originalAutoCommit;
+    private Object loadedDataSet;
+    private boolean resetNeeded = true;
+
+    /**
+     * @param connectionTester The tester providing the connection. Only its
+     * {@link IDatabaseTester#getConnection()} and {@link IDatabaseTester#closeConnection}
+     * methods are used, the dataset and the operations are set on this tester.
+     */
+    public RollbackDatabaseTester(IDatabaseTester connectionTester)
+    {
+        if (connectionTester == null) {
+            throw new NullPointerException("The parameter 'connectionTester' must not be null");
+        }
+        this.connectionTester = connectionTester;
+    }
+
+    /**
+     * Returns the connection shared by all tests. The connection is opened on the first
+     * call and the {@link IOperationListener#connectionRetrieved} method of the
+     * operation listener is invoked for it.
+     */
+    public IDatabaseConnection getConnection() throws Exception
+    {
+        logger.debug("getConnection() - start");
+
+        if (connection == null)
+        {
+            physicalConnection = connectionTester.getConnection();
+            Connection jdbcConnection = physicalConnection.getConnection();
+            originalAutoCommit = jdbcConnection.getAutoCommit();
+
+            guard = new TransactionGuard(jdbcConnection);
+            Connection guardedConnection = (Connection)Proxy.newProxyInstance(
+                    getClass().getClassLoader(), new Class[] {Connection.class}, guard);
+            guard.setProxy(guardedConnection);
+
+            connection = new DatabaseConnection(guardedConnection, physicalConnection.getSchema());
+            physicalConnection.getConfig().copyTo(connection.getConfig());
+            operationListener.connectionRetrieved(connection);
+        }
+        return connection;
+    }
+
+    /**
+     * Does nothing since the connection is used by all tests. It is closed by {@link #close()}.
+     */
+    public void closeConnection(IDatabaseConnection connection) throws Exception
+    {
+        logger.debug("closeConnection(connection={}) - start", connection);
+    }
+
+    public void setOperationListener(IOperationListener operationListener)
+    {
+        super.setOperationListener(operationListener);
+        this.operationListener = operationListener;
+    }
+
+    /**
+     * Resets the database if needed and starts the transaction of the test.
+     */
+    public void onSetup() throws Exception
+    {
+        logger.debug("onSetup() - start");
+
+        IDatabaseConnection connection = getConnection();
+        Connection jdbcConnection = physicalConnection.getConnection();
+        if (jdbcConnection.getAutoCommit())
+        {
+            jdbcConnection.setAutoCommit(false);
+        }
+
+        if (resetNeeded || getDataSet() != loadedDataSet)
+        {
+            logger.debug("Resetting the database using {}", getSetUpOperation());
+            DatabaseOperation operation = getSetUpOperation();
+            if (operation != DatabaseOperation.NONE)
+            {
+                operation.execute(connection, getDataSet());
+            }
+            jdbcConnection.commit();
+            loadedDataSet = getDataSet();
+            resetNeeded = false;
+        }
+        guard.reset();
+    }
+
+    /**
+     * Rolls back the transaction of the test.
+     */
+    public void onTearDown() throws Exception
+    {
+        logger.debug("onTearDown() - start");
+
+        if (connection == null)
+        {
+            return;
+        }
+
+        Connection jdbcConnection = physicalConnection.getConnection();
+        if (!jdbcConnection.getAutoCommit())
+        {
+            jdbcConnection.rollback();
+        }
+        else
+        {
+            jdbcConnection.setAutoCommit(false);
+        }
+
+        String reason = guard.getCommitReason();
+        if (reason != null)
+        {
+            logger.info("Cannot roll back the test since it executed {}."
+                    + " The database will be reset by the next setup.", reason);
+            resetNeeded = true;
+        }
+    }
+
+    /**
+     * @return Whether the next {@link #onSetup()} executes the setup operation
+     */
+    public boolean isResetNeeded()
+    {
+        return resetNeeded;
+    }
+
+    /**
+     * Rolls back the current transaction and closes the connection. The next
+     * {@link #onSetup()} opens a new connection and resets the database.
+     */
+    public void close() throws Exception
+    {
+        logger.debug("close() - start");
+
+        if (connection == null)
+        {
+            return;
+        }
+
+        try
+        {
+            Connection jdbcConnection = physicalConnection.getConnection();
+            if (!jdbcConnection.getAutoCommit())
+            {
+                jdbcConnection.rollback();
+            }
+            jdbcConnection.setAutoCommit(originalAutoCommit);
+        }
+        finally
+        {
+            connectionTester.closeConnection(physicalConnection);
+            physicalConnection = null;
+            connection = null;
+            guard = null;
+            loadedDataSet = null;
+            resetNeeded = true;
+        }
+    }
+
+    /**
+     * @return The command if the given SQL statement commits implicitly on some
+     * databases or <code>null</code> otherwise
+     */
+    static String getImplicitCommitCommand(String sql)
+    {
+        if (sql == null)
+        {
+            return null;
+        }
+
+        // skip leading white space and comments
+        int start = 0;
+        int length = sql.length();
+        while (start < length)
+        {
+            if (Character.isWhitespace(sql.charAt(start)))
+            {
+                start++;
+            }
+            else if (sql.startsWith("--", start))
+            {
+                int end = sql.indexOf('\n', start);
+                start = end < 0 ? length : end + 1;
+            }
+            else if (sql.startsWith("/*", start))
+            {
+                int end = sql.indexOf("*/", start + 2);
+                start = end < 0 ? length : end + 2;
+            }
+            else
+            {
+                break;
+            }
+        }
+
+        int end = start;
+        while (end < length && Character.isLetter(sql.charAt(end)))
+        {
+            end++;
+        }
+        String command = sql.substring(start, end).toUpperCase();
+        for (int i = 0; i < IMPLICIT_COMMIT_COMMANDS.length; i++)
+        {
+            if (IMPLICIT_COMMIT_COMMANDS[i].equals(command))
+            {
+                return command;
+            }
+        }
+        return null;
+    }
+
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append(super.toString());
+        sb.append("[connectionTester=").append(connectionTester);
+        sb.append(", resetNeeded=").append(resetNeeded);
+        sb.append("]");
+        return sb.toString();
+    }
+
+
+    /**
+     * Ignores commits and closing of the connection and records the changes that cannot
+     * be rolled back.
+     */
+    private static class TransactionGuard implements InvocationHandler
+    {
+        private final Connection _connection;
+        private Connection _proxy;
+        private String _commitReason;
+
+        public TransactionGuard(Connection connection)
+        {
+            _connection = connection;
+        }
+
+        public void setProxy(Connection proxy)
+        {
+            _proxy = proxy;
+        }
+
+        public void reset()
+        {
+            _commitReason = null;
+        }
+
+        /**
+         * @return A description of the first change that cannot be rolled back or
+         * <code>null</code>
+         */
+        public String getCommitReason()
+        {
+            return _commitReason;
+        }
+
+        void check(String sql)
+        {
+            String command = getImplicitCommitCommand(sql);
+            if (command != null && _commitReason == null)
+            {
+                _commitReason = "the statement " + command;
+            }
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            String name = method.getName();
+            if (name.equals("commit") || name.equals("close"))
+            {
+                logger.debug("Ignoring {}() on the connection of the test", name);
+                return null;
+            }
+            if (name.equals("setAutoCommit") && ((Boolean)args[0]).booleanValue()
+                    && _commitReason == null)
+            {
+                _commitReason = "setAutoCommit(true)";
+            }
+            if ((name.equals("prepareStatement") || name.equals("prepareCall"))
+                    && args[0] instanceof String)
+            {
+                check((String)args[0]);
+            }
+            if (name.equals("equals"))
+            {
+                return Boolean.valueOf(proxy == args[0]);
+            }
+            if (name.equals("hashCode"))
+            {
+                return new Integer(System.identityHashCode(proxy));
+            }
+
+            Object result = delegate(_connection, method, args);
+            if (name.equals("createStatement"))
+            {
+                return Proxy.newProxyInstance(getClass().getClassLoader(),
+                        new Class[] {Statement.class}, new StatementGuard(this, (Statement)result));
+            }
+            return result;
+        }
+
+        static Object delegate(Object target, Method method, Object[] args) throws Throwable
+        {
+            try
+            {
+                return method.invoke(target, args);
+            }
+            catch (InvocationTargetException e)
+            {
+                throw e.getTargetException();
+            }
+        }
+    }
+
+
+    /**
+     * Checks the SQL executed by a statement of the connection of the test.
+     */
+    private static class StatementGuard implements InvocationHandler
+    {
+        private final TransactionGuard _guard;
+        private final Statement _statement;
+
+        public StatementGuard(TransactionGuard guard, Statement statement)
+        {
+            _guard = guard;
+            _statement = statement;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            String name = method.getName();
+            if ((name.startsWith("execute") || name.equals("addBatch"))
+                    && args != null && args.length > 0 && args[0] instanceof String)
+            {
+                _guard.check((String)args[0]);
+            }
+            if (name.equals("getConnection"))
+            {
+                return _guard._proxy;
+            }
+            if (name.equals("equals"))
+            {
+                return Boolean.valueOf(proxy == args[0]);
+            }
+            if (name.equals("hashCode"))
+            {
+                return new Integer(System.identityHashCode(proxy));
+            }
+            return TransactionGuard.delegate(_statement, method, args);
+        }
+    }
+}
@@ -41,7 +41,7 @@ import org.dbunit.dataset.CompositeDataSet;
 import org.dbunit.dataset.DataSetException;
 import org.dbunit.dataset.IDataSet;
 import org.dbunit.dataset.csv.CsvProducer;
-import org.dbunit.dataset.excel.XlsDataSet;
+import org.dbunit.dataset.excel.XlsProducer;
 import org.dbunit.dataset.stream.IDataSetProducer;
 import org.dbunit.dataset.stream.StreamingDataSet;
 import org.dbunit.dataset.xml.FlatDtdProducer;
@@ -191,7 +191,7 @@ public abstract class AbstractStep extends ProjectComponent implements DbUnitTas
             }
             else if (format.equalsIgnoreCase(FORMAT_XLS))
             {
-                return new CachedDataSet(new XlsDataSet(src));
+                producer = new XlsProducer(src);
             }
             else
             {
@@ -37,11 +37,11 @@ import org.dbunit.database.IDatabaseConnection;
 import org.dbunit.dataset.FilteredDataSet;
 import org.dbunit.dataset.IDataSet;
 import org.dbunit.dataset.csv.CsvDataSetWriter;
-import org.dbunit.dataset.excel.XlsDataSet;
+import org.dbunit.dataset.excel.XlsStreamingWriter;
 import org.dbunit.dataset.filter.ITableFilter;
 import org.dbunit.dataset.xml.FlatDtdDataSet;
 import org.dbunit.dataset.xml.FlatXmlWriter;
-import org.dbunit.dataset.xml.XmlDataSet;
+import org.dbunit.dataset.xml.XmlDataSetWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -69,6 +69,7 @@ public class Export extends AbstractStep
     private String _format = FORMAT_FLAT;
     private String _doctype = null;
     private String _encoding = null; // if no encoding set by script than the default encoding (UTF-8) of the wrietr is used
+    private boolean _backgroundFlush = false;
     private List _tables = new ArrayList();
 
     public Export()
@@ -133,6 +134,25 @@ public class Export extends AbstractStep
         this._encoding = encoding;
     }
 
+    /**
+     * @return Whether XML output is written in a background thread
+     * @since 2.5.1
+     */
+    public boolean isBackgroundFlush()
+    {
+        return _backgroundFlush;
+    }
+
+    /**
+     * Whether the flat XML and XML formats are written to the file in a background thread
+     * @param backgroundFlush
+     * @since 2.5.1
+     */
+    public void setBackgroundFlush(boolean backgroundFlush)
+    {
+        _backgroundFlush = backgroundFlush;
+    }
+
     public void addTable(Table table)
     {
         logger.debug("addTable(table={}) - start", table);
@@ -191,11 +211,14 @@ public class Export extends AbstractStep
                     {
                         FlatXmlWriter writer = new FlatXmlWriter(out, getEncoding());
                         writer.setDocType(_doctype);
+                        writer.setBackgroundFlush(_backgroundFlush);
                         writer.write(dataset);
                     }
                     else if (_format.equalsIgnoreCase(FORMAT_XML))
                     {
-                        XmlDataSet.write(dataset, out, getEncoding());
+                        XmlDataSetWriter writer = new XmlDataSetWriter(out, getEncoding());
+                        writer.setBackgroundFlush(_backgroundFlush);
+                        writer.write(dataset);
                     }
                     else if (_format.equalsIgnoreCase(FORMAT_DTD))
                     {
@@ -204,7 +227,7 @@ public class Export extends AbstractStep
                     }
                     else if (_format.equalsIgnoreCase(FORMAT_XLS))
                     {
-                        XlsDataSet.write(dataset, out);
+                        new XlsStreamingWriter(out).write(dataset);
                     }
                     else
                     {
@@ -0,0 +1,79 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.assertion;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A {@link DiffCollectingFailureHandler} that can be shared by threads comparing
+ * different tables at the same time, for example by the {@link ParallelDataSetAssert}.
+ * <p>
+ * The differences of one table are kept in the order they were found. The tables are
+ * ordered by their upper case names, which is the order in which
+ * {@link DbUnitAssert#assertEquals(org.dbunit.dataset.IDataSet, org.dbunit.dataset.IDataSet, FailureHandler)}
+ * compares them, so the list is the same no matter how the comparisons were interleaved.
+ * </p>
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class ConcurrentDiffCollectingFailureHandler extends DiffCollectingFailureHandler 
+{
+    private static final Comparator TABLE_NAME_COMPARATOR = new Comparator()
+    {
+        public int compare(Object o1, Object o2)
+        {
+            return getTableName((Difference)o1).compareTo(getTableName((Difference)o2));
+        }
+    };
+
+    public synchronized void handle(Difference diff) 
+    {
+        super.handle(diff);
+    }
+
+    /**
+     * @return A copy of the collected {@link Difference}s ordered by table
+     */
+    public synchronized List getDiffList() 
+    {
+        List diffList = new ArrayList(super.getDiffList());
+        // The sort is stable, so the differences of a table keep their order
+        Collections.sort(diffList, TABLE_NAME_COMPARATOR);
+        return diffList;
+    }
+
+    public synchronized String toString()
+    {
+        return super.toString();
+    }
+
+    private static String getTableName(Difference diff)
+    {
+        return diff.getExpectedTable().getTableMetaData().getTableName().toUpperCase();
+    }
+}
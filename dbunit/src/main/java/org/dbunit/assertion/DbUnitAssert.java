@@ -20,19 +20,32 @@
  */
 package org.dbunit.assertion;
 
+import java.math.BigDecimal;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 
 import org.dbunit.Assertion;
 import org.dbunit.DatabaseUnitException;
 import org.dbunit.database.IDatabaseConnection;
 import org.dbunit.dataset.Column;
+import org.dbunit.dataset.ColumnIndexMapping;
 import org.dbunit.dataset.Columns;
 import org.dbunit.dataset.DataSetException;
 import org.dbunit.dataset.IDataSet;
 import org.dbunit.dataset.ITable;
 import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.NoPrimaryKeyException;
+import org.dbunit.dataset.NoSuchColumnException;
+import org.dbunit.dataset.RowOutOfBoundsException;
 import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.dataset.datatype.TypeCastException;
 import org.dbunit.dataset.datatype.UnknownDataType;
 import org.dbunit.dataset.filter.DefaultColumnFilter;
 import org.slf4j.Logger;
@@ -229,6 +242,23 @@ public class DbUnitAssert
             failureHandler = getDefaultFailureHandler();
         }
 
+        String[] expectedNames = getSortedUpperTableNames(expectedDataSet, actualDataSet, failureHandler);
+
+        // tables
+        for (int i = 0; i < expectedNames.length; i++) {
+            String name = expectedNames[i];
+            assertEquals(expectedDataSet.getTable(name), actualDataSet.getTable(name), failureHandler);
+        }
+
+    }
+
+    /**
+     * Verifies that both datasets contain the same tables.
+     * @return The sorted upper case table names
+     */
+    private String[] getSortedUpperTableNames(IDataSet expectedDataSet, IDataSet actualDataSet,
+            FailureHandler failureHandler) throws DataSetException
+    {
         String[] expectedNames = getSortedUpperTableNames(expectedDataSet);
         String[] actualNames = getSortedUpperTableNames(actualDataSet);
 
@@ -246,13 +276,7 @@ public class DbUnitAssert
             }
 
         }
-
-        // tables
-        for (int i = 0; i < expectedNames.length; i++) {
-            String name = expectedNames[i];
-            assertEquals(expectedDataSet.getTable(name), actualDataSet.getTable(name), failureHandler);
-        }
-
+        return expectedNames;
     }
 
     /**
@@ -409,6 +433,347 @@ public class DbUnitAssert
         compareData(expectedTable, actualTable, comparisonCols, failureHandler);
     }
 
+    /**
+     * Asserts that the two specified datasets are equal, matching the rows of each
+     * table by its primary key columns. See
+     * {@link #assertEqualsByKey(ITable, ITable, String[], FailureHandler)}.
+     * 
+     * @param expectedDataSet
+     *            Dataset containing all expected results.
+     * @param actualDataSet
+     *            Dataset containing all actual results.
+     * @param failureHandler
+     *            The failure handler or <code>null</code> for the default one
+     * @throws DatabaseUnitException
+     * @since 2.5.1
+     */
+    public void assertEqualsByKey(IDataSet expectedDataSet, IDataSet actualDataSet,
+            FailureHandler failureHandler) throws DatabaseUnitException 
+    {
+        if (logger.isDebugEnabled())
+            logger.debug(
+                            "assertEqualsByKey(expectedDataSet={}, actualDataSet={}, failureHandler={}) - start",
+                    new Object[] { expectedDataSet, actualDataSet, failureHandler });
+
+        // do not continue if same instance
+        if (expectedDataSet == actualDataSet) {
+            return;
+        }
+
+        if (failureHandler == null) {
+            logger.debug("FailureHandler is null. Using default implementation");
+            failureHandler = getDefaultFailureHandler();
+        }
+
+        String[] expectedNames = getSortedUpperTableNames(expectedDataSet, actualDataSet, failureHandler);
+
+        // tables
+        for (int i = 0; i < expectedNames.length; i++) {
+            String name = expectedNames[i];
+            assertEqualsByKey(expectedDataSet.getTable(name), actualDataSet.getTable(name),
+                    null, failureHandler);
+        }
+    }
+
+    /**
+     * Asserts that the two specified tables are equal, matching the rows by the
+     * primary key columns of the expected table or, if it has none, of the actual table.
+     * See {@link #assertEqualsByKey(ITable, ITable, String[], FailureHandler)}.
+     * 
+     * @param expectedTable
+     *            Table containing all expected results.
+     * @param actualTable
+     *            Table containing all actual results.
+     * @throws DatabaseUnitException
+     * @since 2.5.1
+     */
+    public void assertEqualsByKey(ITable expectedTable, ITable actualTable)
+    throws DatabaseUnitException 
+    {
+        assertEqualsByKey(expectedTable, actualTable, null, null);
+    }
+
+    /**
+     * Asserts that the two specified tables are equal, matching the rows by the
+     * values of key columns instead of by their position. Hence the tables do not need
+     * to be sorted. Like {@link #assertEquals(ITable, ITable, FailureHandler)} this
+     * ignores the table names, the columns order and the columns data type.
+     * <p>
+     * The rows of the smaller table are put into a hash index by their key, then the
+     * rows of the other table are read one after another and looked up in the index.
+     * Each table is read once in ascending row order, so the comparison takes linear
+     * time and also works for tables without random access, for example a
+     * {@link org.dbunit.dataset.ForwardOnlyTable} or a streamed table. Rows having the
+     * same key are matched in the order they appear.
+     * </p>
+     * <p>
+     * Each difference is passed to the failure handler as a {@link Difference} of type
+     * {@link Difference#VALUE_MISMATCH}, {@link Difference#MISSING_ROW} or
+     * {@link Difference#UNEXPECTED_ROW} including the key values of the row. The default
+     * failure handler fails with the first difference, a
+     * {@link DiffCollectingFailureHandler} collects all of them.
+     * </p>
+     * 
+     * @param expectedTable
+     *            Table containing all expected results.
+     * @param actualTable
+     *            Table containing all actual results.
+     * @param keyColumnNames
+     *            The columns identifying a row or <code>null</code> to use the
+     *            primary key columns of the expected or else the actual table
+     * @param failureHandler
+     *            The failure handler or <code>null</code> for the default one
+     * @throws DatabaseUnitException
+     * @since 2.5.1
+     */
+    public void assertEqualsByKey(ITable expectedTable, ITable actualTable,
+            String[] keyColumnNames, FailureHandler failureHandler) throws DatabaseUnitException
+    {
+        if (logger.isDebugEnabled())
+            logger.debug(
+                            "assertEqualsByKey(expectedTable={}, actualTable={}, keyColumnNames={}, failureHandler={}) - start",
+                    new Object[] { expectedTable, actualTable,
+                            keyColumnNames == null ? null : Arrays.asList(keyColumnNames), failureHandler });
+
+        // Do not continue if same instance
+        if (expectedTable == actualTable) {
+            return;
+        }
+
+        if (failureHandler == null) {
+            logger.debug("FailureHandler is null. Using default implementation");
+            failureHandler = getDefaultFailureHandler();
+        }
+
+        // Empty tables are equal regardless of their columns, see assertEquals()
+        int expectedRowsCount = getRowCountIfSupported(expectedTable);
+        int actualRowsCount = getRowCountIfSupported(actualTable);
+        if (expectedRowsCount == 0 && actualRowsCount == 0) {
+            logger.debug("Tables are empty, hence equals.");
+            return;
+        }
+
+        ITableMetaData expectedMetaData = expectedTable.getTableMetaData();
+        ITableMetaData actualMetaData = actualTable.getTableMetaData();
+        String expectedTableName = expectedMetaData.getTableName();
+
+        // Put the columns into the same order
+        Column[] expectedColumns = Columns.getSortedColumns(expectedMetaData);
+        Column[] actualColumns = Columns.getSortedColumns(actualMetaData);
+
+        // Verify columns
+        Columns.ColumnDiff columnDiff =
+                Columns.getColumnDiff(expectedMetaData, actualMetaData);
+        if (columnDiff.hasDifference()) {
+            String message = columnDiff.getMessage();
+            Error error =
+                    failureHandler.createFailure(message, Columns
+                            .getColumnNamesAsString(expectedColumns), Columns
+                            .getColumnNamesAsString(actualColumns));
+            logger.error(error.toString());
+            throw error;
+        }
+
+        if (keyColumnNames == null) {
+            keyColumnNames = Columns.getColumnNames(expectedMetaData.getPrimaryKeys());
+            if (keyColumnNames.length == 0) {
+                keyColumnNames = Columns.getColumnNames(actualMetaData.getPrimaryKeys());
+            }
+        }
+        if (keyColumnNames.length == 0) {
+            throw new NoPrimaryKeyException(expectedTableName);
+        }
+
+        ComparisonColumn[] comparisonCols = getComparisonColumns(expectedTableName,
+                expectedColumns, actualColumns, failureHandler);
+
+        // Index the smaller table if the sizes are known
+        boolean indexActual = expectedRowsCount >= 0 && actualRowsCount >= 0
+                && actualRowsCount < expectedRowsCount;
+        compareDataByKey(expectedTable, actualTable, comparisonCols,
+                keyColumnNames, indexActual, failureHandler);
+    }
+
+    /**
+     * @return The row count of the table or -1 if the table does not know it
+     */
+    private int getRowCountIfSupported(ITable table)
+    {
+        try {
+            return table.getRowCount();
+        }
+        catch (UnsupportedOperationException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Compares the data of the tables matching the rows by the given key columns.
+     * 
+     * @param expectedTable
+     *            Table containing all expected results.
+     * @param actualTable
+     *            Table containing all actual results.
+     * @param comparisonCols
+     *            The columns to be compared, also including the correct
+     *            {@link DataType}s for comparison
+     * @param keyColumnNames
+     *            The columns identifying a row, all of them contained in
+     *            <code>comparisonCols</code>
+     * @param indexActual
+     *            <code>true</code> to build the hash index on the actual table and
+     *            read the expected table one row after another, <code>false</code>
+     *            for the other way round
+     * @param failureHandler
+     *            The failure handler used for the differences. Must not be
+     *            <code>null</code> at this stage
+     * @throws DataSetException
+     * @since 2.5.1
+     */
+    protected void compareDataByKey(ITable expectedTable, ITable actualTable,
+            ComparisonColumn[] comparisonCols, String[] keyColumnNames,
+            boolean indexActual, FailureHandler failureHandler)
+            throws DataSetException
+    {
+        logger.debug("compareDataByKey(expectedTable={}, actualTable={}, "
+                + "comparisonCols={}, failureHandler={}) - start",
+                new Object[] {expectedTable, actualTable, comparisonCols,
+                        failureHandler});
+
+        if (failureHandler == null) {
+            throw new NullPointerException(
+                    "The parameter 'failureHandler' must not be null");
+        }
+
+        String[] columnNames = new String[comparisonCols.length];
+        for (int j = 0; j < comparisonCols.length; j++) {
+            columnNames[j] = comparisonCols[j].getColumnName();
+        }
+
+        int[] keyIndexes = new int[keyColumnNames.length];
+        String[] keyNames = new String[keyColumnNames.length];
+        for (int k = 0; k < keyColumnNames.length; k++) {
+            keyIndexes[k] = -1;
+            for (int j = 0; j < columnNames.length; j++) {
+                if (columnNames[j].equalsIgnoreCase(keyColumnNames[k])) {
+                    keyIndexes[k] = j;
+                    break;
+                }
+            }
+            if (keyIndexes[k] < 0) {
+                throw new NoSuchColumnException(
+                        expectedTable.getTableMetaData().getTableName(), keyColumnNames[k]);
+            }
+            keyNames[k] = columnNames[keyIndexes[k]];
+        }
+
+        ITable indexedTable = indexActual ? actualTable : expectedTable;
+        ITable streamedTable = indexActual ? expectedTable : actualTable;
+
+        // build the hash index of the rows of one table
+        Map index = new HashMap();
+        ColumnIndexMapping indexedMapping = new ColumnIndexMapping(indexedTable, columnNames);
+        int indexedRowCount = getRowCountIfSupported(indexedTable);
+        for (int i = 0; indexedRowCount < 0 || i < indexedRowCount; i++) {
+            Object[] values = readRow(indexedMapping, i, columnNames.length);
+            if (values == null) {
+                break;
+            }
+            RowKey key = new RowKey(values, keyIndexes, comparisonCols);
+            List rows = (List)index.get(key);
+            if (rows == null) {
+                rows = new LinkedList();
+                index.put(key, rows);
+            }
+            rows.add(new IndexedRow(i, values));
+        }
+
+        // match the rows of the other table
+        ColumnIndexMapping streamedMapping = new ColumnIndexMapping(streamedTable, columnNames);
+        int streamedRowCount = getRowCountIfSupported(streamedTable);
+        for (int i = 0; streamedRowCount < 0 || i < streamedRowCount; i++) {
+            Object[] values = readRow(streamedMapping, i, columnNames.length);
+            if (values == null) {
+                break;
+            }
+            RowKey key = new RowKey(values, keyIndexes, comparisonCols);
+            List rows = (List)index.get(key);
+            if (rows == null || rows.isEmpty()) {
+                failureHandler.handle(new Difference(expectedTable, actualTable,
+                        indexActual ? i : -1, indexActual ? -1 : i, null, null, null,
+                        indexActual ? Difference.MISSING_ROW : Difference.UNEXPECTED_ROW,
+                        keyNames, key.getValues()));
+                continue;
+            }
+
+            IndexedRow indexedRow = (IndexedRow)rows.remove(0);
+            if (indexActual) {
+                compareRow(expectedTable, actualTable, i, indexedRow.rowIndex,
+                        values, indexedRow.values, comparisonCols, keyNames, key, failureHandler);
+            }
+            else {
+                compareRow(expectedTable, actualTable, indexedRow.rowIndex, i,
+                        indexedRow.values, values, comparisonCols, keyNames, key, failureHandler);
+            }
+        }
+
+        // the remaining rows of the index have no counterpart
+        List remainingRows = new ArrayList();
+        for (Iterator it = index.values().iterator(); it.hasNext();) {
+            remainingRows.addAll((List)it.next());
+        }
+        Collections.sort(remainingRows);
+        for (Iterator it = remainingRows.iterator(); it.hasNext();) {
+            IndexedRow indexedRow = (IndexedRow)it.next();
+            RowKey key = new RowKey(indexedRow.values, keyIndexes, comparisonCols);
+            failureHandler.handle(new Difference(expectedTable, actualTable,
+                    indexActual ? -1 : indexedRow.rowIndex, indexActual ? indexedRow.rowIndex : -1,
+                    null, null, null,
+                    indexActual ? Difference.UNEXPECTED_ROW : Difference.MISSING_ROW,
+                    keyNames, key.getValues()));
+        }
+    }
+
+    /**
+     * @return The values of the given row or <code>null</code> if the table has no such row
+     */
+    private Object[] readRow(ColumnIndexMapping mapping, int row, int columnCount)
+            throws DataSetException
+    {
+        Object[] values = new Object[columnCount];
+        try {
+            for (int j = 0; j < columnCount; j++) {
+                values[j] = mapping.getValue(row, j);
+            }
+        }
+        catch (RowOutOfBoundsException e) {
+            return null;
+        }
+        return values;
+    }
+
+    private void compareRow(ITable expectedTable, ITable actualTable,
+            int expectedRow, int actualRow, Object[] expectedValues, Object[] actualValues,
+            ComparisonColumn[] comparisonCols, String[] keyNames, RowKey key,
+            FailureHandler failureHandler) throws DataSetException
+    {
+        for (int j = 0; j < comparisonCols.length; j++) {
+            String columnName = comparisonCols[j].getColumnName();
+            Object expectedValue = expectedValues[j];
+            Object actualValue = actualValues[j];
+
+            if (skipCompare(columnName, expectedValue, actualValue)) {
+                continue;
+            }
+
+            if (comparisonCols[j].getDataType().compare(expectedValue, actualValue) != 0) {
+                failureHandler.handle(new Difference(expectedTable, actualTable,
+                        expectedRow, actualRow, columnName, expectedValue, actualValue,
+                        Difference.VALUE_MISMATCH, keyNames, key.getValues()));
+            }
+        }
+    }
+
     /**
      * @return The default failure handler
      * @since 2.4
@@ -492,17 +857,27 @@ public class DbUnitAssert
                     "The parameter 'failureHandler' must not be null");
         }
 
+        // resolve the column positions once for all rows
+        String[] columnNames = new String[comparisonCols.length];
+        for (int j = 0; j < comparisonCols.length; j++) {
+            columnNames[j] = comparisonCols[j].getColumnName();
+        }
+        ColumnIndexMapping expectedMapping =
+                new ColumnIndexMapping(expectedTable, columnNames);
+        ColumnIndexMapping actualMapping =
+                new ColumnIndexMapping(actualTable, columnNames);
+
         // iterate over all rows
         for (int i = 0; i < expectedTable.getRowCount(); i++) {
             // iterate over all columns of the current row
             for (int j = 0; j < comparisonCols.length; j++) {
                 ComparisonColumn compareColumn = comparisonCols[j];
 
-                String columnName = compareColumn.getColumnName();
+                String columnName = columnNames[j];
                 DataType dataType = compareColumn.getDataType();
 
-                Object expectedValue = expectedTable.getValue(i, columnName);
-                Object actualValue = actualTable.getValue(i, columnName);
+                Object expectedValue = expectedMapping.getValue(i, j);
+                Object actualValue = actualMapping.getValue(i, j);
 
                 // Compare the values
                 if (skipCompare(columnName, expectedValue, actualValue)) {
@@ -583,6 +958,111 @@ public class DbUnitAssert
         return names;
     }
 
+    /**
+     * The key of a row. The key values are converted to the comparison {@link DataType}
+     * of their column, so that for example the string "1" of a flat XML dataset and the
+     * number 1 of a database table are the same key.
+     */
+    private static class RowKey
+    {
+        private final Object[] _values;
+        private final Object[] _hashValues;
+        private final int _hashCode;
+
+        public RowKey(Object[] rowValues, int[] keyIndexes,
+                ComparisonColumn[] comparisonCols) throws TypeCastException
+        {
+            _values = new Object[keyIndexes.length];
+            _hashValues = new Object[keyIndexes.length];
+            int hashCode = 1;
+            for (int k = 0; k < keyIndexes.length; k++) {
+                Object value = rowValues[keyIndexes[k]];
+                _values[k] = value;
+                _hashValues[k] = normalize(
+                        comparisonCols[keyIndexes[k]].getDataType().typeCast(value));
+                hashCode = 31 * hashCode + (_hashValues[k] == null ? 0 : _hashValues[k].hashCode());
+            }
+            _hashCode = hashCode;
+        }
+
+        /**
+         * Makes values equal which are compared equal by their {@link DataType}
+         */
+        private static Object normalize(Object value)
+        {
+            if (value instanceof BigDecimal) {
+                BigDecimal decimal = (BigDecimal)value;
+                return decimal.signum() == 0 ? BigDecimal.ZERO : decimal.stripTrailingZeros();
+            }
+            if (value instanceof byte[]) {
+                return new ByteArray((byte[])value);
+            }
+            return value;
+        }
+
+        public Object[] getValues()
+        {
+            return _values;
+        }
+
+        public int hashCode()
+        {
+            return _hashCode;
+        }
+
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof RowKey)) {
+                return false;
+            }
+            return Arrays.equals(_hashValues, ((RowKey)obj)._hashValues);
+        }
+    }
+
+    /**
+     * Byte array with value semantics
+     */
+    private static class ByteArray
+    {
+        private final byte[] _bytes;
+
+        public ByteArray(byte[] bytes)
+        {
+            _bytes = bytes;
+        }
+
+        public int hashCode()
+        {
+            return Arrays.hashCode(_bytes);
+        }
+
+        public boolean equals(Object obj)
+        {
+            return obj instanceof ByteArray && Arrays.equals(_bytes, ((ByteArray)obj)._bytes);
+        }
+    }
+
+    /**
+     * A row held by the hash index
+     */
+    private static class IndexedRow implements Comparable
+    {
+        final int rowIndex;
+        final Object[] values;
+
+        public IndexedRow(int rowIndex, Object[] values)
+        {
+            this.rowIndex = rowIndex;
+            this.values = values;
+        }
+
+        public int compareTo(Object o)
+        {
+            int other = ((IndexedRow)o).rowIndex;
+            return rowIndex < other ? -1 : (rowIndex == other ? 0 : 1);
+        }
+    }
+
     /**
      * Represents a single column to be used for the comparison of table data. It
      * contains the {@link DataType} to be used for comparing the given column.
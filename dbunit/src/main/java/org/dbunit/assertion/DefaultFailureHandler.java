@@ -220,6 +220,11 @@ public class DefaultFailureHandler implements FailureHandler
     {
         String msg = buildMessage(diff);
 
+        if (diff.getType() != Difference.VALUE_MISMATCH)
+        {
+            throw this.createFailure(msg);
+        }
+
         Error err = this.createFailure(msg,
                 String.valueOf(diff.getExpectedValue()), String.valueOf(diff.getActualValue()));
         // Throw the assertion error
@@ -228,6 +233,11 @@ public class DefaultFailureHandler implements FailureHandler
 
     protected String buildMessage(Difference diff)
     {
+        if (diff.getKeyValues() != null)
+        {
+            return buildKeyedMessage(diff);
+        }
+
         int row = diff.getRowIndex();
         String columnName = diff.getColumnName();
         String tableName = diff.getExpectedTable().getTableMetaData().getTableName();
@@ -247,6 +257,55 @@ public class DefaultFailureHandler implements FailureHandler
         return msg;
     }
 
+    /**
+     * Builds the message for a difference found by matching the rows by key columns.
+     * The key values identify the row, so the additional column info is not added,
+     * which would require random access into the actual table.
+     * @param diff The difference
+     * @return The message
+     * @since 2.5.1
+     */
+    protected String buildKeyedMessage(Difference diff)
+    {
+        String tableName = diff.getExpectedTable().getTableMetaData().getTableName();
+
+        // example messages:
+        // "missing row (table=MYTAB, row=3, key=(ID=444))"
+        // "value (table=MYTAB, row=3, actual row=5, col=MYCOL, key=(ID=444)): expected:<123> but was:<1234>"
+        StringBuffer sb = new StringBuffer();
+        switch (diff.getType())
+        {
+        case Difference.MISSING_ROW:
+            sb.append("missing row (table=").append(tableName);
+            sb.append(", row=").append(diff.getRowIndex());
+            break;
+        case Difference.UNEXPECTED_ROW:
+            sb.append("unexpected row (table=").append(tableName);
+            sb.append(", actual row=").append(diff.getActualRowIndex());
+            break;
+        default:
+            sb.append("value (table=").append(tableName);
+            sb.append(", row=").append(diff.getRowIndex());
+            sb.append(", actual row=").append(diff.getActualRowIndex());
+            sb.append(", col=").append(diff.getColumnName());
+            break;
+        }
+
+        sb.append(", key=(");
+        String[] keyColumnNames = diff.getKeyColumnNames();
+        Object[] keyValues = diff.getKeyValues();
+        for (int i = 0; i < keyValues.length; i++)
+        {
+            if (i > 0)
+            {
+                sb.append(", ");
+            }
+            sb.append(keyColumnNames[i]).append("=").append(keyValues[i]);
+        }
+        sb.append("))");
+        return sb.toString();
+    }
+
     public String toString()
     {
         StringBuffer sb = new StringBuffer();
@@ -20,12 +20,19 @@
  */
 package org.dbunit.assertion;
 
+import java.util.Arrays;
+
 import org.dbunit.dataset.ITable;
 
 /**
  * Value object to hold the difference of a single data cell 
  * found while comparing data.
  * <p>
+ * When the rows of the tables are matched by key columns, a difference can also
+ * describe an expected row missing in the actual table ({@link #MISSING_ROW}) or
+ * an actual row that was not expected ({@link #UNEXPECTED_ROW}).
+ * </p>
+ * <p>
  * Inspired by the XMLUnit framework.
  * </p>
  * 
@@ -36,24 +43,70 @@ import org.dbunit.dataset.ITable;
  */
 public class Difference 
 {
+    /**
+     * A value of a row contained in both tables differs
+     * @since 2.5.1
+     */
+    public static final int VALUE_MISMATCH = 0;
+    /**
+     * An expected row is not contained in the actual table
+     * @since 2.5.1
+     */
+    public static final int MISSING_ROW = 1;
+    /**
+     * The actual table contains a row that was not expected
+     * @since 2.5.1
+     */
+    public static final int UNEXPECTED_ROW = 2;
+
     private ITable expectedTable;
     private ITable actualTable;
     private int rowIndex;
     private String columnName;
     private Object expectedValue;
     private Object actualValue;
+    private int actualRowIndex;
+    private int type;
+    private String[] keyColumnNames;
+    private Object[] keyValues;
     
     public Difference(ITable expectedTable, ITable actualTable, 
             int rowIndex, String columnName,
             Object expectedValue, Object actualValue) 
+    {
+        this(expectedTable, actualTable, rowIndex, rowIndex, columnName,
+                expectedValue, actualValue, VALUE_MISMATCH, null, null);
+    }
+
+    /**
+     * @param expectedTable The expected table
+     * @param actualTable The actual table
+     * @param rowIndex The row of the expected table or -1 for an {@link #UNEXPECTED_ROW}
+     * @param actualRowIndex The row of the actual table or -1 for a {@link #MISSING_ROW}
+     * @param columnName The differing column or <code>null</code> for a missing or unexpected row
+     * @param expectedValue The expected value
+     * @param actualValue The actual value
+     * @param type One of {@link #VALUE_MISMATCH}, {@link #MISSING_ROW} and {@link #UNEXPECTED_ROW}
+     * @param keyColumnNames The columns the rows were matched by or <code>null</code>
+     * @param keyValues The key values of the row or <code>null</code>
+     * @since 2.5.1
+     */
+    public Difference(ITable expectedTable, ITable actualTable, 
+            int rowIndex, int actualRowIndex, String columnName,
+            Object expectedValue, Object actualValue, int type,
+            String[] keyColumnNames, Object[] keyValues) 
     {
         super();
         this.expectedTable = expectedTable;
         this.actualTable = actualTable;
         this.rowIndex = rowIndex;
+        this.actualRowIndex = actualRowIndex;
         this.columnName = columnName;
         this.expectedValue = expectedValue;
         this.actualValue = actualValue;
+        this.type = type;
+        this.keyColumnNames = keyColumnNames;
+        this.keyValues = keyValues;
     }
     
     public ITable getExpectedTable() {
@@ -66,10 +119,47 @@ public class Difference
     }
 
 
+    /**
+     * @return The row of the expected table or -1 for an {@link #UNEXPECTED_ROW}
+     */
     public int getRowIndex() {
         return rowIndex;
     }
 
+    /**
+     * @return The row of the actual table or -1 for a {@link #MISSING_ROW}
+     * @since 2.5.1
+     */
+    public int getActualRowIndex() {
+        return actualRowIndex;
+    }
+
+    /**
+     * @return One of {@link #VALUE_MISMATCH}, {@link #MISSING_ROW} and {@link #UNEXPECTED_ROW}
+     * @since 2.5.1
+     */
+    public int getType() {
+        return type;
+    }
+
+    /**
+     * @return The columns the rows were matched by or <code>null</code> if the rows
+     * were matched by their position
+     * @since 2.5.1
+     */
+    public String[] getKeyColumnNames() {
+        return keyColumnNames;
+    }
+
+    /**
+     * @return The key values of the row or <code>null</code> if the rows were matched
+     * by their position
+     * @since 2.5.1
+     */
+    public Object[] getKeyValues() {
+        return keyValues;
+    }
+
     public String getColumnName() {
         return columnName;
     }
@@ -88,10 +178,16 @@ public class Difference
         sb.append(getClass().getName()).append("[");
         sb.append("expectedTable=").append(expectedTable);
         sb.append(", actualTable=").append(actualTable);
+        sb.append(", type=").append(type);
         sb.append(", rowIndex=").append(rowIndex);
+        sb.append(", actualRowIndex=").append(actualRowIndex);
         sb.append(", columnName=").append(columnName);
         sb.append(", expectedValue=").append(expectedValue);
         sb.append(", actualValue=").append(actualValue);
+        if (keyValues != null) {
+            sb.append(", keyColumnNames=").append(Arrays.asList(keyColumnNames));
+            sb.append(", keyValues=").append(Arrays.asList(keyValues));
+        }
         sb.append("]");
         return sb.toString();
     }
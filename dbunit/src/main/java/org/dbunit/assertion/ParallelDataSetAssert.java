@@ -0,0 +1,474 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.assertion;
+
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.dbunit.DatabaseUnitException;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.database.WorkerConnectionPool;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares the tables of an expected dataset with the database tables of the same
+ * names concurrently over several connections.
+ * <p>
+ * The tables are compared like
+ * {@link DbUnitAssert#assertEquals(IDataSet, IDataSet, FailureHandler)} compares the
+ * expected dataset with <code>connection.createDataSet(tableNames)</code>, but each
+ * table is read and compared by one of a bounded number of threads on a connection of
+ * its own, obtained from the given {@link DataSource}. If no worker connection can be
+ * obtained the tables are compared one after another on the given connection.
+ * </p>
+ * <p>
+ * With the default, fail fast {@link FailureHandler} the tables following a failed
+ * table in the order of their upper case names are skipped unless they are already
+ * being compared. The tables preceding it are still compared, so the failure thrown is
+ * the one of the first failed table, as with the sequential comparison. Once these are
+ * done, the following tables still being compared get the
+ * {@link #setShutdownTimeout shutdown timeout} to finish before their connections are
+ * closed. The given failure handler is shared by the threads,
+ * so it must be thread safe. The {@link DefaultFailureHandler} is. A
+ * {@link DiffCollectingFailureHandler} is not, its {@link Difference}s are collected
+ * by a {@link ConcurrentDiffCollectingFailureHandler} and handed to it ordered by table
+ * once all tables are compared. That gives the same differences in the same order as
+ * the sequential comparison.
+ * </p>
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class ParallelDataSetAssert
+{
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ParallelDataSetAssert.class);
+
+    private static final long POLL_INTERVAL = 100;
+
+    private final IDatabaseConnection _connection;
+    private final DataSource _dataSource;
+    private final int _threadCount;
+    private DbUnitAssert _dbUnitAssert = new DbUnitAssert();
+    private long _shutdownTimeout = WorkerConnectionPool.DEFAULT_SHUTDOWN_TIMEOUT;
+
+    /**
+     * @param connection The connection whose schema and configuration are used by the
+     * worker connections
+     * @param dataSource The data source providing the worker connections
+     * @param threadCount The maximum number of tables compared concurrently
+     */
+    public ParallelDataSetAssert(IDatabaseConnection connection, DataSource dataSource,
+            int threadCount)
+    {
+        if (connection == null) {
+            throw new NullPointerException("The parameter 'connection' must not be null");
+        }
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("The parameter 'threadCount' must be greater than 0: " + threadCount);
+        }
+        _connection = connection;
+        _dataSource = dataSource;
+        _threadCount = threadCount;
+    }
+
+    public DbUnitAssert getDbUnitAssert()
+    {
+        return _dbUnitAssert;
+    }
+
+    /**
+     * @param dbUnitAssert The assertion used to compare each pair of tables
+     */
+    public void setDbUnitAssert(DbUnitAssert dbUnitAssert)
+    {
+        if (dbUnitAssert == null) {
+            throw new NullPointerException("The parameter 'dbUnitAssert' must not be null");
+        }
+        _dbUnitAssert = dbUnitAssert;
+    }
+
+    public long getShutdownTimeout()
+    {
+        return _shutdownTimeout;
+    }
+
+    /**
+     * @param shutdownTimeout The milliseconds the tables being compared get to finish
+     * after another table failed
+     * @see WorkerConnectionPool#setShutdownTimeout(long)
+     */
+    public void setShutdownTimeout(long shutdownTimeout)
+    {
+        if (shutdownTimeout < 0) {
+            throw new IllegalArgumentException("The parameter 'shutdownTimeout' must not be negative: " + shutdownTimeout);
+        }
+        _shutdownTimeout = shutdownTimeout;
+    }
+
+    /**
+     * Asserts that the tables of the expected dataset are equal to the database tables
+     * of the same names. This method ignores the tables order.
+     * @param expectedDataSet Dataset containing all expected results
+     * @throws DatabaseUnitException
+     */
+    public void assertEquals(IDataSet expectedDataSet) throws DatabaseUnitException
+    {
+        assertEquals(expectedDataSet, null);
+    }
+
+    /**
+     * Asserts that the tables of the expected dataset are equal to the database tables
+     * of the same names. This method ignores the tables order.
+     * @param expectedDataSet Dataset containing all expected results
+     * @param failureHandler The failure handler or <code>null</code> for the default one
+     * @throws DatabaseUnitException
+     */
+    public void assertEquals(IDataSet expectedDataSet, FailureHandler failureHandler)
+    throws DatabaseUnitException
+    {
+        logger.debug("assertEquals(expectedDataSet={}, failureHandler={}) - start",
+                expectedDataSet, failureHandler);
+
+        if (expectedDataSet == null) {
+            throw new NullPointerException("The parameter 'expectedDataSet' must not be null");
+        }
+        if (failureHandler == null) {
+            logger.debug("FailureHandler is null. Using default implementation");
+            failureHandler = _dbUnitAssert.getDefaultFailureHandler();
+        }
+
+        FailureHandler workerFailureHandler = failureHandler;
+        ConcurrentDiffCollectingFailureHandler collector = null;
+        if (failureHandler instanceof DiffCollectingFailureHandler
+                && !(failureHandler instanceof ConcurrentDiffCollectingFailureHandler))
+        {
+            collector = new ConcurrentDiffCollectingFailureHandler();
+            workerFailureHandler = new CollectingFailureHandler(failureHandler, collector);
+        }
+
+        // The expected tables are looked up here, the dataset need not be thread safe
+        String[] tableNames = _dbUnitAssert.getSortedUpperTableNames(expectedDataSet);
+        // index of the first failed table
+        AtomicInteger firstFailure = new AtomicInteger(Integer.MAX_VALUE);
+        TableComparison[] comparisons = new TableComparison[tableNames.length];
+        for (int i = 0; i < tableNames.length; i++)
+        {
+            comparisons[i] = new TableComparison(i, expectedDataSet.getTable(tableNames[i]),
+                    workerFailureHandler, firstFailure);
+        }
+
+        try
+        {
+            WorkerConnectionPool workerConnections = null;
+            if (comparisons.length > 1)
+            {
+                workerConnections = WorkerConnectionPool.open(_dataSource, _connection,
+                        Math.min(_threadCount, comparisons.length));
+            }
+
+            if (workerConnections != null)
+            {
+                workerConnections.setShutdownTimeout(_shutdownTimeout);
+            }
+
+            if (workerConnections == null)
+            {
+                logger.debug("Comparing the tables sequentially.");
+                for (int i = 0; i < comparisons.length; i++)
+                {
+                    comparisons[i].compare(_connection);
+                }
+            }
+            else
+            {
+                compareConcurrently(comparisons, firstFailure, workerConnections);
+            }
+        }
+        finally
+        {
+            if (collector != null)
+            {
+                List diffList = collector.getDiffList();
+                for (Iterator it = diffList.iterator(); it.hasNext();)
+                {
+                    failureHandler.handle((Difference)it.next());
+                }
+            }
+        }
+    }
+
+    private void compareConcurrently(TableComparison[] comparisons, AtomicInteger firstFailure,
+            WorkerConnectionPool workerConnections) throws DatabaseUnitException
+    {
+        ExecutorService executor = workerConnections.createExecutor("ParallelDataSetAssert");
+        Throwable[] failures = new Throwable[comparisons.length];
+        try
+        {
+            for (int i = 0; i < comparisons.length; i++)
+            {
+                comparisons[i].setConnections(workerConnections);
+                executor.execute(comparisons[i]);
+            }
+            executor.shutdown();
+            // Wait for all tables, but after a failure only for the tables preceding the
+            // first failed one, the others get the shutdown timeout of the pool
+            while (!executor.awaitTermination(POLL_INTERVAL, TimeUnit.MILLISECONDS)
+                    && !isFirstFailureKnown(comparisons, firstFailure.get()))
+            {
+                logger.trace("Waiting for the table comparisons");
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new DatabaseUnitException("Interrupted while waiting for the table comparisons", e);
+        }
+        finally
+        {
+            workerConnections.awaitTermination(executor);
+            // Closing the connections makes the tables still running fail as well
+            for (int i = 0; i < comparisons.length; i++)
+            {
+                failures[i] = comparisons[i].getFailure();
+            }
+            workerConnections.close();
+        }
+
+        // Report the failure of the first failed table
+        for (int i = 0; i < comparisons.length; i++)
+        {
+            Throwable failure = failures[i];
+            if (failure instanceof Error)
+            {
+                throw (Error)failure;
+            }
+            else if (failure instanceof RuntimeException)
+            {
+                throw (RuntimeException)failure;
+            }
+            else if (failure instanceof DatabaseUnitException)
+            {
+                throw (DatabaseUnitException)failure;
+            }
+            else if (failure != null)
+            {
+                throw new DatabaseUnitException("Could not compare table '"
+                        + comparisons[i].getTableName() + "'", failure);
+            }
+        }
+    }
+
+    /**
+     * @return <code>true</code> if a table failed and all tables preceding it are done
+     */
+    private boolean isFirstFailureKnown(TableComparison[] comparisons, int firstFailure)
+    {
+        if (firstFailure >= comparisons.length)
+        {
+            return false;
+        }
+        for (int i = 0; i < firstFailure; i++)
+        {
+            if (!comparisons[i].isDone())
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append(getClass().getName()).append("[");
+        sb.append("_threadCount=").append(_threadCount);
+        sb.append(", _shutdownTimeout=").append(_shutdownTimeout);
+        sb.append(", _dbUnitAssert=").append(_dbUnitAssert);
+        sb.append("]");
+        return sb.toString();
+    }
+
+
+    /**
+     * Reads one table from the database and compares it with the expected table.
+     */
+    private class TableComparison implements Runnable
+    {
+        private final int _index;
+        private final ITable _expectedTable;
+        private final FailureHandler _failureHandler;
+        private final AtomicInteger _firstFailure;
+        private WorkerConnectionPool _connections;
+        private volatile Throwable _failure;
+        private volatile boolean _done = false;
+
+        public TableComparison(int index, ITable expectedTable, FailureHandler failureHandler,
+                AtomicInteger firstFailure)
+        {
+            _index = index;
+            _expectedTable = expectedTable;
+            _failureHandler = failureHandler;
+            _firstFailure = firstFailure;
+        }
+
+        public String getTableName()
+        {
+            return _expectedTable.getTableMetaData().getTableName();
+        }
+
+        public void setConnections(WorkerConnectionPool connections)
+        {
+            _connections = connections;
+        }
+
+        /**
+         * @return The failure of this table or <code>null</code> if it is equal or
+         * was skipped
+         */
+        public Throwable getFailure()
+        {
+            return _failure;
+        }
+
+        /**
+         * @return <code>true</code> if this table has been compared or skipped
+         */
+        public boolean isDone()
+        {
+            return _done;
+        }
+
+        public void compare(IDatabaseConnection connection) throws DatabaseUnitException
+        {
+            String tableName = getTableName();
+            logger.debug("Comparing table '{}'", tableName);
+
+            ITable actualTable;
+            try
+            {
+                actualTable = connection.createTable(tableName);
+            }
+            catch (SQLException e)
+            {
+                throw new DatabaseUnitException("Could not read table '" + tableName + "'", e);
+            }
+            _dbUnitAssert.assertEquals(_expectedTable, actualTable, _failureHandler);
+        }
+
+        public void run()
+        {
+            if (_firstFailure.get() < _index)
+            {
+                logger.debug("Skipping table '{}' after a failure", getTableName());
+                _done = true;
+                return;
+            }
+
+            IDatabaseConnection connection = null;
+            try
+            {
+                connection = _connections.take();
+                compare(connection);
+            }
+            catch (Throwable e)
+            {
+                _failure = e;
+                int firstFailure = _firstFailure.get();
+                while (_index < firstFailure && !_firstFailure.compareAndSet(firstFailure, _index))
+                {
+                    firstFailure = _firstFailure.get();
+                }
+            }
+            finally
+            {
+                if (connection != null)
+                {
+                    _connections.release(connection);
+                }
+                _done = true;
+            }
+        }
+
+        public String toString()
+        {
+            StringBuffer sb = new StringBuffer();
+            sb.append(getClass().getName()).append("[");
+            sb.append("_expectedTable=").append(_expectedTable);
+            sb.append(", _failure=").append(_failure);
+            sb.append("]");
+            return sb.toString();
+        }
+    }
+
+
+    /**
+     * Collects the differences in a thread safe handler and lets the given handler
+     * create the failures.
+     */
+    private static class CollectingFailureHandler implements FailureHandler
+    {
+        private final FailureHandler _failureHandler;
+        private final ConcurrentDiffCollectingFailureHandler _collector;
+
+        public CollectingFailureHandler(FailureHandler failureHandler,
+                ConcurrentDiffCollectingFailureHandler collector)
+        {
+            _failureHandler = failureHandler;
+            _collector = collector;
+        }
+
+        public void handle(Difference diff)
+        {
+            _collector.handle(diff);
+        }
+
+        public Error createFailure(String message, String expected, String actual)
+        {
+            return _failureHandler.createFailure(message, expected, actual);
+        }
+
+        public Error createFailure(String message)
+        {
+            return _failureHandler.createFailure(message);
+        }
+
+        public String getAdditionalInfo(ITable expectedTable, ITable actualTable,
+                int row, String columnName)
+        {
+            return _failureHandler.getAdditionalInfo(expectedTable, actualTable, row, columnName);
+        }
+    }
+}
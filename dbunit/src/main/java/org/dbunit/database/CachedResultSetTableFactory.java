@@ -29,6 +29,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * Creates tables holding all rows of a result set in memory, either as
+ * {@link CachedResultSetTable} or, when created as columnar, as
+ * {@link ColumnarResultSetTable} which needs less memory for large tables.
+ * 
  * @author manuel.laflamme
  * @author Last changed by: $Author$
  * @version $Revision$ $Date$
@@ -42,6 +46,41 @@ public class CachedResultSetTableFactory implements IResultSetTableFactory
      */
     private static final Logger logger = LoggerFactory.getLogger(CachedResultSetTableFactory.class);
 
+    private final boolean _columnar;
+
+    public CachedResultSetTableFactory()
+    {
+        this(false);
+    }
+
+    /**
+     * @param columnar Whether the rows are stored in {@link ColumnarResultSetTable}s
+     * instead of {@link CachedResultSetTable}s
+     * @since 2.5.1
+     */
+    public CachedResultSetTableFactory(boolean columnar)
+    {
+        _columnar = columnar;
+    }
+
+    /**
+     * @return Whether the rows are stored in {@link ColumnarResultSetTable}s
+     * @since 2.5.1
+     */
+    public boolean isColumnar()
+    {
+        return _columnar;
+    }
+
+    private IResultSetTable cache(IResultSetTable table) throws SQLException, DataSetException
+    {
+        if (_columnar)
+        {
+            return new ColumnarResultSetTable(table);
+        }
+        return new CachedResultSetTable(table);
+    }
+
     public IResultSetTable createTable(String tableName, String selectStatement,
             IDatabaseConnection connection) throws SQLException, DataSetException
     {
@@ -49,8 +88,7 @@ public class CachedResultSetTableFactory implements IResultSetTableFactory
     		logger.trace("createTable(tableName={}, selectStatement={}, connection={}) - start", 
     				new Object[] { tableName, selectStatement, connection });
 
-        return new CachedResultSetTable(new ForwardOnlyResultSetTable(
-                tableName, selectStatement, connection));
+        return cache(new ForwardOnlyResultSetTable(tableName, selectStatement, connection));
     }
 
     public IResultSetTable createTable(ITableMetaData metaData,
@@ -58,7 +96,7 @@ public class CachedResultSetTableFactory implements IResultSetTableFactory
     {
         logger.trace("createTable(metaData={}, connection={}) - start", metaData, connection);
         ForwardOnlyResultSetTable resultSetTable = new ForwardOnlyResultSetTable(metaData, connection);
-        return new CachedResultSetTable(resultSetTable);
+        return cache(resultSetTable);
     }
     
     public IResultSetTable createTable(String tableName,
@@ -72,7 +110,7 @@ public class CachedResultSetTableFactory implements IResultSetTableFactory
         // Reuse method from ForwardOnly factory
         ForwardOnlyResultSetTable table = new ForwardOnlyResultSetTableFactory()
                     .createForwardOnlyResultSetTable(tableName, preparedStatement, connection);
-        return new CachedResultSetTable(table);
+        return cache(table);
     }
 
 }
@@ -20,6 +20,10 @@
  */
 package org.dbunit.database;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 import org.dbunit.dataset.DataSetException;
@@ -31,9 +35,12 @@ import org.dbunit.dataset.DataSetException;
  */
 public class CyclicTablesDependencyException extends DataSetException
 {
+    private final List _cyclicTableGroups;
+
     public CyclicTablesDependencyException(String message)
     {
         super(message);
+        _cyclicTableGroups = Collections.EMPTY_LIST;
     }
     
     /**
@@ -46,6 +53,37 @@ public class CyclicTablesDependencyException extends DataSetException
         this(buildMessage(tableName, cyclicTableNames));
     }
 
+    /**
+     * @param cyclicTableGroups The groups of tables referencing each other, as <code>String[]</code>
+     * @since 2.5.1
+     */
+    public CyclicTablesDependencyException(List cyclicTableGroups)
+    {
+        super(buildMessage(cyclicTableGroups));
+        _cyclicTableGroups = Collections.unmodifiableList(new ArrayList(cyclicTableGroups));
+    }
+
+    /**
+     * @return The groups of tables referencing each other, as <code>String[]</code>. Empty
+     * if the exception has not been created with the groups.
+     * @since 2.5.1
+     */
+    public List getCyclicTableGroups()
+    {
+        return _cyclicTableGroups;
+    }
+
+    private static String buildMessage(List cyclicTableGroups) {
+        StringBuffer sb = new StringBuffer("Cyclic dependencies between tables: ");
+        for (int i = 0; i < cyclicTableGroups.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(Arrays.asList((String[])cyclicTableGroups.get(i)));
+        }
+        return sb.toString();
+    }
+
     private static String buildMessage(String tableName, Set cyclicTableNames) {
         return "Table: " + tableName + " (" + cyclicTableNames.toString() + ")";
     }
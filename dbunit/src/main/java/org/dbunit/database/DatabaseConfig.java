@@ -33,6 +33,8 @@ import org.dbunit.database.statement.PreparedStatementFactory;
 import org.dbunit.dataset.datatype.DefaultDataTypeFactory;
 import org.dbunit.dataset.datatype.IDataTypeFactory;
 import org.dbunit.dataset.filter.IColumnFilter;
+import org.dbunit.operation.IBulkLoader;
+import org.dbunit.operation.IOperationMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -71,6 +73,16 @@ public class DatabaseConfig
 			"http://www.dbunit.org/properties/fetchSize";
 	public static final String PROPERTY_METADATA_HANDLER =
 	        "http://www.dbunit.org/properties/metadataHandler";
+    public static final String PROPERTY_REFRESH_PROBE_SIZE =
+            "http://www.dbunit.org/properties/refreshProbeSize";
+    public static final String PROPERTY_SCHEMA_SNAPSHOT_CACHE =
+            "http://www.dbunit.org/properties/schemaSnapshotCache";
+    public static final String PROPERTY_BULK_LOADER =
+            "http://www.dbunit.org/properties/bulkLoader";
+    public static final String PROPERTY_KEY_SCAN_SIZE =
+            "http://www.dbunit.org/properties/keyScanSize";
+    public static final String PROPERTY_OPERATION_METRICS =
+            "http://www.dbunit.org/properties/operationMetrics";
 
     public static final String FEATURE_CASE_SENSITIVE_TABLE_NAMES =
         "http://www.dbunit.org/features/caseSensitiveTableNames";
@@ -97,6 +109,11 @@ public class DatabaseConfig
         new ConfigProperty(PROPERTY_BATCH_SIZE, Integer.class, false),
         new ConfigProperty(PROPERTY_FETCH_SIZE, Integer.class, false),
         new ConfigProperty(PROPERTY_METADATA_HANDLER, IMetadataHandler.class, false),
+        new ConfigProperty(PROPERTY_REFRESH_PROBE_SIZE, Integer.class, false),
+        new ConfigProperty(PROPERTY_SCHEMA_SNAPSHOT_CACHE, SchemaSnapshotCache.class, true),
+        new ConfigProperty(PROPERTY_BULK_LOADER, IBulkLoader.class, true),
+        new ConfigProperty(PROPERTY_KEY_SCAN_SIZE, Integer.class, false),
+        new ConfigProperty(PROPERTY_OPERATION_METRICS, IOperationMetrics.class, true),
         new ConfigProperty(FEATURE_CASE_SENSITIVE_TABLE_NAMES, Boolean.class, false),
         new ConfigProperty(FEATURE_QUALIFIED_TABLE_NAMES, Boolean.class, false),
         new ConfigProperty(FEATURE_BATCHED_STATEMENTS, Boolean.class, false),
@@ -126,6 +143,8 @@ public class DatabaseConfig
     private static final String[] DEFAULT_TABLE_TYPE = {"TABLE"};
     private static final Integer DEFAULT_BATCH_SIZE = new Integer(100);
     private static final Integer DEFAULT_FETCH_SIZE = new Integer(100);
+    private static final Integer DEFAULT_REFRESH_PROBE_SIZE = new Integer(500);
+    private static final Integer DEFAULT_KEY_SCAN_SIZE = new Integer(500);
 
 
 
@@ -148,6 +167,8 @@ public class DatabaseConfig
         setProperty(PROPERTY_BATCH_SIZE, DEFAULT_BATCH_SIZE);
         setProperty(PROPERTY_FETCH_SIZE, DEFAULT_FETCH_SIZE);
         setProperty(PROPERTY_METADATA_HANDLER, new DefaultMetadataHandler());
+        setProperty(PROPERTY_REFRESH_PROBE_SIZE, DEFAULT_REFRESH_PROBE_SIZE);
+        setProperty(PROPERTY_KEY_SCAN_SIZE, DEFAULT_KEY_SCAN_SIZE);
 
         this.configurator = new Configurator(this);
     }
@@ -235,6 +256,28 @@ public class DatabaseConfig
         return _propertyMap.get(name);
     }
 
+    /**
+     * Copies all properties and features of this configuration to the given one, for
+     * example to configure additional connections like the given one.
+     *
+     * @param target The configuration receiving the values of this one
+     * @since 2.5.1
+     */
+    public void copyTo(DatabaseConfig target)
+    {
+        logger.trace("copyTo(target={}) - start", target);
+
+        for (int i = 0; i < ALL_PROPERTIES.length; i++)
+        {
+            String property = ALL_PROPERTIES[i].getProperty();
+            Object value = getProperty(property);
+            if (value != null || ALL_PROPERTIES[i].isNullable())
+            {
+                target.setProperty(property, value);
+            }
+        }
+    }
+
     private Object convertIfNeeded(String property, Object value) 
     {
         logger.trace("convertIfNeeded(property={}, value={}) - start", property, value);
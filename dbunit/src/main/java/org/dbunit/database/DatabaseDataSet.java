@@ -113,11 +113,21 @@ public class DatabaseDataSet extends AbstractDataSet
 
     static String getSelectStatement(String schema, ITableMetaData metaData, String escapePattern)
     throws DataSetException
+    {
+        return getSelectStatement(schema, metaData, escapePattern, null);
+    }
+
+    /**
+     * @param whereClause Condition restricting the selected rows or <code>null</code>
+     * @since 2.5.1
+     */
+    static String getSelectStatement(String schema, ITableMetaData metaData, String escapePattern,
+            String whereClause) throws DataSetException
     {
         if (logger.isDebugEnabled())
         {
-            logger.debug("getSelectStatement(schema={}, metaData={}, escapePattern={}) - start",
-                    new Object[] { schema, metaData, escapePattern });
+            logger.debug("getSelectStatement(schema={}, metaData={}, escapePattern={}, whereClause={}) - start",
+                    new Object[] { schema, metaData, escapePattern, whereClause });
         }
 
         Column[] columns = metaData.getColumns();
@@ -147,6 +157,13 @@ public class DatabaseDataSet extends AbstractDataSet
         sqlBuffer.append(new QualifiedTableName(
                 metaData.getTableName(), schema, escapePattern).getQualifiedName());
 
+        // where
+        if (whereClause != null)
+        {
+            sqlBuffer.append(" where ");
+            sqlBuffer.append(whereClause);
+        }
+
         // order by
         for (int i = 0; i < primaryKeys.length; i++)
         {
@@ -196,6 +213,13 @@ public class DatabaseDataSet extends AbstractDataSet
             String[] tableType = (String[])config.getProperty(DatabaseConfig.PROPERTY_TABLE_TYPE);
             IMetadataHandler metadataHandler = (IMetadataHandler) config.getProperty(DatabaseConfig.PROPERTY_METADATA_HANDLER);
 
+            SchemaSnapshot snapshot = SchemaSnapshotCache.getConfiguredSnapshot(_connection, schema);
+            if (snapshot != null)
+            {
+                _tableMap = createTableMap(snapshot, tableType, config);
+                return;
+            }
+
             ResultSet resultSet = metadataHandler.getTables(databaseMetaData, schema, tableType);
 
             if(logger.isDebugEnabled())
@@ -211,24 +235,7 @@ public class DatabaseDataSet extends AbstractDataSet
                 {
                     String schemaName = metadataHandler.getSchema(resultSet);
                     String tableName = resultSet.getString(3);
-
-                    if(_tableFilter != null && !_tableFilter.accept(tableName))
-                    {
-                        logger.debug("Skipping table '{}'", tableName);
-                        continue;
-                    }
-                    if(!_oracleRecycleBinTableFilter.accept(tableName))
-                    {
-                        logger.debug("Skipping oracle recycle bin table '{}'", tableName);
-                        continue;
-                    }
-
-
-                    QualifiedTableName qualifiedTableName = new QualifiedTableName(tableName, schemaName);
-                    tableName = qualifiedTableName.getQualifiedNameIfEnabled(config);
-
-                    // Put the table into the table map
-                    tableMap.add(tableName, null);
+                    addTable(tableMap, schemaName, tableName, config);
                 }
 
                 _tableMap = tableMap;
@@ -244,6 +251,68 @@ public class DatabaseDataSet extends AbstractDataSet
         }
     }
 
+    /**
+     * Creates the table map from the given schema snapshot instead of querying the database.
+     * @param snapshot The snapshot of the schema of this data set
+     * @param tableType The table types to be included
+     * @param config The database config
+     * @return The table map
+     * @throws DataSetException
+     */
+    private OrderedTableNameMap createTableMap(SchemaSnapshot snapshot, String[] tableType,
+            DatabaseConfig config) throws DataSetException
+    {
+        logger.debug("Initializing the data set from the schema snapshot {}", snapshot);
+
+        OrderedTableNameMap tableMap = super.createTableNameMap();
+        SchemaSnapshot.TableSnapshot[] tables = snapshot.getTables();
+        for (int i = 0; i < tables.length; i++)
+        {
+            if (isTableTypeIncluded(tables[i].getTableType(), tableType))
+            {
+                addTable(tableMap, snapshot.getSchema(), tables[i].getTableName(), config);
+            }
+        }
+        return tableMap;
+    }
+
+    private boolean isTableTypeIncluded(String type, String[] tableType)
+    {
+        if (tableType == null)
+        {
+            return true;
+        }
+        for (int i = 0; i < tableType.length; i++)
+        {
+            if (tableType[i].equalsIgnoreCase(type))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addTable(OrderedTableNameMap tableMap, String schemaName, String tableName,
+            DatabaseConfig config) throws DataSetException
+    {
+        if(_tableFilter != null && !_tableFilter.accept(tableName))
+        {
+            logger.debug("Skipping table '{}'", tableName);
+            return;
+        }
+        if(!_oracleRecycleBinTableFilter.accept(tableName))
+        {
+            logger.debug("Skipping oracle recycle bin table '{}'", tableName);
+            return;
+        }
+
+        QualifiedTableName qualifiedTableName = new QualifiedTableName(tableName, schemaName);
+        tableName = qualifiedTableName.getQualifiedNameIfEnabled(config);
+
+        // Put the table into the table map
+        tableMap.add(tableName, null);
+    }
+
     ////////////////////////////////////////////////////////////////////////////
     // AbstractDataSet class
 
@@ -141,7 +141,17 @@ public class DatabaseTableMetaData extends AbstractTableMetaData
                      DatabaseConfig config = connection.getConfig();
                      IMetadataHandler metadataHandler = (IMetadataHandler) config.getProperty(DatabaseConfig.PROPERTY_METADATA_HANDLER);
                      DatabaseMetaData databaseMetaData = jdbcConnection.getMetaData();
-                     if(!metadataHandler.tableExists(databaseMetaData, schemaName, plainTableName))
+                     SchemaSnapshot snapshot = SchemaSnapshotCache.getConfiguredSnapshot(connection, schemaName);
+                     boolean exists;
+                     if(snapshot != null)
+                     {
+                         exists = snapshot.getTable(plainTableName, caseSensitiveMetaData) != null;
+                     }
+                     else
+                     {
+                         exists = metadataHandler.tableExists(databaseMetaData, schemaName, plainTableName);
+                     }
+                     if(!exists)
                      {
                          throw new NoSuchTableException("Did not find table '" + plainTableName + "' in schema '" + schemaName + "'");
                      }
@@ -215,6 +225,12 @@ public class DatabaseTableMetaData extends AbstractTableMetaData
     	String schemaName = _qualifiedTableNameSupport.getSchema();
     	String tableName = _qualifiedTableNameSupport.getTable();
 
+        SchemaSnapshot.TableSnapshot tableSnapshot = getTableSnapshot();
+        if (tableSnapshot != null)
+        {
+            return tableSnapshot.getPrimaryKeyNames();
+        }
+
         Connection connection = _connection.getConnection();
         DatabaseMetaData databaseMetaData = connection.getMetaData();
         
@@ -249,6 +265,22 @@ public class DatabaseTableMetaData extends AbstractTableMetaData
         return keys;
     }
 
+    /**
+     * @return The snapshot of this table if a {@link DatabaseConfig#PROPERTY_SCHEMA_SNAPSHOT_CACHE}
+     * is configured, <code>null</code> otherwise
+     * @throws SQLException
+     */
+    private SchemaSnapshot.TableSnapshot getTableSnapshot() throws SQLException
+    {
+        SchemaSnapshot snapshot = SchemaSnapshotCache.getConfiguredSnapshot(
+                _connection, _qualifiedTableNameSupport.getSchema());
+        if (snapshot == null)
+        {
+            return null;
+        }
+        return snapshot.getTable(_qualifiedTableNameSupport.getTable(), _caseSensitiveMetaData);
+    }
+
     private class PrimaryKeyData implements Comparable
     {
         private final String _name;
@@ -307,21 +339,32 @@ public class DatabaseTableMetaData extends AbstractTableMetaData
                 // qualified names support
             	String schemaName = _qualifiedTableNameSupport.getSchema();
             	String tableName = _qualifiedTableNameSupport.getTable();
-            	
+
+                DatabaseConfig config = _connection.getConfig();
+                IDataTypeFactory dataTypeFactory = super.getDataTypeFactory(_connection);
+                boolean datatypeWarning = config.getFeature(
+                        DatabaseConfig.FEATURE_DATATYPE_WARNING);
+
+                SchemaSnapshot.TableSnapshot tableSnapshot = getTableSnapshot();
+                if (tableSnapshot != null)
+                {
+                    _columns = tableSnapshot.createColumns(dataTypeFactory, datatypeWarning);
+                    if (_columns.length == 0)
+                    {
+                        logger.warn("No columns found for table '"+ tableName +"' that are supported by dbunit. " +
+                                "Will return an empty column list");
+                    }
+                    return _columns;
+                }
+
                 Connection jdbcConnection = _connection.getConnection();
                 DatabaseMetaData databaseMetaData = jdbcConnection.getMetaData();
-                
-                DatabaseConfig config = _connection.getConfig();
-                
+
                 IMetadataHandler metadataHandler = (IMetadataHandler)config.getProperty(DatabaseConfig.PROPERTY_METADATA_HANDLER);
                 ResultSet resultSet = metadataHandler.getColumns(databaseMetaData, schemaName, tableName);
 
                 try
                 {
-                    IDataTypeFactory dataTypeFactory = super.getDataTypeFactory(_connection);
-                    boolean datatypeWarning = config.getFeature(
-                            DatabaseConfig.FEATURE_DATATYPE_WARNING);
-
                     List columnList = new ArrayList();
                     while (resultSet.next())
                     {
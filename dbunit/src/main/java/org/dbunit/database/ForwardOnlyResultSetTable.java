@@ -80,24 +80,7 @@ public class ForwardOnlyResultSetTable extends AbstractResultSetTable
 
         try
         {
-            // Move cursor forward up to specified row
-            while (!_eot && row > _lastRow)
-            {
-                _eot = !_resultSet.next();
-                _lastRow++;
-            }
-
-            if (row < _lastRow)
-            {
-                throw new UnsupportedOperationException("Cannot go backward!");
-            }
-
-            if (_eot || row > _lastRow)
-            {
-                // Proactively close the resultset
-                close();
-                throw new RowOutOfBoundsException(row + " > " + _lastRow);
-            }
+            moveToRow(row);
 
             int columnIndex = getColumnIndex(columnName);
             Column column = _metaData.getColumns()[columnIndex];
@@ -109,6 +92,46 @@ public class ForwardOnlyResultSetTable extends AbstractResultSetTable
         }
     }
 
+    public Object getValue(int row, int column) throws DataSetException
+    {
+        try
+        {
+            moveToRow(row);
+
+            Column[] columns = _metaData.getColumns();
+            assertValidColumnIndex(column, columns.length);
+            return columns[column].getDataType().getSqlValue(column + 1, _resultSet);
+        }
+        catch (SQLException e)
+        {
+            throw new DataSetException(e);
+        }
+    }
+
+    /**
+     * Moves the cursor forward up to the specified row
+     */
+    private void moveToRow(int row) throws SQLException, DataSetException
+    {
+        while (!_eot && row > _lastRow)
+        {
+            _eot = !_resultSet.next();
+            _lastRow++;
+        }
+
+        if (row < _lastRow)
+        {
+            throw new UnsupportedOperationException("Cannot go backward!");
+        }
+
+        if (_eot || row > _lastRow)
+        {
+            // Proactively close the resultset
+            close();
+            throw new RowOutOfBoundsException(row + " > " + _lastRow);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
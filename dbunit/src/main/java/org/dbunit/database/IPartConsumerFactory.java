@@ -0,0 +1,52 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.database;
+
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.stream.IDataSetConsumer;
+
+/**
+ * Provides the consumers the parts of a table are written to by
+ * {@link ParallelExportProducer#produceParts(IPartConsumerFactory)}. The methods are called
+ * concurrently from the worker threads.
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public interface IPartConsumerFactory
+{
+    /**
+     * @param tableName The name of the table
+     * @param part The index of the primary key range, starting at 0 for the lowest keys
+     * @return The consumer receiving the rows of the range as dataset of its own
+     */
+    public IDataSetConsumer createConsumer(String tableName, int part) throws DataSetException;
+
+    /**
+     * Invoked after the part has been written or could not be written, for example to
+     * close the file the consumer has written to.
+     * @param consumer The consumer returned by {@link #createConsumer}
+     */
+    public void releaseConsumer(IDataSetConsumer consumer) throws DataSetException;
+}
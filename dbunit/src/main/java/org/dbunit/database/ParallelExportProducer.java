@@ -0,0 +1,749 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.database;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import javax.sql.DataSource;
+
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.dataset.stream.DefaultConsumer;
+import org.dbunit.dataset.stream.IDataSetConsumer;
+import org.dbunit.dataset.stream.IDataSetProducer;
+import org.dbunit.util.QualifiedTableName;
+import org.dbunit.util.SQLHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads database tables in primary key ranges concurrently over several connections.
+ * <p>
+ * A table having a single column primary key is split into ranges of about
+ * {@link #setChunkSize chunk size} rows. For integral keys the split points are by
+ * default computed from the minimum and maximum key, which assumes the keys to be evenly
+ * distributed. For other keys, or if {@link #setSampleSplitPoints sampling} is enabled,
+ * every n-th key of an ordered scan of the key column is used, which gives ranges of
+ * exactly the chunk size. Each range is read with a <code>where pk &gt;= ? and pk &lt; ?</code>
+ * query, so no range has to skip the rows of the previous ones. Tables with a composite
+ * or without primary key are read as a single range.
+ * </p>
+ * <p>
+ * {@link #produce()} sends the tables in the given order and their rows ordered by primary
+ * key to the consumer, exactly like exporting a {@link DatabaseDataSet}, for example to a
+ * {@link org.dbunit.dataset.xml.FlatXmlWriter} or
+ * {@link org.dbunit.dataset.csv.CsvDataSetWriter}. Ranges read ahead of the consumer are
+ * buffered in memory, at most twice the thread count. {@link #produceParts} instead
+ * writes each range as a dataset of its own to the consumers of an
+ * {@link IPartConsumerFactory} directly from the worker threads.
+ * </p>
+ * <p>
+ * The split points are computed on the given connection, the ranges are read on a pool of
+ * connections obtained from the given {@link DataSource}. If no worker connection can be
+ * obtained the ranges are read one after another on the given connection. Note that each
+ * range is read by its own query, so the result is not a consistent snapshot if the
+ * tables are modified during the export.
+ * </p>
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class ParallelExportProducer implements IDataSetProducer
+{
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ParallelExportProducer.class);
+
+    public static final int DEFAULT_CHUNK_SIZE = 50000;
+
+    private static final IDataSetConsumer EMPTY_CONSUMER = new DefaultConsumer();
+
+    private final IDatabaseConnection _connection;
+    private final String[] _tableNames;
+    private final DataSource _dataSource;
+    private final int _threadCount;
+    private int _chunkSize = DEFAULT_CHUNK_SIZE;
+    private boolean _sampleSplitPoints = false;
+    private IDataSetConsumer _consumer = EMPTY_CONSUMER;
+
+    /**
+     * @param connection The connection used to read the metadata and compute the split points
+     * @param tableNames The tables to be exported in this order
+     * @param dataSource The data source providing the worker connections
+     * @param threadCount The maximum number of ranges read concurrently
+     */
+    public ParallelExportProducer(IDatabaseConnection connection, String[] tableNames,
+            DataSource dataSource, int threadCount)
+    {
+        if (connection == null) {
+            throw new NullPointerException("The parameter 'connection' must not be null");
+        }
+        if (tableNames == null) {
+            throw new NullPointerException("The parameter 'tableNames' must not be null");
+        }
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("The parameter 'threadCount' must be greater than 0: " + threadCount);
+        }
+        _connection = connection;
+        _tableNames = tableNames;
+        _dataSource = dataSource;
+        _threadCount = threadCount;
+    }
+
+    public int getChunkSize()
+    {
+        return _chunkSize;
+    }
+
+    /**
+     * @param chunkSize The number of rows per primary key range
+     */
+    public void setChunkSize(int chunkSize)
+    {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("The parameter 'chunkSize' must be greater than 0: " + chunkSize);
+        }
+        _chunkSize = chunkSize;
+    }
+
+    public boolean isSampleSplitPoints()
+    {
+        return _sampleSplitPoints;
+    }
+
+    /**
+     * @param sampleSplitPoints Whether the split points of integral keys are sampled from
+     * the key column instead of being computed from the minimum and maximum key. This
+     * needs a scan of the key column but results in evenly sized ranges for keys with gaps.
+     */
+    public void setSampleSplitPoints(boolean sampleSplitPoints)
+    {
+        _sampleSplitPoints = sampleSplitPoints;
+    }
+
+    /**
+     * Writes each primary key range as a dataset of its own to a consumer of the given
+     * factory. The ranges are written concurrently.
+     * @param factory Provides the consumers of the ranges
+     * @throws DataSetException
+     */
+    public void produceParts(IPartConsumerFactory factory) throws DataSetException
+    {
+        logger.debug("produceParts(factory={}) - start", factory);
+
+        if (factory == null) {
+            throw new NullPointerException("The parameter 'factory' must not be null");
+        }
+        export(factory);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // IDataSetProducer interface
+
+    public void setConsumer(IDataSetConsumer consumer) throws DataSetException
+    {
+        logger.debug("setConsumer(consumer={}) - start", consumer);
+        _consumer = consumer;
+    }
+
+    public void produce() throws DataSetException
+    {
+        logger.debug("produce() - start");
+
+        _consumer.startDataSet();
+        export(null);
+        _consumer.endDataSet();
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * @param factory The factory of the part consumers or <code>null</code> to send
+     * the ranges in order to the consumer of this producer
+     */
+    private void export(IPartConsumerFactory factory) throws DataSetException
+    {
+        RangeIterator ranges = new RangeIterator();
+        WorkerConnectionPool workerConnections = WorkerConnectionPool.open(
+                _dataSource, _connection, _threadCount);
+        if (workerConnections == null)
+        {
+            logger.info("Could not obtain worker connections. Reading the tables sequentially.");
+            while (ranges.next())
+            {
+                Range range = ranges.getRange();
+                if (factory == null)
+                {
+                    sendRange(range, null);
+                }
+                else
+                {
+                    writePart(_connection, range, factory);
+                }
+            }
+            return;
+        }
+
+        ExecutorService executor = workerConnections.createExecutor("ParallelExportProducer");
+        try
+        {
+            // Keep the workers busy but limit the number of buffered ranges
+            int maxPending = _threadCount * 2;
+            LinkedList pending = new LinkedList();
+            boolean hasNext = true;
+            while (true)
+            {
+                while (hasNext && pending.size() < maxPending)
+                {
+                    hasNext = ranges.next();
+                    if (hasNext)
+                    {
+                        Range range = ranges.getRange();
+                        pending.add(new PendingRange(range, executor.submit(
+                                new RangeTask(workerConnections, range, factory))));
+                    }
+                }
+                if (pending.isEmpty())
+                {
+                    break;
+                }
+
+                PendingRange next = (PendingRange)pending.removeFirst();
+                List rows = (List)getResult(next.getFuture());
+                if (factory == null)
+                {
+                    sendRange(next.getRange(), rows);
+                }
+            }
+        }
+        finally
+        {
+            // A blocked range query is stopped by closing its connection
+            workerConnections.shutdown(executor);
+        }
+    }
+
+    private Object getResult(Future future) throws DataSetException
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof DataSetException)
+            {
+                throw (DataSetException)cause;
+            }
+            throw new DataSetException(cause);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new DataSetException("Interrupted while waiting for table ranges", e);
+        }
+    }
+
+    /**
+     * Sends the rows of the range to the consumer of this producer.
+     * @param rows The rows read by a worker or <code>null</code> to read them now from
+     * the connection of this producer
+     */
+    private void sendRange(Range range, List rows) throws DataSetException
+    {
+        if (range.getIndex() == 0)
+        {
+            _consumer.startTable(range.getMetaData());
+        }
+        if (rows == null)
+        {
+            readRange(_connection, range, _consumer);
+        }
+        else
+        {
+            for (Iterator it = rows.iterator(); it.hasNext();)
+            {
+                _consumer.row((Object[])it.next());
+            }
+        }
+        if (range.isLast())
+        {
+            _consumer.endTable();
+        }
+    }
+
+    private void writePart(IDatabaseConnection connection, Range range,
+            IPartConsumerFactory factory) throws DataSetException
+    {
+        ITableMetaData metaData = range.getMetaData();
+        IDataSetConsumer consumer = factory.createConsumer(metaData.getTableName(), range.getIndex());
+        try
+        {
+            consumer.startDataSet();
+            consumer.startTable(metaData);
+            readRange(connection, range, consumer);
+            consumer.endTable();
+            consumer.endDataSet();
+        }
+        finally
+        {
+            factory.releaseConsumer(consumer);
+        }
+    }
+
+    private void readRange(IDatabaseConnection connection, Range range,
+            IDataSetConsumer consumer) throws DataSetException
+    {
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Reading range {} of table '{}': {}", new Object[] {
+                    String.valueOf(range.getIndex()), range.getMetaData().getTableName(),
+                    range.getSelectStatement() });
+        }
+
+        try
+        {
+            PreparedStatement statement = connection.getConnection().prepareStatement(
+                    range.getSelectStatement());
+            ResultSet resultSet = null;
+            try
+            {
+                connection.getConfig().getConfigurator().configureStatement(statement);
+                DataType keyType = range.getKeyType();
+                int parameterIndex = 1;
+                if (range.getLower() != null)
+                {
+                    keyType.setSqlValue(range.getLower(), parameterIndex++, statement);
+                }
+                if (range.getUpper() != null)
+                {
+                    keyType.setSqlValue(range.getUpper(), parameterIndex++, statement);
+                }
+
+                resultSet = statement.executeQuery();
+                Column[] columns = range.getMetaData().getColumns();
+                while (resultSet.next())
+                {
+                    Object[] values = new Object[columns.length];
+                    for (int i = 0; i < columns.length; i++)
+                    {
+                        values[i] = columns[i].getDataType().getSqlValue(i + 1, resultSet);
+                    }
+                    consumer.row(values);
+                }
+            }
+            finally
+            {
+                SQLHelper.close(resultSet, statement);
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new DataSetException("Could not read range " + range.getIndex()
+                    + " of table '" + range.getMetaData().getTableName() + "'", e);
+        }
+    }
+
+    private static boolean isIntegral(DataType dataType)
+    {
+        int sqlType = dataType.getSqlType();
+        return sqlType == Types.TINYINT || sqlType == Types.SMALLINT
+                || sqlType == Types.INTEGER || sqlType == Types.BIGINT;
+    }
+
+    private static BigInteger toBigInteger(Object value)
+    {
+        return new BigDecimal(value.toString()).toBigInteger();
+    }
+
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append(getClass().getName()).append("[");
+        sb.append("_threadCount=").append(_threadCount);
+        sb.append(", _chunkSize=").append(_chunkSize);
+        sb.append(", _sampleSplitPoints=").append(_sampleSplitPoints);
+        sb.append("]");
+        return sb.toString();
+    }
+
+
+    /**
+     * Computes the ranges of the tables one table after another when they are needed.
+     */
+    private class RangeIterator
+    {
+        private final String _schema;
+        private final String _escapePattern;
+        private IDataSet _dataSet;
+        private int _tableIndex = -1;
+        private List _ranges = new ArrayList();
+        private int _rangeIndex = 0;
+
+        public RangeIterator()
+        {
+            _schema = _connection.getSchema();
+            _escapePattern = (String)_connection.getConfig().getProperty(
+                    DatabaseConfig.PROPERTY_ESCAPE_PATTERN);
+        }
+
+        public boolean next() throws DataSetException
+        {
+            _rangeIndex++;
+            while (_rangeIndex >= _ranges.size())
+            {
+                _tableIndex++;
+                if (_tableIndex >= _tableNames.length)
+                {
+                    return false;
+                }
+                _ranges = createRanges(_tableNames[_tableIndex]);
+                _rangeIndex = 0;
+            }
+            return true;
+        }
+
+        public Range getRange()
+        {
+            return (Range)_ranges.get(_rangeIndex);
+        }
+
+        private List createRanges(String tableName) throws DataSetException
+        {
+            try
+            {
+                if (_dataSet == null)
+                {
+                    _dataSet = _connection.createDataSet();
+                }
+                ITableMetaData metaData = _dataSet.getTableMetaData(tableName);
+                Column[] primaryKeys = metaData.getPrimaryKeys();
+
+                List splitPoints = new ArrayList();
+                Column key = null;
+                if (primaryKeys.length == 1)
+                {
+                    key = primaryKeys[0];
+                    if (!_sampleSplitPoints && isIntegral(key.getDataType()))
+                    {
+                        splitPoints = getComputedSplitPoints(metaData, key);
+                    }
+                    else
+                    {
+                        splitPoints = getSampledSplitPoints(metaData, key);
+                    }
+                }
+
+                List ranges = new ArrayList(splitPoints.size() + 1);
+                Object lower = null;
+                for (int i = 0; i <= splitPoints.size(); i++)
+                {
+                    Object upper = i < splitPoints.size() ? splitPoints.get(i) : null;
+                    String selectStatement = DatabaseDataSet.getSelectStatement(_schema, metaData,
+                            _escapePattern, getWhereClause(key, lower, upper));
+                    ranges.add(new Range(metaData, key, lower, upper, i,
+                            i == splitPoints.size(), selectStatement));
+                    lower = upper;
+                }
+                if (logger.isDebugEnabled())
+                {
+                    logger.debug("Split table '{}' into {} ranges", tableName, String.valueOf(ranges.size()));
+                }
+                return ranges;
+            }
+            catch (SQLException e)
+            {
+                throw new DataSetException("Could not split table '" + tableName + "'", e);
+            }
+        }
+
+        private String getWhereClause(Column key, Object lower, Object upper)
+        {
+            if (lower == null && upper == null)
+            {
+                return null;
+            }
+            String keyName = getQualifiedName(key.getColumnName(), null);
+            if (lower == null)
+            {
+                return keyName + " < ?";
+            }
+            if (upper == null)
+            {
+                return keyName + " >= ?";
+            }
+            return keyName + " >= ? and " + keyName + " < ?";
+        }
+
+        private String getQualifiedName(String name, String schema)
+        {
+            return new QualifiedTableName(name, schema, _escapePattern).getQualifiedName();
+        }
+
+        /**
+         * Divides the interval between the minimum and the maximum key into as many equal
+         * parts as needed to get ranges of about the chunk size.
+         */
+        private List getComputedSplitPoints(ITableMetaData metaData, Column key)
+                throws SQLException, DataSetException
+        {
+            String keyName = getQualifiedName(key.getColumnName(), null);
+            String sql = "select count(*), min(" + keyName + "), max(" + keyName + ") from "
+                    + getQualifiedName(metaData.getTableName(), _schema);
+            logger.debug("Query: {}", sql);
+
+            List splitPoints = new ArrayList();
+            Statement statement = _connection.getConnection().createStatement();
+            ResultSet resultSet = null;
+            try
+            {
+                resultSet = statement.executeQuery(sql);
+                resultSet.next();
+                long rowCount = resultSet.getLong(1);
+                if (rowCount <= _chunkSize)
+                {
+                    return splitPoints;
+                }
+
+                BigInteger min = toBigInteger(key.getDataType().getSqlValue(2, resultSet));
+                BigInteger max = toBigInteger(key.getDataType().getSqlValue(3, resultSet));
+                BigInteger rangeCount = BigInteger.valueOf((rowCount + _chunkSize - 1) / _chunkSize);
+                BigInteger[] division = max.subtract(min).add(BigInteger.ONE).divideAndRemainder(rangeCount);
+                BigInteger width = division[1].signum() == 0 ? division[0] : division[0].add(BigInteger.ONE);
+
+                BigInteger splitPoint = min.add(width);
+                while (splitPoint.compareTo(max) <= 0)
+                {
+                    splitPoints.add(splitPoint);
+                    splitPoint = splitPoint.add(width);
+                }
+                return splitPoints;
+            }
+            finally
+            {
+                SQLHelper.close(resultSet, statement);
+            }
+        }
+
+        /**
+         * Uses every n-th key of the ordered key column as split point.
+         */
+        private List getSampledSplitPoints(ITableMetaData metaData, Column key)
+                throws SQLException, DataSetException
+        {
+            String keyName = getQualifiedName(key.getColumnName(), null);
+            String sql = "select " + keyName + " from "
+                    + getQualifiedName(metaData.getTableName(), _schema)
+                    + " order by " + keyName;
+            logger.debug("Query: {}", sql);
+
+            List splitPoints = new ArrayList();
+            Statement statement = _connection.getConnection().createStatement();
+            ResultSet resultSet = null;
+            try
+            {
+                _connection.getConfig().getConfigurator().configureStatement(statement);
+                resultSet = statement.executeQuery(sql);
+                for (long row = 0; resultSet.next(); row++)
+                {
+                    if (row > 0 && row % _chunkSize == 0)
+                    {
+                        splitPoints.add(key.getDataType().getSqlValue(1, resultSet));
+                    }
+                }
+                return splitPoints;
+            }
+            finally
+            {
+                SQLHelper.close(resultSet, statement);
+            }
+        }
+    }
+
+
+    /**
+     * The rows of a table having a primary key greater or equal to the lower bound and
+     * less than the upper bound. A bound of <code>null</code> means unlimited.
+     */
+    private static class Range
+    {
+        private final ITableMetaData _metaData;
+        private final Column _key;
+        private final Object _lower;
+        private final Object _upper;
+        private final int _index;
+        private final boolean _last;
+        private final String _selectStatement;
+
+        public Range(ITableMetaData metaData, Column key, Object lower, Object upper,
+                int index, boolean last, String selectStatement)
+        {
+            _metaData = metaData;
+            _key = key;
+            _lower = lower;
+            _upper = upper;
+            _index = index;
+            _last = last;
+            _selectStatement = selectStatement;
+        }
+
+        public ITableMetaData getMetaData()
+        {
+            return _metaData;
+        }
+
+        public DataType getKeyType()
+        {
+            return _key == null ? null : _key.getDataType();
+        }
+
+        public Object getLower()
+        {
+            return _lower;
+        }
+
+        public Object getUpper()
+        {
+            return _upper;
+        }
+
+        public int getIndex()
+        {
+            return _index;
+        }
+
+        public boolean isLast()
+        {
+            return _last;
+        }
+
+        public String getSelectStatement()
+        {
+            return _selectStatement;
+        }
+    }
+
+
+    private static class PendingRange
+    {
+        private final Range _range;
+        private final Future _future;
+
+        public PendingRange(Range range, Future future)
+        {
+            _range = range;
+            _future = future;
+        }
+
+        public Range getRange()
+        {
+            return _range;
+        }
+
+        public Future getFuture()
+        {
+            return _future;
+        }
+    }
+
+
+    /**
+     * Collects the rows of a range read ahead of the consumer.
+     */
+    private static class RowBuffer extends DefaultConsumer
+    {
+        private final List _rows = new ArrayList();
+
+        public void row(Object[] values) throws DataSetException
+        {
+            _rows.add(values);
+        }
+
+        public List getRows()
+        {
+            return _rows;
+        }
+    }
+
+
+    /**
+     * Reads one range on a worker connection.
+     */
+    private class RangeTask implements Callable
+    {
+        private final WorkerConnectionPool _connections;
+        private final Range _range;
+        private final IPartConsumerFactory _factory;
+
+        public RangeTask(WorkerConnectionPool connections, Range range, IPartConsumerFactory factory)
+        {
+            _connections = connections;
+            _range = range;
+            _factory = factory;
+        }
+
+        /**
+         * @return The rows of the range or <code>null</code> if it has been written to
+         * a part consumer
+         */
+        public Object call() throws Exception
+        {
+            IDatabaseConnection connection = _connections.take();
+            try
+            {
+                if (_factory != null)
+                {
+                    writePart(connection, _range, _factory);
+                    return null;
+                }
+                RowBuffer buffer = new RowBuffer();
+                readRange(connection, _range, buffer);
+                return buffer.getRows();
+            }
+            finally
+            {
+                _connections.release(connection);
+            }
+        }
+    }
+}
@@ -50,6 +50,10 @@ import org.slf4j.LoggerFactory;
  * It uses a depth-first algorithm (although not recursive - it might be refactored
  * in the future) to define which rows are allowed, as well which rows are necessary
  * (and hence allowed) because of dependencies with the allowed rows.<br>
+ * The keys to scan are processed level by level: in each run all keys found for a
+ * table are looked up together, using <code>IN</code> lists of at most
+ * {@link DatabaseConfig#PROPERTY_KEY_SCAN_SIZE} keys per query. The number of queries
+ * and rows read per table can be retrieved to size extractions.<br>
  * <strong>NOTE:</strong> multi-column primary keys are not supported at the moment.
  * TODO: test cases
  * @author Felipe Leme (dbunit@felipeal.net)
@@ -78,6 +82,10 @@ public class PrimaryKeyFilter extends AbstractTableFilter {
     // name of the tables, in reverse order of dependency
     private final List tableNames = new ArrayList();
 
+    // query and row counters per table (int[] {queries, rows})
+    private final Map scanCountsPerTable = new HashMap();
+    private int scanRunCount = 0;
+
     /**
      * Default constructor, it takes as input a map with desired rows in a final
      * dataset; the filter will ensure that the rows necessary by these initial rows
@@ -162,11 +170,10 @@ public class PrimaryKeyFilter extends AbstractTableFilter {
     private void searchPKs(IDataSet dataSet) throws DataSetException, SQLException {
         logger.debug("searchPKs(dataSet={}) - start", dataSet);
 
-        int counter = 0;
         while ( !this.pksToScanPerTable.isEmpty() ) {
-            counter ++;
+            this.scanRunCount ++;
             if ( this.logger.isDebugEnabled() ) {
-                this.logger.debug( "RUN # " + counter );
+                this.logger.debug( "RUN # " + this.scanRunCount + ", keys to scan: " + this.pksToScanPerTable );
             }
 
             for( int i=this.tableNames.size()-1; i>=0; i-- ) {
@@ -188,7 +195,8 @@ public class PrimaryKeyFilter extends AbstractTableFilter {
             removeScannedTables();
         } // while
         if ( this.logger.isDebugEnabled() ) {
-            this.logger.debug( "Finished searchIds()" );
+            this.logger.debug( "Finished searchIds() after " + this.scanRunCount + " runs and "
+                    + getQueryCount() + " queries" );
         }
     } 
 
@@ -245,7 +253,7 @@ public class PrimaryKeyFilter extends AbstractTableFilter {
         }
         // NOTE: make sure the query below is compatible standard SQL
         String sql = "SELECT " + colsBuffer + " FROM " + table + 
-        " WHERE " + pkColumn + " = ? ";
+        " WHERE " + pkColumn + " IN ";
         if ( this.logger.isDebugEnabled() ) {
             this.logger.debug( "SQL: " + sql );
         }
@@ -255,43 +263,126 @@ public class PrimaryKeyFilter extends AbstractTableFilter {
 
     private void scanPKs(String table, String sql, Set allowedIds, List fkTables) throws SQLException
     {
-        PreparedStatement pstmt = null;
-        ResultSet rs = null;
         try {
-            pstmt = this.connection.getConnection().prepareStatement( sql );
-            for(Iterator iterator = allowedIds.iterator(); iterator.hasNext(); ) {
-                Object pk = iterator.next(); // id being scanned
-                if( this.logger.isDebugEnabled() ) {
-                    this.logger.debug("Executing sql for ? = " + pk );
-                }
-                pstmt.setObject( 1, pk );
-                rs = pstmt.executeQuery();
-                while( rs.next() ) {
-                    for( int i=0; i<fkTables.size(); i++ ) {
-                        String newTable = (String) fkTables.get(i);
-                        Object fk = rs.getObject(i+1);
-                        if( fk != null ) {
-                            if( this.logger.isDebugEnabled() ) {
-                                this.logger.debug("New ID: " + newTable + "->" + fk);
-                            }
-                            addPKToScan( newTable, fk );
-                        } 
-                        else {
-                            this.logger.warn( "Found null FK for relationship  " + 
-                                    table + "=>" + newTable );
+            List rows = queryInChunks( table, sql, allowedIds, fkTables.size() );
+            for(Iterator iterator = rows.iterator(); iterator.hasNext(); ) {
+                Object[] row = (Object[]) iterator.next();
+                for( int i=0; i<fkTables.size(); i++ ) {
+                    String newTable = (String) fkTables.get(i);
+                    Object fk = row[i];
+                    if( fk != null ) {
+                        if( this.logger.isDebugEnabled() ) {
+                            this.logger.debug("New ID: " + newTable + "->" + fk);
                         }
+                        addPKToScan( newTable, fk );
+                    } 
+                    else {
+                        this.logger.warn( "Found null FK for relationship  " + 
+                                table + "=>" + newTable );
                     }
                 }
             }
         } catch (SQLException e) {
             logger.error("scanPKs()", e);
         }
-        finally {
-            // new in the finally block. has been in the catch only before
-            SQLHelper.close( rs, pstmt );
+    }
+
+    /**
+     * Executes the given query for all ids, with chunks of at most
+     * {@link DatabaseConfig#PROPERTY_KEY_SCAN_SIZE} ids in the <code>IN</code> list.
+     * Scan sizes below 1 are treated as 1.
+     * @param table The table queried
+     * @param sql The query up to the <code>IN</code> keyword
+     * @param ids The ids to bind in the <code>IN</code> list
+     * @param columnCount The number of selected columns
+     * @return The rows as <code>Object[]</code> of the selected columns
+     */
+    private List queryInChunks(String table, String sql, Set ids, int columnCount) throws SQLException
+    {
+        int scanSize = ((Integer)this.connection.getConfig().getProperty(
+                DatabaseConfig.PROPERTY_KEY_SCAN_SIZE)).intValue();
+        if ( scanSize < 1 ) {
+            scanSize = 1;
+        }
+        Object[] idArray = ids.toArray();
+        List rows = new ArrayList();
+
+        PreparedStatement chunkStatement = null;
+        try {
+            for( int start=0; start<idArray.length; start+=scanSize ) {
+                int count = Math.min( scanSize, idArray.length - start );
+                if ( count == scanSize ) {
+                    // all full chunks share one statement
+                    if ( chunkStatement == null ) {
+                        chunkStatement = this.connection.getConnection().prepareStatement(
+                                getInListSql( sql, scanSize ) );
+                    }
+                    queryChunk( table, chunkStatement, idArray, start, count, columnCount, rows );
+                } else {
+                    PreparedStatement pstmt = this.connection.getConnection().prepareStatement(
+                            getInListSql( sql, count ) );
+                    try {
+                        queryChunk( table, pstmt, idArray, start, count, columnCount, rows );
+                    } finally {
+                        SQLHelper.close( pstmt );
+                    }
+                }
+            }
+        } finally {
+            if ( chunkStatement != null ) {
+                SQLHelper.close( chunkStatement );
+            }
+        }
+        return rows;
+    }
+
+    private static String getInListSql(String sql, int count)
+    {
+        StringBuffer sqlBuffer = new StringBuffer( sql.length() + count * 3 );
+        sqlBuffer.append( sql ).append( "(" );
+        for( int i=0; i<count; i++ ) {
+            sqlBuffer.append( i == 0 ? "?" : ", ?" );
+        }
+        sqlBuffer.append( ")" );
+        return sqlBuffer.toString();
+    }
+
+    private void queryChunk(String table, PreparedStatement pstmt, Object[] ids, int start,
+            int count, int columnCount, List rows) throws SQLException
+    {
+        if( this.logger.isDebugEnabled() ) {
+            this.logger.debug("Executing sql on table " + table + " for " + count + " ids" );
+        }
+        for( int i=0; i<count; i++ ) {
+            pstmt.setObject( i+1, ids[start + i] );
+        }
+        int[] counts = getScanCounts( table );
+        counts[0]++;
+        ResultSet rs = pstmt.executeQuery();
+        try {
+            while( rs.next() ) {
+                Object[] row = new Object[columnCount];
+                for( int i=0; i<columnCount; i++ ) {
+                    row[i] = rs.getObject(i+1);
+                }
+                rows.add( row );
+                counts[1]++;
+            }
+        } finally {
+            SQLHelper.close( rs );
         }
     }
 
+    private int[] getScanCounts(String table)
+    {
+        int[] counts = (int[]) this.scanCountsPerTable.get( table );
+        if ( counts == null ) {
+            counts = new int[2];
+            this.scanCountsPerTable.put( table, counts );
+        }
+        return counts;
+    }
+
     private void scanReversePKs(String table, Set pksToScan) throws SQLException {
         logger.debug("scanReversePKs(table={}, pksToScan={}) - start", table, pksToScan);
 
@@ -316,29 +407,15 @@ public class PrimaryKeyFilter extends AbstractTableFilter {
         String fkColumn = edge.getFKColumn();
         String pkColumn = getPKColumn( fkTable );
         // NOTE: make sure the query below is compatible standard SQL
-        String sql = "SELECT " + pkColumn + " FROM " + fkTable + " WHERE " + fkColumn + " = ? ";
+        String sql = "SELECT " + pkColumn + " FROM " + fkTable + " WHERE " + fkColumn + " IN ";
+        if ( this.logger.isDebugEnabled() ) {
+            this.logger.debug( "Preparing SQL query '" + sql + "'" );
+        }
 
-        PreparedStatement pstmt = null;
-        ResultSet rs = null;
-        try {
-            if ( this.logger.isDebugEnabled() ) {
-                this.logger.debug( "Preparing SQL query '" + sql + "'" );
-            }
-            pstmt = this.connection.getConnection().prepareStatement( sql );
-            for(Iterator iterator = idsToScan.iterator(); iterator.hasNext(); ) {
-                Object pk = iterator.next();
-                if ( this.logger.isDebugEnabled() ) {
-                    this.logger.debug( "executing query '" + sql + "' for ? = " + pk );
-                }
-                pstmt.setObject( 1, pk );
-                rs = pstmt.executeQuery();
-                while( rs.next() ) {
-                    Object fk = rs.getObject(1);
-                    addPKToScan( fkTable, fk );
-                }
-            } 
-        } finally {
-            SQLHelper.close( rs, pstmt );
+        List rows = queryInChunks( fkTable, sql, idsToScan, 1 );
+        for(Iterator iterator = rows.iterator(); iterator.hasNext(); ) {
+            Object[] row = (Object[]) iterator.next();
+            addPKToScan( fkTable, row[0] );
         }
     }
 
@@ -394,6 +471,52 @@ public class PrimaryKeyFilter extends AbstractTableFilter {
         this.pksToScanPerTable.add(table, pk);
     }
 
+    /**
+     * @return The number of runs over the tables needed to find all allowed rows, i.e.
+     * the depth of the scanned dependency graph
+     */
+    public int getScanRunCount() {
+        return this.scanRunCount;
+    }
+
+    /**
+     * @return The total number of queries executed for scanning the keys
+     */
+    public int getQueryCount() {
+        int queryCount = 0;
+        for(Iterator iterator = this.scanCountsPerTable.values().iterator(); iterator.hasNext(); ) {
+            queryCount += ((int[]) iterator.next())[0];
+        }
+        return queryCount;
+    }
+
+    /**
+     * @param tableName The name of a table
+     * @return The number of queries executed on the given table for scanning the keys
+     */
+    public int getQueryCount(String tableName) {
+        int[] counts = (int[]) this.scanCountsPerTable.get( tableName );
+        return counts == null ? 0 : counts[0];
+    }
+
+    /**
+     * @param tableName The name of a table
+     * @return The number of rows read from the given table for scanning the keys
+     */
+    public int getScannedRowCount(String tableName) {
+        int[] counts = (int[]) this.scanCountsPerTable.get( tableName );
+        return counts == null ? 0 : counts[1];
+    }
+
+    /**
+     * @param tableName The name of a table
+     * @return The number of rows of the given table allowed by this filter so far
+     */
+    public int getAllowedPKCount(String tableName) {
+        Set allowedPKs = this.allowedPKsPerTable.get( tableName );
+        return allowedPKs == null ? 0 : allowedPKs.size();
+    }
+
     public String toString() {
         StringBuffer sb = new StringBuffer();
         sb.append("tableNames=").append(tableNames);
@@ -0,0 +1,609 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.database;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.datatype.DataTypeException;
+import org.dbunit.dataset.datatype.IDataTypeFactory;
+import org.dbunit.util.SQLHelper;
+
+/**
+ * Read-only view on the structure of one database schema: the tables, their columns,
+ * their primary keys and the foreign keys between them. A snapshot is created once by
+ * a {@link SchemaSnapshotLoader} and is then shared via the {@link SchemaSnapshotCache}
+ * so that {@link DatabaseTableMetaData} and {@link DatabaseDataSet} do not need to query
+ * the JDBC {@link java.sql.DatabaseMetaData} for every single table.
+ * <p>
+ * The snapshot only stores the raw JDBC metadata values. {@link Column} objects are created
+ * on demand using the {@link IDataTypeFactory} of the requesting connection, so that
+ * the same snapshot can be used by connections having different configurations.
+ * </p>
+ * <p>
+ * Snapshots are persisted with {@link #write(DataOutput)} in a format of plain strings and
+ * numbers, so that reading a snapshot file never deserializes Java objects.
+ * </p>
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class SchemaSnapshot implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Identifies the format written by {@link #write(DataOutput)}
+     */
+    private static final int FORMAT_VERSION = 0x44425301;
+
+    private final String _url;
+    private final String _schema;
+    private final String _fingerprint;
+    private final long _creationTime;
+
+    /**
+     * Table name to {@link TableSnapshot}
+     */
+    private final Map _tables = new LinkedHashMap();
+    /**
+     * Upper case table name to {@link TableSnapshot} for case insensitive lookups
+     */
+    private final Map _tablesIgnoreCase = new HashMap();
+    /**
+     * Upper case table names that are not unique when compared case insensitive
+     */
+    private final Set _ambiguousNames = new HashSet();
+    /**
+     * The {@link TableDependencyGraph}s of this schema, keyed by the table name features
+     * they were built for
+     */
+    private transient Map _dependencyGraphs;
+
+    /**
+     * @param url The JDBC url of the database
+     * @param schema The schema described by this snapshot
+     * @param fingerprint The schema fingerprint computed when the snapshot was loaded
+     */
+    public SchemaSnapshot(String url, String schema, String fingerprint)
+    {
+        this(url, schema, fingerprint, System.currentTimeMillis());
+    }
+
+    private SchemaSnapshot(String url, String schema, String fingerprint, long creationTime)
+    {
+        _url = url;
+        _schema = schema;
+        _fingerprint = fingerprint;
+        _creationTime = creationTime;
+    }
+
+    public String getUrl()
+    {
+        return _url;
+    }
+
+    public String getSchema()
+    {
+        return _schema;
+    }
+
+    public String getFingerprint()
+    {
+        return _fingerprint;
+    }
+
+    /**
+     * @return The point in time when this snapshot was created in milliseconds
+     */
+    public long getCreationTime()
+    {
+        return _creationTime;
+    }
+
+    /**
+     * Registers a new table in this snapshot. Only intended to be used while loading the snapshot.
+     * @param tableName The table name as returned by the database metadata
+     * @param tableType The table type as returned by the database metadata
+     * @return The newly created table snapshot
+     */
+    TableSnapshot addTable(String tableName, String tableType)
+    {
+        TableSnapshot table = new TableSnapshot(tableName, tableType);
+        _tables.put(tableName, table);
+
+        String upperName = tableName.toUpperCase();
+        if (_tablesIgnoreCase.containsKey(upperName))
+        {
+            _ambiguousNames.add(upperName);
+        }
+        _tablesIgnoreCase.put(upperName, table);
+        return table;
+    }
+
+    /**
+     * Registers a foreign key. The key is added to the imported keys of the referencing
+     * table and to the exported keys of the referenced table if both are part of this
+     * snapshot. Only intended to be used while loading the snapshot.
+     * @param foreignKey The foreign key column mapping
+     */
+    void addForeignKey(ForeignKeySnapshot foreignKey)
+    {
+        TableSnapshot fkTable = (TableSnapshot)_tables.get(foreignKey.getFkTableName());
+        if (fkTable != null)
+        {
+            fkTable._importedKeys.add(foreignKey);
+        }
+
+        String pkSchema = foreignKey.getPkTableSchema();
+        if (_schema == null || pkSchema == null || _schema.equalsIgnoreCase(pkSchema))
+        {
+            TableSnapshot pkTable = (TableSnapshot)_tables.get(foreignKey.getPkTableName());
+            if (pkTable != null)
+            {
+                pkTable._exportedKeys.add(foreignKey);
+            }
+        }
+    }
+
+    /**
+     * @return The names of all tables of this snapshot in the order returned by the database
+     */
+    public String[] getTableNames()
+    {
+        return (String[])_tables.keySet().toArray(new String[0]);
+    }
+
+    /**
+     * @return All tables of this snapshot in the order returned by the database
+     */
+    public TableSnapshot[] getTables()
+    {
+        return (TableSnapshot[])_tables.values().toArray(new TableSnapshot[0]);
+    }
+
+    /**
+     * Looks up a table of this snapshot.
+     * @param tableName The unqualified table name
+     * @param caseSensitive Whether or not the name must match exactly. If <code>false</code>
+     * the table is also found if the case differs, as long as the name is unique.
+     * @return The table or <code>null</code> if it does not exist in this snapshot
+     */
+    public TableSnapshot getTable(String tableName, boolean caseSensitive)
+    {
+        TableSnapshot table = (TableSnapshot)_tables.get(tableName);
+        if (table != null || caseSensitive)
+        {
+            return table;
+        }
+
+        String upperName = tableName.toUpperCase();
+        if (_ambiguousNames.contains(upperName))
+        {
+            return null;
+        }
+        return (TableSnapshot)_tablesIgnoreCase.get(upperName);
+    }
+
+    /**
+     * Returns the dependency graph of all tables of this snapshot, which is built on the
+     * first request and kept with this snapshot.
+     * @param config The configuration defining case sensitivity and qualification of table names
+     * @return The shared graph
+     * @see TableDependencyGraph#getSchemaGraph(IDatabaseConnection)
+     */
+    synchronized TableDependencyGraph getDependencyGraph(DatabaseConfig config)
+    {
+        String key = config.getFeature(DatabaseConfig.FEATURE_CASE_SENSITIVE_TABLE_NAMES)
+                + "|" + config.getFeature(DatabaseConfig.FEATURE_QUALIFIED_TABLE_NAMES);
+        if (_dependencyGraphs == null)
+        {
+            _dependencyGraphs = new HashMap();
+        }
+        TableDependencyGraph graph = (TableDependencyGraph)_dependencyGraphs.get(key);
+        if (graph == null)
+        {
+            graph = TableDependencyGraph.create(this, config);
+            _dependencyGraphs.put(key, graph);
+        }
+        return graph;
+    }
+
+    /**
+     * Writes this snapshot to the given output.
+     * @param out The output
+     * @throws IOException
+     * @see #read(DataInput)
+     */
+    void write(DataOutput out) throws IOException
+    {
+        out.writeInt(FORMAT_VERSION);
+        writeString(out, _url);
+        writeString(out, _schema);
+        writeString(out, _fingerprint);
+        out.writeLong(_creationTime);
+
+        TableSnapshot[] tables = getTables();
+        out.writeInt(tables.length);
+        for (int i = 0; i < tables.length; i++)
+        {
+            TableSnapshot table = tables[i];
+            writeString(out, table._tableName);
+            writeString(out, table._tableType);
+            out.writeInt(table._columns.size());
+            for (Iterator it = table._columns.iterator(); it.hasNext();)
+            {
+                ColumnSnapshot column = (ColumnSnapshot)it.next();
+                writeString(out, column._columnName);
+                out.writeInt(column._sqlType);
+                writeString(out, column._sqlTypeName);
+                out.writeInt(column._nullable);
+                writeString(out, column._remarks);
+                writeString(out, column._defaultValue);
+                writeString(out, column._autoIncrement);
+            }
+            out.writeInt(table._primaryKeys.size());
+            for (Iterator it = table._primaryKeys.iterator(); it.hasNext();)
+            {
+                writeString(out, (String)it.next());
+            }
+        }
+
+        // the exported keys are the imported keys of other tables
+        List foreignKeys = new ArrayList();
+        for (int i = 0; i < tables.length; i++)
+        {
+            foreignKeys.addAll(tables[i]._importedKeys);
+        }
+        out.writeInt(foreignKeys.size());
+        for (Iterator it = foreignKeys.iterator(); it.hasNext();)
+        {
+            ForeignKeySnapshot foreignKey = (ForeignKeySnapshot)it.next();
+            writeString(out, foreignKey._pkTableSchema);
+            writeString(out, foreignKey._pkTableName);
+            writeString(out, foreignKey._pkColumnName);
+            writeString(out, foreignKey._fkTableName);
+            writeString(out, foreignKey._fkColumnName);
+            out.writeInt(foreignKey._keySequence);
+            writeString(out, foreignKey._fkName);
+        }
+    }
+
+    /**
+     * Reads a snapshot written by {@link #write(DataOutput)}.
+     * @param in The input
+     * @return The snapshot
+     * @throws IOException If the input is not a snapshot of the current format
+     */
+    static SchemaSnapshot read(DataInput in) throws IOException
+    {
+        if (in.readInt() != FORMAT_VERSION)
+        {
+            throw new IOException("Unknown snapshot format");
+        }
+        SchemaSnapshot snapshot = new SchemaSnapshot(readString(in), readString(in),
+                readString(in), in.readLong());
+
+        int tableCount = in.readInt();
+        for (int i = 0; i < tableCount; i++)
+        {
+            TableSnapshot table = snapshot.addTable(readString(in), readString(in));
+            int columnCount = in.readInt();
+            for (int j = 0; j < columnCount; j++)
+            {
+                table.addColumn(new ColumnSnapshot(readString(in), in.readInt(), readString(in),
+                        in.readInt(), readString(in), readString(in), readString(in)));
+            }
+            String[] primaryKeys = new String[in.readInt()];
+            for (int j = 0; j < primaryKeys.length; j++)
+            {
+                primaryKeys[j] = readString(in);
+            }
+            table.setPrimaryKeyNames(primaryKeys);
+        }
+
+        int foreignKeyCount = in.readInt();
+        for (int i = 0; i < foreignKeyCount; i++)
+        {
+            snapshot.addForeignKey(new ForeignKeySnapshot(readString(in), readString(in),
+                    readString(in), readString(in), readString(in), in.readInt(),
+                    readString(in)));
+        }
+        return snapshot;
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException
+    {
+        out.writeBoolean(value != null);
+        if (value != null)
+        {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException
+    {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append(getClass().getName()).append("[");
+        sb.append("_url=").append(_url);
+        sb.append(", _schema=").append(_schema);
+        sb.append(", _fingerprint=").append(_fingerprint);
+        sb.append(", _creationTime=").append(_creationTime);
+        sb.append(", tableCount=").append(_tables.size());
+        sb.append("]");
+        return sb.toString();
+    }
+
+
+    /**
+     * Structure of a single table.
+     */
+    public static class TableSnapshot implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final String _tableName;
+        private final String _tableType;
+        private final List _columns = new ArrayList();
+        private final List _primaryKeys = new ArrayList();
+        private final List _importedKeys = new ArrayList();
+        private final List _exportedKeys = new ArrayList();
+
+        TableSnapshot(String tableName, String tableType)
+        {
+            _tableName = tableName;
+            _tableType = tableType;
+        }
+
+        void addColumn(ColumnSnapshot column)
+        {
+            _columns.add(column);
+        }
+
+        void setPrimaryKeyNames(String[] primaryKeys)
+        {
+            _primaryKeys.clear();
+            Collections.addAll(_primaryKeys, primaryKeys);
+        }
+
+        public String getTableName()
+        {
+            return _tableName;
+        }
+
+        public String getTableType()
+        {
+            return _tableType;
+        }
+
+        public ColumnSnapshot[] getColumns()
+        {
+            return (ColumnSnapshot[])_columns.toArray(new ColumnSnapshot[0]);
+        }
+
+        /**
+         * @return The primary key column names ordered by their key sequence
+         */
+        public String[] getPrimaryKeyNames()
+        {
+            return (String[])_primaryKeys.toArray(new String[0]);
+        }
+
+        /**
+         * @return The foreign key columns of this table referencing other tables
+         */
+        public ForeignKeySnapshot[] getImportedKeys()
+        {
+            return (ForeignKeySnapshot[])_importedKeys.toArray(new ForeignKeySnapshot[0]);
+        }
+
+        /**
+         * @return The foreign key columns of other tables of the same schema referencing this table
+         */
+        public ForeignKeySnapshot[] getExportedKeys()
+        {
+            return (ForeignKeySnapshot[])_exportedKeys.toArray(new ForeignKeySnapshot[0]);
+        }
+
+        /**
+         * Creates the dbunit columns of this table.
+         * @param dataTypeFactory The factory used to lookup the data types
+         * @param datatypeWarning Whether or not to log a warning for unknown data types
+         * @return The columns having a data type known to the given factory
+         * @throws DataTypeException
+         */
+        public Column[] createColumns(IDataTypeFactory dataTypeFactory, boolean datatypeWarning)
+        throws DataTypeException
+        {
+            List columnList = new ArrayList(_columns.size());
+            for (Iterator it = _columns.iterator(); it.hasNext();)
+            {
+                ColumnSnapshot columnSnapshot = (ColumnSnapshot)it.next();
+                Column column = columnSnapshot.createColumn(_tableName, dataTypeFactory, datatypeWarning);
+                if (column != null)
+                {
+                    columnList.add(column);
+                }
+            }
+            return (Column[])columnList.toArray(new Column[0]);
+        }
+
+        public String toString()
+        {
+            StringBuffer sb = new StringBuffer();
+            sb.append(getClass().getName()).append("[");
+            sb.append("_tableName=").append(_tableName);
+            sb.append(", _tableType=").append(_tableType);
+            sb.append(", _columns=").append(_columns);
+            sb.append(", _primaryKeys=").append(_primaryKeys);
+            sb.append("]");
+            return sb.toString();
+        }
+    }
+
+
+    /**
+     * Raw column metadata as returned by {@link java.sql.DatabaseMetaData#getColumns(String, String, String, String)}.
+     */
+    public static class ColumnSnapshot implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final String _columnName;
+        private final int _sqlType;
+        private final String _sqlTypeName;
+        private final int _nullable;
+        private final String _remarks;
+        private final String _defaultValue;
+        private final String _autoIncrement;
+
+        public ColumnSnapshot(String columnName, int sqlType, String sqlTypeName,
+                int nullable, String remarks, String defaultValue, String autoIncrement)
+        {
+            _columnName = columnName;
+            _sqlType = sqlType;
+            _sqlTypeName = sqlTypeName;
+            _nullable = nullable;
+            _remarks = remarks;
+            _defaultValue = defaultValue;
+            _autoIncrement = autoIncrement;
+        }
+
+        public String getColumnName()
+        {
+            return _columnName;
+        }
+
+        public int getSqlType()
+        {
+            return _sqlType;
+        }
+
+        public String getSqlTypeName()
+        {
+            return _sqlTypeName;
+        }
+
+        Column createColumn(String tableName, IDataTypeFactory dataTypeFactory, boolean datatypeWarning)
+        throws DataTypeException
+        {
+            return SQLHelper.createColumn(tableName, _columnName, _sqlType, _sqlTypeName,
+                    _nullable, _remarks, _defaultValue, _autoIncrement,
+                    dataTypeFactory, datatypeWarning);
+        }
+
+        public String toString()
+        {
+            return _columnName + "(" + _sqlTypeName + ")";
+        }
+    }
+
+
+    /**
+     * One column mapping of a foreign key as returned by
+     * {@link java.sql.DatabaseMetaData#getImportedKeys(String, String, String)}.
+     */
+    public static class ForeignKeySnapshot implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final String _pkTableSchema;
+        private final String _pkTableName;
+        private final String _pkColumnName;
+        private final String _fkTableName;
+        private final String _fkColumnName;
+        private final int _keySequence;
+        private final String _fkName;
+
+        public ForeignKeySnapshot(String pkTableSchema, String pkTableName, String pkColumnName,
+                String fkTableName, String fkColumnName, int keySequence, String fkName)
+        {
+            _pkTableSchema = pkTableSchema;
+            _pkTableName = pkTableName;
+            _pkColumnName = pkColumnName;
+            _fkTableName = fkTableName;
+            _fkColumnName = fkColumnName;
+            _keySequence = keySequence;
+            _fkName = fkName;
+        }
+
+        public String getPkTableSchema()
+        {
+            return _pkTableSchema;
+        }
+
+        public String getPkTableName()
+        {
+            return _pkTableName;
+        }
+
+        public String getPkColumnName()
+        {
+            return _pkColumnName;
+        }
+
+        public String getFkTableName()
+        {
+            return _fkTableName;
+        }
+
+        public String getFkColumnName()
+        {
+            return _fkColumnName;
+        }
+
+        public int getKeySequence()
+        {
+            return _keySequence;
+        }
+
+        public String getFkName()
+        {
+            return _fkName;
+        }
+
+        public String toString()
+        {
+            return _fkName + ": " + _fkTableName + "." + _fkColumnName
+                + " -> " + _pkTableSchema + "." + _pkTableName + "." + _pkColumnName;
+        }
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.database;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of {@link SchemaSnapshot}s keyed by JDBC url and schema name. One cache instance
+ * can be shared between any number of {@link IDatabaseConnection}s by setting it as
+ * {@link DatabaseConfig#PROPERTY_SCHEMA_SNAPSHOT_CACHE}. The JVM wide instance returned
+ * by {@link #getDefault()} should be used unless there is a reason not to.
+ * <p>
+ * If a directory is given the snapshots are additionally persisted to local files,
+ * so that subsequent test runs can reuse them. A persisted snapshot is only used if the
+ * fingerprint computed by the {@link SchemaSnapshotLoader} still matches the current
+ * database schema. Snapshots held in memory are never revalidated; call
+ * {@link #invalidate(IDatabaseConnection, String)} or {@link #clear()} after changing
+ * the schema at runtime.
+ * </p>
+ * <p>
+ * The files contain the cache key followed by the snapshot in the plain format of
+ * {@link SchemaSnapshot}, no Java serialization is involved. Unreadable files are
+ * ignored and overwritten with a freshly loaded snapshot.
+ * </p>
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class SchemaSnapshotCache
+{
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(SchemaSnapshotCache.class);
+
+    private static final SchemaSnapshotCache DEFAULT_INSTANCE = new SchemaSnapshotCache();
+
+    private final File _directory;
+    private final SchemaSnapshotLoader _loader;
+    private final Map _snapshots = new HashMap();
+
+    /**
+     * @return The JVM wide in-memory cache instance
+     */
+    public static SchemaSnapshotCache getDefault()
+    {
+        return DEFAULT_INSTANCE;
+    }
+
+    /**
+     * Creates an in-memory cache using the {@link SchemaSnapshotLoader}.
+     */
+    public SchemaSnapshotCache()
+    {
+        this(null, new SchemaSnapshotLoader());
+    }
+
+    /**
+     * Creates a cache that persists its snapshots in the given directory using the
+     * {@link SchemaSnapshotLoader}.
+     * @param directory The directory for the snapshot files. If <code>null</code> the
+     * snapshots are only held in memory.
+     */
+    public SchemaSnapshotCache(File directory)
+    {
+        this(directory, new SchemaSnapshotLoader());
+    }
+
+    /**
+     * @param directory The directory for the snapshot files. If <code>null</code> the
+     * snapshots are only held in memory.
+     * @param loader The loader used to create the snapshots
+     */
+    public SchemaSnapshotCache(File directory, SchemaSnapshotLoader loader)
+    {
+        if (loader == null) {
+            throw new NullPointerException("The parameter 'loader' must not be null");
+        }
+        _directory = directory;
+        _loader = loader;
+    }
+
+    /**
+     * Returns the snapshot of the given schema, loading it if it is not yet cached.
+     * @param connection The connection used to identify the database and to load the
+     * snapshot if needed
+     * @param schema The schema name
+     * @return The snapshot of the given schema
+     * @throws SQLException
+     */
+    public synchronized SchemaSnapshot getSnapshot(IDatabaseConnection connection, String schema)
+    throws SQLException
+    {
+        logger.debug("getSnapshot(connection={}, schema={}) - start", connection, schema);
+
+        String key = createKey(connection, schema);
+        SchemaSnapshot snapshot = (SchemaSnapshot)_snapshots.get(key);
+        if (snapshot != null)
+        {
+            return snapshot;
+        }
+
+        if (_directory != null)
+        {
+            snapshot = readSnapshot(key);
+            if (snapshot != null)
+            {
+                String fingerprint = _loader.computeFingerprint(connection, schema);
+                if (!fingerprint.equals(snapshot.getFingerprint()))
+                {
+                    logger.info("Schema fingerprint of '{}' changed. Reloading persisted snapshot.", key);
+                    snapshot = null;
+                }
+            }
+        }
+
+        if (snapshot == null)
+        {
+            snapshot = _loader.load(connection, schema);
+            if (_directory != null)
+            {
+                writeSnapshot(key, snapshot);
+            }
+        }
+
+        _snapshots.put(key, snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Returns the snapshot of the given schema from the cache configured via
+     * {@link DatabaseConfig#PROPERTY_SCHEMA_SNAPSHOT_CACHE}.
+     * @param connection The connection
+     * @param schema The schema name
+     * @return The snapshot or <code>null</code> if no cache is configured or if the
+     * schema is unknown, since a snapshot spanning all schemas could not reliably
+     * distinguish tables having the same name
+     * @throws SQLException
+     */
+    static SchemaSnapshot getConfiguredSnapshot(IDatabaseConnection connection, String schema)
+    throws SQLException
+    {
+        SchemaSnapshotCache cache = (SchemaSnapshotCache)connection.getConfig().getProperty(
+                DatabaseConfig.PROPERTY_SCHEMA_SNAPSHOT_CACHE);
+        if (cache == null || schema == null)
+        {
+            return null;
+        }
+        return cache.getSnapshot(connection, schema);
+    }
+
+    /**
+     * Removes the snapshot of the given schema from memory and deletes its file if present.
+     * @param connection The connection used to identify the database
+     * @param schema The schema name
+     * @throws SQLException
+     */
+    public synchronized void invalidate(IDatabaseConnection connection, String schema)
+    throws SQLException
+    {
+        logger.debug("invalidate(connection={}, schema={}) - start", connection, schema);
+
+        String key = createKey(connection, schema);
+        _snapshots.remove(key);
+        if (_directory != null)
+        {
+            File file = getFile(key);
+            if (file.exists() && !file.delete())
+            {
+                logger.warn("Could not delete snapshot file '{}'", file);
+            }
+        }
+    }
+
+    /**
+     * Removes all snapshots from memory. Persisted files are kept but are
+     * revalidated against the database fingerprint before they are used again.
+     */
+    public synchronized void clear()
+    {
+        _snapshots.clear();
+    }
+
+    /**
+     * @return The directory where the snapshots are persisted or <code>null</code>
+     */
+    public File getDirectory()
+    {
+        return _directory;
+    }
+
+    protected String createKey(IDatabaseConnection connection, String schema) throws SQLException
+    {
+        String url = connection.getConnection().getMetaData().getURL();
+        return url + "|" + schema;
+    }
+
+    /**
+     * @param key The cache key
+     * @return The file the snapshot with the given key is persisted in
+     */
+    protected File getFile(String key)
+    {
+        return new File(_directory, "dbunit-schema-" + SchemaSnapshotLoader.digest(key) + ".snapshot");
+    }
+
+    private SchemaSnapshot readSnapshot(String key)
+    {
+        File file = getFile(key);
+        if (!file.exists())
+        {
+            return null;
+        }
+
+        try
+        {
+            DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(file)));
+            try
+            {
+                String storedKey = in.readUTF();
+                if (!key.equals(storedKey))
+                {
+                    logger.warn("Snapshot file '{}' belongs to '{}'. Ignoring it.", file, storedKey);
+                    return null;
+                }
+                return SchemaSnapshot.read(in);
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        catch (IOException e)
+        {
+            logger.warn("Could not read snapshot file '" + file + "'. Reloading snapshot.", e);
+            return null;
+        }
+        catch (RuntimeException e)
+        {
+            // e.g. corrupt element counts within the file
+            logger.warn("Could not read snapshot file '" + file + "'. Reloading snapshot.", e);
+            return null;
+        }
+    }
+
+    private void writeSnapshot(String key, SchemaSnapshot snapshot)
+    {
+        File file = getFile(key);
+        File tmpFile = new File(file.getPath() + ".tmp");
+        try
+        {
+            if (!_directory.exists() && !_directory.mkdirs())
+            {
+                throw new IOException("Could not create directory '" + _directory + "'");
+            }
+
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tmpFile)));
+            try
+            {
+                out.writeUTF(key);
+                snapshot.write(out);
+            }
+            finally
+            {
+                out.close();
+            }
+
+            // Replace the old file only after the new one has been completely written
+            if ((file.exists() && !file.delete()) || !tmpFile.renameTo(file))
+            {
+                throw new IOException("Could not rename '" + tmpFile + "' to '" + file + "'");
+            }
+        }
+        catch (IOException e)
+        {
+            logger.warn("Could not persist snapshot to '" + file + "'. Snapshot is only cached in memory.", e);
+            tmpFile.delete();
+        }
+    }
+
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append(getClass().getName()).append("[");
+        sb.append("_directory=").append(_directory);
+        sb.append(", _loader=").append(_loader);
+        sb.append(", _snapshots=").append(_snapshots.keySet());
+        sb.append("]");
+        return sb.toString();
+    }
+}
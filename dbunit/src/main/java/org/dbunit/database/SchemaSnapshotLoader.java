@@ -0,0 +1,574 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.database;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.dbunit.dataset.Column;
+import org.dbunit.util.SQLHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads a {@link SchemaSnapshot} from the database. The table list and the columns of
+ * all tables are retrieved with one bulk {@link DatabaseMetaData} query each. The JDBC
+ * specification requires a table name for primary and foreign key lookups, but many
+ * drivers (e.g. HSQLDB, H2, PostgreSQL) return the keys of all tables for a
+ * <code>null</code> table name. The loader tries this bulk lookup once per url and
+ * schema and falls back to one query per table if the driver fails or returns no
+ * primary keys at all. Database specific subclasses can override
+ * {@link #loadPrimaryKeys(SchemaSnapshot, IDatabaseConnection)},
+ * {@link #loadForeignKeys(SchemaSnapshot, IDatabaseConnection)} and
+ * {@link #computeFingerprint(IDatabaseConnection, String)} to use their own catalog
+ * queries instead.
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ * @see SchemaSnapshotCache
+ */
+public class SchemaSnapshotLoader
+{
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(SchemaSnapshotLoader.class);
+
+    /**
+     * Whether or not bulk key lookups work, keyed by url and schema
+     */
+    private final Map _bulkKeyLookups = new HashMap();
+
+    /**
+     * Loads the snapshot of the given schema.
+     * @param connection The connection to read the metadata from
+     * @param schema The schema to be loaded
+     * @return The loaded snapshot
+     * @throws SQLException
+     */
+    public SchemaSnapshot load(IDatabaseConnection connection, String schema) throws SQLException
+    {
+        logger.debug("load(connection={}, schema={}) - start", connection, schema);
+
+        long start = System.currentTimeMillis();
+        DatabaseMetaData databaseMetaData = connection.getConnection().getMetaData();
+        String fingerprint = computeFingerprint(connection, schema);
+
+        SchemaSnapshot snapshot = new SchemaSnapshot(databaseMetaData.getURL(), schema, fingerprint);
+        loadTables(snapshot, connection);
+        loadColumns(snapshot, connection);
+        loadPrimaryKeys(snapshot, connection);
+        loadForeignKeys(snapshot, connection);
+
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Loaded snapshot of schema '{}' with {} tables in {} ms", new Object[] {
+                    schema, String.valueOf(snapshot.getTableNames().length),
+                    String.valueOf(System.currentTimeMillis() - start) });
+        }
+        return snapshot;
+    }
+
+    /**
+     * Computes a fingerprint of the given schema which is used to decide whether or not
+     * a persisted snapshot is still valid. The default implementation hashes the database
+     * product version, the names and types of all tables, the name, type, size and
+     * nullability of all columns, the primary key columns and the foreign keys of all
+     * tables. If the driver supports bulk key lookups these are four metadata queries.
+     * Database specific subclasses may use a cheaper approach, for example a DDL
+     * timestamp, as long as it changes with every change of the tables, columns and keys.
+     * @param connection The connection to read the metadata from
+     * @param schema The schema to compute the fingerprint for
+     * @return The fingerprint
+     * @throws SQLException
+     */
+    public String computeFingerprint(IDatabaseConnection connection, String schema) throws SQLException
+    {
+        logger.debug("computeFingerprint(connection={}, schema={}) - start", connection, schema);
+
+        DatabaseMetaData databaseMetaData = connection.getConnection().getMetaData();
+        IMetadataHandler metadataHandler = getMetadataHandler(connection);
+
+        List tableNames = new ArrayList();
+        List entries = new ArrayList();
+        ResultSet resultSet = metadataHandler.getTables(databaseMetaData, schema, null);
+        try
+        {
+            while (resultSet.next())
+            {
+                if (matchesSchema(metadataHandler, resultSet, schema))
+                {
+                    tableNames.add(resultSet.getString(3));
+                    entries.add(resultSet.getString(3) + ":" + resultSet.getString(4));
+                }
+            }
+        }
+        finally
+        {
+            SQLHelper.close(resultSet);
+        }
+
+        resultSet = metadataHandler.getColumns(databaseMetaData, schema, "%");
+        try
+        {
+            while (resultSet.next())
+            {
+                if (metadataHandler.matches(resultSet, schema, null, false))
+                {
+                    // table.column:type:type name:size:decimal digits:nullable
+                    entries.add(resultSet.getString(3) + "." + resultSet.getString(4)
+                            + ":" + resultSet.getInt(5) + ":" + resultSet.getString(6)
+                            + ":" + resultSet.getInt(7) + ":" + resultSet.getInt(9)
+                            + ":" + resultSet.getInt(11));
+                }
+            }
+        }
+        finally
+        {
+            SQLHelper.close(resultSet);
+        }
+
+        Map primaryKeys = readPrimaryKeys(connection, schema, tableNames);
+        for (Iterator it = primaryKeys.entrySet().iterator(); it.hasNext();)
+        {
+            Map.Entry entry = (Map.Entry)it.next();
+            String[] keys = (String[])entry.getValue();
+            for (int i = 0; i < keys.length; i++)
+            {
+                entries.add(entry.getKey() + " pk " + keys[i] + ":" + (i + 1));
+            }
+        }
+
+        List foreignKeys = readForeignKeys(connection, schema, tableNames);
+        for (Iterator it = foreignKeys.iterator(); it.hasNext();)
+        {
+            SchemaSnapshot.ForeignKeySnapshot foreignKey = (SchemaSnapshot.ForeignKeySnapshot)it.next();
+            // fk table.fk column fk pk schema.pk table.pk column:key sequence:fk name
+            entries.add(foreignKey.getFkTableName() + "." + foreignKey.getFkColumnName()
+                    + " fk " + foreignKey.getPkTableSchema() + "." + foreignKey.getPkTableName()
+                    + "." + foreignKey.getPkColumnName() + ":" + foreignKey.getKeySequence()
+                    + ":" + foreignKey.getFkName());
+        }
+        Collections.sort(entries);
+
+        StringBuffer sb = new StringBuffer();
+        sb.append(databaseMetaData.getDatabaseProductName()).append(" ");
+        sb.append(databaseMetaData.getDatabaseProductVersion());
+        sb.append(entries);
+        return digest(sb.toString());
+    }
+
+    /**
+     * Adds all tables of the schema to the snapshot, regardless of their type.
+     * @param snapshot The snapshot to be filled
+     * @param connection The connection to read the metadata from
+     * @throws SQLException
+     */
+    protected void loadTables(SchemaSnapshot snapshot, IDatabaseConnection connection) throws SQLException
+    {
+        logger.debug("loadTables(snapshot={}, connection={}) - start", snapshot, connection);
+
+        DatabaseMetaData databaseMetaData = connection.getConnection().getMetaData();
+        IMetadataHandler metadataHandler = getMetadataHandler(connection);
+        String schema = snapshot.getSchema();
+
+        ResultSet resultSet = metadataHandler.getTables(databaseMetaData, schema, null);
+        try
+        {
+            while (resultSet.next())
+            {
+                if (matchesSchema(metadataHandler, resultSet, schema))
+                {
+                    snapshot.addTable(resultSet.getString(3), resultSet.getString(4));
+                }
+            }
+        }
+        finally
+        {
+            SQLHelper.close(resultSet);
+        }
+    }
+
+    /**
+     * Adds the columns of all tables using one single metadata query.
+     * @param snapshot The snapshot to be filled
+     * @param connection The connection to read the metadata from
+     * @throws SQLException
+     */
+    protected void loadColumns(SchemaSnapshot snapshot, IDatabaseConnection connection) throws SQLException
+    {
+        logger.debug("loadColumns(snapshot={}, connection={}) - start", snapshot, connection);
+
+        DatabaseMetaData databaseMetaData = connection.getConnection().getMetaData();
+        IMetadataHandler metadataHandler = getMetadataHandler(connection);
+        String schema = snapshot.getSchema();
+
+        ResultSet resultSet = metadataHandler.getColumns(databaseMetaData, schema, "%");
+        try
+        {
+            while (resultSet.next())
+            {
+                if (!metadataHandler.matches(resultSet, schema, null, false))
+                {
+                    continue;
+                }
+
+                String tableName = resultSet.getString(3);
+                SchemaSnapshot.TableSnapshot table = snapshot.getTable(tableName, true);
+                if (table == null)
+                {
+                    logger.debug("Skipping column of unknown table '{}'", tableName);
+                    continue;
+                }
+
+                String columnName = resultSet.getString(4);
+                int sqlType = resultSet.getInt(5);
+                // Same handling of SQL domains as in SQLHelper.createColumn()
+                if (sqlType == java.sql.Types.DISTINCT)
+                {
+                    sqlType = resultSet.getInt("SOURCE_DATA_TYPE");
+                }
+                String sqlTypeName = resultSet.getString(6);
+                int nullable = resultSet.getInt(11);
+                String remarks = resultSet.getString(12);
+                String columnDefaultValue = resultSet.getString(13);
+                String isAutoIncrement = getAutoIncrement(resultSet);
+
+                table.addColumn(new SchemaSnapshot.ColumnSnapshot(columnName, sqlType,
+                        sqlTypeName, nullable, remarks, columnDefaultValue, isAutoIncrement));
+            }
+        }
+        finally
+        {
+            SQLHelper.close(resultSet);
+        }
+    }
+
+    /**
+     * Sets the primary key names of all tables. The default implementation uses one
+     * bulk {@link IMetadataHandler#getPrimaryKeys(DatabaseMetaData, String, String)}
+     * query if the driver supports it and one query per table otherwise.
+     * @param snapshot The snapshot to be filled
+     * @param connection The connection to read the metadata from
+     * @throws SQLException
+     */
+    protected void loadPrimaryKeys(SchemaSnapshot snapshot, IDatabaseConnection connection) throws SQLException
+    {
+        logger.debug("loadPrimaryKeys(snapshot={}, connection={}) - start", snapshot, connection);
+
+        Map primaryKeys = readPrimaryKeys(connection, snapshot.getSchema(),
+                Arrays.asList(snapshot.getTableNames()));
+
+        SchemaSnapshot.TableSnapshot[] tables = snapshot.getTables();
+        for (int i = 0; i < tables.length; i++)
+        {
+            String[] keys = (String[])primaryKeys.get(tables[i].getTableName());
+            setPrimaryKeyNames(tables[i], keys == null ? new String[0] : keys);
+        }
+    }
+
+    /**
+     * Adds the foreign keys of all tables. The default implementation uses one bulk
+     * {@link DatabaseMetaData#getImportedKeys(String, String, String)} query if the
+     * driver supports it and one query per table otherwise.
+     * @param snapshot The snapshot to be filled
+     * @param connection The connection to read the metadata from
+     * @throws SQLException
+     */
+    protected void loadForeignKeys(SchemaSnapshot snapshot, IDatabaseConnection connection) throws SQLException
+    {
+        logger.debug("loadForeignKeys(snapshot={}, connection={}) - start", snapshot, connection);
+
+        List foreignKeys = readForeignKeys(connection, snapshot.getSchema(),
+                Arrays.asList(snapshot.getTableNames()));
+        for (Iterator it = foreignKeys.iterator(); it.hasNext();)
+        {
+            addForeignKey(snapshot, (SchemaSnapshot.ForeignKeySnapshot)it.next());
+        }
+    }
+
+    /**
+     * Reads the primary keys of the given tables.
+     * @return The primary key column names ordered by key sequence, keyed by table name
+     */
+    private Map readPrimaryKeys(IDatabaseConnection connection, String schema,
+            Collection tableNames) throws SQLException
+    {
+        DatabaseMetaData databaseMetaData = connection.getConnection().getMetaData();
+        IMetadataHandler metadataHandler = getMetadataHandler(connection);
+        String lookupKey = databaseMetaData.getURL() + "|" + schema;
+
+        Boolean bulkLookup = getBulkKeyLookup(lookupKey);
+        if (bulkLookup == null || bulkLookup.booleanValue())
+        {
+            Map primaryKeys = new HashMap();
+            Set tables = new HashSet(tableNames);
+            try
+            {
+                ResultSet resultSet = metadataHandler.getPrimaryKeys(databaseMetaData, schema, null);
+                try
+                {
+                    while (resultSet.next())
+                    {
+                        String tableName = resultSet.getString(3);
+                        if (tables.contains(tableName)
+                                && matchesSchema(metadataHandler, resultSet, schema))
+                        {
+                            String[] keys = (String[])primaryKeys.get(tableName);
+                            primaryKeys.put(tableName, addKey(keys == null ? new String[0] : keys,
+                                    resultSet.getString(4), resultSet.getInt(5)));
+                        }
+                    }
+                }
+                finally
+                {
+                    SQLHelper.close(resultSet);
+                }
+            }
+            catch (SQLException e)
+            {
+                logger.debug("Bulk primary key lookup failed", e);
+                primaryKeys.clear();
+            }
+
+            if (bulkLookup == null)
+            {
+                // No primary keys at all is taken as a driver ignoring the lookup
+                bulkLookup = Boolean.valueOf(!primaryKeys.isEmpty() || tables.isEmpty());
+                setBulkKeyLookup(lookupKey, bulkLookup);
+                logger.debug("Bulk key lookup supported for '{}': {}", lookupKey, bulkLookup);
+            }
+            if (!primaryKeys.isEmpty())
+            {
+                return primaryKeys;
+            }
+        }
+
+        Map primaryKeys = new HashMap();
+        for (Iterator it = tableNames.iterator(); it.hasNext();)
+        {
+            String tableName = (String)it.next();
+            ResultSet resultSet = metadataHandler.getPrimaryKeys(databaseMetaData, schema, tableName);
+            try
+            {
+                String[] keys = new String[0];
+                while (resultSet.next())
+                {
+                    keys = addKey(keys, resultSet.getString(4), resultSet.getInt(5));
+                }
+                primaryKeys.put(tableName, keys);
+            }
+            finally
+            {
+                SQLHelper.close(resultSet);
+            }
+        }
+        return primaryKeys;
+    }
+
+    /**
+     * Reads the foreign keys of the given tables. Uses the bulk lookup only if the
+     * previous {@link #readPrimaryKeys(IDatabaseConnection, String, Collection)} showed
+     * that the driver supports it.
+     * @return The {@link SchemaSnapshot.ForeignKeySnapshot}s of the given tables
+     */
+    private List readForeignKeys(IDatabaseConnection connection, String schema,
+            Collection tableNames) throws SQLException
+    {
+        DatabaseMetaData databaseMetaData = connection.getConnection().getMetaData();
+        String lookupKey = databaseMetaData.getURL() + "|" + schema;
+
+        List foreignKeys = new ArrayList();
+        if (Boolean.TRUE.equals(getBulkKeyLookup(lookupKey)))
+        {
+            Set tables = new HashSet(tableNames);
+            ResultSet resultSet = databaseMetaData.getImportedKeys(null, schema, null);
+            try
+            {
+                while (resultSet.next())
+                {
+                    if (tables.contains(resultSet.getString(7))
+                            && SQLHelper.areEqualIgnoreNull(schema, resultSet.getString(6), false))
+                    {
+                        foreignKeys.add(createForeignKey(resultSet));
+                    }
+                }
+            }
+            finally
+            {
+                SQLHelper.close(resultSet);
+            }
+            return foreignKeys;
+        }
+
+        for (Iterator it = tableNames.iterator(); it.hasNext();)
+        {
+            ResultSet resultSet = databaseMetaData.getImportedKeys(null, schema, (String)it.next());
+            try
+            {
+                while (resultSet.next())
+                {
+                    foreignKeys.add(createForeignKey(resultSet));
+                }
+            }
+            finally
+            {
+                SQLHelper.close(resultSet);
+            }
+        }
+        return foreignKeys;
+    }
+
+    private SchemaSnapshot.ForeignKeySnapshot createForeignKey(ResultSet resultSet) throws SQLException
+    {
+        return new SchemaSnapshot.ForeignKeySnapshot(
+                resultSet.getString(2), resultSet.getString(3), resultSet.getString(4),
+                resultSet.getString(7), resultSet.getString(8),
+                resultSet.getInt(9), resultSet.getString(12));
+    }
+
+    private Boolean getBulkKeyLookup(String lookupKey)
+    {
+        synchronized (_bulkKeyLookups)
+        {
+            return (Boolean)_bulkKeyLookups.get(lookupKey);
+        }
+    }
+
+    private void setBulkKeyLookup(String lookupKey, Boolean bulkLookup)
+    {
+        synchronized (_bulkKeyLookups)
+        {
+            _bulkKeyLookups.put(lookupKey, bulkLookup);
+        }
+    }
+
+    /**
+     * Sets the primary key names of the given table. Intended to be used by subclasses.
+     * @param table The table of the snapshot being loaded
+     * @param keys The primary key column names ordered by their key sequence
+     */
+    protected final void setPrimaryKeyNames(SchemaSnapshot.TableSnapshot table, String[] keys)
+    {
+        table.setPrimaryKeyNames(keys);
+    }
+
+    /**
+     * Adds a foreign key to the snapshot. Intended to be used by subclasses.
+     * @param snapshot The snapshot being loaded
+     * @param foreignKey The foreign key column mapping
+     */
+    protected final void addForeignKey(SchemaSnapshot snapshot, SchemaSnapshot.ForeignKeySnapshot foreignKey)
+    {
+        snapshot.addForeignKey(foreignKey);
+    }
+
+    /**
+     * Inserts the given primary key column at the position given by its
+     * 1-based key sequence.
+     * @param keys The keys collected so far
+     * @param columnName The key column name
+     * @param sequence The 1-based key sequence
+     * @return The array of keys including the new one
+     */
+    protected static String[] addKey(String[] keys, String columnName, int sequence)
+    {
+        int length = Math.max(keys.length, sequence);
+        String[] result = new String[length];
+        System.arraycopy(keys, 0, result, 0, keys.length);
+        result[sequence - 1] = columnName;
+        return result;
+    }
+
+    protected IMetadataHandler getMetadataHandler(IDatabaseConnection connection)
+    {
+        return (IMetadataHandler)connection.getConfig().getProperty(
+                DatabaseConfig.PROPERTY_METADATA_HANDLER);
+    }
+
+    private boolean matchesSchema(IMetadataHandler metadataHandler, ResultSet resultSet,
+            String schema) throws SQLException
+    {
+        return SQLHelper.areEqualIgnoreNull(schema, metadataHandler.getSchema(resultSet), false);
+    }
+
+    private String getAutoIncrement(ResultSet resultSet)
+    {
+        try
+        {
+            return resultSet.getString(23);
+        }
+        catch (Exception e)
+        {
+            logger.debug("Could not retrieve the 'isAutoIncrement' property - defaulting to NO", e);
+            return Column.AutoIncrement.NO.getKey();
+        }
+    }
+
+    /**
+     * Creates a hex encoded SHA-1 hash of the given value.
+     * @param value The value to be hashed
+     * @return The hash
+     */
+    static String digest(String value)
+    {
+        try
+        {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            byte[] hash = md.digest(value.getBytes("UTF-8"));
+            StringBuffer sb = new StringBuffer(hash.length * 2);
+            for (int i = 0; i < hash.length; i++)
+            {
+                String hex = Integer.toHexString(hash[i] & 0xff);
+                if (hex.length() == 1)
+                {
+                    sb.append('0');
+                }
+                sb.append(hex);
+            }
+            return sb.toString();
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException("SHA-1 is not supported by this JVM: " + e);
+        }
+        catch (java.io.UnsupportedEncodingException e)
+        {
+            throw new IllegalStateException("UTF-8 is not supported by this JVM: " + e);
+        }
+    }
+}
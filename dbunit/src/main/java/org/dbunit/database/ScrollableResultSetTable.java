@@ -141,6 +141,24 @@ public class ScrollableResultSetTable extends AbstractResultSetTable
         }
     }
 
+    public Object getValue(int row, int column) throws DataSetException
+    {
+        assertValidRowIndex(row);
+
+        try
+        {
+            _resultSet.absolute(row + 1);
+
+            Column[] columns = _metaData.getColumns();
+            assertValidColumnIndex(column, columns.length);
+            return columns[column].getDataType().getSqlValue(column + 1, _resultSet);
+        }
+        catch (SQLException e)
+        {
+            throw new DataSetException(e);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
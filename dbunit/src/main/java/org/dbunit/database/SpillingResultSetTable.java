@@ -0,0 +1,66 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.database;
+
+import java.io.File;
+import java.sql.SQLException;
+
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.SpillingTable;
+
+/**
+ * Result set table reading all rows into a {@link SpillingTable}, which writes the rows
+ * exceeding its memory budget to a temporary file. {@link #close()} deletes the file.
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ * @see SpillingResultSetTableFactory
+ */
+public class SpillingResultSetTable extends SpillingTable implements IResultSetTable
+{
+    /**
+     * @param table The table to read, closed afterwards
+     * @param memoryBudget The estimated number of bytes of rows kept in memory
+     * @param directory The directory of the temporary files or <code>null</code> for the
+     * default temporary directory
+     */
+    public SpillingResultSetTable(IResultSetTable table, long memoryBudget, File directory)
+            throws DataSetException, SQLException
+    {
+        super(table.getTableMetaData(), memoryBudget, directory);
+        try
+        {
+            addTableRows(table);
+        }
+        catch (DataSetException e)
+        {
+            close();
+            throw e;
+        }
+        finally
+        {
+            table.close();
+        }
+    }
+}
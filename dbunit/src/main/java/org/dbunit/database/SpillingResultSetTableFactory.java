@@ -0,0 +1,123 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.database;
+
+import java.io.File;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.SpillingTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates {@link SpillingResultSetTable}s which keep rows up to a memory budget in
+ * memory and the remaining rows in temporary files. This supports random access to
+ * tables too large for the heap, unlike {@link ForwardOnlyResultSetTableFactory}.
+ * Tables created by this factory should be closed to delete their files. The
+ * iterators of {@link DatabaseDataSet} close each table when moving to the next one.
+ * Tables returned by {@link DatabaseDataSet#getTable(String)},
+ * {@link QueryDataSet} or {@link IDatabaseConnection#createTable(String)} are not
+ * closed by dbUnit; their callers should close them through {@link IResultSetTable},
+ * otherwise the files are only deleted when the JVM exits.
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class SpillingResultSetTableFactory implements IResultSetTableFactory
+{
+
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(SpillingResultSetTableFactory.class);
+
+    private final long _memoryBudget;
+    private final File _directory;
+
+    /**
+     * Creates a factory keeping up to {@link SpillingTable#DEFAULT_MEMORY_BUDGET} bytes of
+     * rows per table in memory and writing to the default temporary directory.
+     */
+    public SpillingResultSetTableFactory()
+    {
+        this(SpillingTable.DEFAULT_MEMORY_BUDGET, null);
+    }
+
+    /**
+     * @param memoryBudget The estimated number of bytes of rows kept in memory per table
+     * @param directory The directory of the temporary files or <code>null</code> for the
+     * default temporary directory
+     */
+    public SpillingResultSetTableFactory(long memoryBudget, File directory)
+    {
+        _memoryBudget = memoryBudget;
+        _directory = directory;
+    }
+
+    public IResultSetTable createTable(String tableName, String selectStatement,
+            IDatabaseConnection connection) throws SQLException, DataSetException
+    {
+        if (logger.isTraceEnabled())
+            logger.trace("createTable(tableName={}, selectStatement={}, connection={}) - start",
+                    new Object[] { tableName, selectStatement, connection });
+
+        return new SpillingResultSetTable(new ForwardOnlyResultSetTable(
+                tableName, selectStatement, connection), _memoryBudget, _directory);
+    }
+
+    public IResultSetTable createTable(ITableMetaData metaData,
+            IDatabaseConnection connection) throws SQLException, DataSetException
+    {
+        logger.trace("createTable(metaData={}, connection={}) - start", metaData, connection);
+
+        return new SpillingResultSetTable(new ForwardOnlyResultSetTable(metaData, connection),
+                _memoryBudget, _directory);
+    }
+
+    public IResultSetTable createTable(String tableName,
+            PreparedStatement preparedStatement, IDatabaseConnection connection)
+    throws SQLException, DataSetException
+    {
+        if (logger.isTraceEnabled())
+            logger.trace("createTable(tableName={}, preparedStatement={}, connection={}) - start",
+                new Object[]{ tableName, preparedStatement, connection});
+
+        ForwardOnlyResultSetTable table = new ForwardOnlyResultSetTableFactory()
+                    .createForwardOnlyResultSetTable(tableName, preparedStatement, connection);
+        return new SpillingResultSetTable(table, _memoryBudget, _directory);
+    }
+
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append(getClass().getName()).append("[");
+        sb.append("_memoryBudget=").append(_memoryBudget);
+        sb.append(", _directory=").append(_directory);
+        sb.append("]");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,728 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.database;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.dbunit.database.search.ForeignKeyRelationshipEdge;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.util.QualifiedTableName;
+import org.dbunit.util.SQLHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Foreign key dependencies between a set of tables.
+ * <p>
+ * If a {@link SchemaSnapshotCache} is configured as
+ * {@link DatabaseConfig#PROPERTY_SCHEMA_SNAPSHOT_CACHE}, the graph of all tables of a
+ * schema is built once from its {@link SchemaSnapshot} and kept with the snapshot, see
+ * {@link #getSchemaGraph(IDatabaseConnection)}. {@link #load} then takes the foreign keys
+ * of its tables from that graph without accessing the database, and the foreign key
+ * searches of {@link org.dbunit.database.search.TablesDependencyHelper} and
+ * {@link PrimaryKeyFilter} use it as well. Without a cache every {@link #load} reads the
+ * foreign keys of the schema with one bulk
+ * {@link DatabaseMetaData#getImportedKeys} call, falling back to one call per table if
+ * the driver does not support it.
+ * </p>
+ * <p>
+ * {@link #sort()} orders the tables so that each table comes after the tables it
+ * references, using Tarjan's strongly connected components algorithm in
+ * <code>O(tables + foreign keys)</code>. Tables referencing each other directly or
+ * indirectly form a cyclic group which is reported as a whole. References of a table to
+ * itself are ignored when sorting.
+ * </p>
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class TableDependencyGraph
+{
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(TableDependencyGraph.class);
+
+    private final String[] _tableNames;
+    private final boolean _caseSensitive;
+    /**
+     * Normalized table name to Integer index
+     */
+    private final Map _indexes = new HashMap();
+    /**
+     * Per table index, the indexes of the tables it references
+     */
+    private final Set[] _dependsOn;
+    /**
+     * Per table index, the indexes of the tables referencing it
+     */
+    private final Set[] _dependents;
+    /**
+     * Per table index, the {@link ForeignKeyRelationshipEdge}s of its foreign keys
+     */
+    private final List[] _edges;
+    private int _edgeCount = 0;
+    /**
+     * Whether this graph is shared and must not be modified anymore
+     */
+    private boolean _shared = false;
+
+    /**
+     * Creates a graph of the given tables without dependencies.
+     * @param tableNames The tables of the graph
+     * @param caseSensitive Whether table names given to this graph are case sensitive
+     */
+    public TableDependencyGraph(String[] tableNames, boolean caseSensitive)
+    {
+        _tableNames = (String[])tableNames.clone();
+        _caseSensitive = caseSensitive;
+        _dependsOn = new Set[tableNames.length];
+        _dependents = new Set[tableNames.length];
+        _edges = new List[tableNames.length];
+        for (int i = 0; i < tableNames.length; i++)
+        {
+            _indexes.put(normalize(tableNames[i]), new Integer(i));
+            // keep the insertion order for deterministic results
+            _dependsOn[i] = new LinkedHashSet();
+            _dependents[i] = new LinkedHashSet();
+            _edges[i] = new ArrayList();
+        }
+    }
+
+    /**
+     * Loads the foreign keys between the given tables. The foreign keys are taken from
+     * the {@link #getSchemaGraph(IDatabaseConnection) schema graph} if a
+     * {@link SchemaSnapshotCache} is configured and all tables belong to the schema of
+     * the connection, otherwise they are read from the database on each invocation.
+     * @param connection The connection
+     * @param tableNames The tables of the graph
+     * @return The graph
+     * @throws SQLException
+     */
+    public static TableDependencyGraph load(IDatabaseConnection connection, String[] tableNames)
+            throws SQLException
+    {
+        logger.debug("load(connection={}, tableNames={}) - start", connection, tableNames);
+
+        DatabaseConfig config = connection.getConfig();
+        TableDependencyGraph graph = new TableDependencyGraph(tableNames,
+                config.getFeature(DatabaseConfig.FEATURE_CASE_SENSITIVE_TABLE_NAMES));
+
+        String schema = connection.getSchema();
+        SchemaSnapshot snapshot = graph.isInSchema(schema) ?
+                SchemaSnapshotCache.getConfiguredSnapshot(connection, schema) : null;
+        if (snapshot != null)
+        {
+            graph.addForeignKeys(snapshot.getDependencyGraph(config), schema, config);
+        }
+        else
+        {
+            graph.addForeignKeys(connection);
+        }
+        return graph;
+    }
+
+    /**
+     * Returns the graph of all tables in the schema of the connection, which is built
+     * from the {@link SchemaSnapshot} of the configured {@link SchemaSnapshotCache} and
+     * kept with it. The graph is therefore shared by all connections to the same url and
+     * schema until the snapshot is invalidated. Its table names are qualified if
+     * {@link DatabaseConfig#FEATURE_QUALIFIED_TABLE_NAMES} is enabled. Foreign keys
+     * to tables of other schemas are not part of the graph.
+     * @param connection The connection
+     * @return The shared graph which must not be modified, or <code>null</code> if no
+     * {@link SchemaSnapshotCache} is configured or the connection has no schema
+     * @throws SQLException
+     */
+    public static TableDependencyGraph getSchemaGraph(IDatabaseConnection connection)
+            throws SQLException
+    {
+        SchemaSnapshot snapshot = SchemaSnapshotCache.getConfiguredSnapshot(
+                connection, connection.getSchema());
+        return snapshot == null ? null : snapshot.getDependencyGraph(connection.getConfig());
+    }
+
+    /**
+     * Builds the graph of all tables of the given snapshot.
+     * @param snapshot The snapshot
+     * @param config The configuration defining case sensitivity and qualification of table names
+     * @return The graph which cannot be modified anymore
+     */
+    static TableDependencyGraph create(SchemaSnapshot snapshot, DatabaseConfig config)
+    {
+        String[] tableNames = snapshot.getTableNames();
+        for (int i = 0; i < tableNames.length; i++)
+        {
+            tableNames[i] = new QualifiedTableName(tableNames[i], snapshot.getSchema())
+                    .getQualifiedNameIfEnabled(config);
+        }
+        TableDependencyGraph graph = new TableDependencyGraph(tableNames,
+                config.getFeature(DatabaseConfig.FEATURE_CASE_SENSITIVE_TABLE_NAMES));
+        graph.addForeignKeys(snapshot, config);
+        graph._shared = true;
+        return graph;
+    }
+
+    /**
+     * Loads the foreign keys between all tables of the connection.
+     * @see #load(IDatabaseConnection, String[])
+     */
+    public static TableDependencyGraph load(IDatabaseConnection connection)
+            throws SQLException, DataSetException
+    {
+        return load(connection, connection.createDataSet().getTableNames());
+    }
+
+    private boolean isInSchema(String schema)
+    {
+        if (schema == null)
+        {
+            return false;
+        }
+        for (int i = 0; i < _tableNames.length; i++)
+        {
+            if (!schema.equalsIgnoreCase(new QualifiedTableName(_tableNames[i], schema).getSchema()))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void addForeignKeys(SchemaSnapshot snapshot, DatabaseConfig config)
+    {
+        for (int i = 0; i < _tableNames.length; i++)
+        {
+            String tableName = new QualifiedTableName(_tableNames[i], snapshot.getSchema()).getTable();
+            SchemaSnapshot.TableSnapshot table = snapshot.getTable(tableName, _caseSensitive);
+            if (table == null)
+            {
+                continue;
+            }
+            SchemaSnapshot.ForeignKeySnapshot[] foreignKeys = table.getImportedKeys();
+            for (int j = 0; j < foreignKeys.length; j++)
+            {
+                SchemaSnapshot.ForeignKeySnapshot foreignKey = foreignKeys[j];
+                String pkSchema = foreignKey.getPkTableSchema() == null ?
+                        snapshot.getSchema() : foreignKey.getPkTableSchema();
+                String pkTableName = new QualifiedTableName(foreignKey.getPkTableName(),
+                        pkSchema).getQualifiedNameIfEnabled(config);
+                addForeignKey(_tableNames[i], pkTableName, foreignKey.getFkColumnName(),
+                        foreignKey.getPkColumnName());
+            }
+        }
+    }
+
+    /**
+     * Adds the foreign keys of the given schema graph between the tables of this graph.
+     */
+    private void addForeignKeys(TableDependencyGraph schemaGraph, String schema,
+            DatabaseConfig config)
+    {
+        for (int i = 0; i < _tableNames.length; i++)
+        {
+            int index = schemaGraph.indexOf(new QualifiedTableName(_tableNames[i], schema)
+                    .getQualifiedNameIfEnabled(config));
+            if (index < 0)
+            {
+                continue;
+            }
+            for (Iterator it = schemaGraph._edges[index].iterator(); it.hasNext();)
+            {
+                ForeignKeyRelationshipEdge edge = (ForeignKeyRelationshipEdge)it.next();
+                addForeignKey(_tableNames[i], (String)edge.getTo(), edge.getFKColumn(),
+                        edge.getPKColumn());
+            }
+        }
+    }
+
+    private void addForeignKeys(IDatabaseConnection connection) throws SQLException
+    {
+        if (isInSchema(connection.getSchema()) && addForeignKeysOfSchema(connection))
+        {
+            return;
+        }
+
+        DatabaseMetaData metaData = connection.getConnection().getMetaData();
+        DatabaseConfig config = connection.getConfig();
+        for (int i = 0; i < _tableNames.length; i++)
+        {
+            QualifiedTableName tableName = new QualifiedTableName(_tableNames[i], connection.getSchema());
+            // the metadata expects the case the database stores unquoted names in
+            String table = _caseSensitive ? tableName.getTable() :
+                    SQLHelper.correctCase(tableName.getTable(), metaData);
+            ResultSet resultSet = metaData.getImportedKeys(null, tableName.getSchema(), table);
+            try
+            {
+                while (resultSet.next())
+                {
+                    String pkTableName = new QualifiedTableName(resultSet.getString(3),
+                            resultSet.getString(2)).getQualifiedNameIfEnabled(config);
+                    addForeignKey(_tableNames[i], pkTableName, resultSet.getString(8),
+                            resultSet.getString(4));
+                }
+            }
+            finally
+            {
+                SQLHelper.close(resultSet);
+            }
+        }
+    }
+
+    /**
+     * Adds the foreign keys of all tables with one bulk
+     * {@link DatabaseMetaData#getImportedKeys} call for the whole schema. The JDBC
+     * specification requires a table name, but many drivers return the keys of all
+     * tables for <code>null</code>.
+     * @return <code>false</code> if the driver failed or returned no foreign keys at all,
+     * in which case they have to be read per table
+     */
+    private boolean addForeignKeysOfSchema(IDatabaseConnection connection) throws SQLException
+    {
+        DatabaseMetaData metaData = connection.getConnection().getMetaData();
+        DatabaseConfig config = connection.getConfig();
+        String schema = connection.getSchema();
+
+        // the names of this graph in the form of the metadata
+        Map indexes = new HashMap();
+        for (int i = 0; i < _tableNames.length; i++)
+        {
+            indexes.put(normalize(new QualifiedTableName(_tableNames[i], schema)
+                    .getQualifiedNameIfEnabled(config)), new Integer(i));
+        }
+
+        // per table index, to add the keys in the order of this graph
+        List[] foreignKeys = new List[_tableNames.length];
+        boolean found = false;
+        try
+        {
+            ResultSet resultSet = metaData.getImportedKeys(null, schema, null);
+            try
+            {
+                while (resultSet.next())
+                {
+                    found = true;
+                    String fkTableName = new QualifiedTableName(resultSet.getString(7),
+                            resultSet.getString(6)).getQualifiedNameIfEnabled(config);
+                    Integer index = (Integer)indexes.get(normalize(fkTableName));
+                    if (index != null)
+                    {
+                        int i = index.intValue();
+                        if (foreignKeys[i] == null)
+                        {
+                            foreignKeys[i] = new ArrayList();
+                        }
+                        String pkTableName = new QualifiedTableName(resultSet.getString(3),
+                                resultSet.getString(2)).getQualifiedNameIfEnabled(config);
+                        foreignKeys[i].add(new ForeignKeyRelationshipEdge(_tableNames[i],
+                                pkTableName, resultSet.getString(8), resultSet.getString(4)));
+                    }
+                }
+            }
+            finally
+            {
+                SQLHelper.close(resultSet);
+            }
+        }
+        catch (SQLException e)
+        {
+            logger.debug("Bulk foreign key lookup failed, reading the keys per table", e);
+            return false;
+        }
+        if (!found)
+        {
+            logger.debug("Bulk foreign key lookup returned nothing, reading the keys per table");
+            return false;
+        }
+
+        for (int i = 0; i < foreignKeys.length; i++)
+        {
+            for (int j = 0; foreignKeys[i] != null && j < foreignKeys[i].size(); j++)
+            {
+                ForeignKeyRelationshipEdge edge = (ForeignKeyRelationshipEdge)foreignKeys[i].get(j);
+                addForeignKey(_tableNames[i], (String)edge.getTo(), edge.getFKColumn(),
+                        edge.getPKColumn());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds a foreign key column. Keys referencing a table which is not part of this
+     * graph are ignored.
+     * @param fkTableName The referencing table
+     * @param pkTableName The referenced table
+     * @param fkColumnName The foreign key column
+     * @param pkColumnName The referenced primary key column
+     * @return <code>true</code> if the key has been added
+     */
+    public boolean addForeignKey(String fkTableName, String pkTableName, String fkColumnName,
+            String pkColumnName)
+    {
+        if (_shared)
+        {
+            throw new IllegalStateException("The shared graph of a schema must not be modified");
+        }
+
+        int from = indexOf(fkTableName);
+        int to = indexOf(pkTableName);
+        if (from < 0 || to < 0)
+        {
+            logger.debug("Ignoring foreign key {} -> {} to a table outside the graph",
+                    fkTableName, pkTableName);
+            return false;
+        }
+
+        _edges[from].add(new ForeignKeyRelationshipEdge(_tableNames[from], _tableNames[to],
+                fkColumnName, pkColumnName));
+        if (_dependsOn[from].add(new Integer(to)))
+        {
+            _dependents[to].add(new Integer(from));
+            _edgeCount++;
+        }
+        return true;
+    }
+
+    private String normalize(String tableName)
+    {
+        return _caseSensitive ? tableName : tableName.toUpperCase();
+    }
+
+    private int indexOf(String tableName)
+    {
+        Integer index = (Integer)_indexes.get(normalize(tableName));
+        return index == null ? -1 : index.intValue();
+    }
+
+    private int getIndex(String tableName)
+    {
+        int index = indexOf(tableName);
+        if (index < 0)
+        {
+            throw new IllegalArgumentException("Table '" + tableName + "' is not part of the graph");
+        }
+        return index;
+    }
+
+    /**
+     * @return The tables of this graph in the order given when it was created
+     */
+    public String[] getTableNames()
+    {
+        return (String[])_tableNames.clone();
+    }
+
+    /**
+     * @param tableName A table name
+     * @return <code>true</code> if the table is part of this graph
+     */
+    public boolean containsTable(String tableName)
+    {
+        return indexOf(tableName) >= 0;
+    }
+
+    /**
+     * @return The number of distinct table pairs connected by foreign keys
+     */
+    public int getDependencyCount()
+    {
+        return _edgeCount;
+    }
+
+    /**
+     * @param tableName A table of this graph
+     * @return The foreign key columns of the table to other tables of this graph
+     */
+    public ForeignKeyRelationshipEdge[] getForeignKeys(String tableName)
+    {
+        List edges = _edges[getIndex(tableName)];
+        return (ForeignKeyRelationshipEdge[])edges.toArray(new ForeignKeyRelationshipEdge[edges.size()]);
+    }
+
+    /**
+     * @param tableName A table of this graph
+     * @return The foreign key columns of other tables of this graph referencing the given
+     * table, including the references of the table to itself
+     */
+    public ForeignKeyRelationshipEdge[] getReferencingForeignKeys(String tableName)
+    {
+        int index = getIndex(tableName);
+        List edges = new ArrayList();
+        for (Iterator it = _dependents[index].iterator(); it.hasNext();)
+        {
+            List candidates = _edges[((Integer)it.next()).intValue()];
+            for (int i = 0; i < candidates.size(); i++)
+            {
+                ForeignKeyRelationshipEdge edge = (ForeignKeyRelationshipEdge)candidates.get(i);
+                if (indexOf((String)edge.getTo()) == index)
+                {
+                    edges.add(edge);
+                }
+            }
+        }
+        return (ForeignKeyRelationshipEdge[])edges.toArray(new ForeignKeyRelationshipEdge[edges.size()]);
+    }
+
+    /**
+     * @param tableName A table of this graph
+     * @return The tables directly referenced by the given table, which may include the table itself
+     */
+    public Set getDirectDependsOnTables(String tableName)
+    {
+        return toNames(_dependsOn[getIndex(tableName)]);
+    }
+
+    /**
+     * @param tableName A table of this graph
+     * @return The tables directly referencing the given table, which may include the table itself
+     */
+    public Set getDirectDependentTables(String tableName)
+    {
+        return toNames(_dependents[getIndex(tableName)]);
+    }
+
+    /**
+     * @param tableName A table of this graph
+     * @return The tables directly or indirectly referenced by the given table, excluding itself
+     */
+    public Set getAllDependsOnTables(String tableName)
+    {
+        return getReachable(getIndex(tableName), _dependsOn);
+    }
+
+    /**
+     * @param tableName A table of this graph
+     * @return The tables directly or indirectly referencing the given table, excluding itself
+     */
+    public Set getAllDependentTables(String tableName)
+    {
+        return getReachable(getIndex(tableName), _dependents);
+    }
+
+    private Set getReachable(int start, Set[] adjacency)
+    {
+        boolean[] visited = new boolean[_tableNames.length];
+        int[] queue = new int[_tableNames.length];
+        int head = 0;
+        int tail = 0;
+        visited[start] = true;
+        queue[tail++] = start;
+
+        Set result = new LinkedHashSet();
+        while (head < tail)
+        {
+            int node = queue[head++];
+            for (Iterator it = adjacency[node].iterator(); it.hasNext();)
+            {
+                int next = ((Integer)it.next()).intValue();
+                if (!visited[next])
+                {
+                    visited[next] = true;
+                    queue[tail++] = next;
+                    result.add(_tableNames[next]);
+                }
+            }
+        }
+        return result;
+    }
+
+    private Set toNames(Set indexes)
+    {
+        Set names = new LinkedHashSet();
+        for (Iterator it = indexes.iterator(); it.hasNext();)
+        {
+            names.add(_tableNames[((Integer)it.next()).intValue()]);
+        }
+        return names;
+    }
+
+    /**
+     * Computes the strongly connected components of this graph. Tables are visited in the
+     * order of this graph, so the result is deterministic.
+     * @return The components as <code>String[]</code>, each one after the components of
+     * the tables it references. The tables of a component are in the order of this graph.
+     */
+    public List getStronglyConnectedComponents()
+    {
+        int n = _tableNames.length;
+        int[] index = new int[n];
+        int[] lowLink = new int[n];
+        boolean[] onStack = new boolean[n];
+        Arrays.fill(index, -1);
+
+        int[] stack = new int[n];
+        int stackSize = 0;
+        // explicit call stack to not overflow the thread stack on deep schemas
+        int[] callStack = new int[n];
+        Iterator[] iterators = new Iterator[n];
+        int counter = 0;
+        List components = new ArrayList();
+
+        for (int root = 0; root < n; root++)
+        {
+            if (index[root] >= 0)
+            {
+                continue;
+            }
+
+            int depth = 0;
+            callStack[depth] = root;
+            index[root] = lowLink[root] = counter++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+            iterators[root] = sortedIndexes(_dependsOn[root]).iterator();
+
+            while (depth >= 0)
+            {
+                int node = callStack[depth];
+                if (iterators[node].hasNext())
+                {
+                    int next = ((Integer)iterators[node].next()).intValue();
+                    if (index[next] < 0)
+                    {
+                        index[next] = lowLink[next] = counter++;
+                        stack[stackSize++] = next;
+                        onStack[next] = true;
+                        iterators[next] = sortedIndexes(_dependsOn[next]).iterator();
+                        callStack[++depth] = next;
+                    }
+                    else if (onStack[next])
+                    {
+                        lowLink[node] = Math.min(lowLink[node], index[next]);
+                    }
+                    continue;
+                }
+
+                // all references of node visited
+                if (lowLink[node] == index[node])
+                {
+                    List members = new ArrayList();
+                    int member;
+                    do
+                    {
+                        member = stack[--stackSize];
+                        onStack[member] = false;
+                        members.add(new Integer(member));
+                    }
+                    while (member != node);
+                    components.add(toSortedNames(members));
+                }
+                iterators[node] = null;
+                depth--;
+                if (depth >= 0)
+                {
+                    int parent = callStack[depth];
+                    lowLink[parent] = Math.min(lowLink[parent], lowLink[node]);
+                }
+            }
+        }
+        return components;
+    }
+
+    private static List sortedIndexes(Set indexes)
+    {
+        List list = new ArrayList(indexes);
+        Collections.sort(list);
+        return list;
+    }
+
+    private String[] toSortedNames(List indexes)
+    {
+        Collections.sort(indexes);
+        String[] names = new String[indexes.size()];
+        for (int i = 0; i < names.length; i++)
+        {
+            names[i] = _tableNames[((Integer)indexes.get(i)).intValue()];
+        }
+        return names;
+    }
+
+    /**
+     * @return The groups of tables referencing each other, as <code>String[]</code>
+     */
+    public List getCyclicTableGroups()
+    {
+        List components = getStronglyConnectedComponents();
+        List cycles = new ArrayList();
+        for (int i = 0; i < components.size(); i++)
+        {
+            String[] component = (String[])components.get(i);
+            if (component.length > 1)
+            {
+                cycles.add(component);
+            }
+        }
+        return cycles;
+    }
+
+    /**
+     * Orders the tables so that each table comes after the tables it references. Tables
+     * are visited in the order of this graph and referenced tables are placed right
+     * before the first table referencing them.
+     * @return The sorted table names
+     * @throws CyclicTablesDependencyException If some tables reference each other
+     */
+    public String[] sort() throws CyclicTablesDependencyException
+    {
+        List components = getStronglyConnectedComponents();
+        List cycles = new ArrayList();
+        String[] sorted = new String[_tableNames.length];
+        for (int i = 0; i < components.size(); i++)
+        {
+            String[] component = (String[])components.get(i);
+            if (component.length > 1)
+            {
+                cycles.add(component);
+            }
+            sorted[i] = component[0];
+        }
+        if (!cycles.isEmpty())
+        {
+            throw new CyclicTablesDependencyException(cycles);
+        }
+        return sorted;
+    }
+
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append(getClass().getName()).append("[");
+        sb.append("tableCount=").append(_tableNames.length);
+        sb.append(", dependencyCount=").append(_edgeCount);
+        sb.append(", _caseSensitive=").append(_caseSensitive);
+        sb.append("]");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.database;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A fixed number of connections obtained from a {@link DataSource} and configured like a
+ * given connection, shared by the worker threads of a concurrent operation, together with
+ * the executor running these workers.
+ * <p>
+ * A worker {@link #take() takes} a connection, uses it and {@link #release releases} it
+ * again. {@link #shutdown(ExecutorService)} stops the executor and waits at most the
+ * {@link #setShutdownTimeout shutdown timeout} for the running workers before all
+ * connections are closed, including the ones still in use. JDBC calls usually ignore
+ * interrupts, so closing the connection is what makes a blocked statement return.
+ * </p>
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class WorkerConnectionPool
+{
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(WorkerConnectionPool.class);
+
+    public static final long DEFAULT_SHUTDOWN_TIMEOUT = 10000;
+
+    private final List _connections;
+    private final BlockingQueue _available;
+    private long _shutdownTimeout = DEFAULT_SHUTDOWN_TIMEOUT;
+
+    private WorkerConnectionPool(List connections)
+    {
+        _connections = connections;
+        _available = new LinkedBlockingQueue(connections);
+    }
+
+    /**
+     * Opens the worker connections using the schema and the configuration of the given
+     * connection.
+     * @param dataSource The data source providing the connections or <code>null</code>
+     * @param connection The connection to be copied
+     * @param count The number of connections
+     * @return The pool or <code>null</code> if there is no data source or the
+     * connections could not be obtained
+     */
+    public static WorkerConnectionPool open(DataSource dataSource,
+            IDatabaseConnection connection, int count)
+    {
+        logger.debug("open(dataSource={}, connection={}, count={}) - start",
+                new Object[] {dataSource, connection, String.valueOf(count)});
+
+        if (dataSource == null)
+        {
+            return null;
+        }
+
+        List connections = new ArrayList(count);
+        try
+        {
+            for (int i = 0; i < count; i++)
+            {
+                IDatabaseConnection workerConnection = new DatabaseConnection(
+                        dataSource.getConnection(), connection.getSchema());
+                connection.getConfig().copyTo(workerConnection.getConfig());
+                connections.add(workerConnection);
+            }
+            return new WorkerConnectionPool(connections);
+        }
+        catch (Exception e)
+        {
+            logger.warn("Could not open worker connection: " + e);
+            close(connections);
+            return null;
+        }
+    }
+
+    /**
+     * @return The number of connections
+     */
+    public int size()
+    {
+        return _connections.size();
+    }
+
+    public long getShutdownTimeout()
+    {
+        return _shutdownTimeout;
+    }
+
+    /**
+     * @param shutdownTimeout The milliseconds {@link #shutdown(ExecutorService)} waits
+     * for the running workers before closing their connections
+     */
+    public void setShutdownTimeout(long shutdownTimeout)
+    {
+        if (shutdownTimeout < 0) {
+            throw new IllegalArgumentException("The parameter 'shutdownTimeout' must not be negative: " + shutdownTimeout);
+        }
+        _shutdownTimeout = shutdownTimeout;
+    }
+
+    /**
+     * Creates an executor with one daemon thread per connection, so that an abandoned
+     * operation does not keep the JVM alive.
+     * @param threadNamePrefix The prefix of the thread names
+     * @return The executor
+     */
+    public ExecutorService createExecutor(String threadNamePrefix)
+    {
+        return Executors.newFixedThreadPool(size(), new WorkerThreadFactory(threadNamePrefix));
+    }
+
+    /**
+     * Waits until a connection is available and takes it.
+     * @return The connection
+     * @throws InterruptedException
+     */
+    public IDatabaseConnection take() throws InterruptedException
+    {
+        return (IDatabaseConnection)_available.take();
+    }
+
+    /**
+     * @param connection A connection returned by {@link #take()}
+     */
+    public void release(IDatabaseConnection connection)
+    {
+        _available.add(connection);
+    }
+
+    /**
+     * Interrupts the workers of the given executor and waits at most the shutdown
+     * timeout until they are done.
+     * @param executor The executor of the workers using this pool
+     * @return <code>true</code> if all workers are done
+     */
+    public boolean awaitTermination(ExecutorService executor)
+    {
+        executor.shutdownNow();
+        try
+        {
+            if (executor.awaitTermination(_shutdownTimeout, TimeUnit.MILLISECONDS))
+            {
+                return true;
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        logger.warn("Workers still running after {} ms. Closing their connections.",
+                String.valueOf(_shutdownTimeout));
+        return false;
+    }
+
+    /**
+     * Stops the workers of the given executor, waits at most the shutdown timeout until
+     * they are done and closes all connections.
+     * @param executor The executor of the workers using this pool
+     */
+    public void shutdown(ExecutorService executor)
+    {
+        awaitTermination(executor);
+        close();
+    }
+
+    /**
+     * Closes all connections, including the ones currently taken by a worker.
+     */
+    public void close()
+    {
+        close(_connections);
+    }
+
+    private static void close(List connections)
+    {
+        for (Iterator it = connections.iterator(); it.hasNext();)
+        {
+            IDatabaseConnection workerConnection = (IDatabaseConnection)it.next();
+            try
+            {
+                workerConnection.close();
+            }
+            catch (SQLException e)
+            {
+                logger.warn("Could not close worker connection " + workerConnection, e);
+            }
+        }
+    }
+
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append(getClass().getName()).append("[");
+        sb.append("size=").append(size());
+        sb.append(", _shutdownTimeout=").append(_shutdownTimeout);
+        sb.append("]");
+        return sb.toString();
+    }
+
+
+    private static class WorkerThreadFactory implements ThreadFactory
+    {
+        private final String _threadNamePrefix;
+        private int _count = 0;
+
+        public WorkerThreadFactory(String threadNamePrefix)
+        {
+            _threadNamePrefix = threadNamePrefix;
+        }
+
+        public synchronized Thread newThread(Runnable runnable)
+        {
+            Thread thread = new Thread(runnable, _threadNamePrefix + "-" + (++_count));
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -31,6 +31,8 @@ import java.util.TreeSet;
 import org.dbunit.database.DatabaseConfig;
 import org.dbunit.database.IDatabaseConnection;
 import org.dbunit.database.IMetadataHandler;
+import org.dbunit.database.SchemaSnapshotCache;
+import org.dbunit.database.TableDependencyGraph;
 import org.dbunit.dataset.NoSuchTableException;
 import org.dbunit.util.QualifiedTableName;
 import org.dbunit.util.SQLHelper;
@@ -43,6 +45,13 @@ import org.slf4j.LoggerFactory;
 /**
  * Super-class for the ISearchCallback that implements the
  * <code>getEdges()</code> method using the database meta-data.
+ * <p>
+ * If a {@link SchemaSnapshotCache} is configured and qualified table names are disabled,
+ * the edges of the tables in the schema of the connection are taken from the shared
+ * {@link TableDependencyGraph#getSchemaGraph(IDatabaseConnection) schema graph} instead
+ * of one metadata lookup per table. With qualified table names the tables may span
+ * several schemas, so the metadata is always used.
+ * </p>
  * 
  * @author Felipe Leme (dbunit@felipeal.net)
  * @version $Revision$
@@ -57,6 +66,9 @@ public abstract class AbstractMetaDataBasedSearchCallback extends AbstractNodesF
 
     private final IDatabaseConnection connection;
 
+    private TableDependencyGraph schemaGraph;
+    private boolean schemaGraphLoaded = false;
+
     /**
      * Default constructor.
      * @param connection connection where the edges will be calculated from
@@ -175,6 +187,13 @@ public abstract class AbstractMetaDataBasedSearchCallback extends AbstractNodesF
     	QualifiedTableName qualifiedTableName = new QualifiedTableName(tableName, schema);
     	schema = qualifiedTableName.getSchema();
     	tableName = qualifiedTableName.getTable();
+
+        TableDependencyGraph graph = getSchemaGraph();
+        if (graph != null && schema != null && schema.equalsIgnoreCase(this.connection.getSchema())
+                && graph.containsTable(tableName)) {
+            getNodes(type, tableName, graph, edges);
+            return;
+        }
         
         ResultSet rs = null;
         try {
@@ -231,6 +250,40 @@ public abstract class AbstractMetaDataBasedSearchCallback extends AbstractNodesF
     }
 
 
+    private TableDependencyGraph getSchemaGraph() throws SearchException
+    {
+        if (!this.schemaGraphLoaded) {
+            this.schemaGraphLoaded = true;
+            if (!this.connection.getConfig().getFeature(DatabaseConfig.FEATURE_QUALIFIED_TABLE_NAMES)) {
+                try {
+                    this.schemaGraph = TableDependencyGraph.getSchemaGraph(this.connection);
+                } catch (SQLException e) {
+                    throw new SearchException(e);
+                }
+            }
+        }
+        return this.schemaGraph;
+    }
+
+    private void getNodes(int type, String tableName, TableDependencyGraph graph, SortedSet edges)
+    throws SearchException
+    {
+        ForeignKeyRelationshipEdge[] foreignKeys = type == IMPORT ?
+                graph.getForeignKeys(tableName) : graph.getReferencingForeignKeys(tableName);
+        for (int i = 0; i < foreignKeys.length; i++) {
+            // the other table of the foreign key
+            Object dependentTableName = type == IMPORT ?
+                    foreignKeys[i].getTo() : foreignKeys[i].getFrom();
+            IEdge edge = newEdge(null, type, tableName, (String) dependentTableName,
+                    foreignKeys[i].getFKColumn(), foreignKeys[i].getPKColumn());
+            if ( logger.isDebugEnabled() ) {
+                logger.debug("Adding edge " + edge);
+            }
+            edges.add(edge);
+        }
+    }
+
+
     /**
      * Creates an edge representing a foreign key relationship between 2 tables.<br>
      * @param rs database meta-data result set
@@ -261,7 +314,8 @@ public abstract class AbstractMetaDataBasedSearchCallback extends AbstractNodesF
      * This method can be overwritten by the sub-classes if they need to decorate
      * the edge (for instance, providing an Edge that contains the primary and 
      * foreign keys used).
-     * @param rs database meta-data result set
+     * @param rs database meta-data result set, <code>null</code> if the edge is taken
+     * from the {@link TableDependencyGraph#getSchemaGraph(IDatabaseConnection) schema graph}
      * @param type type of relationship (IMPORT or EXPORT)
      * @param from name of the table representing the 'from' node
      * @param to name of the table representing the 'to' node
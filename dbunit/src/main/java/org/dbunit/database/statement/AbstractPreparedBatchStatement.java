@@ -49,6 +49,11 @@ public abstract class AbstractPreparedBatchStatement implements IPreparedBatchSt
         _statement = connection.prepareStatement(sql);
     }
 
+    AbstractPreparedBatchStatement(PreparedStatement statement)
+    {
+        _statement = statement;
+    }
+
     public void close() throws SQLException
     {
         logger.debug("close() - start");
@@ -26,6 +26,7 @@ import org.slf4j.LoggerFactory;
 
 import org.dbunit.database.DatabaseConfig;
 import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.operation.IOperationMetrics;
 
 import java.sql.SQLException;
 
@@ -57,5 +58,16 @@ public abstract class AbstractStatementFactory implements IStatementFactory
 
         return false;
     }
+
+    /**
+     * Returns the receiver of the batch events configured with
+     * {@link DatabaseConfig#PROPERTY_OPERATION_METRICS} or <code>null</code>.
+     * @since 2.5.1
+     */
+    protected IOperationMetrics getOperationMetrics(IDatabaseConnection connection)
+    {
+        return (IOperationMetrics)connection.getConfig().getProperty(
+                DatabaseConfig.PROPERTY_OPERATION_METRICS);
+    }
 }
 
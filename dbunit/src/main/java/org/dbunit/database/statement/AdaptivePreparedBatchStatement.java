@@ -0,0 +1,337 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.database.statement;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.dataset.datatype.TypeCastException;
+import org.dbunit.operation.IOperationMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Prepared batch statement which executes its batch whenever the size given by a
+ * {@link BatchSizeTuner} is reached and reports the execution time back to the tuner.
+ * <p>
+ * The JDBC statements are taken from a {@link PreparedStatementCache} and handed back
+ * on {@link #close()}. If the statement is not batched, each row is executed when it
+ * is added like by {@link SimplePreparedStatement}, and only the cache is used.
+ * If an {@link Executor} is given for a batched statement, two statements are used
+ * alternately: while one batch is executed by the executor, the rows of the next batch
+ * are bound on the calling thread. Batches are still executed one after another in the
+ * order they were added. This requires a driver which allows a statement of a
+ * connection to be used while another one of the same connection is executing.
+ * </p>
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class AdaptivePreparedBatchStatement implements IPreparedBatchStatement
+{
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(AdaptivePreparedBatchStatement.class);
+
+    private final String _sql;
+    private final Connection _connection;
+    private final PreparedStatementCache _cache;
+    private final BatchSizeTuner _tuner;
+    private final boolean _batched;
+    private final Executor _executor;
+    private final IOperationMetrics _metrics;
+
+    private final PreparedStatement[] _statements;
+    private final AbstractPreparedBatchStatement[] _batches;
+    private int _current = 0;
+    private int _batchCount = 0;
+    private int _result = 0;
+    private FutureTask _pending;
+    private boolean _failed = false;
+
+    /**
+     * @param sql The SQL of the statement
+     * @param connection The connection to prepare the statement with
+     * @param cache The cache providing the JDBC statements
+     * @param tuner The tuner providing the batch size
+     * @param batched Whether JDBC batches are used
+     * @param executor The executor for executing batches while the next one is bound or
+     * <code>null</code> to execute batches on the calling thread
+     */
+    public AdaptivePreparedBatchStatement(String sql, Connection connection,
+            PreparedStatementCache cache, BatchSizeTuner tuner, boolean batched,
+            Executor executor) throws SQLException
+    {
+        this(sql, connection, cache, tuner, batched, executor, null);
+    }
+
+    /**
+     * @param sql The SQL of the statement
+     * @param connection The connection to prepare the statement with
+     * @param cache The cache providing the JDBC statements
+     * @param tuner The tuner providing the batch size
+     * @param batched Whether JDBC batches are used
+     * @param executor The executor for executing batches while the next one is bound or
+     * <code>null</code> to execute batches on the calling thread
+     * @param metrics The receiver of the executed batches or <code>null</code>. The
+     * batches are reported on the thread executing them.
+     */
+    public AdaptivePreparedBatchStatement(String sql, Connection connection,
+            PreparedStatementCache cache, BatchSizeTuner tuner, boolean batched,
+            Executor executor, IOperationMetrics metrics) throws SQLException
+    {
+        _sql = sql;
+        _connection = connection;
+        _cache = cache;
+        _tuner = tuner;
+        _batched = batched;
+        _executor = batched ? executor : null;
+        _metrics = metrics;
+
+        int count = _executor == null ? 1 : 2;
+        _statements = new PreparedStatement[count];
+        _batches = new AbstractPreparedBatchStatement[count];
+        try
+        {
+            for (int i = 0; i < count; i++)
+            {
+                _statements[i] = cache.prepare(connection, sql);
+                if (batched)
+                {
+                    _batches[i] = new PreparedBatchStatement(_statements[i]);
+                }
+                else
+                {
+                    _batches[i] = new SimplePreparedStatement(_statements[i]);
+                }
+            }
+        }
+        catch (SQLException e)
+        {
+            _failed = true;
+            closeStatements();
+            throw e;
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // IPreparedBatchStatement interface
+
+    public void addValue(Object value, DataType dataType) throws TypeCastException,
+            SQLException
+    {
+        logger.debug("addValue(value={}, dataType={}) - start", value, dataType);
+
+        _batches[_current].addValue(value, dataType);
+    }
+
+    public void addBatch() throws SQLException
+    {
+        logger.debug("addBatch() - start");
+
+        _batches[_current].addBatch();
+        _batchCount++;
+
+        if (_batchCount >= _tuner.getBatchSize())
+        {
+            flush();
+        }
+    }
+
+    public int executeBatch() throws SQLException
+    {
+        logger.debug("executeBatch() - start");
+
+        if (_batchCount > 0)
+        {
+            flush();
+        }
+        waitForPendingBatch();
+        return _result;
+    }
+
+    public void clearBatch() throws SQLException
+    {
+        logger.debug("clearBatch() - start");
+
+        waitForPendingBatch();
+        _batches[_current].clearBatch();
+        _batchCount = 0;
+    }
+
+    public void close() throws SQLException
+    {
+        logger.debug("close() - start");
+
+        if (_pending != null)
+        {
+            try
+            {
+                waitForPendingBatch();
+            }
+            catch (SQLException e)
+            {
+                logger.debug("Ignoring failure of pending batch on close", e);
+            }
+        }
+        closeStatements();
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+
+    private void flush() throws SQLException
+    {
+        final int rowCount = _batchCount;
+        final AbstractPreparedBatchStatement batch = _batches[_current];
+        _batchCount = 0;
+
+        if (_executor == null)
+        {
+            _result += execute(batch, rowCount);
+            return;
+        }
+
+        // keep the execution order of the batches
+        waitForPendingBatch();
+        _pending = new FutureTask(new Callable()
+        {
+            public Object call() throws Exception
+            {
+                return new Integer(execute(batch, rowCount));
+            }
+        });
+        _executor.execute(_pending);
+        _current = (_current + 1) % _batches.length;
+    }
+
+    private int execute(AbstractPreparedBatchStatement batch, int rowCount) throws SQLException
+    {
+        long start = System.nanoTime();
+        try
+        {
+            int result = batch.executeBatch();
+            long nanos = System.nanoTime() - start;
+            if (_batched)
+            {
+                _tuner.batchExecuted(rowCount, nanos);
+            }
+            if (_metrics != null)
+            {
+                _metrics.batchExecuted(_sql, rowCount, nanos);
+            }
+            return result;
+        }
+        catch (SQLException e)
+        {
+            _failed = true;
+            throw e;
+        }
+    }
+
+    private void waitForPendingBatch() throws SQLException
+    {
+        if (_pending == null)
+        {
+            return;
+        }
+
+        FutureTask pending = _pending;
+        _pending = null;
+        try
+        {
+            _result += ((Integer)pending.get()).intValue();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            _failed = true;
+            SQLException sqlException = new SQLException("Interrupted while executing batch of " + _sql);
+            sqlException.initCause(e);
+            throw sqlException;
+        }
+        catch (ExecutionException e)
+        {
+            _failed = true;
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException)
+            {
+                throw (SQLException)cause;
+            }
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException)cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error)cause;
+            }
+            SQLException sqlException = new SQLException("Executing batch of " + _sql + " failed");
+            sqlException.initCause(cause);
+            throw sqlException;
+        }
+    }
+
+    private void closeStatements() throws SQLException
+    {
+        for (int i = 0; i < _statements.length; i++)
+        {
+            PreparedStatement statement = _statements[i];
+            if (statement == null)
+            {
+                continue;
+            }
+            _statements[i] = null;
+
+            if (_failed)
+            {
+                // do not hand out statements in an unknown state
+                statement.close();
+            }
+            else
+            {
+                statement.clearBatch();
+                _cache.release(_connection, _sql, statement);
+            }
+        }
+    }
+
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append(getClass().getName()).append("[");
+        sb.append("_sql=").append(_sql);
+        sb.append(", _tuner=").append(_tuner);
+        sb.append(", _batched=").append(_batched);
+        sb.append(", _pipelined=").append(_executor != null);
+        sb.append("]");
+        return sb.toString();
+    }
+}
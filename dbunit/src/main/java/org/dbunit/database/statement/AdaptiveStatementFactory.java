@@ -0,0 +1,209 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.database.statement;
+
+import java.sql.SQLException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.dbunit.database.DatabaseConfig;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.operation.IOperationMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Statement factory creating {@link AdaptivePreparedBatchStatement}s. Set it with
+ * {@link DatabaseConfig#PROPERTY_STATEMENT_FACTORY} to let the batch size be tuned
+ * between the given bounds instead of using the fixed
+ * {@link DatabaseConfig#PROPERTY_BATCH_SIZE}, which is only used as initial size.
+ * <p>
+ * The prepared statements are kept in a {@link PreparedStatementCache}, so the
+ * frequent changes of the statement due to rows with different columns in sparse
+ * datasets do not prepare the same SQL again. Cached statements are closed together
+ * with their connection or by {@link #closeStatements(IDatabaseConnection)}.
+ * </p>
+ * <p>
+ * Batches are only used if {@link DatabaseConfig#FEATURE_BATCHED_STATEMENTS} is enabled
+ * and supported by the driver, otherwise just the statement cache applies.
+ * If created with <code>pipelined</code>, each batch is executed on a background
+ * thread while the rows of the next batch are bound. Only enable it for drivers
+ * supporting the concurrent use of statements of the same connection.
+ * </p>
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class AdaptiveStatementFactory extends AbstractStatementFactory
+{
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveStatementFactory.class);
+
+    public static final int DEFAULT_MIN_BATCH_SIZE = 10;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+
+    private final int _minBatchSize;
+    private final int _maxBatchSize;
+    private final boolean _pipelined;
+    private final PreparedStatementCache _cache;
+
+    private BatchSizeTuner _tuner;
+    private ExecutorService _executor;
+
+    public AdaptiveStatementFactory()
+    {
+        this(DEFAULT_MIN_BATCH_SIZE, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    /**
+     * @param minBatchSize The lower bound of the batch size
+     * @param maxBatchSize The upper bound of the batch size
+     */
+    public AdaptiveStatementFactory(int minBatchSize, int maxBatchSize)
+    {
+        this(minBatchSize, maxBatchSize, PreparedStatementCache.DEFAULT_MAX_SIZE, false);
+    }
+
+    /**
+     * @param minBatchSize The lower bound of the batch size
+     * @param maxBatchSize The upper bound of the batch size
+     * @param cacheSize The number of SQL texts per connection whose statements are kept
+     * open. 0 disables the statement cache.
+     * @param pipelined Whether batches are executed while the next batch is bound
+     */
+    public AdaptiveStatementFactory(int minBatchSize, int maxBatchSize, int cacheSize,
+            boolean pipelined)
+    {
+        // validate the bounds early
+        new BatchSizeTuner(minBatchSize, minBatchSize, maxBatchSize);
+        _minBatchSize = minBatchSize;
+        _maxBatchSize = maxBatchSize;
+        _pipelined = pipelined;
+        _cache = new PreparedStatementCache(cacheSize);
+    }
+
+    public IBatchStatement createBatchStatement(IDatabaseConnection connection)
+            throws SQLException
+    {
+        logger.debug("createBatchStatement(connection={}) - start", connection);
+
+        if (supportBatchStatement(connection))
+        {
+            return new BatchStatement(connection.getConnection());
+        }
+        else
+        {
+            return new SimpleStatement(connection.getConnection());
+        }
+    }
+
+    public IPreparedBatchStatement createPreparedBatchStatement(String sql,
+            IDatabaseConnection connection) throws SQLException
+    {
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("createPreparedBatchStatement(sql={}, connection={}) - start", sql, connection);
+        }
+
+        boolean batched = supportBatchStatement(connection);
+        IOperationMetrics metrics = getOperationMetrics(connection);
+        IPreparedBatchStatement statement = new AdaptivePreparedBatchStatement(sql,
+                connection.getConnection(), _cache, getBatchSizeTuner(connection), batched,
+                batched && _pipelined ? getExecutor() : null, batched ? metrics : null);
+        if (metrics != null && !batched)
+        {
+            // the rows are executed one by one when added
+            statement = new MetricsPreparedBatchStatement(statement, sql, metrics, true);
+        }
+        return statement;
+    }
+
+    private synchronized BatchSizeTuner getBatchSizeTuner(IDatabaseConnection connection)
+    {
+        if (_tuner == null)
+        {
+            Integer batchSize = (Integer)connection.getConfig().getProperty(
+                    DatabaseConfig.PROPERTY_BATCH_SIZE);
+            _tuner = new BatchSizeTuner(batchSize.intValue(), _minBatchSize, _maxBatchSize);
+        }
+        return _tuner;
+    }
+
+    /**
+     * @return The tuner shared by all statements of this factory or <code>null</code> if
+     * no statement has been created yet
+     */
+    public synchronized BatchSizeTuner getBatchSizeTuner()
+    {
+        return _tuner;
+    }
+
+    public PreparedStatementCache getStatementCache()
+    {
+        return _cache;
+    }
+
+    /**
+     * Closes the cached statements of the given connection.
+     */
+    public void closeStatements(IDatabaseConnection connection) throws SQLException
+    {
+        _cache.close(connection.getConnection());
+    }
+
+    private synchronized Executor getExecutor()
+    {
+        if (_executor == null)
+        {
+            _executor = Executors.newCachedThreadPool(new ThreadFactory()
+            {
+                private int _count = 0;
+
+                public synchronized Thread newThread(Runnable runnable)
+                {
+                    Thread thread = new Thread(runnable, "dbunit-batch-" + ++_count);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return _executor;
+    }
+
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append(getClass().getName()).append("[");
+        sb.append("_minBatchSize=").append(_minBatchSize);
+        sb.append(", _maxBatchSize=").append(_maxBatchSize);
+        sb.append(", _pipelined=").append(_pipelined);
+        sb.append(", _cache=").append(_cache);
+        sb.append("]");
+        return sb.toString();
+    }
+}
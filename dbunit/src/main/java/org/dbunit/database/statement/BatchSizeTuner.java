@@ -0,0 +1,168 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.database.statement;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tunes the size of JDBC batches by measuring the throughput of executed batches.
+ * <p>
+ * Starting with an initial size, the size is doubled after every measured batch as
+ * long as the rows per second do not drop. When the throughput of a batch is lower
+ * than the one of the previous batch, the direction is reversed and the size is
+ * halved. The size therefore settles around the optimum of the database and network
+ * and keeps probing within the configured bounds. Only full batches are measured, the
+ * remainder flushed at the end of a table says nothing about the batch size.
+ * </p>
+ * <p>
+ * Instances are thread safe and may be shared by several statements.
+ * </p>
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class BatchSizeTuner
+{
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(BatchSizeTuner.class);
+
+    /**
+     * Relative drop of the throughput that is still considered as noise
+     */
+    private static final double TOLERANCE = 0.1;
+
+    private final int _minBatchSize;
+    private final int _maxBatchSize;
+    private int _batchSize;
+    private boolean _increasing = true;
+    private double _lastThroughput = -1;
+    private long _lastLatency = -1;
+
+    /**
+     * @param initialBatchSize The batch size before the first measurement
+     * @param minBatchSize The lower bound of the batch size
+     * @param maxBatchSize The upper bound of the batch size
+     */
+    public BatchSizeTuner(int initialBatchSize, int minBatchSize, int maxBatchSize)
+    {
+        if (minBatchSize < 1)
+        {
+            throw new IllegalArgumentException("minBatchSize must be positive: " + minBatchSize);
+        }
+        if (maxBatchSize < minBatchSize)
+        {
+            throw new IllegalArgumentException("maxBatchSize " + maxBatchSize
+                    + " must not be less than minBatchSize " + minBatchSize);
+        }
+        _minBatchSize = minBatchSize;
+        _maxBatchSize = maxBatchSize;
+        _batchSize = clamp(initialBatchSize);
+    }
+
+    public int getMinBatchSize()
+    {
+        return _minBatchSize;
+    }
+
+    public int getMaxBatchSize()
+    {
+        return _maxBatchSize;
+    }
+
+    /**
+     * @return The number of rows after which a batch should be executed
+     */
+    public synchronized int getBatchSize()
+    {
+        return _batchSize;
+    }
+
+    /**
+     * @return The rows per second of the last measured batch or -1 if none was measured yet
+     */
+    public synchronized double getLastThroughput()
+    {
+        return _lastThroughput;
+    }
+
+    /**
+     * @return The execution time in nanoseconds of the last measured batch or -1 if none
+     * was measured yet
+     */
+    public synchronized long getLastLatency()
+    {
+        return _lastLatency;
+    }
+
+    /**
+     * Records the execution of a batch and adjusts the batch size.
+     * @param rowCount The number of rows of the batch
+     * @param nanos The time in nanoseconds it took to execute the batch
+     */
+    public synchronized void batchExecuted(int rowCount, long nanos)
+    {
+        if (rowCount != _batchSize || nanos <= 0)
+        {
+            // partial batch or batch of a size that has already been changed
+            return;
+        }
+
+        double throughput = rowCount * 1000000000.0 / nanos;
+        if (_lastThroughput >= 0 && throughput < _lastThroughput * (1 - TOLERANCE))
+        {
+            _increasing = !_increasing;
+        }
+        _lastThroughput = throughput;
+        _lastLatency = nanos;
+
+        int newBatchSize = clamp(_increasing ? _batchSize * 2 : _batchSize / 2);
+        if (newBatchSize != _batchSize && logger.isDebugEnabled())
+        {
+            logger.debug("Changing batch size from {} to {} (latency={}ms, rows/s={})",
+                    new Object[] {String.valueOf(_batchSize), String.valueOf(newBatchSize),
+                            String.valueOf(nanos / 1000000), String.valueOf((long)throughput)});
+        }
+        _batchSize = newBatchSize;
+    }
+
+    private int clamp(int batchSize)
+    {
+        return Math.max(_minBatchSize, Math.min(_maxBatchSize, batchSize));
+    }
+
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append(getClass().getName()).append("[");
+        sb.append("_minBatchSize=").append(_minBatchSize);
+        sb.append(", _maxBatchSize=").append(_maxBatchSize);
+        sb.append(", _batchSize=").append(_batchSize);
+        sb.append(", _lastThroughput=").append(_lastThroughput);
+        sb.append("]");
+        return sb.toString();
+    }
+}
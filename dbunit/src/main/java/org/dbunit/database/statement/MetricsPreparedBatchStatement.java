@@ -0,0 +1,124 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.database.statement;
+
+import java.sql.SQLException;
+
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.dataset.datatype.TypeCastException;
+import org.dbunit.operation.IOperationMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reports the executions of the decorated statement to an {@link IOperationMetrics}.
+ *
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class MetricsPreparedBatchStatement implements IPreparedBatchStatement
+{
+
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(MetricsPreparedBatchStatement.class);
+
+    private final IPreparedBatchStatement _statement;
+    private final String _sql;
+    private final IOperationMetrics _metrics;
+    private final boolean _executesRows;
+    private int _batchCount = 0;
+
+    /**
+     * @param statement The decorated statement
+     * @param sql The SQL of the statement
+     * @param metrics The receiver of the batch events
+     * @param executesRows <code>true</code> if the decorated statement executes each row
+     * when it is added, like {@link SimplePreparedStatement}, so every row is reported as
+     * a batch of its own. Otherwise the rows are reported when the batch is executed.
+     */
+    public MetricsPreparedBatchStatement(IPreparedBatchStatement statement, String sql,
+            IOperationMetrics metrics, boolean executesRows)
+    {
+        _statement = statement;
+        _sql = sql;
+        _metrics = metrics;
+        _executesRows = executesRows;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // IPreparedBatchStatement interface
+
+    public void addValue(Object value, DataType dataType) throws TypeCastException,
+            SQLException
+    {
+        _statement.addValue(value, dataType);
+    }
+
+    public void addBatch() throws SQLException
+    {
+        logger.debug("addBatch() - start");
+
+        if (!_executesRows)
+        {
+            _statement.addBatch();
+            _batchCount++;
+            return;
+        }
+
+        long start = System.nanoTime();
+        _statement.addBatch();
+        _metrics.batchExecuted(_sql, 1, System.nanoTime() - start);
+    }
+
+    public int executeBatch() throws SQLException
+    {
+        logger.debug("executeBatch() - start");
+
+        long start = System.nanoTime();
+        int result = _statement.executeBatch();
+        if (_batchCount > 0)
+        {
+            _metrics.batchExecuted(_sql, _batchCount, System.nanoTime() - start);
+            _batchCount = 0;
+        }
+        return result;
+    }
+
+    public void clearBatch() throws SQLException
+    {
+        logger.debug("clearBatch() - start");
+
+        _statement.clearBatch();
+        _batchCount = 0;
+    }
+
+    public void close() throws SQLException
+    {
+        logger.debug("close() - start");
+
+        _statement.close();
+    }
+}
@@ -29,6 +29,7 @@ import org.dbunit.dataset.datatype.DataType;
 import org.dbunit.dataset.datatype.TypeCastException;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 
 /**
@@ -53,6 +54,16 @@ public class PreparedBatchStatement extends AbstractPreparedBatchStatement
         _index = 0;
     }
 
+    /**
+     * Creates a batch statement using an already prepared statement which is not
+     * owned by this object, e.g. one provided by a {@link PreparedStatementCache}.
+     */
+    PreparedBatchStatement(PreparedStatement statement)
+    {
+        super(statement);
+        _index = 0;
+    }
+
     ////////////////////////////////////////////////////////////////////////////
     // IPreparedBatchStatement interface
 
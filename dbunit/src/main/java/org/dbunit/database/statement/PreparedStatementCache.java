@@ -0,0 +1,253 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.database.statement;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+import org.dbunit.util.SQLHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps prepared statements open for reuse, per JDBC connection and SQL text.
+ * <p>
+ * Operations prepare a new statement whenever the set of columns with values changes
+ * between rows. With this cache the statement for a SQL text seen before, e.g. of a
+ * previous column set or table, is reused instead of being prepared again. Each
+ * connection holds the statements of at most <code>maxSize</code> SQL texts, the least
+ * recently used ones are closed. Statements of connections which have been closed are
+ * discarded when a new connection is seen.
+ * </p>
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class PreparedStatementCache
+{
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(PreparedStatementCache.class);
+
+    public static final int DEFAULT_MAX_SIZE = 64;
+
+    private final int _maxSize;
+
+    /**
+     * Map of {@link Connection} to a map of SQL text to a list of idle statements
+     */
+    private final Map _connections = new HashMap();
+
+    private int _hitCount;
+    private int _missCount;
+
+    public PreparedStatementCache()
+    {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param maxSize The maximum number of SQL texts per connection for which
+     * statements are kept. 0 disables the cache.
+     */
+    public PreparedStatementCache(int maxSize)
+    {
+        if (maxSize < 0)
+        {
+            throw new IllegalArgumentException("maxSize must not be negative: " + maxSize);
+        }
+        _maxSize = maxSize;
+    }
+
+    public int getMaxSize()
+    {
+        return _maxSize;
+    }
+
+    /**
+     * Returns an idle statement for the given SQL or prepares a new one. The statement
+     * must be handed back with {@link #release(Connection, String, PreparedStatement)}.
+     */
+    public PreparedStatement prepare(Connection connection, String sql) throws SQLException
+    {
+        logger.debug("prepare(connection={}, sql={}) - start", connection, sql);
+
+        synchronized (this)
+        {
+            Map statements = (Map)_connections.get(connection);
+            LinkedList idle = statements == null ? null : (LinkedList)statements.get(sql);
+            if (idle != null && !idle.isEmpty())
+            {
+                _hitCount++;
+                return (PreparedStatement)idle.removeFirst();
+            }
+            _missCount++;
+        }
+        return connection.prepareStatement(sql);
+    }
+
+    /**
+     * Hands a statement obtained by {@link #prepare(Connection, String)} back to the
+     * cache. Its batch must be empty.
+     */
+    public void release(Connection connection, String sql, PreparedStatement statement)
+            throws SQLException
+    {
+        logger.debug("release(connection={}, sql={}) - start", connection, sql);
+
+        if (_maxSize == 0)
+        {
+            statement.close();
+            return;
+        }
+
+        synchronized (this)
+        {
+            Map statements = (Map)_connections.get(connection);
+            if (statements == null)
+            {
+                removeClosedConnections();
+                statements = new StatementMap(_maxSize);
+                _connections.put(connection, statements);
+            }
+            LinkedList idle = (LinkedList)statements.get(sql);
+            if (idle == null)
+            {
+                idle = new LinkedList();
+                statements.put(sql, idle);
+            }
+            idle.add(statement);
+        }
+    }
+
+    private void removeClosedConnections() throws SQLException
+    {
+        for (Iterator it = _connections.keySet().iterator(); it.hasNext();)
+        {
+            Connection connection = (Connection)it.next();
+            if (connection.isClosed())
+            {
+                logger.debug("Discarding statements of closed connection {}", connection);
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Closes all cached statements of the given connection.
+     */
+    public void close(Connection connection) throws SQLException
+    {
+        logger.debug("close(connection={}) - start", connection);
+
+        Map statements;
+        synchronized (this)
+        {
+            statements = (Map)_connections.remove(connection);
+        }
+        if (statements != null)
+        {
+            for (Iterator it = statements.values().iterator(); it.hasNext();)
+            {
+                closeAll((LinkedList)it.next());
+            }
+        }
+    }
+
+    private static void closeAll(LinkedList statements)
+    {
+        for (Iterator it = statements.iterator(); it.hasNext();)
+        {
+            try
+            {
+                SQLHelper.close((PreparedStatement)it.next());
+            }
+            catch (SQLException e)
+            {
+                logger.warn("Closing cached statement failed", e);
+            }
+        }
+    }
+
+    /**
+     * @return The number of statements reused from the cache
+     */
+    public synchronized int getHitCount()
+    {
+        return _hitCount;
+    }
+
+    /**
+     * @return The number of statements which had to be prepared
+     */
+    public synchronized int getMissCount()
+    {
+        return _missCount;
+    }
+
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append(getClass().getName()).append("[");
+        sb.append("_maxSize=").append(_maxSize);
+        sb.append(", _hitCount=").append(_hitCount);
+        sb.append(", _missCount=").append(_missCount);
+        sb.append("]");
+        return sb.toString();
+    }
+
+    /**
+     * Map of SQL text to idle statements in access order, closing the statements of
+     * the least recently used SQL text when full
+     */
+    private static class StatementMap extends LinkedHashMap
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int _maxSize;
+
+        StatementMap(int maxSize)
+        {
+            super(16, 0.75f, true);
+            _maxSize = maxSize;
+        }
+
+        protected boolean removeEldestEntry(Map.Entry eldest)
+        {
+            if (size() > _maxSize)
+            {
+                closeAll((LinkedList)eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -26,6 +26,7 @@ import org.slf4j.LoggerFactory;
 
 import org.dbunit.database.DatabaseConfig;
 import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.operation.IOperationMetrics;
 
 import java.sql.SQLException;
 
@@ -69,7 +70,8 @@ public class PreparedStatementFactory extends AbstractStatementFactory
     	Integer batchSize = (Integer)connection.getConfig().getProperty(DatabaseConfig.PROPERTY_BATCH_SIZE);
 
         IPreparedBatchStatement statement = null;
-        if (supportBatchStatement(connection))
+        boolean batched = supportBatchStatement(connection);
+        if (batched)
         {
             statement = new PreparedBatchStatement(sql, connection.getConnection());
         }
@@ -77,6 +79,12 @@ public class PreparedStatementFactory extends AbstractStatementFactory
         {
             statement = new SimplePreparedStatement(sql, connection.getConnection());
         }
+
+        IOperationMetrics metrics = getOperationMetrics(connection);
+        if (metrics != null)
+        {
+            statement = new MetricsPreparedBatchStatement(statement, sql, metrics, !batched);
+        }
         return new AutomaticPreparedBatchStatement(statement, batchSize.intValue());
     }
 }
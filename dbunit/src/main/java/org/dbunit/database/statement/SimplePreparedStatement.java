@@ -29,6 +29,7 @@ import org.dbunit.dataset.datatype.DataType;
 import org.dbunit.dataset.datatype.TypeCastException;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 
 /**
@@ -55,6 +56,17 @@ public class SimplePreparedStatement extends AbstractPreparedBatchStatement
         _result = 0;
     }
 
+    /**
+     * Creates a statement using an already prepared statement which is not owned by
+     * this object, e.g. one provided by a {@link PreparedStatementCache}.
+     */
+    SimplePreparedStatement(PreparedStatement statement)
+    {
+        super(statement);
+        _index = 0;
+        _result = 0;
+    }
+
     ////////////////////////////////////////////////////////////////////////////
     // IPreparedBatchStatement interface
 
@@ -25,6 +25,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.operation.IOperationMetrics;
 
 import java.sql.SQLException;
 
@@ -61,7 +62,15 @@ public class StatementFactory extends AbstractStatementFactory
     {
         logger.debug("createPreparedBatchStatement(sql={}, connection={}) - start", sql, connection);
 
-        return new BatchStatementDecorator(sql, createBatchStatement(connection));
+        IPreparedBatchStatement statement =
+                new BatchStatementDecorator(sql, createBatchStatement(connection));
+
+        IOperationMetrics metrics = getOperationMetrics(connection);
+        if (metrics != null)
+        {
+            statement = new MetricsPreparedBatchStatement(statement, sql, metrics, false);
+        }
+        return statement;
     }
 
 }
@@ -28,7 +28,7 @@ import org.slf4j.LoggerFactory;
  * @version $Revision$
  * @since Feb 17, 2002
  */
-public abstract class AbstractTable implements ITable {
+public abstract class AbstractTable implements IIndexedTable {
 
     /**
      * Logger for this class
@@ -77,4 +77,24 @@ public abstract class AbstractTable implements ITable {
         ITableMetaData metaData = getTableMetaData();
         return metaData.getColumnIndex(columnName);
     }
+
+    /**
+     * Default implementation that resolves the column name of the given
+     * index and delegates to {@link #getValue(int, String)}. Subclasses are
+     * encouraged to override this with a native positional lookup.
+     * @see org.dbunit.dataset.IIndexedTable#getValue(int, int)
+     */
+    public Object getValue(int row, int column) throws DataSetException {
+        return getValue(row, ColumnIndexMapping.getColumnName(
+                getTableMetaData(), column));
+    }
+
+    protected void assertValidColumnIndex(int column, int columnCount)
+            throws DataSetException {
+        if (column < 0 || column >= columnCount) {
+            throw new NoSuchColumnException(getTableMetaData().getTableName(),
+                    String.valueOf(column), " (column index out of range: "
+                    + columnCount + " columns available)");
+        }
+    }
 }
@@ -30,7 +30,7 @@ import org.slf4j.LoggerFactory;
  * @since Mar 27, 2002
  * @deprecated All IDataSet implementations are case insensitive since DbUnit 1.5
  */
-public class CaseInsensitiveTable implements ITable
+public class CaseInsensitiveTable implements IIndexedTable
 {
 
     /**
@@ -84,6 +84,11 @@ public class CaseInsensitiveTable implements ITable
 
         return _table.getValue(row, getInternalColumnName(column));
     }
+
+    public Object getValue(int row, int column) throws DataSetException
+    {
+        return ColumnIndexMapping.getValue(_table, row, column);
+    }
 }
 
 
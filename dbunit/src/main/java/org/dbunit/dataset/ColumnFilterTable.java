@@ -32,7 +32,7 @@ import org.slf4j.LoggerFactory;
  * @version $Revision$ $Date$
  * @since 2.4.0
  */
-public class ColumnFilterTable implements ITable 
+public class ColumnFilterTable implements IIndexedTable 
 {
     /** 
      * logger 
@@ -49,6 +49,11 @@ public class ColumnFilterTable implements ITable
      */
     private final ITableMetaData tableMetaData;
 
+    /**
+     * Maps the filtered column positions to the positions in the original table
+     */
+    private ColumnIndexMapping columnMapping;
+
     
     /**
      * @param table The table from which some columns should be filtered
@@ -93,6 +98,21 @@ public class ColumnFilterTable implements ITable
         return this.originalTable.getValue(row, column);
     }
 
+    public Object getValue(int row, int column) throws DataSetException 
+    {
+        if (this.columnMapping == null)
+        {
+            this.columnMapping = new ColumnIndexMapping(this.originalTable, 
+                    this.tableMetaData.getColumns());
+        }
+        if (column < 0 || column >= this.columnMapping.getColumnCount())
+        {
+            throw new NoSuchColumnException(this.tableMetaData.getTableName(),
+                    String.valueOf(column), " (column index out of range)");
+        }
+        return this.columnMapping.getValue(row, column);
+    }
+
     public ITableMetaData getOriginalMetaData() 
     {
         logger.debug("getOriginalMetaData() - start");
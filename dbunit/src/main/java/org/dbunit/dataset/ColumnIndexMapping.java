@@ -0,0 +1,160 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+package org.dbunit.dataset;
+
+/**
+ * Resolves a set of columns to their positions in a table once so that the
+ * values can afterwards be read by index. Tables implementing
+ * {@link IIndexedTable} are read by position, all others fall back to the
+ * column name based {@link ITable#getValue(int, String)}.
+ *
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class ColumnIndexMapping
+{
+    private final ITable _table;
+    private final IIndexedTable _indexedTable;
+    private final String[] _columnNames;
+    /**
+     * Position of each mapped column in the table or -1 if it is not known
+     */
+    private final int[] _indexes;
+
+    /**
+     * Maps all columns of the given table's own metadata.
+     * @param table The table to be read
+     * @throws DataSetException
+     */
+    public ColumnIndexMapping(ITable table) throws DataSetException
+    {
+        this(table, table.getTableMetaData().getColumns());
+    }
+
+    /**
+     * Maps the given columns to their positions in the given table.
+     * @param table The table to be read
+     * @param columns The columns to be read. The position of a column in this
+     * array is the index to be passed to {@link #getValue(int, int)}.
+     * Columns that do not exist in the table are read by name so that the
+     * table reports the missing column the same way it always did.
+     * @throws DataSetException
+     */
+    public ColumnIndexMapping(ITable table, Column[] columns) throws DataSetException
+    {
+        this(table, Columns.getColumnNames(columns));
+    }
+
+    /**
+     * Maps the given column names to their positions in the given table.
+     * @param table The table to be read
+     * @param columnNames The names of the columns to be read. The position of
+     * a name in this array is the index to be passed to {@link #getValue(int, int)}.
+     * @throws DataSetException
+     * @see #ColumnIndexMapping(ITable, Column[])
+     */
+    public ColumnIndexMapping(ITable table, String[] columnNames) throws DataSetException
+    {
+        if (table == null) {
+            throw new NullPointerException(
+                    "The parameter 'table' must not be null");
+        }
+        _table = table;
+        _indexedTable = (table instanceof IIndexedTable) ? (IIndexedTable)table : null;
+        _columnNames = columnNames;
+        _indexes = new int[columnNames.length];
+
+        ITableMetaData metaData = table.getTableMetaData();
+        for (int i = 0; i < columnNames.length; i++)
+        {
+            try
+            {
+                _indexes[i] = metaData.getColumnIndex(_columnNames[i]);
+            }
+            catch (NoSuchColumnException e)
+            {
+                // Let the table report the missing column on first access
+                _indexes[i] = -1;
+            }
+        }
+    }
+
+    /**
+     * @return The number of mapped columns
+     */
+    public int getColumnCount()
+    {
+        return _columnNames.length;
+    }
+
+    /**
+     * Returns the table value of the mapped column at the given position.
+     * @param row The row index
+     * @param column The position of the column in the mapped columns array
+     * @return The value
+     * @throws DataSetException
+     */
+    public Object getValue(int row, int column) throws DataSetException
+    {
+        if (_indexedTable != null && _indexes[column] >= 0)
+        {
+            return _indexedTable.getValue(row, _indexes[column]);
+        }
+        return _table.getValue(row, _columnNames[column]);
+    }
+
+    /**
+     * Reads a value by column position from an arbitrary table.
+     * @param table The table to be read
+     * @param row The row index
+     * @param column The column index within the columns of the table's metadata
+     * @return The value
+     * @throws DataSetException
+     */
+    public static Object getValue(ITable table, int row, int column)
+            throws DataSetException
+    {
+        if (table instanceof IIndexedTable)
+        {
+            return ((IIndexedTable)table).getValue(row, column);
+        }
+        return table.getValue(row, getColumnName(table.getTableMetaData(), column));
+    }
+
+    /**
+     * Returns the name of the column at the given index of the given metadata.
+     * @throws NoSuchColumnException if the index is out of range
+     */
+    static String getColumnName(ITableMetaData metaData, int column)
+            throws DataSetException
+    {
+        Column[] columns = metaData.getColumns();
+        if (column < 0 || column >= columns.length)
+        {
+            throw new NoSuchColumnException(metaData.getTableName(),
+                    String.valueOf(column), " (column index out of range: "
+                    + columns.length + " columns available)");
+        }
+        return columns[column].getColumnName();
+    }
+}
@@ -0,0 +1,735 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.dataset;
+
+import java.math.BigInteger;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.dbunit.dataset.datatype.BigIntegerDataType;
+import org.dbunit.dataset.datatype.BooleanDataType;
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.dataset.datatype.DateDataType;
+import org.dbunit.dataset.datatype.DoubleDataType;
+import org.dbunit.dataset.datatype.IntegerDataType;
+import org.dbunit.dataset.datatype.LongDataType;
+import org.dbunit.dataset.datatype.StringDataType;
+import org.dbunit.dataset.datatype.TimeDataType;
+import org.dbunit.dataset.datatype.TimestampDataType;
+import org.dbunit.dataset.datatype.UnknownDataType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory table storing its values column by column. It is a drop-in alternative to
+ * {@link DefaultTable} for large tables.
+ * <p>
+ * The storage of a column is chosen from its {@link DataType}: integer, long, double,
+ * boolean, date, time and timestamp columns are kept in primitive arrays with a null
+ * bitmap instead of one boxed object per value, and string columns with few distinct
+ * values are dictionary encoded so that repeated values are stored once. A value which
+ * cannot be stored exactly, for example a <code>String</code> in an integer column, or a
+ * string column with many distinct values switches the column to a plain object array. Values are therefore always returned with the class they were added
+ * with, though not necessarily as the same instance.
+ * </p>
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class ColumnarTable extends AbstractTable
+{
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ColumnarTable.class);
+
+    /**
+     * Maximum number of distinct values of a dictionary encoded string column. Columns
+     * with more distinct values store them in a plain object array.
+     */
+    public static final int MAX_DICTIONARY_SIZE = 1 << 16;
+
+    private final ITableMetaData _metaData;
+    private final ColumnVector[] _vectors;
+    private int _rowCount = 0;
+
+    /**
+     * Creates a new empty table with specified metadata.
+     */
+    public ColumnarTable(ITableMetaData metaData) throws DataSetException
+    {
+        _metaData = metaData;
+        Column[] columns = metaData.getColumns();
+        _vectors = new ColumnVector[columns.length];
+        for (int i = 0; i < columns.length; i++)
+        {
+            _vectors[i] = createVector(columns[i].getDataType());
+        }
+    }
+
+    /**
+     * Creates a copy of the specified table.
+     */
+    public ColumnarTable(ITable table) throws DataSetException
+    {
+        this(table.getTableMetaData());
+        addTableRows(table);
+    }
+
+    static ColumnVector createVector(DataType dataType)
+    {
+        if (dataType instanceof IntegerDataType)
+        {
+            return new IntVector();
+        }
+        if (dataType instanceof LongDataType)
+        {
+            return new LongVector(false);
+        }
+        if (dataType instanceof BigIntegerDataType)
+        {
+            return new LongVector(true);
+        }
+        if (dataType instanceof DoubleDataType)
+        {
+            return new DoubleVector();
+        }
+        if (dataType instanceof BooleanDataType)
+        {
+            return new BooleanVector();
+        }
+        if (dataType instanceof TimestampDataType)
+        {
+            return new DateVector(Timestamp.class);
+        }
+        if (dataType instanceof DateDataType)
+        {
+            return new DateVector(java.sql.Date.class);
+        }
+        if (dataType instanceof TimeDataType)
+        {
+            return new DateVector(Time.class);
+        }
+        if (dataType instanceof StringDataType || dataType instanceof UnknownDataType)
+        {
+            return new StringVector();
+        }
+        return new ObjectVector(16);
+    }
+
+    /**
+     * Inserts a new empty row. You can add values with {@link #setValue}.
+     */
+    public void addRow() throws DataSetException
+    {
+        logger.debug("addRow() - start");
+
+        addRow(new Object[0]);
+    }
+
+    /**
+     * Inserts a new row initialized with specified array of values.
+     * @param values The array of values. Each value correspond to the column at the
+     * same index from {@link ITableMetaData#getColumns}. Missing values are
+     * <code>null</code>.
+     */
+    public void addRow(Object[] values) throws DataSetException
+    {
+        logger.debug("addRow(values={}) - start", values);
+
+        for (int i = 0; i < _vectors.length; i++)
+        {
+            Object value = i < values.length ? values[i] : null;
+            if (!_vectors[i].add(value))
+            {
+                toObjectVector(i).add(value);
+            }
+        }
+        _rowCount++;
+    }
+
+    /**
+     * Inserts all rows from the specified table.
+     * @param table The source table.
+     */
+    public void addTableRows(ITable table) throws DataSetException
+    {
+        logger.debug("addTableRows(table={}) - start", table);
+
+        Column[] columns = _metaData.getColumns();
+        if (columns.length <= 0)
+        {
+            logger.warn("The table '" + table + "' does not have any columns. Cannot add table rows. This should never happen...");
+            return;
+        }
+
+        ColumnIndexMapping mapping = new ColumnIndexMapping(table, columns);
+        Object[] rowValues = new Object[columns.length];
+        try
+        {
+            for (int i = 0; ; i++)
+            {
+                for (int j = 0; j < columns.length; j++)
+                {
+                    rowValues[j] = mapping.getValue(i, j);
+                }
+                addRow(rowValues);
+            }
+        }
+        catch(RowOutOfBoundsException e)
+        {
+            // end of table
+        }
+    }
+
+    /**
+     * Replaces the value at the specified position in this table with the specified value.
+     * @param row The row index
+     * @param column The column name
+     * @param value The value to store at the specified location
+     * @return the value previously at the specified location
+     * @throws RowOutOfBoundsException if the row index is out of range
+     * @throws NoSuchColumnException if the column does not exist
+     * @throws DataSetException if an unexpected error occurs
+     */
+    public Object setValue(int row, String column, Object value)
+            throws RowOutOfBoundsException, NoSuchColumnException, DataSetException
+    {
+        if(logger.isDebugEnabled())
+            logger.debug("setValue(row={}, column={}, value={}) - start", new Object[] {Integer.toString(row), column, value});
+
+        assertValidRowIndex(row);
+
+        int columnIndex = getColumnIndex(column);
+        Object oldValue = _vectors[columnIndex].get(row);
+        if (!_vectors[columnIndex].set(row, value))
+        {
+            toObjectVector(columnIndex).set(row, value);
+        }
+        return oldValue;
+    }
+
+    private ColumnVector toObjectVector(int column)
+    {
+        ColumnVector vector = _vectors[column];
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Storing column {} of table {} as objects instead of {}",
+                    new Object[] {_metaData.getTableName() + "." + String.valueOf(column),
+                    vector.getClass().getName()});
+        }
+
+        ObjectVector objects = new ObjectVector(Math.max(16, vector.size()));
+        for (int i = 0; i < vector.size(); i++)
+        {
+            objects.add(vector.get(i));
+        }
+        _vectors[column] = objects;
+        return objects;
+    }
+
+    /**
+     * @return The storage of the given column, for tests
+     */
+    ColumnVector getColumnVector(int column)
+    {
+        return _vectors[column];
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // ITable interface
+
+    public ITableMetaData getTableMetaData()
+    {
+        return _metaData;
+    }
+
+    public int getRowCount()
+    {
+        return _rowCount;
+    }
+
+    public Object getValue(int row, String column) throws DataSetException
+    {
+        if(logger.isDebugEnabled())
+            logger.debug("getValue(row={}, column={}) - start", Integer.toString(row), column);
+
+        assertValidRowIndex(row);
+
+        return _vectors[getColumnIndex(column)].get(row);
+    }
+
+    public Object getValue(int row, int column) throws DataSetException
+    {
+        assertValidRowIndex(row, _rowCount);
+        assertValidColumnIndex(column, _vectors.length);
+        return _vectors[column].get(row);
+    }
+
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append(getClass().getName()).append("[");
+        sb.append("_metaData=").append(_metaData);
+        sb.append(", _rowCount=").append(_rowCount);
+        sb.append("]");
+        return sb.toString();
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Column storage
+
+    /**
+     * Values of one column.
+     */
+    static abstract class ColumnVector
+    {
+        int _size = 0;
+
+        int size()
+        {
+            return _size;
+        }
+
+        abstract Object get(int row);
+
+        /**
+         * @return <code>false</code> if the value cannot be stored by this vector
+         */
+        abstract boolean add(Object value);
+
+        /**
+         * @return <code>false</code> if the value cannot be stored by this vector
+         */
+        abstract boolean set(int row, Object value);
+
+        static int grow(int capacity)
+        {
+            return Math.max(16, capacity + (capacity >> 1));
+        }
+    }
+
+    /**
+     * Vector storing values of one class in a primitive array and nulls in a bitmap.
+     */
+    static abstract class PrimitiveVector extends ColumnVector
+    {
+        private long[] _nulls = new long[0];
+
+        final Object get(int row)
+        {
+            return (_nulls[row >>> 6] & (1L << row)) != 0 ? null : getValue(row);
+        }
+
+        final boolean add(Object value)
+        {
+            if (value != null && !accepts(value))
+            {
+                return false;
+            }
+            if (_size == capacity())
+            {
+                int capacity = grow(_size);
+                resize(capacity);
+                long[] nulls = new long[(capacity + 63) >>> 6];
+                System.arraycopy(_nulls, 0, nulls, 0, _nulls.length);
+                _nulls = nulls;
+            }
+            store(_size++, value);
+            return true;
+        }
+
+        final boolean set(int row, Object value)
+        {
+            if (value != null && !accepts(value))
+            {
+                return false;
+            }
+            store(row, value);
+            return true;
+        }
+
+        private void store(int row, Object value)
+        {
+            if (value == null)
+            {
+                _nulls[row >>> 6] |= 1L << row;
+            }
+            else
+            {
+                _nulls[row >>> 6] &= ~(1L << row);
+                setValue(row, value);
+            }
+        }
+
+        abstract boolean accepts(Object value);
+
+        abstract int capacity();
+
+        abstract void resize(int capacity);
+
+        abstract Object getValue(int row);
+
+        abstract void setValue(int row, Object value);
+    }
+
+    static class IntVector extends PrimitiveVector
+    {
+        private int[] _values = new int[0];
+
+        boolean accepts(Object value)
+        {
+            return value.getClass() == Integer.class;
+        }
+
+        int capacity()
+        {
+            return _values.length;
+        }
+
+        void resize(int capacity)
+        {
+            int[] values = new int[capacity];
+            System.arraycopy(_values, 0, values, 0, _size);
+            _values = values;
+        }
+
+        Object getValue(int row)
+        {
+            return new Integer(_values[row]);
+        }
+
+        void setValue(int row, Object value)
+        {
+            _values[row] = ((Integer)value).intValue();
+        }
+    }
+
+    static class LongVector extends PrimitiveVector
+    {
+        private static final BigInteger MIN_LONG = BigInteger.valueOf(Long.MIN_VALUE);
+        private static final BigInteger MAX_LONG = BigInteger.valueOf(Long.MAX_VALUE);
+
+        private final boolean _bigInteger;
+        private long[] _values = new long[0];
+
+        /**
+         * @param bigInteger Whether the vector stores {@link BigInteger}s within the range
+         * of long instead of {@link Long}s
+         */
+        LongVector(boolean bigInteger)
+        {
+            _bigInteger = bigInteger;
+        }
+
+        boolean accepts(Object value)
+        {
+            if (_bigInteger)
+            {
+                return value.getClass() == BigInteger.class
+                        && ((BigInteger)value).compareTo(MIN_LONG) >= 0
+                        && ((BigInteger)value).compareTo(MAX_LONG) <= 0;
+            }
+            return value.getClass() == Long.class;
+        }
+
+        int capacity()
+        {
+            return _values.length;
+        }
+
+        void resize(int capacity)
+        {
+            long[] values = new long[capacity];
+            System.arraycopy(_values, 0, values, 0, _size);
+            _values = values;
+        }
+
+        Object getValue(int row)
+        {
+            return _bigInteger ? (Object)BigInteger.valueOf(_values[row]) : new Long(_values[row]);
+        }
+
+        void setValue(int row, Object value)
+        {
+            _values[row] = ((Number)value).longValue();
+        }
+    }
+
+    static class DoubleVector extends PrimitiveVector
+    {
+        private double[] _values = new double[0];
+
+        boolean accepts(Object value)
+        {
+            return value.getClass() == Double.class;
+        }
+
+        int capacity()
+        {
+            return _values.length;
+        }
+
+        void resize(int capacity)
+        {
+            double[] values = new double[capacity];
+            System.arraycopy(_values, 0, values, 0, _size);
+            _values = values;
+        }
+
+        Object getValue(int row)
+        {
+            return new Double(_values[row]);
+        }
+
+        void setValue(int row, Object value)
+        {
+            _values[row] = ((Double)value).doubleValue();
+        }
+    }
+
+    static class BooleanVector extends PrimitiveVector
+    {
+        private long[] _values = new long[0];
+
+        boolean accepts(Object value)
+        {
+            return value.getClass() == Boolean.class;
+        }
+
+        int capacity()
+        {
+            return _values.length << 6;
+        }
+
+        void resize(int capacity)
+        {
+            long[] values = new long[(capacity + 63) >>> 6];
+            System.arraycopy(_values, 0, values, 0, _values.length);
+            _values = values;
+        }
+
+        Object getValue(int row)
+        {
+            return Boolean.valueOf((_values[row >>> 6] & (1L << row)) != 0);
+        }
+
+        void setValue(int row, Object value)
+        {
+            if (((Boolean)value).booleanValue())
+            {
+                _values[row >>> 6] |= 1L << row;
+            }
+            else
+            {
+                _values[row >>> 6] &= ~(1L << row);
+            }
+        }
+    }
+
+    /**
+     * Stores {@link Timestamp}s, {@link java.sql.Date}s or {@link Time}s as milliseconds
+     * and, for timestamps, nanoseconds.
+     */
+    static class DateVector extends PrimitiveVector
+    {
+        private final Class _type;
+        private long[] _millis = new long[0];
+        private int[] _nanos;
+
+        DateVector(Class type)
+        {
+            _type = type;
+            _nanos = type == Timestamp.class ? new int[0] : null;
+        }
+
+        boolean accepts(Object value)
+        {
+            return value.getClass() == _type;
+        }
+
+        int capacity()
+        {
+            return _millis.length;
+        }
+
+        void resize(int capacity)
+        {
+            long[] millis = new long[capacity];
+            System.arraycopy(_millis, 0, millis, 0, _size);
+            _millis = millis;
+            if (_nanos != null)
+            {
+                int[] nanos = new int[capacity];
+                System.arraycopy(_nanos, 0, nanos, 0, _size);
+                _nanos = nanos;
+            }
+        }
+
+        Object getValue(int row)
+        {
+            if (_nanos != null)
+            {
+                Timestamp timestamp = new Timestamp(_millis[row]);
+                timestamp.setNanos(_nanos[row]);
+                return timestamp;
+            }
+            if (_type == Time.class)
+            {
+                return new Time(_millis[row]);
+            }
+            return new java.sql.Date(_millis[row]);
+        }
+
+        void setValue(int row, Object value)
+        {
+            _millis[row] = ((java.util.Date)value).getTime();
+            if (_nanos != null)
+            {
+                _nanos[row] = ((Timestamp)value).getNanos();
+            }
+        }
+    }
+
+    /**
+     * Stores each distinct string once and a dictionary code per row.
+     */
+    static class StringVector extends ColumnVector
+    {
+        /**
+         * Number of rows after which a column with more distinct values than half of its
+         * rows is no longer dictionary encoded.
+         */
+        static final int MIN_CARDINALITY_CHECK_SIZE = 1024;
+
+        private final Map _codes = new HashMap();
+        private final List _dictionary = new ArrayList();
+        private int[] _values = new int[0];
+
+        Object get(int row)
+        {
+            int code = _values[row];
+            return code < 0 ? null : _dictionary.get(code);
+        }
+
+        boolean add(Object value)
+        {
+            int code = encode(value);
+            if (code == Integer.MIN_VALUE)
+            {
+                return false;
+            }
+            if (_size == _values.length)
+            {
+                int[] values = new int[grow(_size)];
+                System.arraycopy(_values, 0, values, 0, _size);
+                _values = values;
+            }
+            _values[_size++] = code;
+            return true;
+        }
+
+        boolean set(int row, Object value)
+        {
+            int code = encode(value);
+            if (code == Integer.MIN_VALUE)
+            {
+                return false;
+            }
+            _values[row] = code;
+            return true;
+        }
+
+        /**
+         * @return The code of the value, -1 for <code>null</code> or
+         * {@link Integer#MIN_VALUE} if the value cannot be stored
+         */
+        private int encode(Object value)
+        {
+            if (value == null)
+            {
+                return -1;
+            }
+            if (!(value instanceof String))
+            {
+                return Integer.MIN_VALUE;
+            }
+            Integer code = (Integer)_codes.get(value);
+            if (code == null)
+            {
+                if (_dictionary.size() >= MAX_DICTIONARY_SIZE
+                        || (_size >= MIN_CARDINALITY_CHECK_SIZE && _dictionary.size() * 2 > _size))
+                {
+                    return Integer.MIN_VALUE;
+                }
+                code = new Integer(_dictionary.size());
+                _codes.put(value, code);
+                _dictionary.add(value);
+            }
+            return code.intValue();
+        }
+
+        int getDictionarySize()
+        {
+            return _dictionary.size();
+        }
+    }
+
+    static class ObjectVector extends ColumnVector
+    {
+        private Object[] _values;
+
+        ObjectVector(int capacity)
+        {
+            _values = new Object[capacity];
+        }
+
+        Object get(int row)
+        {
+            return _values[row];
+        }
+
+        boolean add(Object value)
+        {
+            if (_size == _values.length)
+            {
+                Object[] values = new Object[grow(_size)];
+                System.arraycopy(_values, 0, values, 0, _size);
+                _values = values;
+            }
+            _values[_size++] = value;
+            return true;
+        }
+
+        boolean set(int row, Object value)
+        {
+            _values[row] = value;
+            return true;
+        }
+    }
+}
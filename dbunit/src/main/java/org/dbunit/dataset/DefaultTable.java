@@ -130,13 +130,13 @@ public class DefaultTable extends AbstractTable
             	return;
             }
             
+            ColumnIndexMapping mapping = new ColumnIndexMapping(table, columns);
             for (int i = 0; ; i++)
             {
                 Object[] rowValues = new Object[columns.length];
                 for (int j = 0; j < columns.length; j++)
                 {
-                    Column column = columns[j];
-                    rowValues[j] = table.getValue(i, column.getColumnName());
+                    rowValues[j] = mapping.getValue(i, j);
                 }
                 _rowList.add(rowValues);
             }
@@ -197,6 +197,15 @@ public class DefaultTable extends AbstractTable
         return rowValues[getColumnIndex(column)];
     }
 
+    public Object getValue(int row, int column) throws DataSetException
+    {
+        assertValidRowIndex(row);
+
+        Object[] rowValues = (Object[])_rowList.get(row);
+        assertValidColumnIndex(column, rowValues.length);
+        return rowValues[column];
+    }
+
     public String toString()
     {
     	StringBuffer sb = new StringBuffer();
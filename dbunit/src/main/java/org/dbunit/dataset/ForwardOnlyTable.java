@@ -28,7 +28,7 @@ import org.slf4j.LoggerFactory;
  * @since Apr 9, 2003
  * @version $Revision$
  */
-public class ForwardOnlyTable implements ITable
+public class ForwardOnlyTable implements IIndexedTable
 {
 
     /**
@@ -70,4 +70,15 @@ public class ForwardOnlyTable implements ITable
         _lastRow = row;
         return _table.getValue(row, column);
     }
+
+    public Object getValue(int row, int column) throws DataSetException
+    {
+        if (row < _lastRow)
+        {
+            throw new UnsupportedOperationException("Cannot go backward!");
+        }
+
+        _lastRow = row;
+        return ColumnIndexMapping.getValue(_table, row, column);
+    }
 }
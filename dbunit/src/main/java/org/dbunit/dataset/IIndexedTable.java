@@ -0,0 +1,54 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+package org.dbunit.dataset;
+
+/**
+ * A table that gives access to its values by column position. The column
+ * index refers to the array returned by
+ * <code>getTableMetaData().getColumns()</code>. Hot loops should prefer this
+ * accessor over {@link ITable#getValue(int, String)} since it avoids the
+ * case insensitive column name lookup for every single cell.
+ * <p>
+ * Use {@link ColumnIndexMapping} to read values by position from an arbitrary
+ * {@link ITable} regardless of whether it implements this interface.
+ * </p>
+ *
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public interface IIndexedTable extends ITable
+{
+    /**
+     * Returns this table value for the specified row and column index.
+     * @param row The row index, starting with 0
+     * @param column The column index within the columns of this table's
+     * metadata, starting with 0
+     * @return The value
+     *
+     * @throws NoSuchColumnException if the specified column index is out of
+     * range
+     * @throws RowOutOfBoundsException if specified row is less than zero or
+     * equals or greater than <code>getRowCount</code>
+     */
+    public Object getValue(int row, int column) throws DataSetException;
+}
@@ -48,6 +48,11 @@ public class ReplacementDataSet extends AbstractDataSet
     private String _startDelim;
     private String _endDelim;
     private boolean _strictReplacement;
+    private boolean _compiled;
+    private boolean _materialized;
+    private SubstringReplacer _replacer;
+    /** The last materialized replacement table by table name */
+    private Map _materializedTables;
 
 
     /**
@@ -84,6 +89,42 @@ public class ReplacementDataSet extends AbstractDataSet
      */
     public void setStrictReplacement(boolean strictReplacement) {
         this._strictReplacement = strictReplacement;
+        resetCompiledState();
+    }
+
+    /**
+     * Setting this property to true replaces the substrings of a value in a
+     * single pass with an automaton compiled once from all original substrings
+     * and shared by the tables of this dataset.
+     * 
+     * @param compiled true if the substring replacement should be compiled
+     * @see ReplacementTable#setCompiled(boolean)
+     * @since 2.5.1
+     */
+    public void setCompiled(boolean compiled)
+    {
+        _compiled = compiled;
+        resetCompiledState();
+    }
+
+    /**
+     * Setting this property to true keeps the replaced values of each table,
+     * so that reading a table again does not replace its values again.
+     * 
+     * @param materialized true if the replaced values should be kept
+     * @see ReplacementTable#setMaterialized(boolean)
+     * @since 2.5.1
+     */
+    public void setMaterialized(boolean materialized)
+    {
+        _materialized = materialized;
+        resetCompiledState();
+    }
+
+    private void resetCompiledState()
+    {
+        _replacer = null;
+        _materializedTables = null;
     }
     
     /**
@@ -97,6 +138,7 @@ public class ReplacementDataSet extends AbstractDataSet
         logger.debug("addReplacementObject(originalObject={}, replacementObject={}) - start", originalObject, replacementObject);
 
         _objectMap.put(originalObject, replacementObject);
+        resetCompiledState();
     }
 
     /**
@@ -116,6 +158,7 @@ public class ReplacementDataSet extends AbstractDataSet
         }
 
         _substringMap.put(originalSubstring, replacementSubstring);
+        resetCompiledState();
     }
 
     /**
@@ -132,15 +175,46 @@ public class ReplacementDataSet extends AbstractDataSet
 
         _startDelim = startDelimiter;
         _endDelim = endDelimiter;
+        resetCompiledState();
     }
 
     private ReplacementTable createReplacementTable(ITable table)
     {
         logger.debug("createReplacementTable(table={}) - start", table);
         
+        if (_materialized)
+        {
+            if (_materializedTables == null)
+            {
+                _materializedTables = new HashMap();
+            }
+            // only the same decorated table can share the materialized values, keyed
+            // by name so that datasets creating new tables on each access do not grow it
+            ReplacementTable replacementTable = (ReplacementTable)_materializedTables.get(
+                    table.getTableMetaData().getTableName());
+            if (replacementTable != null && replacementTable.getDecoratedTable() == table)
+            {
+                return replacementTable;
+            }
+        }
+
         ReplacementTable replacementTable = new ReplacementTable(
                 table, _objectMap, _substringMap, _startDelim, _endDelim);
         replacementTable.setStrictReplacement(_strictReplacement);
+        replacementTable.setCompiled(_compiled);
+        replacementTable.setMaterialized(_materialized);
+        if (_compiled)
+        {
+            if (_replacer == null)
+            {
+                _replacer = new SubstringReplacer(_substringMap);
+            }
+            replacementTable.setSubstringReplacer(_replacer);
+        }
+        if (_materialized)
+        {
+            _materializedTables.put(table.getTableMetaData().getTableName(), replacementTable);
+        }
         return replacementTable;
     }
 
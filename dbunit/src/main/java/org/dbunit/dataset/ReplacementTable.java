@@ -30,12 +30,20 @@ import java.util.Map;
 /**
  * Decorator that replaces configured values from the decorated table
  * with replacement values.
+ * <p>
+ * In the {@link #setCompiled(boolean) compiled} mode all substrings are replaced
+ * in a single pass over each value. In the {@link #setMaterialized(boolean)
+ * materialized} mode the replaced values of a column are computed on its first
+ * read and kept, columns without any replaced value are read from the decorated
+ * table directly. Both modes take a snapshot of the replacements, which must
+ * only be changed through the methods of this table afterwards.
+ * </p>
  *
  * @author Manuel Laflamme
  * @since Mar 17, 2003
  * @version $Revision$
  */
-public class ReplacementTable implements ITable
+public class ReplacementTable implements IIndexedTable
 {
 
     /**
@@ -49,6 +57,14 @@ public class ReplacementTable implements ITable
     private String _startDelim;
     private String _endDelim;
     private boolean _strictReplacement;
+    private boolean _compiled;
+    private boolean _materialized;
+    private SubstringReplacer _replacer;
+    /** The replaced values of each column, null if not read yet */
+    private Object[][] _columnValues;
+
+    /** Marks a materialized column without any replaced value */
+    private static final Object[] NOT_REPLACED = new Object[0];
 
     /**
      * Create a new ReplacementTable object that decorates the specified table.
@@ -82,6 +98,52 @@ public class ReplacementTable implements ITable
     		logger.debug("setStrictReplacement(strictReplacement={}) - start", String.valueOf(strictReplacement));
     	
         this._strictReplacement = strictReplacement;
+        resetCompiledState();
+    }
+
+    /**
+     * Setting this property to true replaces the substrings of a value in a
+     * single pass with an automaton compiled from all original substrings,
+     * instead of searching the value for each of them. Where substrings overlap
+     * the leftmost longest one is replaced, and replacement values are not
+     * searched for further substrings. Delimited substrings are not affected.
+     * 
+     * @param compiled true if the substring replacement should be compiled
+     * @since 2.5.1
+     */
+    public void setCompiled(boolean compiled)
+    {
+        _compiled = compiled;
+        resetCompiledState();
+    }
+
+    /**
+     * Setting this property to true computes the replaced values of a column
+     * once, on its first read, and keeps them for the later reads. Tables
+     * which do not support {@link ITable#getRowCount()}, like streamed tables,
+     * are read without materializing them.
+     * 
+     * @param materialized true if the replaced values should be kept
+     * @since 2.5.1
+     */
+    public void setMaterialized(boolean materialized)
+    {
+        _materialized = materialized;
+        resetCompiledState();
+    }
+
+    /**
+     * Shares the automaton compiled from the substring map with this table.
+     */
+    void setSubstringReplacer(SubstringReplacer replacer)
+    {
+        _replacer = replacer;
+    }
+
+    private void resetCompiledState()
+    {
+        _replacer = null;
+        _columnValues = null;
     }
     
     /**
@@ -95,6 +157,7 @@ public class ReplacementTable implements ITable
         logger.debug("addReplacementObject(originalObject={}, replacementObject={}) - start", originalObject, replacementObject);
 
         _objectMap.put(originalObject, replacementObject);
+        resetCompiledState();
     }
 
     /**
@@ -114,6 +177,7 @@ public class ReplacementTable implements ITable
         }
 
         _substringMap.put(originalSubstring, replacementSubstring);
+        resetCompiledState();
     }
 
     /**
@@ -130,6 +194,7 @@ public class ReplacementTable implements ITable
 
         _startDelim = startDelimiter;
         _endDelim = endDelimiter;
+        resetCompiledState();
     }
 
     /**
@@ -234,6 +299,14 @@ public class ReplacementTable implements ITable
         return _table.getTableMetaData();
     }
 
+    /**
+     * @return The table whose values are replaced
+     */
+    ITable getDecoratedTable()
+    {
+        return _table;
+    }
+
     public int getRowCount()
     {
         return _table.getRowCount();
@@ -244,12 +317,87 @@ public class ReplacementTable implements ITable
         if(logger.isDebugEnabled())
             logger.debug("getValue(row={}, columnName={}) - start", Integer.toString(row), column);
 
-        Object value = _table.getValue(row, column);
+        if (_materialized)
+        {
+            return getMaterializedValue(row,
+                    _table.getTableMetaData().getColumnIndex(column));
+        }
+        return replaceValue(_table.getValue(row, column));
+    }
+
+    public Object getValue(int row, int column) throws DataSetException
+    {
+        if (_materialized)
+        {
+            return getMaterializedValue(row, column);
+        }
+        return replaceValue(ColumnIndexMapping.getValue(_table, row, column));
+    }
+
+    private Object getMaterializedValue(int row, int column) throws DataSetException
+    {
+        if (_columnValues == null)
+        {
+            try
+            {
+                _table.getRowCount();
+            }
+            catch (UnsupportedOperationException e)
+            {
+                logger.debug("Table '{}' is forward only, not materializing it",
+                        _table.getTableMetaData().getTableName());
+                _materialized = false;
+                return replaceValue(ColumnIndexMapping.getValue(_table, row, column));
+            }
+            _columnValues = new Object[_table.getTableMetaData().getColumns().length][];
+        }
+        if (column < 0 || column >= _columnValues.length)
+        {
+            // Let the decorated table report the invalid column
+            return replaceValue(ColumnIndexMapping.getValue(_table, row, column));
+        }
+
+        Object[] values = _columnValues[column];
+        if (values == null)
+        {
+            values = materializeColumn(column);
+            _columnValues[column] = values;
+        }
+        if (values == NOT_REPLACED || row < 0 || row >= values.length)
+        {
+            return ColumnIndexMapping.getValue(_table, row, column);
+        }
+        return values[row];
+    }
+
+    /**
+     * @return The replaced values of all rows of the column or {@link #NOT_REPLACED}
+     * if no value of the column is replaced
+     */
+    private Object[] materializeColumn(int column) throws DataSetException
+    {
+        int rowCount = _table.getRowCount();
+        Object[] values = new Object[rowCount];
+        boolean replaced = false;
+        for (int i = 0; i < rowCount; i++)
+        {
+            Object value = ColumnIndexMapping.getValue(_table, i, column);
+            values[i] = replaceValue(value);
+            replaced |= values[i] != value;
+        }
+        return replaced ? values : NOT_REPLACED;
+    }
 
+    private Object replaceValue(Object value) throws DataSetException
+    {
         // Object replacement
-        if (_objectMap.containsKey(value))
+        if (!_objectMap.isEmpty())
         {
-            return _objectMap.get(value);
+            Object replacement = _objectMap.get(value);
+            if (replacement != null || _objectMap.containsKey(value))
+            {
+                return replacement;
+            }
         }
 
         // Stop here if substring replacement not applicable
@@ -263,6 +411,14 @@ public class ReplacementTable implements ITable
         {
             return replaceDelimitedSubstrings((String)value);
         }
+        if (_compiled)
+        {
+            if (_replacer == null)
+            {
+                _replacer = new SubstringReplacer(_substringMap);
+            }
+            return _replacer.replace((String)value);
+        }
         return replaceSubstrings((String)value);
     }
     
@@ -277,6 +433,8 @@ public class ReplacementTable implements ITable
     	sb.append(", _substringMap=").append(_substringMap);
     	sb.append(", _startDelim=").append(_startDelim);
     	sb.append(", _endDelim=").append(_endDelim);
+    	sb.append(", _compiled=").append(_compiled);
+    	sb.append(", _materialized=").append(_materialized);
     	sb.append("]");
     	return sb.toString();
     }
@@ -39,7 +39,7 @@ import org.slf4j.LoggerFactory;
  * @version $Revision$ $Date$
  * @since 2.3.0
  */
-public class RowFilterTable implements ITable, IRowValueProvider {
+public class RowFilterTable implements IIndexedTable, IRowValueProvider {
 
 	
 	/** 
@@ -141,6 +141,18 @@ public class RowFilterTable implements ITable, IRowValueProvider {
 		}
 	}
 
+	public Object getValue(int row, int column) throws DataSetException 
+	{
+		int max = this.filteredRowIndexes.size();
+		if ( row < max ) {
+			int realRow = ((Integer) this.filteredRowIndexes.get( row )).intValue();
+			return ColumnIndexMapping.getValue(this.originalTable, realRow, column);
+		} else {
+			throw new RowOutOfBoundsException( "tried to access row " + row + 
+					" but rowCount is " + max );
+		}
+	}
+
 
 	/**
 	 * Returns the column value for the column with the given name of the currently processed row
@@ -264,6 +264,13 @@ public class SortedTable extends AbstractTable {
         return _table.getValue(getOriginalRowIndex(row), columnName);
     }
 
+    public Object getValue(int row, int column) throws DataSetException {
+        assertValidRowIndex(row);
+
+        return ColumnIndexMapping.getValue(_table, getOriginalRowIndex(row),
+                column);
+    }
+
     // //////////////////////////////////////////////////////////////////////////
     // Comparator interface
 
@@ -279,6 +286,7 @@ public class SortedTable extends AbstractTable {
                 LoggerFactory.getLogger(AbstractRowComparator.class);
         private final ITable _table;
         private final Column[] _sortColumns;
+        private ColumnIndexMapping _mapping;
 
         /**
          * @param table
@@ -298,11 +306,13 @@ public class SortedTable extends AbstractTable {
             Integer i2 = (Integer) o2;
 
             try {
-                for (int i = 0; i < _sortColumns.length; i++) {
-                    String columnName = _sortColumns[i].getColumnName();
+                if (_mapping == null) {
+                    _mapping = new ColumnIndexMapping(_table, _sortColumns);
+                }
 
-                    Object value1 = _table.getValue(i1.intValue(), columnName);
-                    Object value2 = _table.getValue(i2.intValue(), columnName);
+                for (int i = 0; i < _sortColumns.length; i++) {
+                    Object value1 = _mapping.getValue(i1.intValue(), i);
+                    Object value2 = _mapping.getValue(i2.intValue(), i);
 
                     if (value1 == null && value2 == null) {
                         continue;
@@ -0,0 +1,238 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.dataset;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append only temporary file which is read back through memory mapped windows. Used by
+ * {@link SpillingTable}.
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+class SpillFile
+{
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(SpillFile.class);
+
+    static final int DEFAULT_WINDOW_SIZE = 1 << 26;
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+    private static final int MAX_WINDOWS = 16;
+
+    private final File _file;
+    private final RandomAccessFile _randomAccessFile;
+    private final FileChannel _channel;
+    private final int _windowSize;
+    private final ByteBuffer _writeBuffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+    private final Map _windows = new LinkedHashMap(MAX_WINDOWS, 0.75f, true)
+    {
+        private static final long serialVersionUID = 1L;
+
+        protected boolean removeEldestEntry(Map.Entry eldest)
+        {
+            return size() > MAX_WINDOWS;
+        }
+    };
+    /**
+     * Number of bytes written to the file
+     */
+    private long _written = 0;
+
+    /**
+     * @param directory The directory of the file or <code>null</code> for the default
+     * temporary directory
+     * @param suffix The file suffix
+     * @param windowSize The size of the memory mapped regions
+     */
+    SpillFile(File directory, String suffix, int windowSize) throws IOException
+    {
+        _file = File.createTempFile("dbunit", suffix, directory);
+        // tables which are never closed must not leak their files
+        _file.deleteOnExit();
+        try
+        {
+            _randomAccessFile = new RandomAccessFile(_file, "rw");
+        }
+        catch (IOException e)
+        {
+            _file.delete();
+            throw e;
+        }
+        _channel = _randomAccessFile.getChannel();
+        _windowSize = windowSize;
+    }
+
+    File getFile()
+    {
+        return _file;
+    }
+
+    /**
+     * @return The length of the file including buffered data
+     */
+    long length()
+    {
+        return _written + _writeBuffer.position();
+    }
+
+    /**
+     * Appends the given bytes.
+     * @return The offset of the bytes in the file
+     */
+    long append(byte[] bytes, int offset, int length) throws IOException
+    {
+        long position = length();
+        if (length > _writeBuffer.remaining())
+        {
+            flush();
+        }
+        if (length > _writeBuffer.capacity())
+        {
+            write(ByteBuffer.wrap(bytes, offset, length));
+        }
+        else
+        {
+            _writeBuffer.put(bytes, offset, length);
+        }
+        return position;
+    }
+
+    /**
+     * Appends the given value as 8 bytes.
+     * @return The offset of the value in the file
+     */
+    long appendLong(long value) throws IOException
+    {
+        long position = length();
+        if (_writeBuffer.remaining() < 8)
+        {
+            flush();
+        }
+        _writeBuffer.putLong(value);
+        return position;
+    }
+
+    private void flush() throws IOException
+    {
+        _writeBuffer.flip();
+        write(_writeBuffer);
+        _writeBuffer.clear();
+    }
+
+    private void write(ByteBuffer buffer) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            _written += _channel.write(buffer);
+        }
+    }
+
+    /**
+     * @param offset The offset of the bytes
+     * @param length The number of bytes
+     * @return A buffer whose remaining bytes are the requested ones
+     */
+    ByteBuffer read(long offset, int length) throws IOException
+    {
+        long end = offset + length;
+        if (end > _written)
+        {
+            flush();
+        }
+
+        long windowIndex = offset / _windowSize;
+        long windowStart = windowIndex * _windowSize;
+        if (end > windowStart + _windowSize)
+        {
+            // spans two windows, read a copy
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining())
+            {
+                if (_channel.read(buffer, offset + buffer.position()) < 0)
+                {
+                    throw new IOException("Unexpected end of file " + _file);
+                }
+            }
+            buffer.flip();
+            return buffer;
+        }
+
+        Long key = new Long(windowIndex);
+        MappedByteBuffer window = (MappedByteBuffer)_windows.get(key);
+        if (window == null || window.capacity() < end - windowStart)
+        {
+            // the last window grows with the file
+            long size = Math.min(_windowSize, _written - windowStart);
+            window = _channel.map(FileChannel.MapMode.READ_ONLY, windowStart, size);
+            _windows.put(key, window);
+        }
+        ByteBuffer buffer = window.duplicate();
+        buffer.position((int)(offset - windowStart));
+        buffer.limit((int)(end - windowStart));
+        return buffer;
+    }
+
+    /**
+     * @return The 8 byte value at the given offset
+     */
+    long readLong(long offset) throws IOException
+    {
+        return read(offset, 8).getLong();
+    }
+
+    /**
+     * Closes and deletes the file.
+     */
+    void delete()
+    {
+        _windows.clear();
+        try
+        {
+            _channel.close();
+            _randomAccessFile.close();
+        }
+        catch (IOException e)
+        {
+            logger.warn("Failed to close " + _file, e);
+        }
+        if (!_file.delete())
+        {
+            // mapped files cannot be deleted on some platforms until unmapped by the GC
+            logger.debug("Could not delete {}, deleting it on exit", _file);
+        }
+    }
+}
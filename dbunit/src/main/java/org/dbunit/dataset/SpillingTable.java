@@ -0,0 +1,355 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.dataset;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.dbunit.dataset.binary.ValueCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Table keeping its rows in memory up to a budget and writing further rows to a
+ * temporary file. Written rows are read back by index through memory mapped regions of
+ * the file, so the table supports random access like {@link DefaultTable}, for example
+ * by {@link SortedTable} and {@link org.dbunit.Assertion}, while the heap used for
+ * large tables stays bounded.
+ * <p>
+ * Values are written with {@link ValueCodec}, so values other than strings, numbers,
+ * booleans, dates, byte arrays and {@link ITable#NO_VALUE} must be {@link java.io.Serializable}.
+ * The temporary files are deleted by {@link #close()}, which should be called once the
+ * table is no longer needed. Files of tables which are not closed, or which cannot be
+ * deleted at that point, for example while still mapped on some platforms, are deleted
+ * when the JVM exits.
+ * </p>
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class SpillingTable extends AbstractTable
+{
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(SpillingTable.class);
+
+    /**
+     * Default number of bytes of rows kept in memory
+     */
+    public static final long DEFAULT_MEMORY_BUDGET = 32L * 1024 * 1024;
+
+
+    private final ITableMetaData _metaData;
+    private final int _columnCount;
+    private final long _memoryBudget;
+    private final File _directory;
+    private final int _windowSize;
+
+    private final List _memoryRows = new ArrayList();
+    private long _memorySize = 0;
+    private int _rowCount = 0;
+
+    private SpillFile _data;
+    private SpillFile _index;
+    private ByteArrayOutputStream _rowBytes;
+    private DataOutputStream _rowOutput;
+
+    private int _cachedRow = -1;
+    private Object[] _cachedValues;
+
+    /**
+     * Creates a new empty table keeping up to {@link #DEFAULT_MEMORY_BUDGET} bytes of
+     * rows in memory and writing further rows to the default temporary directory.
+     */
+    public SpillingTable(ITableMetaData metaData) throws DataSetException
+    {
+        this(metaData, DEFAULT_MEMORY_BUDGET, null);
+    }
+
+    /**
+     * Creates a new empty table.
+     * @param metaData The table metadata
+     * @param memoryBudget The estimated number of bytes of rows kept in memory
+     * @param directory The directory of the temporary files or <code>null</code> for the
+     * default temporary directory
+     */
+    public SpillingTable(ITableMetaData metaData, long memoryBudget, File directory)
+            throws DataSetException
+    {
+        this(metaData, memoryBudget, directory, SpillFile.DEFAULT_WINDOW_SIZE);
+    }
+
+    SpillingTable(ITableMetaData metaData, long memoryBudget, File directory, int windowSize)
+            throws DataSetException
+    {
+        _metaData = metaData;
+        _columnCount = metaData.getColumns().length;
+        _memoryBudget = memoryBudget;
+        _directory = directory;
+        _windowSize = windowSize;
+    }
+
+    /**
+     * Inserts a new row initialized with specified array of values.
+     * @param values The array of values. Each value correspond to the column at the
+     * same index from {@link ITableMetaData#getColumns}.
+     */
+    public void addRow(Object[] values) throws DataSetException
+    {
+        logger.debug("addRow(values={}) - start", values);
+
+        if (_data == null)
+        {
+            long size = estimateSize(values);
+            if (_memorySize + size <= _memoryBudget)
+            {
+                _memoryRows.add(values);
+                _memorySize += size;
+                _rowCount++;
+                return;
+            }
+        }
+
+        try
+        {
+            writeRow(values);
+        }
+        catch (IOException e)
+        {
+            throw new DataSetException("Failed to write row " + _rowCount + " of table "
+                    + _metaData.getTableName(), e);
+        }
+        _rowCount++;
+    }
+
+    /**
+     * Inserts all rows from the specified table.
+     * @param table The source table.
+     */
+    public void addTableRows(ITable table) throws DataSetException
+    {
+        logger.debug("addTableRows(table={}) - start", table);
+
+        Column[] columns = _metaData.getColumns();
+        if (columns.length <= 0)
+        {
+            logger.warn("The table '" + table + "' does not have any columns. Cannot add table rows. This should never happen...");
+            return;
+        }
+
+        ColumnIndexMapping mapping = new ColumnIndexMapping(table, columns);
+        try
+        {
+            for (int i = 0; ; i++)
+            {
+                Object[] rowValues = new Object[columns.length];
+                for (int j = 0; j < columns.length; j++)
+                {
+                    rowValues[j] = mapping.getValue(i, j);
+                }
+                addRow(rowValues);
+            }
+        }
+        catch(RowOutOfBoundsException e)
+        {
+            // end of table
+        }
+    }
+
+    /**
+     * @return The number of rows written to the temporary file
+     */
+    public int getSpilledRowCount()
+    {
+        return _rowCount - _memoryRows.size();
+    }
+
+    /**
+     * @return The temporary file of the rows or <code>null</code> if all rows are in memory
+     */
+    public File getSpillFile()
+    {
+        return _data == null ? null : _data.getFile();
+    }
+
+    /**
+     * Deletes the temporary files. The rows written to them cannot be read anymore.
+     */
+    public void close() throws DataSetException
+    {
+        logger.debug("close() - start");
+
+        if (_data != null)
+        {
+            _data.delete();
+            _index.delete();
+        }
+        _cachedRow = -1;
+        _cachedValues = null;
+    }
+
+    private static long estimateSize(Object[] values)
+    {
+        long size = 16 + 4L * values.length;
+        for (int i = 0; i < values.length; i++)
+        {
+            Object value = values[i];
+            if (value == null || value == ITable.NO_VALUE || value instanceof Boolean)
+            {
+                // shared instances
+            }
+            else if (value instanceof String)
+            {
+                size += 40 + 2L * ((String)value).length();
+            }
+            else if (value instanceof byte[])
+            {
+                size += 16 + ((byte[])value).length;
+            }
+            else if (value instanceof BigDecimal || value instanceof BigInteger)
+            {
+                size += 64;
+            }
+            else
+            {
+                size += 24;
+            }
+        }
+        return size;
+    }
+
+    private void writeRow(Object[] values) throws IOException, DataSetException
+    {
+        if (_data == null)
+        {
+            SpillFile data = new SpillFile(_directory, ".rows", _windowSize);
+            try
+            {
+                _index = new SpillFile(_directory, ".idx", _windowSize);
+            }
+            catch (IOException e)
+            {
+                data.delete();
+                throw e;
+            }
+            _data = data;
+            _rowBytes = new ByteArrayOutputStream();
+            _rowOutput = new DataOutputStream(_rowBytes);
+            logger.debug("Writing rows from row {} of table {} to {}", new Object[] {
+                    String.valueOf(_rowCount), _metaData.getTableName(), _data.getFile()});
+        }
+
+        _rowBytes.reset();
+        for (int i = 0; i < _columnCount; i++)
+        {
+            ValueCodec.writeValue(_rowOutput, i < values.length ? values[i] : null, true);
+        }
+        _rowOutput.flush();
+
+        byte[] bytes = _rowBytes.toByteArray();
+        _index.appendLong(_data.append(bytes, 0, bytes.length));
+    }
+
+    private Object[] readRow(int row) throws DataSetException
+    {
+        if (row == _cachedRow)
+        {
+            return _cachedValues;
+        }
+
+        int spilledRow = row - _memoryRows.size();
+        try
+        {
+            long offset = _index.readLong(8L * spilledRow);
+            long end = spilledRow + 1 < getSpilledRowCount() ?
+                    _index.readLong(8L * (spilledRow + 1)) : _data.length();
+            ByteBuffer buffer = _data.read(offset, (int)(end - offset));
+
+            Object[] values = new Object[_columnCount];
+            for (int i = 0; i < values.length; i++)
+            {
+                values[i] = ValueCodec.readValue(buffer, true);
+            }
+            _cachedRow = row;
+            _cachedValues = values;
+            return values;
+        }
+        catch (IOException e)
+        {
+            throw new DataSetException("Failed to read row " + row + " of table "
+                    + _metaData.getTableName(), e);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // ITable interface
+
+    public ITableMetaData getTableMetaData()
+    {
+        return _metaData;
+    }
+
+    public int getRowCount()
+    {
+        return _rowCount;
+    }
+
+    public Object getValue(int row, String column) throws DataSetException
+    {
+        if(logger.isDebugEnabled())
+            logger.debug("getValue(row={}, column={}) - start", Integer.toString(row), column);
+
+        return getValue(row, getColumnIndex(column));
+    }
+
+    public Object getValue(int row, int column) throws DataSetException
+    {
+        assertValidRowIndex(row, _rowCount);
+
+        Object[] rowValues = row < _memoryRows.size() ?
+                (Object[])_memoryRows.get(row) : readRow(row);
+        assertValidColumnIndex(column, rowValues.length);
+        return rowValues[column];
+    }
+
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append(getClass().getName()).append("[");
+        sb.append("_metaData=").append(_metaData);
+        sb.append(", _rowCount=").append(_rowCount);
+        sb.append(", _memoryRows.size()=").append(_memoryRows.size());
+        sb.append(", _memoryBudget=").append(_memoryBudget);
+        sb.append("]");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.dataset;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the substrings of a replacement map in a single pass over the value
+ * using an Aho-Corasick automaton built from all original substrings.
+ * Where substrings overlap the leftmost and then longest one is replaced, and a
+ * replacement is not searched for further substrings.
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+class SubstringReplacer
+{
+    /** The sorted characters of the transitions of each state */
+    private char[][] _keys;
+    /** The target states of the transitions of each state */
+    private int[][] _targets;
+    private int[] _failures;
+    /** The longest substring ending in each state, -1 if none */
+    private int[] _matches;
+    private final String[] _replacements;
+    private final int[] _lengths;
+    private int _maxLength;
+    private int _stateCount;
+
+    /**
+     * @param substringMap The original substrings mapped to their replacements.
+     * Empty original substrings are ignored.
+     */
+    public SubstringReplacer(Map substringMap)
+    {
+        List originals = new ArrayList();
+        List replacements = new ArrayList();
+        for (Iterator it = substringMap.entrySet().iterator(); it.hasNext();)
+        {
+            Map.Entry entry = (Map.Entry)it.next();
+            String original = (String)entry.getKey();
+            if (original != null && original.length() > 0)
+            {
+                originals.add(original);
+                replacements.add(entry.getValue());
+            }
+        }
+
+        _replacements = (String[])replacements.toArray(new String[0]);
+        _lengths = new int[_replacements.length];
+        int capacity = 1;
+        for (int i = 0; i < _lengths.length; i++)
+        {
+            _lengths[i] = ((String)originals.get(i)).length();
+            _maxLength = Math.max(_maxLength, _lengths[i]);
+            capacity += _lengths[i];
+        }
+
+        _keys = new char[capacity][];
+        _targets = new int[capacity][];
+        _matches = new int[capacity];
+        _stateCount = 1;
+        _keys[0] = new char[0];
+        _targets[0] = new int[0];
+        Arrays.fill(_matches, -1);
+        for (int i = 0; i < _lengths.length; i++)
+        {
+            addSubstring((String)originals.get(i), i);
+        }
+        computeFailures();
+    }
+
+    private void addSubstring(String substring, int index)
+    {
+        int state = 0;
+        for (int i = 0; i < substring.length(); i++)
+        {
+            char c = substring.charAt(i);
+            int next = getTransition(state, c);
+            if (next < 0)
+            {
+                next = _stateCount++;
+                _keys[next] = new char[0];
+                _targets[next] = new int[0];
+                addTransition(state, c, next);
+            }
+            state = next;
+        }
+        _matches[state] = index;
+    }
+
+    private int getTransition(int state, char c)
+    {
+        int i = Arrays.binarySearch(_keys[state], c);
+        return i < 0 ? -1 : _targets[state][i];
+    }
+
+    private void addTransition(int state, char c, int target)
+    {
+        char[] keys = _keys[state];
+        int[] targets = _targets[state];
+        int i = -Arrays.binarySearch(keys, c) - 1;
+
+        char[] newKeys = new char[keys.length + 1];
+        int[] newTargets = new int[keys.length + 1];
+        System.arraycopy(keys, 0, newKeys, 0, i);
+        System.arraycopy(targets, 0, newTargets, 0, i);
+        newKeys[i] = c;
+        newTargets[i] = target;
+        System.arraycopy(keys, i, newKeys, i + 1, keys.length - i);
+        System.arraycopy(targets, i, newTargets, i + 1, keys.length - i);
+        _keys[state] = newKeys;
+        _targets[state] = newTargets;
+    }
+
+    /**
+     * Computes the failure transitions breadth first and lets each state
+     * inherit the longest match of its failure state.
+     */
+    private void computeFailures()
+    {
+        _failures = new int[_stateCount];
+        int[] queue = new int[_stateCount];
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < _targets[0].length; i++)
+        {
+            queue[tail++] = _targets[0][i];
+        }
+        while (head < tail)
+        {
+            int state = queue[head++];
+            for (int i = 0; i < _keys[state].length; i++)
+            {
+                char c = _keys[state][i];
+                int target = _targets[state][i];
+                queue[tail++] = target;
+
+                int failure = _failures[state];
+                while (failure != 0 && getTransition(failure, c) < 0)
+                {
+                    failure = _failures[failure];
+                }
+                int next = getTransition(failure, c);
+                _failures[target] = next < 0 ? 0 : next;
+                if (_matches[target] < 0)
+                {
+                    _matches[target] = _matches[_failures[target]];
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Whether there are substrings to replace at all
+     */
+    public boolean isEmpty()
+    {
+        return _replacements.length == 0;
+    }
+
+    /**
+     * @param value The value
+     * @return The value with all substrings replaced, the same instance if it
+     * does not contain any of them
+     */
+    public String replace(String value)
+    {
+        if (_replacements.length == 0)
+        {
+            return value;
+        }
+
+        StringBuffer buffer = null;
+        int length = value.length();
+        int copied = 0;
+        int state = 0;
+        int candidateStart = -1;
+        int candidate = -1;
+        int i = 0;
+        for (;;)
+        {
+            if (i < length)
+            {
+                char c = value.charAt(i);
+                int next;
+                while ((next = getTransition(state, c)) < 0 && state != 0)
+                {
+                    state = _failures[state];
+                }
+                state = next < 0 ? 0 : next;
+                i++;
+
+                int match = _matches[state];
+                if (match >= 0)
+                {
+                    int start = i - _lengths[match];
+                    if (candidate < 0 || start < candidateStart
+                            || (start == candidateStart && _lengths[match] > _lengths[candidate]))
+                    {
+                        candidate = match;
+                        candidateStart = start;
+                    }
+                }
+                // Wait until no longer substring can start at the candidate
+                if (candidate < 0 || i - candidateStart < _maxLength)
+                {
+                    continue;
+                }
+            }
+            else if (candidate < 0)
+            {
+                break;
+            }
+
+            if (buffer == null)
+            {
+                buffer = new StringBuffer(length + 16);
+            }
+            buffer.append(value, copied, candidateStart);
+            buffer.append(_replacements[candidate]);
+            copied = candidateStart + _lengths[candidate];
+
+            // Search again right after the replaced substring
+            i = copied;
+            state = 0;
+            candidate = -1;
+        }
+
+        if (buffer == null)
+        {
+            return value;
+        }
+        buffer.append(value, copied, length);
+        return buffer.toString();
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.dataset.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.dbunit.dataset.AbstractDataSet;
+import org.dbunit.dataset.AbstractTable;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultTableIterator;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableIterator;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.OrderedTableNameMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Dataset reading a file written by {@link BinaryDataSetWriter}. The file is memory
+ * mapped and only the table metadata is decoded up front. The rows of a block are
+ * decoded when a value of the block is first requested, so tests reading a few tables
+ * of a large file only pay for those.
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class BinaryDataSet extends AbstractDataSet
+{
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(BinaryDataSet.class);
+
+    private final OrderedTableNameMap _tables;
+
+    public BinaryDataSet(File file) throws DataSetException
+    {
+        this(file, false);
+    }
+
+    /**
+     * @param file The file to read
+     * @param caseSensitiveTableNames Whether or not case sensitive table names should be used
+     */
+    public BinaryDataSet(File file, boolean caseSensitiveTableNames) throws DataSetException
+    {
+        super(caseSensitiveTableNames);
+        _tables = createTableNameMap();
+
+        BinaryFormat format = new BinaryFormat(file);
+        BinaryTable table = null;
+        try
+        {
+            for (BinaryFormat.Block block = format.nextBlock();
+                    block.getType() != BinaryFormat.BLOCK_END; block = format.nextBlock())
+            {
+                if (block.getType() == BinaryFormat.BLOCK_TABLE)
+                {
+                    ITableMetaData metaData = BinaryFormat.readTableMetaData(block.getData());
+                    String tableName = metaData.getTableName();
+                    if (_tables.containsTable(tableName))
+                    {
+                        table = (BinaryTable)_tables.get(tableName);
+                    }
+                    else
+                    {
+                        table = new BinaryTable(metaData);
+                        _tables.add(tableName, table);
+                    }
+                }
+                else if (block.getType() == BinaryFormat.BLOCK_ROWS && table != null)
+                {
+                    table.addBlock(block);
+                }
+                else
+                {
+                    throw new DataSetException("Unexpected block type " + block.getType()
+                            + " in " + file);
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            throw new DataSetException("Cannot read binary dataset " + file, e);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // AbstractDataSet class
+
+    protected ITableIterator createIterator(boolean reversed) throws DataSetException
+    {
+        if(logger.isDebugEnabled())
+            logger.debug("createIterator(reversed={}) - start", String.valueOf(reversed));
+
+        ITable[] tables = (ITable[])_tables.orderedValues().toArray(new ITable[0]);
+        return new DefaultTableIterator(tables, reversed);
+    }
+
+    /**
+     * Table decoding the rows of a block on first access.
+     */
+    static class BinaryTable extends AbstractTable
+    {
+        private final ITableMetaData _metaData;
+        private final int _columnCount;
+        private final List _blocks = new ArrayList();
+        private int[] _blockStartRows = new int[4];
+        private int _rowCount = 0;
+
+        private int _cachedBlock = -1;
+        private Object[][] _cachedRows;
+
+        BinaryTable(ITableMetaData metaData) throws DataSetException
+        {
+            _metaData = metaData;
+            _columnCount = metaData.getColumns().length;
+        }
+
+        void addBlock(BinaryFormat.Block block)
+        {
+            int rowCount = block.getRowCount();
+            if (_blocks.size() == _blockStartRows.length)
+            {
+                int[] blockStartRows = new int[_blockStartRows.length * 2];
+                System.arraycopy(_blockStartRows, 0, blockStartRows, 0, _blockStartRows.length);
+                _blockStartRows = blockStartRows;
+            }
+            _blockStartRows[_blocks.size()] = _rowCount;
+            _blocks.add(block);
+            _rowCount += rowCount;
+        }
+
+        private Object[][] getBlockRows(int blockIndex) throws DataSetException
+        {
+            if (blockIndex == _cachedBlock)
+            {
+                return _cachedRows;
+            }
+
+            BinaryFormat.Block block = (BinaryFormat.Block)_blocks.get(blockIndex);
+            ByteBuffer data = block.getData();
+            Object[][] rows = new Object[block.getRowCount()][];
+            try
+            {
+                for (int i = 0; i < rows.length; i++)
+                {
+                    Object[] values = new Object[_columnCount];
+                    for (int j = 0; j < values.length; j++)
+                    {
+                        values[j] = ValueCodec.readValue(data, false);
+                    }
+                    rows[i] = values;
+                }
+            }
+            catch (IOException e)
+            {
+                throw new DataSetException("Cannot decode rows of table "
+                        + _metaData.getTableName(), e);
+            }
+            _cachedBlock = blockIndex;
+            _cachedRows = rows;
+            return rows;
+        }
+
+        private int findBlock(int row)
+        {
+            int low = 0;
+            int high = _blocks.size() - 1;
+            while (low < high)
+            {
+                int middle = (low + high + 1) >>> 1;
+                if (_blockStartRows[middle] <= row)
+                {
+                    low = middle;
+                }
+                else
+                {
+                    high = middle - 1;
+                }
+            }
+            return low;
+        }
+
+        ////////////////////////////////////////////////////////////////////////
+        // ITable interface
+
+        public ITableMetaData getTableMetaData()
+        {
+            return _metaData;
+        }
+
+        public int getRowCount()
+        {
+            return _rowCount;
+        }
+
+        public Object getValue(int row, String column) throws DataSetException
+        {
+            return getValue(row, getColumnIndex(column));
+        }
+
+        public Object getValue(int row, int column) throws DataSetException
+        {
+            assertValidRowIndex(row, _rowCount);
+            assertValidColumnIndex(column, _columnCount);
+
+            int blockIndex = findBlock(row);
+            return getBlockRows(blockIndex)[row - _blockStartRows[blockIndex]][column];
+        }
+
+        public String toString()
+        {
+            StringBuffer sb = new StringBuffer();
+            sb.append(getClass().getName()).append("[");
+            sb.append("_metaData=").append(_metaData);
+            sb.append(", _rowCount=").append(_rowCount);
+            sb.append(", _blocks.size()=").append(_blocks.size());
+            sb.append("]");
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.dataset.binary;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.dataset.stream.DataSetProducerAdapter;
+import org.dbunit.dataset.stream.IDataSetConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes a dataset in the binary format read by {@link BinaryProducer} and
+ * {@link BinaryDataSet}. Values of columns with a known {@link DataType} are type cast
+ * before being written, so that loading the dataset needs no text parsing. The rows of a
+ * table are written in blocks of {@link #getRowsPerBlock()} rows which are optionally
+ * deflated.
+ * <p>
+ * Only the values written natively by {@link ValueCodec} are supported. Other values are
+ * rejected rather than serialized, so that reading a binary dataset never deserializes
+ * Java objects.
+ * </p>
+ * <p>
+ * Any dataset can be converted, for example a flat XML dataset with column types:
+ * <pre>
+ * BinaryDataSetWriter.write(dataSet, new File("dataset.dbub"));
+ * </pre>
+ * </p>
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class BinaryDataSetWriter implements IDataSetConsumer
+{
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(BinaryDataSetWriter.class);
+
+    public static final int DEFAULT_ROWS_PER_BLOCK = 1024;
+    private static final int MAX_BLOCK_LENGTH = 1 << 20;
+
+    private final DataOutputStream _out;
+    private final boolean _deflate;
+    private int _rowsPerBlock = DEFAULT_ROWS_PER_BLOCK;
+
+    private final BinaryFormat.BlockBuffer _block = new BinaryFormat.BlockBuffer();
+    private final DataOutputStream _blockOut = new DataOutputStream(_block);
+    private byte[] _deflated = new byte[0];
+    private ITableMetaData _activeMetaData;
+    private DataType[] _dataTypes;
+    private int _blockRowCount;
+
+    /**
+     * Creates a writer which does not deflate blocks.
+     * @param out The stream to write to, which is flushed but not closed
+     */
+    public BinaryDataSetWriter(OutputStream out)
+    {
+        this(out, false);
+    }
+
+    /**
+     * @param out The stream to write to, which is flushed but not closed
+     * @param deflate Whether blocks are deflated
+     */
+    public BinaryDataSetWriter(OutputStream out, boolean deflate)
+    {
+        _out = new DataOutputStream(out);
+        _deflate = deflate;
+    }
+
+    /**
+     * @return The maximum number of rows per block
+     */
+    public int getRowsPerBlock()
+    {
+        return _rowsPerBlock;
+    }
+
+    /**
+     * @param rowsPerBlock The maximum number of rows per block. Blocks are also written
+     * once their data exceeds 1 MB.
+     */
+    public void setRowsPerBlock(int rowsPerBlock)
+    {
+        if (rowsPerBlock < 1)
+        {
+            throw new IllegalArgumentException("rowsPerBlock must be positive: " + rowsPerBlock);
+        }
+        _rowsPerBlock = rowsPerBlock;
+    }
+
+    /**
+     * Writes the given dataset.
+     */
+    public void write(IDataSet dataSet) throws DataSetException
+    {
+        logger.debug("write(dataSet={}) - start", dataSet);
+
+        DataSetProducerAdapter provider = new DataSetProducerAdapter(dataSet);
+        provider.setConsumer(this);
+        provider.produce();
+    }
+
+    /**
+     * Writes the given dataset to a file with deflated blocks.
+     */
+    public static void write(IDataSet dataSet, File file) throws DataSetException
+    {
+        write(dataSet, file, true);
+    }
+
+    /**
+     * Writes the given dataset to a file.
+     * @param dataSet The dataset to convert
+     * @param file The file to write
+     * @param deflate Whether blocks are deflated
+     */
+    public static void write(IDataSet dataSet, File file, boolean deflate) throws DataSetException
+    {
+        logger.debug("write(dataSet={}, file={}) - start", dataSet, file);
+
+        OutputStream out = null;
+        try
+        {
+            out = new BufferedOutputStream(new FileOutputStream(file));
+            new BinaryDataSetWriter(out, deflate).write(dataSet);
+        }
+        catch (IOException e)
+        {
+            throw new DataSetException("Cannot write binary dataset " + file, e);
+        }
+        finally
+        {
+            if (out != null)
+            {
+                try
+                {
+                    out.close();
+                }
+                catch (IOException e)
+                {
+                    logger.warn("Failed to close " + file, e);
+                }
+            }
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // IDataSetConsumer interface
+
+    public void startDataSet() throws DataSetException
+    {
+        logger.debug("startDataSet() - start");
+
+        try
+        {
+            _out.write(BinaryFormat.MAGIC);
+            _out.writeInt(BinaryFormat.VERSION);
+        }
+        catch (IOException e)
+        {
+            throw new DataSetException(e);
+        }
+    }
+
+    public void endDataSet() throws DataSetException
+    {
+        logger.debug("endDataSet() - start");
+
+        try
+        {
+            _block.reset();
+            writeBlock(BinaryFormat.BLOCK_END, 0);
+            _out.flush();
+        }
+        catch (IOException e)
+        {
+            throw new DataSetException(e);
+        }
+    }
+
+    public void startTable(ITableMetaData metaData) throws DataSetException
+    {
+        logger.debug("startTable(metaData={}) - start", metaData);
+
+        _activeMetaData = metaData;
+        Column[] columns = metaData.getColumns();
+        _dataTypes = new DataType[columns.length];
+        for (int i = 0; i < columns.length; i++)
+        {
+            _dataTypes[i] = columns[i].getDataType();
+        }
+
+        try
+        {
+            _block.reset();
+            BinaryFormat.writeTableMetaData(_blockOut, metaData);
+            writeBlock(BinaryFormat.BLOCK_TABLE, 0);
+            startRowsBlock();
+        }
+        catch (IOException e)
+        {
+            throw new DataSetException(e);
+        }
+    }
+
+    public void endTable() throws DataSetException
+    {
+        logger.debug("endTable() - start");
+
+        try
+        {
+            writeRowsBlock();
+        }
+        catch (IOException e)
+        {
+            throw new DataSetException(e);
+        }
+        _activeMetaData = null;
+        _dataTypes = null;
+    }
+
+    public void row(Object[] values) throws DataSetException
+    {
+        logger.debug("row(values={}) - start", values);
+
+        try
+        {
+            for (int i = 0; i < _dataTypes.length; i++)
+            {
+                Object value = i < values.length ? values[i] : null;
+                if (value != null && value != ITable.NO_VALUE && _dataTypes[i] != DataType.UNKNOWN)
+                {
+                    value = _dataTypes[i].typeCast(value);
+                }
+                try
+                {
+                    ValueCodec.writeValue(_blockOut, value, false);
+                }
+                catch (DataSetException e)
+                {
+                    throw new DataSetException("Cannot write column "
+                            + _activeMetaData.getColumns()[i].getColumnName() + " of table "
+                            + _activeMetaData.getTableName() + ": " + e.getMessage(), e);
+                }
+            }
+            _blockRowCount++;
+
+            if (_blockRowCount >= _rowsPerBlock || _block.size() >= MAX_BLOCK_LENGTH)
+            {
+                writeRowsBlock();
+                startRowsBlock();
+            }
+        }
+        catch (IOException e)
+        {
+            throw new DataSetException("Cannot write row of table "
+                    + _activeMetaData.getTableName(), e);
+        }
+    }
+
+    private void startRowsBlock()
+    {
+        _block.reset();
+        _blockRowCount = 0;
+    }
+
+    private void writeRowsBlock() throws IOException
+    {
+        if (_blockRowCount == 0)
+        {
+            return;
+        }
+        writeBlock(BinaryFormat.BLOCK_ROWS, _blockRowCount);
+        _blockRowCount = 0;
+    }
+
+    private void writeBlock(byte type, int rowCount) throws IOException
+    {
+        _blockOut.flush();
+        byte[] data = _block.getBuffer();
+        int length = _block.size();
+
+        if (_deflate && length > 0)
+        {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try
+            {
+                deflater.setInput(data, 0, length);
+                deflater.finish();
+                if (_deflated.length < length + 64)
+                {
+                    _deflated = new byte[length + length / 8 + 64];
+                }
+                int deflatedLength = 0;
+                while (!deflater.finished())
+                {
+                    if (deflatedLength == _deflated.length)
+                    {
+                        byte[] deflated = new byte[_deflated.length * 2];
+                        System.arraycopy(_deflated, 0, deflated, 0, deflatedLength);
+                        _deflated = deflated;
+                    }
+                    deflatedLength += deflater.deflate(_deflated, deflatedLength,
+                            _deflated.length - deflatedLength);
+                }
+                if (deflatedLength < length)
+                {
+                    writeBlock(type, BinaryFormat.FLAG_DEFLATED, rowCount, length, _deflated,
+                            deflatedLength);
+                    return;
+                }
+            }
+            finally
+            {
+                deflater.end();
+            }
+        }
+        writeBlock(type, (byte)0, rowCount, length, data, length);
+    }
+
+    private void writeBlock(byte type, byte flags, int rowCount, int length, byte[] data,
+            int storedLength) throws IOException
+    {
+        _out.writeByte(type);
+        _out.writeByte(flags);
+        _out.writeInt(rowCount);
+        _out.writeInt(length);
+        _out.writeInt(storedLength);
+        _out.write(data, 0, storedLength);
+    }
+}
@@ -0,0 +1,378 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.dataset.binary;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.sql.DatabaseMetaData;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultTableMetaData;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.datatype.DataType;
+
+/**
+ * Constants and block decoding of the binary dataset format.
+ * <p>
+ * A file starts with the {@link #MAGIC} bytes and the format {@link #VERSION}, followed by
+ * blocks. Each block consists of its type, flags, the number of rows it holds, the
+ * uncompressed and the stored length of its data and the data, which is deflated if the
+ * {@link #FLAG_DEFLATED} flag is set. A {@link #BLOCK_TABLE} block holds the metadata of a
+ * table and is followed by the {@link #BLOCK_ROWS} blocks of the table, each holding rows
+ * written with {@link ValueCodec}. The file ends with a {@link #BLOCK_END} block.
+ * </p>
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+class BinaryFormat
+{
+    static final byte[] MAGIC = new byte[] {'D', 'B', 'U', 'B'};
+    static final int VERSION = 1;
+
+    static final byte BLOCK_END = 0;
+    static final byte BLOCK_TABLE = 1;
+    static final byte BLOCK_ROWS = 2;
+
+    static final byte FLAG_DEFLATED = 1;
+
+    private static final int HEADER_LENGTH = MAGIC.length + 4;
+    private static final int BLOCK_HEADER_LENGTH = 14;
+
+    private final ByteBuffer _mapped;
+    private final DataInputStream _in;
+    private final String _source;
+
+    /**
+     * Reads the blocks of a memory mapped file.
+     */
+    BinaryFormat(File file) throws DataSetException
+    {
+        _source = file.getPath();
+        _in = null;
+        try
+        {
+            FileInputStream in = new FileInputStream(file);
+            try
+            {
+                FileChannel channel = in.getChannel();
+                if (channel.size() > Integer.MAX_VALUE)
+                {
+                    throw new DataSetException("The binary dataset " + file
+                            + " is too large to be mapped, read it from a stream instead");
+                }
+                _mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        catch (IOException e)
+        {
+            throw new DataSetException("Cannot read binary dataset " + file, e);
+        }
+        readHeader();
+    }
+
+    /**
+     * Reads the blocks of a stream.
+     */
+    BinaryFormat(InputStream in, String source) throws DataSetException
+    {
+        _source = source;
+        _mapped = null;
+        _in = new DataInputStream(in);
+        readHeader();
+    }
+
+    private void readHeader() throws DataSetException
+    {
+        byte[] magic = new byte[MAGIC.length];
+        int version;
+        try
+        {
+            if (_mapped != null)
+            {
+                if (_mapped.remaining() < HEADER_LENGTH)
+                {
+                    throw new EOFException();
+                }
+                _mapped.get(magic);
+                version = _mapped.getInt();
+            }
+            else
+            {
+                _in.readFully(magic);
+                version = _in.readInt();
+            }
+        }
+        catch (IOException e)
+        {
+            throw new DataSetException(_source + " is not a binary dataset", e);
+        }
+        for (int i = 0; i < magic.length; i++)
+        {
+            if (magic[i] != MAGIC[i])
+            {
+                throw new DataSetException(_source + " is not a binary dataset");
+            }
+        }
+        if (version != VERSION)
+        {
+            throw new DataSetException("Unsupported version " + version + " of binary dataset "
+                    + _source);
+        }
+    }
+
+    /**
+     * @return The next block, the data of which is not yet read if the file is mapped
+     */
+    Block nextBlock() throws DataSetException
+    {
+        try
+        {
+            byte type;
+            byte flags;
+            int rowCount;
+            int length;
+            int storedLength;
+            if (_mapped != null)
+            {
+                if (_mapped.remaining() < BLOCK_HEADER_LENGTH)
+                {
+                    throw new EOFException();
+                }
+                type = _mapped.get();
+                flags = _mapped.get();
+                rowCount = _mapped.getInt();
+                length = _mapped.getInt();
+                storedLength = _mapped.getInt();
+                ByteBuffer data = _mapped.slice();
+                data.limit(storedLength);
+                _mapped.position(_mapped.position() + storedLength);
+                return new Block(type, flags, rowCount, length, data);
+            }
+            type = _in.readByte();
+            flags = _in.readByte();
+            rowCount = _in.readInt();
+            length = _in.readInt();
+            storedLength = _in.readInt();
+            byte[] data = new byte[storedLength];
+            _in.readFully(data);
+            return new Block(type, flags, rowCount, length, ByteBuffer.wrap(data));
+        }
+        catch (IOException e)
+        {
+            throw new DataSetException("Unexpected end of binary dataset " + _source, e);
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new DataSetException("Unexpected end of binary dataset " + _source, e);
+        }
+    }
+
+    /**
+     * Writes the metadata of a table.
+     */
+    static void writeTableMetaData(DataOutputStream out, ITableMetaData metaData)
+            throws IOException, DataSetException
+    {
+        ValueCodec.writeString(out, metaData.getTableName());
+        Column[] columns = metaData.getColumns();
+        out.writeInt(columns.length);
+        for (int i = 0; i < columns.length; i++)
+        {
+            Column column = columns[i];
+            DataType dataType = column.getDataType();
+            ValueCodec.writeString(out, column.getColumnName());
+            ValueCodec.writeString(out, dataType.getClass().getName());
+            out.writeInt(dataType.getSqlType());
+            ValueCodec.writeValue(out, column.getSqlTypeName(), false);
+            out.writeByte(toInt(column.getNullable()));
+        }
+
+        Column[] primaryKeys = metaData.getPrimaryKeys();
+        out.writeInt(primaryKeys.length);
+        for (int i = 0; i < primaryKeys.length; i++)
+        {
+            ValueCodec.writeString(out, primaryKeys[i].getColumnName());
+        }
+    }
+
+    private static int toInt(Column.Nullable nullable)
+    {
+        if (nullable == Column.NO_NULLS)
+        {
+            return DatabaseMetaData.columnNoNulls;
+        }
+        if (nullable == Column.NULLABLE)
+        {
+            return DatabaseMetaData.columnNullable;
+        }
+        return DatabaseMetaData.columnNullableUnknown;
+    }
+
+    /**
+     * Reads the metadata of a table.
+     */
+    static ITableMetaData readTableMetaData(ByteBuffer data) throws IOException, DataSetException
+    {
+        String tableName = ValueCodec.readString(data);
+        Column[] columns = new Column[data.getInt()];
+        for (int i = 0; i < columns.length; i++)
+        {
+            String columnName = ValueCodec.readString(data);
+            String dataTypeClass = ValueCodec.readString(data);
+            int sqlType = data.getInt();
+            String sqlTypeName = (String)ValueCodec.readValue(data, false);
+            Column.Nullable nullable = Column.nullableValue(data.get());
+            columns[i] = new Column(columnName, toDataType(dataTypeClass, sqlType),
+                    sqlTypeName, nullable);
+        }
+
+        String[] primaryKeys = new String[data.getInt()];
+        for (int i = 0; i < primaryKeys.length; i++)
+        {
+            primaryKeys[i] = ValueCodec.readString(data);
+        }
+        return new DefaultTableMetaData(tableName, columns, primaryKeys);
+    }
+
+    /**
+     * @return The predefined data type of the given class and sql type or the default
+     * one of the sql type
+     */
+    private static DataType toDataType(String dataTypeClass, int sqlType) throws DataSetException
+    {
+        DataType dataType = DataType.forSqlType(sqlType);
+        if (!dataType.getClass().getName().equals(dataTypeClass)
+                && DataType.BIGINT_AUX_LONG.getClass().getName().equals(dataTypeClass))
+        {
+            return DataType.BIGINT_AUX_LONG;
+        }
+        return dataType;
+    }
+
+    /**
+     * A block of the format.
+     */
+    static class Block
+    {
+        private final byte _type;
+        private final byte _flags;
+        private final int _rowCount;
+        private final int _length;
+        private final ByteBuffer _storedData;
+
+        Block(byte type, byte flags, int rowCount, int length, ByteBuffer storedData)
+        {
+            _type = type;
+            _flags = flags;
+            _rowCount = rowCount;
+            _length = length;
+            _storedData = storedData;
+        }
+
+        byte getType()
+        {
+            return _type;
+        }
+
+        /**
+         * @return The number of rows of a {@link BinaryFormat#BLOCK_ROWS} block
+         */
+        int getRowCount()
+        {
+            return _rowCount;
+        }
+
+        /**
+         * @return The uncompressed data of the block, positioned at its start
+         */
+        ByteBuffer getData() throws DataSetException
+        {
+            if ((_flags & FLAG_DEFLATED) == 0)
+            {
+                return _storedData.duplicate();
+            }
+
+            ByteBuffer stored = _storedData.duplicate();
+            byte[] input = new byte[stored.remaining()];
+            stored.get(input);
+            Inflater inflater = new Inflater();
+            try
+            {
+                inflater.setInput(input);
+                byte[] data = new byte[_length];
+                int length = 0;
+                while (length < data.length && !inflater.finished())
+                {
+                    int inflated = inflater.inflate(data, length, data.length - length);
+                    if (inflated == 0 && inflater.needsInput())
+                    {
+                        break;
+                    }
+                    length += inflated;
+                }
+                if (length != data.length)
+                {
+                    throw new DataSetException("Corrupt block of binary dataset, expected "
+                            + data.length + " bytes but got " + length);
+                }
+                return ByteBuffer.wrap(data);
+            }
+            catch (DataFormatException e)
+            {
+                throw new DataSetException("Corrupt block of binary dataset", e);
+            }
+            finally
+            {
+                inflater.end();
+            }
+        }
+    }
+
+    /**
+     * Buffers the data of a block while it is written.
+     */
+    static class BlockBuffer extends ByteArrayOutputStream
+    {
+        byte[] getBuffer()
+        {
+            return buf;
+        }
+    }
+}
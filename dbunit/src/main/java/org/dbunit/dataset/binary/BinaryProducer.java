@@ -0,0 +1,143 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.dataset.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.stream.DefaultConsumer;
+import org.dbunit.dataset.stream.IDataSetConsumer;
+import org.dbunit.dataset.stream.IDataSetProducer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Produces a dataset written by {@link BinaryDataSetWriter}. Files are memory mapped and
+ * decoded block by block while the rows are sent to the consumer.
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class BinaryProducer implements IDataSetProducer
+{
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(BinaryProducer.class);
+
+    private static final IDataSetConsumer EMPTY_CONSUMER = new DefaultConsumer();
+
+    private final File _file;
+    private final InputStream _in;
+    private IDataSetConsumer _consumer = EMPTY_CONSUMER;
+
+    /**
+     * @param file The file to read, which is memory mapped
+     */
+    public BinaryProducer(File file)
+    {
+        _file = file;
+        _in = null;
+    }
+
+    /**
+     * @param in The stream to read, which is not closed
+     */
+    public BinaryProducer(InputStream in)
+    {
+        _file = null;
+        _in = in;
+    }
+
+    public void setConsumer(IDataSetConsumer consumer) throws DataSetException
+    {
+        logger.debug("setConsumer(consumer) - start");
+
+        _consumer = consumer;
+    }
+
+    public void produce() throws DataSetException
+    {
+        logger.debug("produce() - start");
+
+        BinaryFormat format = _file != null ?
+                new BinaryFormat(_file) : new BinaryFormat(_in, "stream");
+
+        _consumer.startDataSet();
+        int columnCount = -1;
+        try
+        {
+            for (BinaryFormat.Block block = format.nextBlock();
+                    block.getType() != BinaryFormat.BLOCK_END; block = format.nextBlock())
+            {
+                ByteBuffer data = block.getData();
+                if (block.getType() == BinaryFormat.BLOCK_TABLE)
+                {
+                    if (columnCount >= 0)
+                    {
+                        _consumer.endTable();
+                    }
+                    ITableMetaData metaData = BinaryFormat.readTableMetaData(data);
+                    columnCount = metaData.getColumns().length;
+                    _consumer.startTable(metaData);
+                }
+                else if (block.getType() == BinaryFormat.BLOCK_ROWS)
+                {
+                    if (columnCount < 0)
+                    {
+                        throw new DataSetException("Rows before the first table");
+                    }
+                    int rowCount = block.getRowCount();
+                    for (int i = 0; i < rowCount; i++)
+                    {
+                        Object[] values = new Object[columnCount];
+                        for (int j = 0; j < columnCount; j++)
+                        {
+                            values[j] = ValueCodec.readValue(data, false);
+                        }
+                        _consumer.row(values);
+                    }
+                }
+                else
+                {
+                    throw new DataSetException("Unknown block type " + block.getType());
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            throw new DataSetException(e);
+        }
+
+        if (columnCount >= 0)
+        {
+            _consumer.endTable();
+        }
+        _consumer.endDataSet();
+    }
+}
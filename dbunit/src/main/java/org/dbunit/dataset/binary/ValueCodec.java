@@ -0,0 +1,308 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.dataset.binary;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.sql.Time;
+import java.sql.Timestamp;
+
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.ITable;
+
+/**
+ * Writes and reads single values in a compact binary format keeping their class. Strings,
+ * numbers, booleans, dates, byte arrays, <code>null</code> and {@link ITable#NO_VALUE}
+ * are written natively. Other {@link Serializable} values are only supported when the
+ * caller allows it, because reading them runs Java deserialization on the stored bytes.
+ * This is only safe for data written and read by the same process, like the temporary
+ * files of {@link org.dbunit.dataset.SpillingTable}, and never for files which may come
+ * from elsewhere, like binary datasets.
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public final class ValueCodec
+{
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_NO_VALUE = 1;
+    private static final byte TYPE_STRING = 2;
+    private static final byte TYPE_INTEGER = 3;
+    private static final byte TYPE_LONG = 4;
+    private static final byte TYPE_DOUBLE = 5;
+    private static final byte TYPE_FLOAT = 6;
+    private static final byte TYPE_SHORT = 7;
+    private static final byte TYPE_BYTE = 8;
+    private static final byte TYPE_TRUE = 9;
+    private static final byte TYPE_FALSE = 10;
+    private static final byte TYPE_BIG_DECIMAL = 11;
+    private static final byte TYPE_BIG_INTEGER = 12;
+    private static final byte TYPE_TIMESTAMP = 13;
+    private static final byte TYPE_DATE = 14;
+    private static final byte TYPE_TIME = 15;
+    private static final byte TYPE_UTIL_DATE = 16;
+    private static final byte TYPE_BYTES = 17;
+    private static final byte TYPE_SERIALIZED = 18;
+
+    private ValueCodec()
+    {
+    }
+
+    /**
+     * Writes the given value.
+     * @param out The output
+     * @param value The value
+     * @param serializable Whether values which cannot be written natively are written
+     * with Java serialization
+     * @throws DataSetException If the value cannot be written
+     */
+    public static void writeValue(DataOutput out, Object value, boolean serializable)
+            throws IOException, DataSetException
+    {
+        if (value == null)
+        {
+            out.writeByte(TYPE_NULL);
+        }
+        else if (value == ITable.NO_VALUE)
+        {
+            out.writeByte(TYPE_NO_VALUE);
+        }
+        else if (value instanceof String)
+        {
+            out.writeByte(TYPE_STRING);
+            writeString(out, (String)value);
+        }
+        else if (value.getClass() == Integer.class)
+        {
+            out.writeByte(TYPE_INTEGER);
+            out.writeInt(((Integer)value).intValue());
+        }
+        else if (value.getClass() == Long.class)
+        {
+            out.writeByte(TYPE_LONG);
+            out.writeLong(((Long)value).longValue());
+        }
+        else if (value.getClass() == Double.class)
+        {
+            out.writeByte(TYPE_DOUBLE);
+            out.writeDouble(((Double)value).doubleValue());
+        }
+        else if (value.getClass() == Float.class)
+        {
+            out.writeByte(TYPE_FLOAT);
+            out.writeFloat(((Float)value).floatValue());
+        }
+        else if (value.getClass() == Short.class)
+        {
+            out.writeByte(TYPE_SHORT);
+            out.writeShort(((Short)value).shortValue());
+        }
+        else if (value.getClass() == Byte.class)
+        {
+            out.writeByte(TYPE_BYTE);
+            out.writeByte(((Byte)value).byteValue());
+        }
+        else if (value instanceof Boolean)
+        {
+            out.writeByte(((Boolean)value).booleanValue() ? TYPE_TRUE : TYPE_FALSE);
+        }
+        else if (value.getClass() == BigDecimal.class)
+        {
+            out.writeByte(TYPE_BIG_DECIMAL);
+            out.writeInt(((BigDecimal)value).scale());
+            writeBytes(out, ((BigDecimal)value).unscaledValue().toByteArray());
+        }
+        else if (value.getClass() == BigInteger.class)
+        {
+            out.writeByte(TYPE_BIG_INTEGER);
+            writeBytes(out, ((BigInteger)value).toByteArray());
+        }
+        else if (value.getClass() == Timestamp.class)
+        {
+            out.writeByte(TYPE_TIMESTAMP);
+            out.writeLong(((Timestamp)value).getTime());
+            out.writeInt(((Timestamp)value).getNanos());
+        }
+        else if (value.getClass() == java.sql.Date.class)
+        {
+            out.writeByte(TYPE_DATE);
+            out.writeLong(((java.util.Date)value).getTime());
+        }
+        else if (value.getClass() == Time.class)
+        {
+            out.writeByte(TYPE_TIME);
+            out.writeLong(((java.util.Date)value).getTime());
+        }
+        else if (value.getClass() == java.util.Date.class)
+        {
+            out.writeByte(TYPE_UTIL_DATE);
+            out.writeLong(((java.util.Date)value).getTime());
+        }
+        else if (value instanceof byte[])
+        {
+            out.writeByte(TYPE_BYTES);
+            writeBytes(out, (byte[])value);
+        }
+        else if (serializable && value instanceof Serializable)
+        {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream objectOut = new ObjectOutputStream(bytes);
+            objectOut.writeObject(value);
+            objectOut.close();
+            out.writeByte(TYPE_SERIALIZED);
+            writeBytes(out, bytes.toByteArray());
+        }
+        else
+        {
+            throw new DataSetException("Cannot write value of " + value.getClass());
+        }
+    }
+
+    /**
+     * Reads a value written by {@link #writeValue(DataOutput, Object, boolean)}.
+     * @param buffer The buffer positioned at the value
+     * @param serializable Whether serialized values are read. If <code>false</code> a
+     * serialized value is rejected without deserializing it.
+     * @throws DataSetException If the value cannot be read
+     */
+    public static Object readValue(ByteBuffer buffer, boolean serializable)
+            throws IOException, DataSetException
+    {
+        byte type = buffer.get();
+        switch (type)
+        {
+            case TYPE_NULL:
+                return null;
+            case TYPE_NO_VALUE:
+                return ITable.NO_VALUE;
+            case TYPE_STRING:
+                return readString(buffer);
+            case TYPE_INTEGER:
+                return new Integer(buffer.getInt());
+            case TYPE_LONG:
+                return new Long(buffer.getLong());
+            case TYPE_DOUBLE:
+                return new Double(buffer.getDouble());
+            case TYPE_FLOAT:
+                return new Float(buffer.getFloat());
+            case TYPE_SHORT:
+                return new Short(buffer.getShort());
+            case TYPE_BYTE:
+                return new Byte(buffer.get());
+            case TYPE_TRUE:
+                return Boolean.TRUE;
+            case TYPE_FALSE:
+                return Boolean.FALSE;
+            case TYPE_BIG_DECIMAL:
+                int scale = buffer.getInt();
+                return new BigDecimal(new BigInteger(readBytes(buffer)), scale);
+            case TYPE_BIG_INTEGER:
+                return new BigInteger(readBytes(buffer));
+            case TYPE_TIMESTAMP:
+                Timestamp timestamp = new Timestamp(buffer.getLong());
+                timestamp.setNanos(buffer.getInt());
+                return timestamp;
+            case TYPE_DATE:
+                return new java.sql.Date(buffer.getLong());
+            case TYPE_TIME:
+                return new Time(buffer.getLong());
+            case TYPE_UTIL_DATE:
+                return new java.util.Date(buffer.getLong());
+            case TYPE_BYTES:
+                return readBytes(buffer);
+            case TYPE_SERIALIZED:
+                if (!serializable)
+                {
+                    throw new DataSetException("Serialized values are not supported");
+                }
+                return readSerialized(readBytes(buffer));
+            default:
+                throw new DataSetException("Unknown value type " + type);
+        }
+    }
+
+    private static Object readSerialized(byte[] bytes) throws IOException, DataSetException
+    {
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+        try
+        {
+            return in.readObject();
+        }
+        catch (ClassNotFoundException e)
+        {
+            throw new DataSetException("Cannot read serialized value", e);
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Writes the length and the UTF-8 bytes of the given string.
+     */
+    public static void writeString(DataOutput out, String value) throws IOException
+    {
+        writeBytes(out, value.getBytes("UTF-8"));
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(DataOutput, String)}.
+     */
+    public static String readString(ByteBuffer buffer) throws IOException
+    {
+        int length = buffer.getInt();
+        if (buffer.hasArray())
+        {
+            String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                    length, "UTF-8");
+            buffer.position(buffer.position() + length);
+            return value;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    private static void writeBytes(DataOutput out, byte[] bytes) throws IOException
+    {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer)
+    {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
@@ -21,17 +21,16 @@
 
 package org.dbunit.dataset.csv;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.LineNumberReader;
 import java.io.Reader;
 import java.net.URL;
 import java.text.CharacterIterator;
 import java.text.StringCharacterIterator;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.dbunit.dataset.common.handlers.EscapeHandler;
@@ -94,7 +93,7 @@ public class CsvParserImpl implements CsvParser {
     public List parse(File file) throws IOException, CsvParserException {
         logger.debug("parse(file={}) - start", file);
 
-        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file)));
+        Reader reader = new InputStreamReader(new FileInputStream(file));
         try {
             return parse(reader, file.getAbsolutePath().toString());
         }
@@ -106,7 +105,7 @@ public class CsvParserImpl implements CsvParser {
     public List parse(URL url) throws IOException, CsvParserException {
         logger.debug("parse(url={}) - start", url);
 
-        BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream()));
+        Reader reader = new InputStreamReader(url.openStream());
         try {
             return parse(reader, url.toString());
         }
@@ -118,81 +117,55 @@ public class CsvParserImpl implements CsvParser {
     public List parse(Reader reader, String source) throws IOException, CsvParserException {
         logger.debug("parse(reader={}, source={}) - start", reader, source);
 
-        LineNumberReader lineNumberReader = new LineNumberReader(reader);
+        CsvRecordReader recordReader = new CsvRecordReader(reader, source);
         List rows = new ArrayList();
-        List columnsInFirstLine = parseFirstLine(lineNumberReader, source, rows);
-        parseTheData(columnsInFirstLine, lineNumberReader, rows);
+        String[] columnsInFirstLine = readFirstLine(recordReader, source);
+        rows.add(Arrays.asList(columnsInFirstLine));
+
+        String[] columns;
+        while ((columns = readRecord(recordReader, columnsInFirstLine.length)) != null) {
+            rows.add(Arrays.asList(columns));
+        }
         return rows;
     }
 
-//    private List parseFirstLine(LineNumberReader lineNumberReader, File file, List rows) throws IOException, CsvParserException {
-//        if(logger.isDebugEnabled())
-//            logger.debug("parseFirstLine(lineNumberReader={}, file={}, rows={}) - start", 
-//                new Object[]{lineNumberReader, file, rows} );
-//
-//    	return parseFirstLine(lineNumberReader, file.getAbsolutePath().toString(), rows);
-//    }
-
-    /** 
-     * parse the first line of data from the given source 
+    /**
+     * Reads the first line of the given source which contains the column names.
+     * @param recordReader The reader of the CSV records
+     * @param source The name of the source used in exception messages
+     * @return The column names
+     * @throws IOException
+     * @throws CsvParserException If the source is empty
+     * @since 2.5.1
      */
-    private List parseFirstLine(LineNumberReader lineNumberReader, String source, List rows) throws IOException, CsvParserException {
-        if(logger.isDebugEnabled())
-            logger.debug("parseFirstLine(lineNumberReader={}, source={}, rows={}) - start", 
-                new Object[]{lineNumberReader,source,rows});
-
-        String firstLine = lineNumberReader.readLine();
+    static String[] readFirstLine(CsvRecordReader recordReader, String source) throws IOException, CsvParserException {
+        String[] firstLine = recordReader.readRecord();
         if (firstLine == null)
             throw new CsvParserException("The first line of " + source + " is null");
-
-        final List columnsInFirstLine = parse(firstLine);
-        rows.add(columnsInFirstLine);
-        return columnsInFirstLine;
+        return firstLine;
     }
 
-    private void parseTheData(final List columnsInFirstLine, LineNumberReader lineNumberReader, List rows) throws IOException, CsvParserException {
-        logger.debug("parseTheData(columnsInFirstLine={}, lineNumberReader={}, rows={}) - start", 
-                new Object[] {columnsInFirstLine, lineNumberReader, rows} );
-
-        int nColumns = columnsInFirstLine.size();
-        List columns;
-        while ((columns = collectExpectedNumberOfColumns(nColumns, lineNumberReader)) != null) {
-            rows.add(columns);
-        }
-    }
-
-    private List collectExpectedNumberOfColumns(int expectedNumberOfColumns, LineNumberReader lineNumberReader) throws IOException, CsvParserException  {
-        if(logger.isDebugEnabled())
-            logger.debug("collectExpectedNumberOfColumns(expectedNumberOfColumns={}, lineNumberReader={}) - start",
-                String.valueOf(expectedNumberOfColumns), lineNumberReader);
-
-        List columns = null;
-        int columnsCollectedSoFar = 0;
-        StringBuffer buffer = new StringBuffer();
-        String anotherLine = lineNumberReader.readLine();
-        if(anotherLine == null)
-            return null;
-        boolean shouldProceed = false;
-        while (columnsCollectedSoFar < expectedNumberOfColumns) {
-            try {
-                buffer.append(anotherLine);
-                columns = parse(buffer.toString());
-                columnsCollectedSoFar = columns.size();
-            } catch (IllegalStateException e) {
-                resetThePipeline();
-                anotherLine = lineNumberReader.readLine();
-                if(anotherLine == null)
-                    break;
-                buffer.append("\n");
-                shouldProceed = true;
+    /**
+     * Reads the next record and checks that it has the expected number of columns.
+     * @param recordReader The reader of the CSV records
+     * @param expectedNumberOfColumns The number of columns of the first line
+     * @return The record or <code>null</code> at the end of the input
+     * @throws IOException
+     * @throws CsvParserException If the number of columns does not match
+     * @since 2.5.1
+     */
+    static String[] readRecord(CsvRecordReader recordReader, int expectedNumberOfColumns) throws IOException, CsvParserException {
+        String[] columns = recordReader.readRecord();
+        if (columns != null && columns.length != expectedNumberOfColumns) {
+            StringBuffer line = new StringBuffer();
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0)
+                    line.append(SeparatorHandler.DEFAULT_SEPARATOR_CHAR);
+                line.append(columns[i]);
             }
-            if (!shouldProceed)
-                break;
-        }
-        if (columnsCollectedSoFar != expectedNumberOfColumns) {
             String message = new StringBuffer("Expected ").append(expectedNumberOfColumns)
-                    .append(" columns on line ").append(lineNumberReader.getLineNumber())
-                    .append(", got ").append(columnsCollectedSoFar).append(". Offending line: ").append(buffer).toString();
+                    .append(" columns on line ").append(recordReader.getLineNumber())
+                    .append(", got ").append(columns.length).append(". Offending line: ").append(line).toString();
             throw new CsvParserException(message);
         }
         return columns;
@@ -23,9 +23,11 @@ package org.dbunit.dataset.csv;
 
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -35,8 +37,6 @@ import org.dbunit.dataset.Column;
 import org.dbunit.dataset.DataSetException;
 import org.dbunit.dataset.DefaultTableMetaData;
 import org.dbunit.dataset.ITableMetaData;
-import org.dbunit.dataset.common.handlers.IllegalInputCharacterException;
-import org.dbunit.dataset.common.handlers.PipelineException;
 import org.dbunit.dataset.datatype.DataType;
 import org.dbunit.dataset.stream.DefaultConsumer;
 import org.dbunit.dataset.stream.IDataSetConsumer;
@@ -108,36 +108,58 @@ public class CsvProducer implements IDataSetProducer {
         logger.debug("produceFromFile(theDataFile={}) - start", theDataFile);
 
         try {
-            CsvParser parser = new CsvParserImpl();
-            List readData = parser.parse(theDataFile);
-            List readColumns = ((List) readData.get(0));
-            Column[] columns = new Column[readColumns.size()];
+            String tableName = theDataFile.getName().substring(0, theDataFile.getName().indexOf(".csv"));
+            Reader reader = new InputStreamReader(new FileInputStream(theDataFile));
+            try {
+                produceTable(reader, theDataFile.getAbsolutePath(), tableName, true, _consumer);
+            }
+            finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            throw new DataSetException(e);
+        }
+    }
 
-            for (int i = 0; i < readColumns.size(); i++) {
-                String columnName = (String) readColumns.get(i);
+    /**
+     * Parses the CSV data of one table and sends each row to the consumer as soon as
+     * it has been read, so that only the current row is held in memory.
+     * @param reader The CSV data. The first line contains the column names.
+     * @param source The name of the source used in exception messages
+     * @param tableName The name of the table
+     * @param trimColumnNames Whether or not the column names are trimmed
+     * @param consumer The consumer receiving the table
+     * @throws IOException
+     * @throws DataSetException
+     * @throws CsvParserException If the CSV data is not valid
+     * @since 2.5.1
+     */
+    static void produceTable(Reader reader, String source, String tableName,
+            boolean trimColumnNames, IDataSetConsumer consumer)
+            throws IOException, DataSetException, CsvParserException {
+        CsvRecordReader recordReader = new CsvRecordReader(reader, source);
+        String[] readColumns = CsvParserImpl.readFirstLine(recordReader, source);
+        Column[] columns = new Column[readColumns.length];
+
+        for (int i = 0; i < readColumns.length; i++) {
+            String columnName = readColumns[i];
+            if (trimColumnNames) {
                 columnName = columnName.trim();
-                columns[i] = new Column(columnName, DataType.UNKNOWN);
             }
+            columns[i] = new Column(columnName, DataType.UNKNOWN);
+        }
 
-            String tableName = theDataFile.getName().substring(0, theDataFile.getName().indexOf(".csv"));
-            ITableMetaData metaData = new DefaultTableMetaData(tableName, columns);
-            _consumer.startTable(metaData);
-            for (int i = 1 ; i < readData.size(); i++) {
-                List rowList = (List)readData.get(i);
-                Object[] row = rowList.toArray();
-                for(int col = 0; col < row.length; col++) {
-                    row[col] = row[col].equals(CsvDataSetWriter.NULL) ? null : row[col];
-                }
-                _consumer.row(row);
+        ITableMetaData metaData = new DefaultTableMetaData(tableName, columns);
+        consumer.startTable(metaData);
+        String[] row;
+        while ((row = CsvParserImpl.readRecord(recordReader, columns.length)) != null) {
+            Object[] values = new Object[row.length];
+            for (int col = 0; col < row.length; col++) {
+                values[col] = CsvDataSetWriter.NULL.equals(row[col]) ? null : row[col];
             }
-            _consumer.endTable();
-        } catch (PipelineException e) {
-            throw new DataSetException(e);
-        } catch (IllegalInputCharacterException e) {
-            throw new DataSetException(e);
-        } catch (IOException e) {
-            throw new DataSetException(e);
+            consumer.row(values);
         }
+        consumer.endTable();
     }
 
 	/**
@@ -0,0 +1,272 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.dataset.csv;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.dbunit.dataset.common.handlers.EscapeHandler;
+import org.dbunit.dataset.common.handlers.QuoteHandler;
+import org.dbunit.dataset.common.handlers.SeparatorHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads CSV records one by one from a character stream in a single pass.
+ * <p>
+ * The syntax is the one accepted by the handler pipeline of {@link CsvParserImpl}:
+ * leading whitespace of a field is skipped, a field may be enclosed in double quotes
+ * in which case it may contain separators and line breaks, and the escape character
+ * (backslash) can be used to escape a double quote or itself. Unlike the pipeline, which
+ * re-parses the accumulated text whenever a quoted field spans multiple lines, this reader
+ * processes every character exactly once, so memory usage is bounded by the size of the
+ * current record instead of the size of the whole file.
+ * </p>
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class CsvRecordReader
+{
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(CsvRecordReader.class);
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /** At the start of a field or after a closing quote; whitespace is skipped */
+    private static final int STATE_START = 0;
+    /** Within a field that did not start with a quote */
+    private static final int STATE_UNQUOTED = 1;
+    /** Within a quoted field */
+    private static final int STATE_QUOTED = 2;
+
+    private final Reader _reader;
+    private final String _source;
+    private final char _separator;
+    private final char _escape;
+    private final char[] _buffer = new char[BUFFER_SIZE];
+    private int _position = 0;
+    private int _limit = 0;
+    private boolean _skipLineFeed = false;
+    private int _lineNumber = 0;
+
+    private final StringBuffer _field = new StringBuffer();
+    private final List _fields = new ArrayList();
+
+    /**
+     * Creates a reader using the default separator and escape characters.
+     * @param reader The character stream. It does not need to be buffered.
+     * @param source The name of the source used in exception messages
+     */
+    public CsvRecordReader(Reader reader, String source)
+    {
+        this(reader, source, SeparatorHandler.DEFAULT_SEPARATOR_CHAR, EscapeHandler.DEFAULT_ESCAPE_CHAR);
+    }
+
+    /**
+     * @param reader The character stream. It does not need to be buffered.
+     * @param source The name of the source used in exception messages
+     * @param separator The field separator character
+     * @param escape The escape character
+     */
+    public CsvRecordReader(Reader reader, String source, char separator, char escape)
+    {
+        if (reader == null) {
+            throw new NullPointerException("The parameter 'reader' must not be null");
+        }
+        _reader = reader;
+        _source = source;
+        _separator = separator;
+        _escape = escape;
+    }
+
+    /**
+     * @return The number of the last line that has been read
+     */
+    public int getLineNumber()
+    {
+        return _lineNumber;
+    }
+
+    /**
+     * Reads the next record.
+     * @return The fields of the next record or <code>null</code> if the end of the
+     * stream has been reached
+     * @throws IOException
+     * @throws CsvParserException If the input is not valid CSV
+     */
+    public String[] readRecord() throws IOException, CsvParserException
+    {
+        int c = read();
+        if (c == -1)
+        {
+            return null;
+        }
+
+        _lineNumber++;
+        _fields.clear();
+        _field.setLength(0);
+        int state = STATE_START;
+
+        for (; c != -1; c = read())
+        {
+            char ch = (char)c;
+
+            if (ch == _escape)
+            {
+                int next = read();
+                if (next == -1)
+                {
+                    // Dangling escape character at the end of the input is dropped
+                    break;
+                }
+                char nextChar = (char)next;
+                if (nextChar == QuoteHandler.QUOTE_CHAR || nextChar == _escape)
+                {
+                    _field.append(nextChar);
+                    continue;
+                }
+                if (state != STATE_QUOTED && (nextChar == '\n' || nextChar == '\r'))
+                {
+                    // Escape character at the end of a line is dropped
+                    ch = nextChar;
+                }
+                else
+                {
+                    throw new CsvParserException("Character '" + nextChar + "' cannot be escaped on line "
+                            + _lineNumber + " of " + _source);
+                }
+            }
+
+            if (state == STATE_QUOTED)
+            {
+                if (ch == QuoteHandler.QUOTE_CHAR)
+                {
+                    state = STATE_START;
+                }
+                else if (ch == '\n' || ch == '\r')
+                {
+                    // Line breaks within quoted fields are normalized to '\n'
+                    _skipLineFeed = ch == '\r';
+                    _lineNumber++;
+                    _field.append('\n');
+                }
+                else
+                {
+                    _field.append(ch);
+                }
+            }
+            else if (ch == '\n' || ch == '\r')
+            {
+                _skipLineFeed = ch == '\r';
+                return endRecord();
+            }
+            else if (ch == _separator)
+            {
+                endField();
+                state = STATE_START;
+            }
+            else if (state == STATE_START)
+            {
+                if (ch == QuoteHandler.QUOTE_CHAR)
+                {
+                    state = STATE_QUOTED;
+                }
+                else if (!Character.isWhitespace(ch))
+                {
+                    _field.append(ch);
+                    state = STATE_UNQUOTED;
+                }
+            }
+            else
+            {
+                _field.append(ch);
+            }
+        }
+
+        if (state == STATE_QUOTED)
+        {
+            throw new CsvParserException("End of input while waiting for a closing quote on line "
+                    + _lineNumber + " of " + _source + ". Offending field: " + _field);
+        }
+        return endRecord();
+    }
+
+    private void endField()
+    {
+        _fields.add(_field.toString());
+        _field.setLength(0);
+    }
+
+    private String[] endRecord()
+    {
+        endField();
+        return (String[])_fields.toArray(new String[_fields.size()]);
+    }
+
+    /**
+     * @return The next character or -1 at the end of the stream. A line feed following
+     * a carriage return is skipped.
+     * @throws IOException
+     */
+    private int read() throws IOException
+    {
+        if (_position >= _limit)
+        {
+            _limit = _reader.read(_buffer, 0, _buffer.length);
+            _position = 0;
+            if (_limit <= 0)
+            {
+                _limit = 0;
+                return -1;
+            }
+        }
+
+        char c = _buffer[_position++];
+        if (_skipLineFeed)
+        {
+            _skipLineFeed = false;
+            if (c == '\n')
+            {
+                return read();
+            }
+        }
+        return c;
+    }
+
+    /**
+     * Closes the underlying reader.
+     * @throws IOException
+     */
+    public void close() throws IOException
+    {
+        logger.debug("close() - start");
+
+        _reader.close();
+    }
+}
@@ -24,15 +24,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.URL;
 import java.util.Iterator;
 import java.util.List;
 
-import org.dbunit.dataset.Column;
 import org.dbunit.dataset.DataSetException;
-import org.dbunit.dataset.DefaultTableMetaData;
-import org.dbunit.dataset.ITableMetaData;
-import org.dbunit.dataset.datatype.DataType;
 import org.dbunit.dataset.stream.DefaultConsumer;
 import org.dbunit.dataset.stream.IDataSetConsumer;
 import org.dbunit.dataset.stream.IDataSetProducer;
@@ -125,30 +123,15 @@ public class CsvURLProducer implements IDataSetProducer {
         logger.debug("produceFromURL(url=" + url + ") - start");
 
         try {
-            CsvParser parser = new CsvParserImpl();
-            List readData = parser.parse(url);
-            List readColumns = (List) readData.get(0);
-            Column[] columns = new Column[readColumns.size()];
-
-            for (int i = 0; i < readColumns.size(); i++) {
-                columns[i] = new Column((String) readColumns.get(i), DataType.UNKNOWN);
-            }
-
             String tableName = url.getFile();
             tableName = tableName.substring(tableName.lastIndexOf("/")+1, tableName.indexOf(".csv"));
-            ITableMetaData metaData = new DefaultTableMetaData(tableName, columns);
-            _consumer.startTable(metaData);
-            for (int i = 1 ; i < readData.size(); i++) {
-                List rowList = (List)readData.get(i);
-                Object[] row = rowList.toArray();
-                for(int col = 0; col < row.length; col++) {
-                	if (CsvDataSetWriter.NULL.equals(row[col])) {
-                		row[col] = null;
-                	}
-                }
-                _consumer.row(row);
+            Reader reader = new InputStreamReader(url.openStream());
+            try {
+                CsvProducer.produceTable(reader, url.toString(), tableName, false, _consumer);
+            }
+            finally {
+                reader.close();
             }
-            _consumer.endTable();
         } catch (CsvParserException e) {
         	throw new DataSetException("error parsing CSV for URL: '" + url + "'", e);
 		} catch (IOException e) {
@@ -0,0 +1,448 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.dataset.excel;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.poi.hssf.eventusermodel.AbortableHSSFListener;
+import org.apache.poi.hssf.eventusermodel.FormatTrackingHSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
+import org.apache.poi.hssf.eventusermodel.HSSFRequest;
+import org.apache.poi.hssf.eventusermodel.HSSFUserException;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BlankRecord;
+import org.apache.poi.hssf.record.BoolErrRecord;
+import org.apache.poi.hssf.record.BoundSheetRecord;
+import org.apache.poi.hssf.record.CellValueRecordInterface;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.RowRecord;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.hssf.usermodel.HSSFDateUtil;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultTableMetaData;
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.dataset.datatype.DataTypeException;
+import org.dbunit.dataset.stream.DefaultConsumer;
+import org.dbunit.dataset.stream.IDataSetConsumer;
+import org.dbunit.dataset.stream.IDataSetProducer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Produces the sheets of an XLS file using the event API of POI. In contrast to
+ * {@link XlsDataSet} no workbook object model is built: each row is sent to the
+ * consumer as soon as its last cell has been read, so that only the current row
+ * and the shared string table are held besides the raw file content.
+ * <p>
+ * The sheets are interpreted like {@link XlsDataSet} does: the first row holds the
+ * column names and each following row, including empty ones, is a table row. Use it
+ * with a {@link org.dbunit.dataset.StreamingDataSet} to insert large spreadsheets.
+ * </p>
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class XlsProducer implements IDataSetProducer
+{
+
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(XlsProducer.class);
+
+    private static final IDataSetConsumer EMPTY_CONSUMER = new DefaultConsumer();
+
+    private IDataSetConsumer _consumer = EMPTY_CONSUMER;
+    private final File _file;
+    private final InputStream _inputStream;
+
+    /**
+     * @param file The XLS file to read
+     */
+    public XlsProducer(File file)
+    {
+        _file = file;
+        _inputStream = null;
+    }
+
+    /**
+     * @param inputStream The XLS content to read. It is not closed by this producer.
+     */
+    public XlsProducer(InputStream inputStream)
+    {
+        _file = null;
+        _inputStream = inputStream;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // IDataSetProducer interface
+
+    public void setConsumer(IDataSetConsumer consumer) throws DataSetException
+    {
+        logger.debug("setConsumer(consumer) - start");
+
+        _consumer = consumer;
+    }
+
+    public void produce() throws DataSetException
+    {
+        logger.debug("produce() - start");
+
+        try
+        {
+            POIFSFileSystem fileSystem;
+            if (_file != null)
+            {
+                InputStream in = new FileInputStream(_file);
+                try
+                {
+                    fileSystem = new POIFSFileSystem(in);
+                }
+                finally
+                {
+                    in.close();
+                }
+            }
+            else
+            {
+                fileSystem = new POIFSFileSystem(_inputStream);
+            }
+
+            SheetListener listener = new SheetListener(_consumer);
+            HSSFRequest request = new HSSFRequest();
+            request.addListenerForAllRecords(listener);
+
+            _consumer.startDataSet();
+            new HSSFEventFactory().abortableProcessWorkbookEvents(request, fileSystem);
+            _consumer.endDataSet();
+        }
+        catch (HSSFUserException e)
+        {
+            if (e.getReason() instanceof DataSetException)
+            {
+                throw (DataSetException)e.getReason();
+            }
+            throw new DataSetException(e);
+        }
+        catch (IOException e)
+        {
+            throw new DataSetException(e);
+        }
+    }
+
+    /**
+     * Receives the records of the workbook and converts the cells of each
+     * worksheet to rows.
+     */
+    private static class SheetListener extends AbortableHSSFListener
+    {
+        private final IDataSetConsumer _consumer;
+        private final FormatTrackingHSSFListener _formats = new FormatTrackingHSSFListener(null);
+        private final DecimalFormatSymbols _symbols = new DecimalFormatSymbols();
+
+        private final List _boundSheets = new ArrayList();
+        private BoundSheetRecord[] _orderedSheets;
+        private SSTRecord _sst;
+
+        /** Nesting of the BOF/EOF substreams, charts embedded in a worksheet are nested. */
+        private int _depth = 0;
+        private int _sheetIndex = 0;
+        private boolean _inWorksheet;
+
+        private String _sheetName;
+        private List _columnNames;
+        private Column[] _columns;
+        /** The sheet row index of the row collected in {@link #_values} */
+        private int _currentRow;
+        private Object[] _values;
+        private int _lastRow;
+
+        public SheetListener(IDataSetConsumer consumer)
+        {
+            _consumer = consumer;
+            // Needed for later "BigDecimal"/"Number" conversion
+            _symbols.setDecimalSeparator('.');
+        }
+
+        public short abortableProcessRecord(Record record) throws HSSFUserException
+        {
+            try
+            {
+                processRecord0(record);
+            }
+            catch (DataSetException e)
+            {
+                throw new HSSFUserException(e);
+            }
+            return 0;
+        }
+
+        private void processRecord0(Record record) throws DataSetException
+        {
+            _formats.processRecordInternally(record);
+
+            switch (record.getSid())
+            {
+                case BOFRecord.sid:
+                    _depth++;
+                    BOFRecord bof = (BOFRecord)record;
+                    if (_depth == 1 && bof.getType() != BOFRecord.TYPE_WORKBOOK)
+                    {
+                        String sheetName = getSheetName(_sheetIndex++);
+                        if (bof.getType() == BOFRecord.TYPE_WORKSHEET)
+                        {
+                            startSheet(sheetName);
+                        }
+                    }
+                    return;
+
+                case EOFRecord.sid:
+                    _depth--;
+                    if (_depth == 0 && _inWorksheet)
+                    {
+                        endSheet();
+                    }
+                    return;
+
+                case BoundSheetRecord.sid:
+                    _boundSheets.add(record);
+                    return;
+
+                case SSTRecord.sid:
+                    _sst = (SSTRecord)record;
+                    return;
+
+                default:
+                    break;
+            }
+
+            if (_depth != 1 || !_inWorksheet)
+            {
+                return;
+            }
+
+            if (record instanceof RowRecord)
+            {
+                // Row records announce rows which might not have any cells
+                _lastRow = Math.max(_lastRow, ((RowRecord)record).getRowNumber());
+            }
+            else if (record instanceof CellValueRecordInterface)
+            {
+                processCell((CellValueRecordInterface)record);
+            }
+        }
+
+        private String getSheetName(int index) throws DataSetException
+        {
+            if (_orderedSheets == null)
+            {
+                _orderedSheets = BoundSheetRecord.orderByBofPosition(_boundSheets);
+            }
+            if (index >= _orderedSheets.length)
+            {
+                throw new DataSetException("The workbook has more sheets than sheet names");
+            }
+            return _orderedSheets[index].getSheetname();
+        }
+
+        private void startSheet(String sheetName)
+        {
+            logger.debug("startSheet(sheetName={}) - start", sheetName);
+
+            _inWorksheet = true;
+            _sheetName = sheetName;
+            _columnNames = new ArrayList();
+            _columns = null;
+            _currentRow = 0;
+            _values = null;
+            _lastRow = 0;
+        }
+
+        private void endSheet() throws DataSetException
+        {
+            startTable();
+            flushRows(_lastRow + 1);
+            _consumer.endTable();
+            _inWorksheet = false;
+        }
+
+        private void processCell(CellValueRecordInterface cell) throws DataSetException
+        {
+            int row = cell.getRow();
+            int column = cell.getColumn();
+            _lastRow = Math.max(_lastRow, row);
+
+            if (row == 0)
+            {
+                addColumnName(cell, column);
+                return;
+            }
+
+            startTable();
+            if (row < _currentRow)
+            {
+                throw new DataSetException("The cells of sheet '" + _sheetName
+                        + "' are not ordered by row at row=" + (row - 1));
+            }
+            flushRows(row);
+            if (column < _columns.length)
+            {
+                _values[column] = getCellValue(cell, row - 1, _columns[column].getColumnName());
+            }
+        }
+
+        private void addColumnName(CellValueRecordInterface cell, int column)
+                throws DataSetException
+        {
+            String columnName;
+            if (cell instanceof LabelSSTRecord)
+            {
+                columnName = _sst.getString(((LabelSSTRecord)cell).getSSTIndex()).getString();
+            }
+            else if (cell instanceof LabelRecord)
+            {
+                columnName = ((LabelRecord)cell).getValue();
+            }
+            else if (cell instanceof BlankRecord)
+            {
+                columnName = "";
+            }
+            else
+            {
+                throw new DataSetException("The column name of column # " + column
+                        + " of sheet '" + _sheetName + "' is not a text");
+            }
+
+            while (_columnNames.size() <= column)
+            {
+                _columnNames.add(null);
+            }
+            _columnNames.set(column, columnName.trim());
+        }
+
+        /**
+         * Sends the table metadata to the consumer once the header row is complete.
+         */
+        private void startTable() throws DataSetException
+        {
+            if (_columns != null)
+            {
+                return;
+            }
+
+            List columnList = new ArrayList();
+            for (int i = 0; i < _columnNames.size(); i++)
+            {
+                String columnName = (String)_columnNames.get(i);
+                // A cell which has a formatting but no name ends the columns like a missing one
+                if (columnName == null || columnName.length() <= 0)
+                {
+                    break;
+                }
+                columnList.add(new Column(columnName, DataType.UNKNOWN));
+            }
+            _columns = (Column[])columnList.toArray(new Column[0]);
+            _columnNames = null;
+            _consumer.startTable(new DefaultTableMetaData(_sheetName, _columns));
+            _currentRow = 1;
+            _values = new Object[_columns.length];
+        }
+
+        /**
+         * Sends all rows before the given sheet row to the consumer.
+         */
+        private void flushRows(int row) throws DataSetException
+        {
+            while (_currentRow < row)
+            {
+                _consumer.row(_values);
+                _values = new Object[_columns.length];
+                _currentRow++;
+            }
+        }
+
+        private Object getCellValue(CellValueRecordInterface cell, int row, String column)
+                throws DataSetException
+        {
+            if (cell instanceof NumberRecord)
+            {
+                double value = ((NumberRecord)cell).getValue();
+                String formatString = _formats.getFormatString(cell);
+                if (HSSFDateUtil.isValidExcelDate(value)
+                        && HSSFDateUtil.isADateFormat(_formats.getFormatIndex(cell), formatString))
+                {
+                    return XlsTable.toDateValue(value);
+                }
+                else if (XlsTable.isDbUnitDateFormat(formatString))
+                {
+                    // The special dbunit date format
+                    return XlsTable.toDateValueFromJavaNumber(value);
+                }
+                return XlsTable.toNumericValue(value, formatString, _symbols);
+            }
+            else if (cell instanceof LabelSSTRecord)
+            {
+                return _sst.getString(((LabelSSTRecord)cell).getSSTIndex()).getString();
+            }
+            else if (cell instanceof LabelRecord)
+            {
+                return ((LabelRecord)cell).getValue();
+            }
+            else if (cell instanceof BlankRecord)
+            {
+                return null;
+            }
+            else if (cell instanceof BoolErrRecord)
+            {
+                BoolErrRecord boolErr = (BoolErrRecord)cell;
+                if (boolErr.isBoolean())
+                {
+                    return boolErr.getBooleanValue() ? Boolean.TRUE : Boolean.FALSE;
+                }
+                throw new DataTypeException("Error at row=" + row +
+                        ", column=" + column);
+            }
+            else if (cell instanceof FormulaRecord)
+            {
+                throw new DataTypeException("Formula not supported at row=" +
+                        row + ", column=" + column);
+            }
+            throw new DataTypeException("Unsupported type at row=" + row +
+                    ", column=" + column);
+        }
+    }
+}
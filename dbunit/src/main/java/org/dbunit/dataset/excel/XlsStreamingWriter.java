@@ -0,0 +1,850 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.dataset.excel;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BoundSheetRecord;
+import org.apache.poi.hssf.record.ContinueRecord;
+import org.apache.poi.hssf.record.DimensionsRecord;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.ExtSSTRecord;
+import org.apache.poi.hssf.record.IndexRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.RecordFactory;
+import org.apache.poi.hssf.record.RowRecord;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.hssf.usermodel.HSSFCellStyle;
+import org.apache.poi.hssf.usermodel.HSSFDataFormat;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.poifs.filesystem.POIFSWriterEvent;
+import org.apache.poi.poifs.filesystem.POIFSWriterListener;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.dataset.datatype.TypeCastException;
+import org.dbunit.dataset.stream.DataSetProducerAdapter;
+import org.dbunit.dataset.stream.IDataSetConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes a dataset to an XLS document while it is consumed, producing the same
+ * content as {@link XlsDataSetWriter}. Instead of building a workbook object model
+ * the cell records are spooled to a temporary file as the rows arrive, together
+ * with the distinct strings. Only a block of 32 rows is held in memory. The document
+ * is assembled from the spool files when the dataset ends.
+ * <p>
+ * A small workbook only holding the cell styles and one empty sheet per table
+ * provides the workbook globals and the sheet records around the cells.
+ * </p>
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class XlsStreamingWriter implements IDataSetConsumer
+{
+
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(XlsStreamingWriter.class);
+
+    /**
+     * The maximum number of rows of a sheet including the header row
+     */
+    public static final int MAX_ROWS = 65536;
+
+    /**
+     * The maximum number of columns of a sheet
+     */
+    public static final int MAX_COLUMNS = 256;
+
+    /** The number of rows written as one block of row records followed by their cells */
+    private static final int ROWS_PER_BLOCK = 32;
+    /** The maximum size of the data of one record, larger records need continue records */
+    private static final int MAX_RECORD_DATA = 8224;
+    private static final int MAX_STRING_LENGTH = 0xFFFF;
+    /** The number of recently written strings which are not spooled again */
+    private static final int STRING_CACHE_SIZE = 1024;
+    /** The index of the default cell style of a new workbook */
+    private static final short DEFAULT_CELL_STYLE = 0x0F;
+
+    private final OutputStream _out;
+
+    private HSSFWorkbook _styles;
+    private short _dateStyle;
+    private Map _numericStyles;
+
+    private File _cellFile;
+    private OutputStream _cellOut;
+    private File _stringFile;
+    private OutputStream _stringOut;
+    private Map _stringIndexes;
+    private int _uniqueStringCount;
+    private int _stringCount;
+
+    private List _sheets;
+    private SheetInfo _activeSheet;
+    private Column[] _activeColumns;
+    private final ByteArrayOutputStream _rowBlock = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream _cellBlock = new ByteArrayOutputStream();
+    private int _blockRowCount;
+
+    private final byte[] _buffer = new byte[32];
+    private final NumberRecord _numberRecord = new NumberRecord();
+    private final LabelSSTRecord _labelRecord = new LabelSSTRecord();
+
+    /**
+     * @param out The stream the XLS document is written to. It is flushed but not closed.
+     */
+    public XlsStreamingWriter(OutputStream out)
+    {
+        _out = out;
+    }
+
+    /**
+     * Writes the given dataset.
+     */
+    public void write(IDataSet dataSet) throws DataSetException
+    {
+        logger.debug("write(dataSet={}) - start", dataSet);
+
+        DataSetProducerAdapter provider = new DataSetProducerAdapter(dataSet);
+        provider.setConsumer(this);
+        provider.produce();
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // IDataSetConsumer interface
+
+    public void startDataSet() throws DataSetException
+    {
+        logger.debug("startDataSet() - start");
+
+        deleteSpoolFiles();
+        try
+        {
+            _styles = new HSSFWorkbook();
+            _dateStyle = XlsDataSetWriter.createDateCellStyle(_styles).getIndex();
+            _numericStyles = new HashMap();
+
+            _cellFile = createSpoolFile();
+            _cellOut = new BufferedOutputStream(new FileOutputStream(_cellFile));
+            _stringFile = createSpoolFile();
+            _stringOut = new BufferedOutputStream(new FileOutputStream(_stringFile));
+            _stringIndexes = new LinkedHashMap(16, 0.75f, true)
+            {
+                protected boolean removeEldestEntry(Map.Entry eldest)
+                {
+                    return size() > STRING_CACHE_SIZE;
+                }
+            };
+            _uniqueStringCount = 0;
+            _stringCount = 0;
+            _sheets = new ArrayList();
+        }
+        catch (IOException e)
+        {
+            throw new DataSetException(e);
+        }
+    }
+
+    public void endDataSet() throws DataSetException
+    {
+        logger.debug("endDataSet() - start");
+
+        try
+        {
+            _cellOut.close();
+            _stringOut.close();
+            writeDocument();
+            _out.flush();
+        }
+        catch (IOException e)
+        {
+            throw new DataSetException(e);
+        }
+        finally
+        {
+            deleteSpoolFiles();
+        }
+    }
+
+    public void startTable(ITableMetaData metaData) throws DataSetException
+    {
+        logger.debug("startTable(metaData={}) - start", metaData);
+
+        String tableName = metaData.getTableName();
+        Column[] columns = metaData.getColumns();
+        if (columns.length > MAX_COLUMNS)
+        {
+            throw new DataSetException("The table '" + tableName + "' has " + columns.length
+                    + " columns, an XLS sheet is limited to " + MAX_COLUMNS);
+        }
+
+        _styles.createSheet(tableName);
+        _activeSheet = new SheetInfo();
+        _activeSheet.columnCount = columns.length;
+        _activeColumns = columns;
+        _blockRowCount = 0;
+
+        // write table metadata i.e. first row in sheet
+        Object[] columnNames = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++)
+        {
+            columnNames[i] = columns[i].getColumnName();
+        }
+        row(columnNames);
+    }
+
+    public void endTable() throws DataSetException
+    {
+        logger.debug("endTable() - start");
+
+        flushBlock();
+        _sheets.add(_activeSheet);
+        _activeSheet = null;
+        _activeColumns = null;
+    }
+
+    public void row(Object[] values) throws DataSetException
+    {
+        logger.debug("row(values={}) - start", values);
+
+        int row = _activeSheet.rowCount;
+        if (row >= MAX_ROWS)
+        {
+            throw new DataSetException("The table '" + _styles.getSheetName(_sheets.size())
+                    + "' has more rows than the " + MAX_ROWS + " of an XLS sheet");
+        }
+
+        int firstColumn = -1;
+        int lastColumn = -1;
+        for (int i = 0; i < _activeColumns.length; i++)
+        {
+            Object value = values[i];
+            if (value == null)
+            {
+                continue;
+            }
+            if (firstColumn < 0)
+            {
+                firstColumn = i;
+            }
+            lastColumn = i;
+            writeCell(row, i, value);
+        }
+
+        RowRecord rowRecord = new RowRecord(row);
+        rowRecord.setFirstCol((short)(firstColumn < 0 ? 0 : firstColumn));
+        rowRecord.setLastCol((short)(lastColumn + 1));
+        _rowBlock.write(_buffer, 0, rowRecord.serialize(0, _buffer));
+
+        _activeSheet.rowCount++;
+        if (++_blockRowCount == ROWS_PER_BLOCK)
+        {
+            flushBlock();
+        }
+    }
+
+    private void writeCell(int row, int column, Object value) throws DataSetException
+    {
+        if (value instanceof Date)
+        {
+            writeNumber(row, column, ((Date)value).getTime(), _dateStyle);
+        }
+        else if (value instanceof BigDecimal)
+        {
+            BigDecimal number = (BigDecimal)value;
+            writeNumber(row, column, number.doubleValue(), getNumericStyle(number.scale()));
+        }
+        else if (value instanceof Long)
+        {
+            writeNumber(row, column, ((Long)value).longValue(), _dateStyle);
+        }
+        else
+        {
+            String string;
+            try
+            {
+                string = DataType.asString(value);
+            }
+            catch (TypeCastException e)
+            {
+                throw new DataSetException(e);
+            }
+            _labelRecord.setRow(row);
+            _labelRecord.setColumn((short)column);
+            _labelRecord.setXFIndex(DEFAULT_CELL_STYLE);
+            _labelRecord.setSSTIndex(getStringIndex(string));
+            _cellBlock.write(_buffer, 0, _labelRecord.serialize(0, _buffer));
+        }
+    }
+
+    private void writeNumber(int row, int column, double value, short style)
+    {
+        _numberRecord.setRow(row);
+        _numberRecord.setColumn((short)column);
+        _numberRecord.setXFIndex(style);
+        _numberRecord.setValue(value);
+        _cellBlock.write(_buffer, 0, _numberRecord.serialize(0, _buffer));
+    }
+
+    private short getNumericStyle(int scale)
+    {
+        Integer key = new Integer(Math.max(scale, 0));
+        Short style = (Short)_numericStyles.get(key);
+        if (style == null)
+        {
+            HSSFDataFormat df = _styles.createDataFormat();
+            short format;
+            if (scale <= 0)
+            {
+                format = df.getFormat("####");
+            }
+            else
+            {
+                String zeros = XlsDataSetWriter.ZEROS.substring(0,
+                        Math.min(scale, XlsDataSetWriter.ZEROS.length()));
+                format = df.getFormat("####." + zeros);
+            }
+            HSSFCellStyle cellStyle = _styles.createCellStyle();
+            cellStyle.setDataFormat(format);
+            style = new Short(cellStyle.getIndex());
+            _numericStyles.put(key, style);
+        }
+        return style.shortValue();
+    }
+
+    /**
+     * @return The index of the given string in the shared string table. Strings which
+     * are not found in the cache of recent strings are appended to the string spool.
+     */
+    private int getStringIndex(String value) throws DataSetException
+    {
+        _stringCount++;
+        Integer index = (Integer)_stringIndexes.get(value);
+        if (index != null)
+        {
+            return index.intValue();
+        }
+
+        int length = value.length();
+        if (length > MAX_STRING_LENGTH)
+        {
+            throw new DataSetException("The string value starting with '"
+                    + value.substring(0, 20) + "' is longer than the "
+                    + MAX_STRING_LENGTH + " characters of an XLS cell");
+        }
+        boolean compressed = true;
+        for (int i = 0; i < length && compressed; i++)
+        {
+            compressed = value.charAt(i) < 0x100;
+        }
+
+        try
+        {
+            // The string is stored like in the shared string table, the length
+            // followed by the option flags and the 8 or 16 bit characters
+            _stringOut.write(length);
+            _stringOut.write(length >>> 8);
+            _stringOut.write(compressed ? 0 : 1);
+            for (int i = 0; i < length; i++)
+            {
+                char c = value.charAt(i);
+                _stringOut.write(c);
+                if (!compressed)
+                {
+                    _stringOut.write(c >>> 8);
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            throw new DataSetException(e);
+        }
+
+        index = new Integer(_uniqueStringCount++);
+        _stringIndexes.put(value, index);
+        return index.intValue();
+    }
+
+    /**
+     * Writes the row records of the current block followed by their cells to the spool.
+     */
+    private void flushBlock() throws DataSetException
+    {
+        try
+        {
+            _rowBlock.writeTo(_cellOut);
+            _cellBlock.writeTo(_cellOut);
+        }
+        catch (IOException e)
+        {
+            throw new DataSetException(e);
+        }
+        _activeSheet.length += _rowBlock.size() + _cellBlock.size();
+        _rowBlock.reset();
+        _cellBlock.reset();
+        _blockRowCount = 0;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Document assembly
+
+    private void writeDocument() throws IOException, DataSetException
+    {
+        // The globals and the empty sheets of the style workbook frame the spooled cells
+        List records = RecordFactory.createRecords(new ByteArrayInputStream(_styles.getBytes()));
+        _styles = null;
+
+        List globals = new ArrayList();
+        List boundSheets = new ArrayList();
+        int index = 0;
+        while (true)
+        {
+            Record record = (Record)records.get(index++);
+            if (record.getSid() == BoundSheetRecord.sid)
+            {
+                boundSheets.add(record);
+            }
+            if (record.getSid() == EOFRecord.sid)
+            {
+                // The shared strings are written before the end of the globals
+                globals.add(null);
+                globals.add(record);
+                break;
+            }
+            if (record.getSid() != SSTRecord.sid && record.getSid() != ExtSSTRecord.sid)
+            {
+                globals.add(record);
+            }
+        }
+
+        for (int i = 0; i < _sheets.size(); i++)
+        {
+            SheetInfo sheet = (SheetInfo)_sheets.get(i);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            Record record;
+            do
+            {
+                record = (Record)records.get(index++);
+                if (record.getSid() == DimensionsRecord.sid)
+                {
+                    DimensionsRecord dimensions = (DimensionsRecord)record;
+                    if (sheet.columnCount > 0)
+                    {
+                        dimensions.setLastRow(sheet.rowCount);
+                        dimensions.setLastCol((short)sheet.columnCount);
+                    }
+                    out.write(dimensions.serialize());
+                    sheet.header = out.toByteArray();
+                    out.reset();
+                }
+                else if (record.getSid() != IndexRecord.sid)
+                {
+                    out.write(record.serialize());
+                }
+            }
+            while (record.getSid() != EOFRecord.sid);
+            sheet.trailer = out.toByteArray();
+            if (sheet.header == null)
+            {
+                throw new DataSetException("The sheet records do not have dimensions");
+            }
+        }
+
+        final int stringCount = _uniqueStringCount;
+        int bucketSize = Math.max(8, (stringCount + 127) / 128);
+        final int[] bucketPositions = new int[(stringCount + bucketSize - 1) / bucketSize];
+        final int[] bucketOffsets = new int[bucketPositions.length];
+
+        int size = 0;
+        for (int i = 0; i < globals.size(); i++)
+        {
+            Record record = (Record)globals.get(i);
+            size += record == null ? 0 : record.getRecordSize();
+        }
+        size += writeSharedStrings(null, 0, bucketSize, null, null);
+        size += 4 + 2 + 8 * bucketPositions.length;
+        for (int i = 0; i < _sheets.size(); i++)
+        {
+            SheetInfo sheet = (SheetInfo)_sheets.get(i);
+            ((BoundSheetRecord)boundSheets.get(i)).setPositionOfBof(size);
+            size += sheet.header.length + sheet.length + sheet.trailer.length;
+        }
+
+        DocumentWriter writer = new DocumentWriter(globals, bucketSize, bucketPositions, bucketOffsets);
+        POIFSFileSystem fileSystem = new POIFSFileSystem();
+        fileSystem.createDocument("Workbook", size, writer);
+        try
+        {
+            fileSystem.writeFilesystem(_out);
+        }
+        catch (RuntimeException e)
+        {
+            // An exception of the writer leaves the document incomplete
+            writer.checkFailure();
+            throw e;
+        }
+        writer.checkFailure();
+    }
+
+    /**
+     * Writes the shared string table from the string spool.
+     * @param out The stream, <code>null</code> to compute the size only
+     * @param position The position of the table in the workbook stream
+     * @param bucketSize The number of strings in each bucket of the extended table
+     * @param bucketPositions Receives the position of the first string of each bucket
+     * @param bucketOffsets Receives the offset of the first string of each bucket in its record
+     * @return The number of bytes written
+     */
+    private int writeSharedStrings(OutputStream out, int position, int bucketSize,
+            int[] bucketPositions, int[] bucketOffsets) throws IOException
+    {
+        RecordWriter writer = new RecordWriter(out, position);
+        writer.start(SSTRecord.sid);
+        writer.writeInt(_stringCount);
+        writer.writeInt(_uniqueStringCount);
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(_stringFile)));
+        try
+        {
+            for (int i = 0; i < _uniqueStringCount; i++)
+            {
+                int length = in.readUnsignedByte() | (in.readUnsignedByte() << 8);
+                int flags = in.readUnsignedByte();
+                int charSize = flags == 0 ? 1 : 2;
+
+                // The string header is never split
+                if (writer.remaining() < 3 + (length > 0 ? charSize : 0))
+                {
+                    writer.end();
+                    writer.start(ContinueRecord.sid);
+                }
+                if (bucketPositions != null && i % bucketSize == 0)
+                {
+                    bucketPositions[i / bucketSize] = writer.getPosition();
+                    bucketOffsets[i / bucketSize] = writer.getOffset();
+                }
+                writer.writeShort(length);
+                writer.writeByte(flags);
+
+                while (length > 0)
+                {
+                    int count = Math.min(length, writer.remaining() / charSize);
+                    if (count == 0)
+                    {
+                        // A continued string repeats its option flags
+                        writer.end();
+                        writer.start(ContinueRecord.sid);
+                        writer.writeByte(flags);
+                        continue;
+                    }
+                    writer.copy(in, count * charSize);
+                    length -= count;
+                }
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+        writer.end();
+        return writer.getPosition() - position;
+    }
+
+    private static File createSpoolFile() throws IOException
+    {
+        File file = File.createTempFile("dbunit-xls", ".tmp");
+        file.deleteOnExit();
+        return file;
+    }
+
+    private void deleteSpoolFiles()
+    {
+        try
+        {
+            if (_cellOut != null)
+            {
+                _cellOut.close();
+            }
+            if (_stringOut != null)
+            {
+                _stringOut.close();
+            }
+        }
+        catch (IOException e)
+        {
+            logger.warn("Could not close the spool files", e);
+        }
+        if (_cellFile != null)
+        {
+            _cellFile.delete();
+        }
+        if (_stringFile != null)
+        {
+            _stringFile.delete();
+        }
+        _cellOut = null;
+        _stringOut = null;
+        _cellFile = null;
+        _stringFile = null;
+        _stringIndexes = null;
+    }
+
+    /**
+     * The size and content of a sheet written to the cell spool.
+     */
+    private static class SheetInfo
+    {
+        int columnCount;
+        /** The number of rows including the header row */
+        int rowCount;
+        /** The number of bytes of the row and cell records in the cell spool */
+        int length;
+        /** The records of the sheet up to the dimensions */
+        byte[] header;
+        /** The records of the sheet following the cells */
+        byte[] trailer;
+    }
+
+    /**
+     * Writes the workbook stream when the file system asks for it.
+     */
+    private class DocumentWriter implements POIFSWriterListener
+    {
+        private final List _globals;
+        private final int _bucketSize;
+        private final int[] _bucketPositions;
+        private final int[] _bucketOffsets;
+        private IOException _failure;
+
+        public DocumentWriter(List globals, int bucketSize, int[] bucketPositions,
+                int[] bucketOffsets)
+        {
+            _globals = globals;
+            _bucketSize = bucketSize;
+            _bucketPositions = bucketPositions;
+            _bucketOffsets = bucketOffsets;
+        }
+
+        public void processPOIFSWriterEvent(POIFSWriterEvent event)
+        {
+            try
+            {
+                OutputStream out = new BufferedOutputStream(event.getStream());
+                write(out);
+                out.flush();
+            }
+            catch (IOException e)
+            {
+                _failure = e;
+            }
+        }
+
+        private void write(OutputStream out) throws IOException
+        {
+            int position = 0;
+            for (int i = 0; i < _globals.size(); i++)
+            {
+                Record record = (Record)_globals.get(i);
+                if (record == null)
+                {
+                    position += writeSharedStrings(out, position, _bucketSize,
+                            _bucketPositions, _bucketOffsets);
+                    position += writeExtendedSharedStrings(out, position);
+                }
+                else
+                {
+                    byte[] bytes = record.serialize();
+                    out.write(bytes);
+                    position += bytes.length;
+                }
+            }
+
+            InputStream in = new BufferedInputStream(new FileInputStream(_cellFile));
+            try
+            {
+                byte[] buffer = new byte[8192];
+                for (int i = 0; i < _sheets.size(); i++)
+                {
+                    SheetInfo sheet = (SheetInfo)_sheets.get(i);
+                    out.write(sheet.header);
+                    int remaining = sheet.length;
+                    while (remaining > 0)
+                    {
+                        int count = in.read(buffer, 0, Math.min(buffer.length, remaining));
+                        if (count < 0)
+                        {
+                            throw new IOException("Unexpected end of the cell spool");
+                        }
+                        out.write(buffer, 0, count);
+                        remaining -= count;
+                    }
+                    out.write(sheet.trailer);
+                }
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+
+        private int writeExtendedSharedStrings(OutputStream out, int position) throws IOException
+        {
+            RecordWriter writer = new RecordWriter(out, position);
+            writer.start(ExtSSTRecord.sid);
+            writer.writeShort(_bucketSize);
+            for (int i = 0; i < _bucketPositions.length; i++)
+            {
+                writer.writeInt(_bucketPositions[i]);
+                writer.writeShort(_bucketOffsets[i]);
+                writer.writeShort(0);
+            }
+            writer.end();
+            return writer.getPosition() - position;
+        }
+
+        public void checkFailure() throws IOException
+        {
+            if (_failure != null)
+            {
+                throw _failure;
+            }
+        }
+    }
+
+    /**
+     * Buffers the data of one record so that its size is known when the header is written.
+     */
+    private static class RecordWriter
+    {
+        private final OutputStream _out;
+        private final byte[] _data = new byte[4 + MAX_RECORD_DATA];
+        private int _recordPosition;
+        private int _length;
+        private boolean _started;
+
+        /**
+         * @param out The stream, <code>null</code> to count the bytes only
+         * @param position The position of the first record in the workbook stream
+         */
+        public RecordWriter(OutputStream out, int position)
+        {
+            _out = out;
+            _recordPosition = position;
+        }
+
+        public void start(short sid)
+        {
+            _data[0] = (byte)sid;
+            _data[1] = (byte)(sid >>> 8);
+            _length = 0;
+            _started = true;
+        }
+
+        public void end() throws IOException
+        {
+            _data[2] = (byte)_length;
+            _data[3] = (byte)(_length >>> 8);
+            if (_out != null)
+            {
+                _out.write(_data, 0, 4 + _length);
+            }
+            _recordPosition += 4 + _length;
+            _length = 0;
+            _started = false;
+        }
+
+        public int remaining()
+        {
+            return MAX_RECORD_DATA - _length;
+        }
+
+        /**
+         * @return The position of the next byte in the workbook stream
+         */
+        public int getPosition()
+        {
+            return _started ? _recordPosition + getOffset() : _recordPosition;
+        }
+
+        /**
+         * @return The offset of the next byte from the start of the current record
+         */
+        public int getOffset()
+        {
+            return 4 + _length;
+        }
+
+        public void writeByte(int value)
+        {
+            _data[4 + _length++] = (byte)value;
+        }
+
+        public void writeShort(int value)
+        {
+            writeByte(value);
+            writeByte(value >>> 8);
+        }
+
+        public void writeInt(int value)
+        {
+            writeShort(value);
+            writeShort(value >>> 16);
+        }
+
+        public void copy(DataInputStream in, int count) throws IOException
+        {
+            in.readFully(_data, 4 + _length, count);
+            _length += count;
+        }
+    }
+}
@@ -138,7 +138,21 @@ class XlsTable extends AbstractTable
 
         assertValidRowIndex(row);
 
-        int columnIndex = getColumnIndex(column);
+        return getCellValue(row, getColumnIndex(column), column);
+    }
+
+    public Object getValue(int row, int column) throws DataSetException
+    {
+        assertValidRowIndex(row);
+
+        Column[] columns = _metaData.getColumns();
+        assertValidColumnIndex(column, columns.length);
+        return getCellValue(row, column, columns[column].getColumnName());
+    }
+
+    private Object getCellValue(int row, int columnIndex, String column)
+            throws DataSetException
+    {
         HSSFCell cell = _sheet.getRow(row + 1).getCell(columnIndex);
         if (cell == null)
         {
@@ -154,7 +168,7 @@ class XlsTable extends AbstractTable
                 {
                     return getDateValue(cell);
                 }
-                else if(XlsDataSetWriter.DATE_FORMAT_AS_NUMBER_DBUNIT.equals(style.getDataFormatString()))
+                else if(isDbUnitDateFormat(style.getDataFormatString()))
                 {
                     // The special dbunit date format
                     return getDateValueFromJavaNumber(cell);
@@ -187,11 +201,29 @@ class XlsTable extends AbstractTable
         }
     }
     
+    /**
+     * @param formatString The data format string of a numeric cell
+     * @return <code>true</code> if the cell holds a date written by dbunit as
+     * milliseconds, see {@link XlsDataSetWriter#DATE_FORMAT_AS_NUMBER_DBUNIT}
+     */
+    static boolean isDbUnitDateFormat(String formatString)
+    {
+        return XlsDataSetWriter.DATE_FORMAT_AS_NUMBER_DBUNIT.equals(formatString);
+    }
+
     protected Object getDateValueFromJavaNumber(HSSFCell cell) 
     {
         logger.debug("getDateValueFromJavaNumber(cell={}) - start", cell);
         
-        double numericValue = cell.getNumericCellValue();
+        return toDateValueFromJavaNumber(cell.getNumericCellValue());
+    }
+
+    /**
+     * Converts the value of a cell having the {@link #isDbUnitDateFormat dbunit date format}.
+     * Shared by the {@link XlsProducer} which does not have any {@link HSSFCell}s.
+     */
+    static Long toDateValueFromJavaNumber(double numericValue)
+    {
         BigDecimal numericValueBd = new BigDecimal(String.valueOf(numericValue));
         numericValueBd = stripTrailingZeros(numericValueBd);
         return new Long(numericValueBd.longValue());
@@ -202,12 +234,7 @@ class XlsTable extends AbstractTable
     {
         logger.debug("getDateValue(cell={}) - start", cell);
         
-        double numericValue = cell.getNumericCellValue();
-        Date date = HSSFDateUtil.getJavaDate(numericValue);
-        // Add the timezone offset again because it was subtracted automatically by Apache-POI (we need UTC)
-        long tzOffset = TimeZone.getDefault().getOffset(date.getTime());
-        date = new Date(date.getTime() + tzOffset);
-        return new Long(date.getTime());
+        return toDateValue(cell.getNumericCellValue());
         
         //TODO use a calendar for XLS Date objects when it is supported better by POI
 //        HSSFCellStyle style = cell.getCellStyle();
@@ -218,13 +245,25 @@ class XlsTable extends AbstractTable
 //        Date dateValue = cell.getDateCellValue();
     }
 
+    /**
+     * Converts the value of a cell having an Excel date format to UTC milliseconds.
+     */
+    static Long toDateValue(double numericValue)
+    {
+        Date date = HSSFDateUtil.getJavaDate(numericValue);
+        // Add the timezone offset again because it was subtracted automatically by Apache-POI (we need UTC)
+        long tzOffset = TimeZone.getDefault().getOffset(date.getTime());
+        date = new Date(date.getTime() + tzOffset);
+        return new Long(date.getTime());
+    }
+
     /**
      * Removes all trailing zeros from the end of the given BigDecimal value
      * up to the decimal point.
      * @param value The value to be stripped
      * @return The value without trailing zeros
      */
-    private BigDecimal stripTrailingZeros(BigDecimal value)
+    private static BigDecimal stripTrailingZeros(BigDecimal value)
     {
         if(value.scale()<=0){
             return value;
@@ -257,9 +296,21 @@ class XlsTable extends AbstractTable
     {
         logger.debug("getNumericValue(cell={}) - start", cell);
 
-        String formatString = cell.getCellStyle().getDataFormatString();
+        return toNumericValue(cell.getNumericCellValue(),
+                cell.getCellStyle().getDataFormatString(), symbols);
+    }
+
+    /**
+     * Converts the value of a numeric cell using its data format string.
+     * @param cellValue The raw cell value
+     * @param formatString The data format string of the cell, may be <code>null</code>
+     * @param symbols The symbols used to parse the formatted value
+     * @return The value as {@link BigDecimal}
+     */
+    static BigDecimal toNumericValue(double cellValue, String formatString,
+            DecimalFormatSymbols symbols)
+    {
         String resultString = null;
-        double cellValue = cell.getNumericCellValue();
 
         if((formatString != null))
         {
@@ -294,7 +345,7 @@ class XlsTable extends AbstractTable
      * @return
      * @since 2.4.6
      */
-    private BigDecimal toBigDecimal(double cellValue) 
+    private static BigDecimal toBigDecimal(double cellValue) 
     {
         String resultString = String.valueOf(cellValue);
         // To ensure that intergral numbers do not have decimal point and trailing zero
@@ -20,6 +20,8 @@
  */
 package org.dbunit.dataset.stream;
 
+import java.util.concurrent.Executor;
+
 import org.dbunit.dataset.AbstractDataSet;
 import org.dbunit.dataset.DataSetException;
 import org.dbunit.dataset.ITable;
@@ -46,10 +48,33 @@ public class StreamingDataSet extends AbstractDataSet
 
     private IDataSetProducer _source;
     private int _iteratorCount;
+    private final int _chunkSize;
+    private final int _bufferDepth;
+    private final Executor _executor;
 
     public StreamingDataSet(IDataSetProducer source)
+    {
+        this(source, StreamingIterator.DEFAULT_CHUNK_SIZE,
+                StreamingIterator.DEFAULT_BUFFER_DEPTH, null);
+    }
+
+    /**
+     * @param source The producer of the data
+     * @param chunkSize The maximum number of rows handed over to the consumer at once
+     * @param bufferDepth The maximum number of chunks or table starts the producer
+     * may run ahead of the consumer
+     * @param executor The executor running the producer. If <code>null</code> a new
+     * daemon thread is started.
+     * @since 2.5.1
+     * @see StreamingIterator
+     */
+    public StreamingDataSet(IDataSetProducer source, int chunkSize, int bufferDepth,
+            Executor executor)
     {
         _source = source;
+        _chunkSize = chunkSize;
+        _bufferDepth = bufferDepth;
+        _executor = executor;
     }
 
     ////////////////////////////////////////////////////////////////////////////
@@ -73,7 +98,7 @@ public class StreamingDataSet extends AbstractDataSet
         }
 
         _iteratorCount++;
-        return new StreamingIterator(_source);
+        return new StreamingIterator(_source, _chunkSize, _bufferDepth, _executor);
     }
 
     ////////////////////////////////////////////////////////////////////////////
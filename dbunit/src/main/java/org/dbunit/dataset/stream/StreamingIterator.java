@@ -20,21 +20,31 @@
  */
 package org.dbunit.dataset.stream;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+
 import org.dbunit.dataset.AbstractTable;
 import org.dbunit.dataset.DataSetException;
 import org.dbunit.dataset.ITable;
 import org.dbunit.dataset.ITableIterator;
 import org.dbunit.dataset.ITableMetaData;
 import org.dbunit.dataset.RowOutOfBoundsException;
-import org.dbunit.util.concurrent.BoundedBuffer;
-import org.dbunit.util.concurrent.Channel;
-import org.dbunit.util.concurrent.Puttable;
-import org.dbunit.util.concurrent.Takable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Asynchronous table iterator that uses a new Thread for asynchronous processing.
+ * Asynchronous table iterator that runs the producer in a separate thread.
+ * <p>
+ * The rows are not handed over one by one but in chunks of rows which are
+ * passed through a bounded {@link BlockingQueue}. Emptied chunks are
+ * returned to the producing thread for reuse. The producer runs either on a
+ * new daemon thread or on a caller supplied {@link Executor}, for example one
+ * that uses a pool or virtual threads. An exception thrown by the producer is
+ * rethrown by this iterator as cause of a {@link DataSetException}.
+ * </p>
  * 
  * @author Manuel Laflamme
  * @author Last changed by: $Author$
@@ -49,16 +59,23 @@ public class StreamingIterator implements ITableIterator
      */
     private static final Logger logger = LoggerFactory.getLogger(StreamingIterator.class);
 
+    /**
+     * Default number of rows handed over to the consumer at once
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 100;
+    /**
+     * Default number of chunks or table starts the producer may run ahead of the consumer
+     */
+    public static final int DEFAULT_BUFFER_DEPTH = 8;
+
     private static final Object EOD = new Object(); // end of dataset marker
 
-    private final Takable _channel;
+    private final BlockingQueue _channel;
+    private final BlockingQueue _freeChunks;
     private StreamingTable _activeTable;
     private Object _taken = null;
     private boolean _eod = false;
-    /**
-     * Variable to store an exception that might occur in the asynchronous consumer
-     */
-	private Exception _asyncException;
+    private volatile boolean _cancelled = false;
 
 	
     /**
@@ -70,38 +87,145 @@ public class StreamingIterator implements ITableIterator
      */
     public StreamingIterator(IDataSetProducer source) throws DataSetException
     {
-        Channel channel = new BoundedBuffer(30);
-        _channel = channel;
+        this(source, DEFAULT_CHUNK_SIZE, DEFAULT_BUFFER_DEPTH, null);
+    }
 
-        AsynchronousConsumer consumer = new AsynchronousConsumer(source, channel, this);
-        Thread thread = new Thread(consumer, "StreamingIterator");
-        thread.setDaemon(true);
-        thread.start();
+    /**
+     * Iterator that creates a table iterator by reading the input from
+     * the given source in an asynchronous way.
+     * @param source The source of the data
+     * @param chunkSize The maximum number of rows handed over to the consumer at once
+     * @param bufferDepth The maximum number of chunks or table starts the producer
+     * may run ahead of the consumer
+     * @param executor The executor running the producer. If <code>null</code> a new
+     * daemon thread is started.
+     * @throws DataSetException
+     * @since 2.5.1
+     */
+    public StreamingIterator(IDataSetProducer source, int chunkSize, int bufferDepth,
+            Executor executor) throws DataSetException
+    {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("The parameter 'chunkSize' must be greater than 0: " + chunkSize);
+        }
+        if (bufferDepth < 1) {
+            throw new IllegalArgumentException("The parameter 'bufferDepth' must be greater than 0: " + bufferDepth);
+        }
+
+        _channel = new ArrayBlockingQueue(bufferDepth);
+        // One chunk is held by each side in addition to the queued ones
+        _freeChunks = new ArrayBlockingQueue(bufferDepth + 2);
+
+        AsynchronousConsumer consumer = new AsynchronousConsumer(source, chunkSize, this);
+        if (executor == null)
+        {
+            Thread thread = new Thread(consumer, "StreamingIterator");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        else
+        {
+            executor.execute(consumer);
+        }
 
         // Take first element from asynchronous handler
+        _taken = take();
+    }
+
+    /**
+     * Stops the producer. Rows not yet consumed are discarded and the producer
+     * fails with a {@link DataSetException} the next time it hands over data.
+     * Should be invoked when the iteration is abandoned before the end of the
+     * dataset has been reached so that the producer does not block forever.
+     * @since 2.5.1
+     */
+    public void cancel()
+    {
+        logger.debug("cancel() - start");
+
+        _cancelled = true;
+        _eod = true;
+        // Make room for a producer that is blocked in put()
+        _channel.clear();
+    }
+
+    /**
+     * Takes the next element from the asynchronous producer.
+     * @return The table metadata, row chunk or end of dataset marker
+     * @throws DataSetException If the producer failed or the current thread was interrupted
+     */
+    private Object take() throws DataSetException
+    {
+        if (_cancelled)
+        {
+            throw new DataSetException("Streaming has been cancelled");
+        }
+
+        Object taken;
         try
         {
-            _taken = _channel.take();
+            taken = _channel.take();
         }
         catch (InterruptedException e)
         {
-        	logger.debug("Thread '" + Thread.currentThread() + "' was interrupted");
-        	throw resolveException(e);
+            logger.debug("Thread '" + Thread.currentThread() + "' was interrupted");
+            cancel();
+            Thread.currentThread().interrupt();
+            throw new DataSetException("Current thread was interrupted (Thread=" + Thread.currentThread() + ")", e);
         }
+
+        if (taken instanceof ProducerFailure)
+        {
+            _eod = true;
+            Throwable cause = ((ProducerFailure)taken).getCause();
+            throw new DataSetException("Exception in asynchronous producer: " + cause, cause);
+        }
+        return taken;
     }
 
-    private DataSetException resolveException(InterruptedException cause) throws DataSetException 
+    /**
+     * Hands the given element over to the consumer. Invoked by the producer thread.
+     * @param element The element
+     * @throws DataSetException If the iterator has been cancelled or the producer thread was interrupted
+     */
+    private void put(Object element) throws DataSetException
     {
-    	String msg = "Current thread was interrupted (Thread=" + Thread.currentThread() + ")";
-    	if(this._asyncException != null)
-    	{
-            return new DataSetException(msg, this._asyncException);
-    	}
-    	else 
-    	{
-    		return new DataSetException(msg, cause);
-    	}
-	}
+        if (_cancelled)
+        {
+            throw new DataSetException("Streaming was cancelled by the consumer");
+        }
+
+        try
+        {
+            _channel.put(element);
+        }
+        catch (InterruptedException e)
+        {
+            throw new DataSetException("Operation was interrupted", e);
+        }
+    }
+
+    /**
+     * @return An empty chunk for the producer, either recycled or newly created
+     */
+    private List acquireChunk(int chunkSize)
+    {
+        List chunk = (List)_freeChunks.poll();
+        if (chunk == null)
+        {
+            chunk = new ArrayList(chunkSize);
+        }
+        return chunk;
+    }
+
+    /**
+     * Returns a chunk the consumer is done with so that the producer can reuse it.
+     */
+    private void releaseChunk(List chunk)
+    {
+        chunk.clear();
+        _freeChunks.offer(chunk);
+    }
 
 	////////////////////////////////////////////////////////////////////////////
     // ITableIterator interface
@@ -155,12 +279,6 @@ public class StreamingIterator implements ITableIterator
         return _activeTable;
     }
 
-	private void handleException(Exception e)
-	{
-		// Is invoked when the asynchronous thread reports an exception
-		this._asyncException = e;
-	}
-
     ////////////////////////////////////////////////////////////////////////////
     // StreamingTable class
 
@@ -176,6 +294,8 @@ public class StreamingIterator implements ITableIterator
         private int _lastRow = -1;
         private boolean _eot = false;
         private Object[] _rowValues;
+        private List _chunk;
+        private int _chunkIndex;
 
         public StreamingTable(ITableMetaData metaData)
         {
@@ -184,31 +304,33 @@ public class StreamingIterator implements ITableIterator
 
         boolean next() throws DataSetException
         {
-            logger.debug("next() - start");
-
             // End of table has previously been reach
             if (_eot)
             {
                 return false;
             }
 
-            try
+            if (_chunk == null || _chunkIndex >= _chunk.size())
             {
-                _taken = _channel.take();
-                if (!(_taken instanceof Object[]))
+                if (_chunk != null)
+                {
+                    releaseChunk(_chunk);
+                    _chunk = null;
+                }
+
+                _taken = take();
+                if (!(_taken instanceof RowChunk))
                 {
                     _eot = true;
                     return false;
                 }
-
-                _lastRow++;
-                _rowValues = (Object[])_taken;
-                return true;
-            }
-            catch (InterruptedException e)
-            {
-            	throw resolveException(e);
+                _chunk = ((RowChunk)_taken).getRows();
+                _chunkIndex = 0;
             }
+
+            _lastRow++;
+            _rowValues = (Object[])_chunk.get(_chunkIndex++);
+            return true;
         }
 
         ////////////////////////////////////////////////////////////////////////
@@ -233,6 +355,21 @@ public class StreamingIterator implements ITableIterator
             if(logger.isDebugEnabled())
                 logger.debug("getValue(row={}, columnName={}) - start", Integer.toString(row), columnName);
 
+            moveToRow(row);
+
+            return _rowValues[getColumnIndex(columnName)];
+        }
+
+        public Object getValue(int row, int column) throws DataSetException
+        {
+            moveToRow(row);
+
+            assertValidColumnIndex(column, _rowValues.length);
+            return _rowValues[column];
+        }
+
+        private void moveToRow(int row) throws DataSetException
+        {
             // Iterate up to specified row
             while (!_eot && row > _lastRow)
             {
@@ -248,10 +385,47 @@ public class StreamingIterator implements ITableIterator
             {
                 throw new RowOutOfBoundsException(row + " > " + _lastRow);
             }
+        }
 
-            return _rowValues[getColumnIndex(columnName)];
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Channel elements
+
+    /**
+     * Chunk of rows of the current table.
+     */
+    private static class RowChunk
+    {
+        private final List _rows;
+
+        public RowChunk(List rows)
+        {
+            _rows = rows;
+        }
+
+        public List getRows()
+        {
+            return _rows;
         }
+    }
+
+    /**
+     * Failure of the producer, always the last element handed over.
+     */
+    private static class ProducerFailure
+    {
+        private final Throwable _cause;
 
+        public ProducerFailure(Throwable cause)
+        {
+            _cause = cause;
+        }
+
+        public Throwable getCause()
+        {
+            return _cause;
+        }
     }
 
     ////////////////////////////////////////////////////////////////////////////
@@ -266,16 +440,25 @@ public class StreamingIterator implements ITableIterator
         private static final Logger logger = LoggerFactory.getLogger(AsynchronousConsumer.class);
 
         private final IDataSetProducer _producer;
-        private final Puttable _channel;
-        private final StreamingIterator _exceptionHandler;
-        private final Thread _invokerThread;
+        private final int _chunkSize;
+        private final StreamingIterator _iterator;
+        private List _chunk;
+        private boolean _endOfDataSet = false;
 
-        public AsynchronousConsumer(IDataSetProducer source, Puttable channel, StreamingIterator exceptionHandler)
+        public AsynchronousConsumer(IDataSetProducer source, int chunkSize, StreamingIterator iterator)
         {
             _producer = source;
-            _channel = channel;
-            _exceptionHandler = exceptionHandler;
-            _invokerThread = Thread.currentThread();
+            _chunkSize = chunkSize;
+            _iterator = iterator;
+        }
+
+        private void flush() throws DataSetException
+        {
+            if (_chunk != null && !_chunk.isEmpty())
+            {
+                _iterator.put(new RowChunk(_chunk));
+                _chunk = null;
+            }
         }
 
         ////////////////////////////////////////////////////////////////////////
@@ -289,12 +472,31 @@ public class StreamingIterator implements ITableIterator
             {
                 _producer.setConsumer(this);
                 _producer.produce();
+                if (!_endOfDataSet)
+                {
+                    // Do not let the iterator wait forever for a producer not ending the dataset
+                    endDataSet();
+                }
             }
-            catch (Exception e)
+            catch (Throwable e)
             {
-            	_exceptionHandler.handleException(e);
-            	// Since the invoker thread probably waits tell it that we have finished here
-            	_invokerThread.interrupt();
+                if (_iterator._cancelled)
+                {
+                    logger.debug("Producer stopped because the iterator was cancelled", e);
+                }
+                else
+                {
+                    try
+                    {
+                        // Rows produced before the failure are still handed over
+                        flush();
+                        _iterator.put(new ProducerFailure(e));
+                    }
+                    catch (DataSetException e1)
+                    {
+                        logger.debug("Could not report producer failure to iterator", e1);
+                    }
+                }
             }
             
             logger.debug("End of thread " + Thread.currentThread());
@@ -311,45 +513,34 @@ public class StreamingIterator implements ITableIterator
         {
             logger.debug("endDataSet() - start");
 
-            try
-            {
-                _channel.put(EOD);
-            }
-            catch (InterruptedException e)
-            {
-                throw new DataSetException("Operation was interrupted");
-            }
+            flush();
+            _endOfDataSet = true;
+            _iterator.put(EOD);
         }
 
         public void startTable(ITableMetaData metaData) throws DataSetException
         {
             logger.debug("startTable(metaData={}) - start", metaData);
 
-            try
-            {
-                _channel.put(metaData);
-            }
-            catch (InterruptedException e)
-            {
-                throw new DataSetException("Operation was interrupted");
-            }
+            flush();
+            _iterator.put(metaData);
         }
 
         public void endTable() throws DataSetException
         {
+            flush();
         }
 
         public void row(Object[] values) throws DataSetException
         {
-            logger.debug("row(values={}) - start", values);
-
-            try
+            if (_chunk == null)
             {
-                _channel.put(values);
+                _chunk = _iterator.acquireChunk(_chunkSize);
             }
-            catch (InterruptedException e)
+            _chunk.add(values);
+            if (_chunk.size() >= _chunkSize)
             {
-                throw new DataSetException("Operation was interrupted");
+                flush();
             }
         }
     }
@@ -109,6 +109,17 @@ public class FlatXmlDataSet extends CachedDataSet
     {
         super(flatXmlProducer, flatXmlProducer.isCaseSensitiveTableNames());
     }
+
+    /**
+     * Creates a new {@link FlatXmlDataSet} with the data of the given StAX producer.
+     * @param flatXmlProducer The producer that provides the {@link FlatXmlDataSet} content
+     * @throws DataSetException 
+     * @since 2.5.1
+     */
+    public FlatXmlDataSet(StaxFlatXmlProducer flatXmlProducer) throws DataSetException
+    {
+        super(flatXmlProducer, flatXmlProducer.isCaseSensitiveTableNames());
+    }
     
     /**
      * Creates an FlatXmlDataSet object with the specified InputSource.
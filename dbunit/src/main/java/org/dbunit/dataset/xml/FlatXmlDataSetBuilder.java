@@ -78,6 +78,11 @@ public final class FlatXmlDataSetBuilder
     * Defaults to {@value}
     */
     private boolean caseSensitiveTableNames = false;
+    /**
+     * Whether or not the XML is read with the StAX based {@link StaxFlatXmlProducer}
+     * instead of the SAX based {@link FlatXmlProducer}. Defaults to {@value}
+     */
+    private boolean stax = false;
     
     
     /**
@@ -198,6 +203,15 @@ public final class FlatXmlDataSetBuilder
         return this;
     }
     
+    /**
+     * @return The metadata set by {@link #setMetaDataSet(IDataSet)} or read
+     * from a DTD, <code>null</code> if none has been set
+     * @since 2.5.1
+     */
+    public IDataSet getMetaDataSet() {
+        return metaDataSet;
+    }
+
     public boolean isDtdMetadata() {
         return dtdMetadata;
     }
@@ -241,6 +255,22 @@ public final class FlatXmlDataSetBuilder
         return this;
     }
 
+    public boolean isStax() {
+        return stax;
+    }
+
+    /**
+     * Whether or not the XML is read with the StAX based {@link StaxFlatXmlProducer}
+     * which reuses its parser factory and needs less work per row, especially with
+     * column sensing. DTD validation is not supported by the StAX producer.
+     * @param stax
+     * @return this
+     * @since 2.5.1
+     */
+    public FlatXmlDataSetBuilder setStax(boolean stax) {
+        this.stax = stax;
+        return this;
+    }
 
     /**
      * Builds the {@link FlatXmlDataSet} from the parameters that are currently set on this builder
@@ -260,6 +290,10 @@ public final class FlatXmlDataSetBuilder
         
         // Create the flat XML IDataSet
         logger.debug("Creating FlatXmlDataSet with builder parameters: {}", this);
+        if(this.stax)
+        {
+            return new FlatXmlDataSet(createStaxProducer(inputSource));
+        }
         FlatXmlProducer producer = createProducer(inputSource);
         return new FlatXmlDataSet(producer);
     }
@@ -287,6 +321,23 @@ public final class FlatXmlDataSetBuilder
         return producer;
     }
     
+    /**
+     * @param inputSource The XML input to be built
+     * @return The StAX producer which is used to create the {@link FlatXmlDataSet}
+     * @since 2.5.1
+     */
+    protected StaxFlatXmlProducer createStaxProducer(InputSource inputSource)
+    {
+        logger.trace("createStaxProducer(inputSource={}) - start", inputSource);
+
+        if(this.metaDataSet!=null)
+        {
+            return new StaxFlatXmlProducer(inputSource, this.metaDataSet);
+        }
+        return new StaxFlatXmlProducer(
+                inputSource, this.dtdMetadata, this.columnSensing, this.caseSensitiveTableNames);
+    }
+
     public String toString()
     {
         StringBuffer sb = new StringBuffer();
@@ -294,6 +345,7 @@ public final class FlatXmlDataSetBuilder
         sb.append("dtdMetadata=").append(dtdMetadata);
         sb.append(", columnSensing=").append(columnSensing);
         sb.append(", caseSensitiveTableNames=").append(caseSensitiveTableNames);
+        sb.append(", stax=").append(stax);
         sb.append(", metaDataSet=").append(metaDataSet);
         sb.append("]");
         return sb.toString();
@@ -69,6 +69,13 @@ public class FlatXmlProducer extends DefaultHandler implements IDataSetProducer,
     private static final IDataSetConsumer EMPTY_CONSUMER = new DefaultConsumer();
     private static final String DATASET = "dataset";
 
+    /**
+     * The parser factories are expensive to look up, so they are created once per
+     * validation mode and shared by all producers
+     */
+    private static SAXParserFactory validatingParserFactory;
+    private static SAXParserFactory parserFactory;
+
     private final InputSource _inputSource;
     private final EntityResolver _resolver;
     private boolean _validating = false;
@@ -349,9 +356,7 @@ public class FlatXmlProducer extends DefaultHandler implements IDataSetProducer,
 
         try
         {
-            SAXParserFactory saxParserFactory = SAXParserFactory.newInstance();
-            saxParserFactory.setValidating(_validating);
-            XMLReader xmlReader = saxParserFactory.newSAXParser().getXMLReader();
+            XMLReader xmlReader = createXmlReader(_validating);
 
             if(_dtdHandler != null)
             {
@@ -379,6 +384,26 @@ public class FlatXmlProducer extends DefaultHandler implements IDataSetProducer,
         }
     }
 
+    private static synchronized XMLReader createXmlReader(boolean validating)
+            throws ParserConfigurationException, SAXException
+    {
+        SAXParserFactory saxParserFactory = validating ? validatingParserFactory : parserFactory;
+        if (saxParserFactory == null)
+        {
+            saxParserFactory = SAXParserFactory.newInstance();
+            saxParserFactory.setValidating(validating);
+            if (validating)
+            {
+                validatingParserFactory = saxParserFactory;
+            }
+            else
+            {
+                parserFactory = saxParserFactory;
+            }
+        }
+        return saxParserFactory.newSAXParser().getXMLReader();
+    }
+
     ////////////////////////////////////////////////////////////////////////////
     // EntityResolver interface
 
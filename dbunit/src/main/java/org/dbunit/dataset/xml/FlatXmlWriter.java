@@ -109,6 +109,20 @@ public class FlatXmlWriter implements IDataSetConsumer
     {
         _xmlWriter.enablePrettyPrint(enabled);
     }
+
+    /**
+     * Enable or disable writing the XML to the output in a background thread, which
+     * overlaps the encoding and I/O with reading the dataset.
+     * @param enabled <code>true</code> to enable background flushing.
+     * <code>false</code> otherwise (which is the default).
+     * @throws IOException
+     * @since 2.5.1
+     * @see XmlWriter#enableBackgroundFlush(boolean)
+     */
+    public void setBackgroundFlush(boolean enabled) throws IOException
+    {
+        _xmlWriter.enableBackgroundFlush(enabled);
+    }
     
     /**
      * Writes the given {@link IDataSet} using this writer.
@@ -0,0 +1,651 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.dataset.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLResolver;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultTableMetaData;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.OrderedTableNameMap;
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.dataset.stream.DefaultConsumer;
+import org.dbunit.dataset.stream.IDataSetConsumer;
+import org.dbunit.dataset.stream.IDataSetProducer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+/**
+ * Flat XML producer based on the StAX pull parser of <code>javax.xml.stream</code>. It
+ * produces the same tables as {@link FlatXmlProducer} for the same options but needs
+ * less work per row:
+ * <ul>
+ * <li>The {@link XMLInputFactory} is created once and reused by all producers.</li>
+ * <li>The mapping of attributes to column indexes is kept per table and only
+ * recomputed when a row has different attributes than the row before.</li>
+ * <li>With column sensing, new columns are appended to the table being read
+ * instead of recreating its metadata, and the rows are completed once at the end.</li>
+ * </ul>
+ * DTD metadata is read from the document type declaration with a SAX parser because
+ * StAX does not report DTD declarations. Validation is not supported.
+ * <p>
+ * Requires a StAX implementation, which is part of the JRE since Java 6.
+ * </p>
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class StaxFlatXmlProducer implements IDataSetProducer
+{
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(StaxFlatXmlProducer.class);
+
+    private static final IDataSetConsumer EMPTY_CONSUMER = new DefaultConsumer();
+    private static final String DATASET = "dataset";
+
+    /**
+     * Resolves external entities to empty content, which ignores a referenced DTD
+     */
+    private static final XMLResolver EMPTY_RESOLVER = new XMLResolver()
+    {
+        public Object resolveEntity(String publicId, String systemId, String baseUri,
+                String namespace)
+        {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+    };
+
+    private static XMLInputFactory dtdInputFactory;
+    private static XMLInputFactory noDtdInputFactory;
+    private static SAXParserFactory dtdParserFactory;
+
+    private final InputSource _inputSource;
+    private final boolean _dtdMetadata;
+    private final boolean _columnSensing;
+    private final boolean _caseSensitiveTableNames;
+
+    /**
+     * The dataset used to retrieve the metadata for the tables. Either given by the user
+     * or read from the DTD of the document. Can be null
+     */
+    private IDataSet _metaDataSet;
+    private boolean _dtdPresent;
+
+    private IDataSetConsumer _consumer = EMPTY_CONSUMER;
+    /**
+     * Holds the {@link TableState} of each table in the order of first appearance
+     */
+    private OrderedTableNameMap _tables;
+    private TableState _activeTable;
+
+    public StaxFlatXmlProducer(InputSource xmlSource)
+    {
+        this(xmlSource, true, false, false);
+    }
+
+    /**
+     * @param xmlSource The input datasource
+     * @param dtdMetadata Whether or not DTD metadata is available to parse via a DTD handler
+     * @param columnSensing Whether or not the column sensing feature should be used (see FAQ)
+     * @param caseSensitiveTableNames Whether or not this dataset should use case sensitive table names
+     */
+    public StaxFlatXmlProducer(InputSource xmlSource, boolean dtdMetadata,
+            boolean columnSensing, boolean caseSensitiveTableNames)
+    {
+        _inputSource = xmlSource;
+        _dtdMetadata = dtdMetadata;
+        _columnSensing = columnSensing;
+        _caseSensitiveTableNames = caseSensitiveTableNames;
+    }
+
+    /**
+     * @param xmlSource The input datasource
+     * @param metaDataSet The dataset providing the metadata of the tables
+     */
+    public StaxFlatXmlProducer(InputSource xmlSource, IDataSet metaDataSet)
+    {
+        _inputSource = xmlSource;
+        _metaDataSet = metaDataSet;
+        _dtdMetadata = false;
+        _columnSensing = false;
+        _caseSensitiveTableNames = metaDataSet.isCaseSensitiveTableNames();
+    }
+
+    /**
+     * @return Whether or not this producer works case sensitively
+     */
+    public boolean isCaseSensitiveTableNames()
+    {
+        return _caseSensitiveTableNames;
+    }
+
+    private static synchronized XMLInputFactory getInputFactory(boolean dtdMetadata)
+    {
+        if (dtdMetadata ? dtdInputFactory == null : noDtdInputFactory == null)
+        {
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.FALSE);
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.TRUE);
+            if (!dtdMetadata)
+            {
+                factory.setXMLResolver(EMPTY_RESOLVER);
+            }
+
+            if (dtdMetadata)
+            {
+                dtdInputFactory = factory;
+            }
+            else
+            {
+                noDtdInputFactory = factory;
+            }
+        }
+        return dtdMetadata ? dtdInputFactory : noDtdInputFactory;
+    }
+
+    private static synchronized XMLReader createDtdReader()
+            throws ParserConfigurationException, SAXException
+    {
+        if (dtdParserFactory == null)
+        {
+            dtdParserFactory = SAXParserFactory.newInstance();
+        }
+        return dtdParserFactory.newSAXParser().getXMLReader();
+    }
+
+    private XMLStreamReader createStreamReader(InputStream urlStream)
+            throws XMLStreamException
+    {
+        XMLInputFactory factory = getInputFactory(_dtdMetadata);
+        String systemId = _inputSource.getSystemId();
+        // The factory is not guaranteed to be thread safe, but creating readers is cheap
+        synchronized (factory)
+        {
+            if (_inputSource.getCharacterStream() != null)
+            {
+                return factory.createXMLStreamReader(systemId, _inputSource.getCharacterStream());
+            }
+            if (_inputSource.getByteStream() != null)
+            {
+                return _inputSource.getEncoding() == null
+                        ? factory.createXMLStreamReader(systemId, _inputSource.getByteStream())
+                        : factory.createXMLStreamReader(_inputSource.getByteStream(),
+                                _inputSource.getEncoding());
+            }
+            return factory.createXMLStreamReader(systemId, urlStream);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // IDataSetProducer interface
+
+    public void setConsumer(IDataSetConsumer consumer) throws DataSetException
+    {
+        logger.debug("setConsumer(consumer) - start");
+        _consumer = consumer;
+    }
+
+    public void produce() throws DataSetException
+    {
+        logger.debug("produce() - start");
+
+        InputStream urlStream = null;
+        try
+        {
+            if (_inputSource.getCharacterStream() == null && _inputSource.getByteStream() == null)
+            {
+                urlStream = new URL(_inputSource.getSystemId()).openStream();
+            }
+
+            XMLStreamReader reader = createStreamReader(urlStream);
+            try
+            {
+                parse(reader);
+            }
+            finally
+            {
+                reader.close();
+            }
+        }
+        catch (XMLStreamException e)
+        {
+            throw buildException(e);
+        }
+        catch (IOException e)
+        {
+            throw new DataSetException(e);
+        }
+        finally
+        {
+            _activeTable = null;
+            _tables = null;
+            close(urlStream);
+        }
+    }
+
+    private static void close(InputStream in)
+    {
+        if (in != null)
+        {
+            try
+            {
+                in.close();
+            }
+            catch (IOException e)
+            {
+                logger.debug("Could not close the XML input", e);
+            }
+        }
+    }
+
+    private static DataSetException buildException(XMLStreamException cause)
+    {
+        Location location = cause.getLocation();
+        if (location != null && location.getLineNumber() >= 0)
+        {
+            // The message of the StAX exception already contains the location
+            String message = cause.getNestedException() == null
+                    ? cause.getMessage() : cause.getNestedException().getMessage();
+            return new DataSetException("Line " + location.getLineNumber() + ": " + message, cause);
+        }
+        return new DataSetException(cause);
+    }
+
+    private void parse(XMLStreamReader reader) throws XMLStreamException, DataSetException
+    {
+        while (reader.hasNext())
+        {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT)
+            {
+                startElement(reader);
+            }
+            else if (event == XMLStreamConstants.END_ELEMENT)
+            {
+                if (_tables != null && DATASET.equals(getName(reader)))
+                {
+                    endDataSet();
+                }
+            }
+            else if (event == XMLStreamConstants.DTD && _dtdMetadata && _metaDataSet == null)
+            {
+                readDtd(reader.getText());
+            }
+        }
+    }
+
+    private static String getName(XMLStreamReader reader)
+    {
+        String prefix = reader.getPrefix();
+        String name = reader.getLocalName();
+        return prefix == null || prefix.length() == 0 ? name : prefix + ":" + name;
+    }
+
+    private static String getAttributeName(XMLStreamReader reader, int index)
+    {
+        String prefix = reader.getAttributePrefix(index);
+        String name = reader.getAttributeLocalName(index);
+        return prefix == null || prefix.length() == 0 ? name : prefix + ":" + name;
+    }
+
+    /**
+     * Reads the table metadata from the given document type declaration. Relative
+     * references to an external DTD are resolved against the system id of the document.
+     */
+    private void readDtd(String docTypeDeclaration) throws DataSetException
+    {
+        logger.debug("readDtd(docTypeDeclaration={}) - start", docTypeDeclaration);
+
+        FlatDtdDataSet metaDataSet = new FlatDtdDataSet();
+        FlatDtdProducer dtdProducer = new FlatDtdProducer();
+        dtdProducer.setConsumer(metaDataSet);
+        try
+        {
+            XMLReader xmlReader = createDtdReader();
+            FlatDtdProducer.setDeclHandler(xmlReader, dtdProducer);
+            FlatDtdProducer.setLexicalHandler(xmlReader, dtdProducer);
+
+            String document = docTypeDeclaration + "<" + getRootName(docTypeDeclaration) + "/>";
+            InputSource inputSource = new InputSource(new StringReader(document));
+            inputSource.setSystemId(_inputSource.getSystemId());
+            xmlReader.parse(inputSource);
+        }
+        catch (ParserConfigurationException e)
+        {
+            throw new DataSetException(e);
+        }
+        catch (SAXException e)
+        {
+            throw XmlProducer.buildException(e);
+        }
+        catch (IOException e)
+        {
+            throw new DataSetException(e);
+        }
+        _metaDataSet = metaDataSet;
+        _dtdPresent = true;
+    }
+
+    private static String getRootName(String docTypeDeclaration)
+    {
+        int start = "<!DOCTYPE".length();
+        while (start < docTypeDeclaration.length()
+                && Character.isWhitespace(docTypeDeclaration.charAt(start)))
+        {
+            start++;
+        }
+        int end = start;
+        while (end < docTypeDeclaration.length()
+                && !Character.isWhitespace(docTypeDeclaration.charAt(end))
+                && docTypeDeclaration.charAt(end) != '['
+                && docTypeDeclaration.charAt(end) != '>')
+        {
+            end++;
+        }
+        return docTypeDeclaration.substring(start, end);
+    }
+
+    private void startElement(XMLStreamReader reader) throws DataSetException
+    {
+        String name = getName(reader);
+
+        // Start of dataset
+        if (_tables == null)
+        {
+            if (!DATASET.equals(name))
+            {
+                throw new DataSetException("Line " + reader.getLocation().getLineNumber()
+                        + ": Expected root element '" + DATASET + "' but was '" + name + "'");
+            }
+            _consumer.startDataSet();
+            _tables = new OrderedTableNameMap(_caseSensitiveTableNames);
+            return;
+        }
+
+        // New table
+        if (!_tables.isLastTable(name))
+        {
+            if (_activeTable != null && !_columnSensing)
+            {
+                _consumer.endTable();
+            }
+
+            // In flat XML the table might have appeared before already
+            if (_tables.containsTable(name))
+            {
+                _activeTable = (TableState)_tables.get(name);
+                _tables.setLastTable(name);
+            }
+            else
+            {
+                _activeTable = createTableState(name, reader);
+                _tables.add(_activeTable.getTableName(), _activeTable);
+            }
+
+            if (!_columnSensing)
+            {
+                _consumer.startTable(_activeTable.getMetaData());
+            }
+            _activeTable.startTable();
+        }
+
+        // Row notification
+        if (reader.getAttributeCount() > 0)
+        {
+            Object[] values = _activeTable.createRow(reader);
+            if (_columnSensing)
+            {
+                _activeTable.addRow(values);
+            }
+            else
+            {
+                _consumer.row(values);
+            }
+        }
+    }
+
+    private TableState createTableState(String tableName, XMLStreamReader reader)
+            throws DataSetException
+    {
+        if (_metaDataSet != null)
+        {
+            return new TableState(_metaDataSet.getTableMetaData(tableName));
+        }
+
+        // Create metadata from attributes
+        int attributeCount = reader.getAttributeCount();
+        Column[] columns = new Column[attributeCount];
+        for (int i = 0; i < attributeCount; i++)
+        {
+            columns[i] = new Column(getAttributeName(reader, i), DataType.UNKNOWN);
+        }
+        return new TableState(new DefaultTableMetaData(tableName, columns));
+    }
+
+    private void endDataSet() throws DataSetException
+    {
+        if (_columnSensing)
+        {
+            for (Iterator i = _tables.orderedValues().iterator(); i.hasNext();)
+            {
+                TableState table = (TableState)i.next();
+                _consumer.startTable(table.getMetaData());
+                table.flushRows(_consumer);
+                _consumer.endTable();
+            }
+        }
+        else if (_activeTable != null)
+        {
+            _consumer.endTable();
+        }
+        _activeTable = null;
+        _consumer.endDataSet();
+    }
+
+    /**
+     * The columns and the attribute mapping of one table.
+     */
+    private class TableState
+    {
+        private final String _tableName;
+        private ITableMetaData _metaData;
+        /**
+         * The columns of {@link #_metaData} followed by the columns found by column sensing
+         */
+        private final List _columns = new ArrayList();
+        /**
+         * Maps column names to their index in {@link #_columns}
+         */
+        private final Map _columnIndexes = new HashMap();
+        /**
+         * The rows read with column sensing. Rows read before a column was added are shorter.
+         */
+        private final List _rows;
+
+        private String[] _lastAttributeNames = new String[0];
+        private int[] _lastMapping = new int[0];
+        private int _lineNumber;
+
+        TableState(ITableMetaData metaData) throws DataSetException
+        {
+            _tableName = metaData.getTableName();
+            _metaData = metaData;
+            Column[] columns = metaData.getColumns();
+            for (int i = 0; i < columns.length; i++)
+            {
+                _columns.add(columns[i]);
+                _columnIndexes.put(columns[i].getColumnName(), new Integer(i));
+            }
+            _rows = _columnSensing ? new ArrayList() : null;
+        }
+
+        String getTableName()
+        {
+            return _tableName;
+        }
+
+        void startTable()
+        {
+            _lineNumber = 0;
+        }
+
+        ITableMetaData getMetaData() throws DataSetException
+        {
+            if (_metaData.getColumns().length != _columns.size())
+            {
+                _metaData = new DefaultTableMetaData(_tableName,
+                        (Column[])_columns.toArray(new Column[_columns.size()]));
+            }
+            return _metaData;
+        }
+
+        Object[] createRow(XMLStreamReader reader)
+        {
+            _lineNumber++;
+            int[] mapping = getMapping(reader);
+            Object[] values = new Object[_columns.size()];
+            for (int i = 0; i < mapping.length; i++)
+            {
+                if (mapping[i] >= 0)
+                {
+                    values[mapping[i]] = reader.getAttributeValue(i);
+                }
+            }
+            return values;
+        }
+
+        void addRow(Object[] values)
+        {
+            _rows.add(values);
+        }
+
+        void flushRows(IDataSetConsumer consumer) throws DataSetException
+        {
+            int columnCount = _columns.size();
+            for (int i = 0; i < _rows.size(); i++)
+            {
+                Object[] values = (Object[])_rows.get(i);
+                if (values.length < columnCount)
+                {
+                    Object[] newValues = new Object[columnCount];
+                    System.arraycopy(values, 0, newValues, 0, values.length);
+                    values = newValues;
+                }
+                consumer.row(values);
+            }
+            _rows.clear();
+        }
+
+        /**
+         * @return The column index of each attribute of the current element or -1
+         * for an attribute without column
+         */
+        private int[] getMapping(XMLStreamReader reader)
+        {
+            int attributeCount = reader.getAttributeCount();
+            if (attributeCount == _lastAttributeNames.length)
+            {
+                int i = 0;
+                while (i < attributeCount
+                        && _lastAttributeNames[i].equals(getAttributeName(reader, i)))
+                {
+                    i++;
+                }
+                if (i == attributeCount)
+                {
+                    return _lastMapping;
+                }
+            }
+
+            String[] attributeNames = new String[attributeCount];
+            int[] mapping = new int[attributeCount];
+            StringBuffer extraColumnNames = null;
+            for (int i = 0; i < attributeCount; i++)
+            {
+                attributeNames[i] = getAttributeName(reader, i);
+                Integer index = (Integer)_columnIndexes.get(attributeNames[i]);
+                if (index != null)
+                {
+                    mapping[i] = index.intValue();
+                }
+                else if (_columnSensing && !_dtdPresent)
+                {
+                    mapping[i] = _columns.size();
+                    _columns.add(new Column(attributeNames[i], DataType.UNKNOWN));
+                    _columnIndexes.put(attributeNames[i], new Integer(mapping[i]));
+                }
+                else
+                {
+                    mapping[i] = -1;
+                    if (!_dtdPresent)
+                    {
+                        extraColumnNames = extraColumnNames == null
+                                ? new StringBuffer() : extraColumnNames.append(',');
+                        extraColumnNames.append(attributeNames[i]);
+                    }
+                }
+            }
+
+            if (extraColumnNames != null)
+            {
+                logger.warn("Extra columns (" + extraColumnNames + ") on line " + _lineNumber
+                        + " for table " + _tableName + " (line number in the document is "
+                        + reader.getLocation().getLineNumber() + "). Those columns will be ignored."
+                        + "\n\tPlease add the extra columns to line 1,"
+                        + " or use a DTD to make sure the value of those columns are populated"
+                        + " or specify 'columnSensing=true' for your FlatXmlProducer."
+                        + "\n\tSee FAQ for more details.");
+            }
+
+            _lastAttributeNames = attributeNames;
+            _lastMapping = mapping;
+            return mapping;
+        }
+    }
+}
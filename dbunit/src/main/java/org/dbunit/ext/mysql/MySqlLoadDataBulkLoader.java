@@ -0,0 +1,249 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.ext.mysql;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.List;
+
+import org.dbunit.DatabaseUnitException;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.datatype.TypeCastException;
+import org.dbunit.operation.AbstractBulkLoader;
+import org.dbunit.util.SQLHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bulk loader for {@link org.dbunit.operation.BulkInsertOperation} using
+ * <code>LOAD DATA LOCAL INFILE</code> with the data passed as stream through
+ * <code>setLocalInfileInputStream()</code> of MySQL Connector/J 5.1.3 or later, so no
+ * file is written. The driver is accessed by reflection, so tables are inserted with
+ * {@link org.dbunit.operation.DatabaseOperation#INSERT} if the statements do not
+ * provide this method. The server must allow <code>local_infile</code>. Binary columns
+ * are transferred as hexadecimal text and converted with <code>UNHEX()</code>.
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class MySqlLoadDataBulkLoader extends AbstractBulkLoader
+{
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(MySqlLoadDataBulkLoader.class);
+
+    private static final String[] STATEMENT_INTERFACES = new String[] {
+        "com.mysql.jdbc.Statement", "com.mysql.cj.jdbc.JdbcStatement"
+    };
+
+    private static final String ENCODING = "UTF-8";
+
+    public MySqlLoadDataBulkLoader()
+    {
+        super();
+    }
+
+    /**
+     * @param chunkSize The maximum number of rows per LOAD DATA statement
+     */
+    public MySqlLoadDataBulkLoader(int chunkSize)
+    {
+        super(chunkSize);
+    }
+
+    public boolean isSupported(IDatabaseConnection connection, ITableMetaData metaData)
+            throws DatabaseUnitException, SQLException
+    {
+        Statement statement = connection.getConnection().createStatement();
+        try
+        {
+            return getSetInputStreamMethod(statement) != null;
+        }
+        finally
+        {
+            SQLHelper.close(statement);
+        }
+    }
+
+    /**
+     * @return The method <code>setLocalInfileInputStream(InputStream)</code> of the
+     * statement or <code>null</code> if not available
+     */
+    private Method getSetInputStreamMethod(Statement statement)
+    {
+        for (int i = 0; i < STATEMENT_INTERFACES.length; i++)
+        {
+            try
+            {
+                Class statementClass = Class.forName(STATEMENT_INTERFACES[i], true,
+                        statement.getClass().getClassLoader());
+                if (statementClass.isInstance(statement))
+                {
+                    return statementClass.getMethod("setLocalInfileInputStream",
+                            new Class[] {InputStream.class});
+                }
+            }
+            catch (Exception e)
+            {
+                logger.debug("LOAD DATA LOCAL INFILE is not supported by " + STATEMENT_INTERFACES[i] + ": " + e);
+            }
+        }
+        return null;
+    }
+
+    protected void loadChunk(IDatabaseConnection connection, String qualifiedTableName,
+            Column[] columns, List rows) throws DatabaseUnitException, SQLException
+    {
+        StringBuffer data = new StringBuffer(rows.size() * columns.length * 16);
+        for (int i = 0; i < rows.size(); i++)
+        {
+            formatRow(columns, (Object[])rows.get(i), data);
+        }
+        String sql = getSql(qualifiedTableName, columns, connection);
+        logger.debug("loadChunk: {} ({} rows)", sql, String.valueOf(rows.size()));
+
+        Statement statement = connection.getConnection().createStatement();
+        try
+        {
+            Method setInputStreamMethod = getSetInputStreamMethod(statement);
+            setInputStreamMethod.invoke(statement, new Object[] {
+                    new ByteArrayInputStream(data.toString().getBytes(ENCODING))});
+            statement.execute(sql);
+        }
+        catch (InvocationTargetException e)
+        {
+            throw new DatabaseUnitException("LOAD DATA into " + qualifiedTableName + " failed",
+                    e.getTargetException());
+        }
+        catch (IllegalAccessException e)
+        {
+            throw new DatabaseUnitException("LOAD DATA into " + qualifiedTableName + " failed", e);
+        }
+        catch (UnsupportedEncodingException e)
+        {
+            throw new DatabaseUnitException(e);
+        }
+        finally
+        {
+            SQLHelper.close(statement);
+        }
+    }
+
+    String getSql(String qualifiedTableName, Column[] columns, IDatabaseConnection connection)
+    {
+        StringBuffer sqlBuffer = new StringBuffer(256);
+        sqlBuffer.append("LOAD DATA LOCAL INFILE 'dbunit.txt' INTO TABLE ");
+        sqlBuffer.append(qualifiedTableName);
+        sqlBuffer.append(" CHARACTER SET utf8");
+        sqlBuffer.append(" FIELDS TERMINATED BY '\\t' ESCAPED BY '\\\\'");
+        sqlBuffer.append(" LINES TERMINATED BY '\\n' (");
+
+        StringBuffer setBuffer = new StringBuffer();
+        for (int j = 0; j < columns.length; j++)
+        {
+            if (j > 0)
+            {
+                sqlBuffer.append(", ");
+            }
+            String columnName = getQualifiedName(null, columns[j].getColumnName(), connection);
+            if (isBinary(columns[j]))
+            {
+                // binary values are sent as hex text into a user variable
+                String variable = "@dbunit" + j;
+                sqlBuffer.append(variable);
+                setBuffer.append(setBuffer.length() == 0 ? " SET " : ", ");
+                setBuffer.append(columnName).append(" = UNHEX(").append(variable).append(")");
+            }
+            else
+            {
+                sqlBuffer.append(columnName);
+            }
+        }
+        sqlBuffer.append(")");
+        sqlBuffer.append(setBuffer);
+        return sqlBuffer.toString();
+    }
+
+    private boolean isBinary(Column column)
+    {
+        switch (column.getDataType().getSqlType())
+        {
+        case Types.BINARY:
+        case Types.VARBINARY:
+        case Types.LONGVARBINARY:
+        case Types.BLOB:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Appends a row in the default format of LOAD DATA.
+     */
+    void formatRow(Column[] columns, Object[] values, StringBuffer data) throws TypeCastException
+    {
+        for (int j = 0; j < columns.length; j++)
+        {
+            if (j > 0)
+            {
+                data.append('\t');
+            }
+            String text = toText(values[j], columns[j]);
+            if (text == null)
+            {
+                data.append("\\N");
+                continue;
+            }
+            for (int k = 0; k < text.length(); k++)
+            {
+                char c = text.charAt(k);
+                switch (c)
+                {
+                case '\\': data.append("\\\\"); break;
+                case '\t': data.append("\\t"); break;
+                case '\n': data.append("\\n"); break;
+                case '\r': data.append("\\r"); break;
+                case '\0': data.append("\\0"); break;
+                default: data.append(c); break;
+                }
+            }
+        }
+        data.append('\n');
+    }
+
+    protected String toText(Boolean value)
+    {
+        return value.booleanValue() ? "1" : "0";
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.ext.oracle;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.database.SchemaSnapshot;
+import org.dbunit.database.SchemaSnapshotLoader;
+import org.dbunit.util.SQLHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link SchemaSnapshotLoader} that reads the primary and foreign keys of a whole schema
+ * with one query each from the Oracle data dictionary views <code>ALL_CONSTRAINTS</code>
+ * and <code>ALL_CONS_COLUMNS</code>. The fingerprint is computed from the object count and
+ * the latest <code>LAST_DDL_TIME</code> in <code>ALL_OBJECTS</code>, so that column
+ * changes are detected as well.
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class OracleSchemaSnapshotLoader extends SchemaSnapshotLoader
+{
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(OracleSchemaSnapshotLoader.class);
+
+    private static final String FINGERPRINT_SQL =
+        "select count(*), max(last_ddl_time) from all_objects where owner = ?";
+
+    private static final String PRIMARY_KEYS_SQL =
+        "select c.table_name, cc.column_name, cc.position"
+        + " from all_constraints c join all_cons_columns cc"
+        + " on c.owner = cc.owner and c.constraint_name = cc.constraint_name"
+        + " where c.owner = ? and c.constraint_type = 'P'"
+        + " order by c.table_name, cc.position";
+
+    private static final String FOREIGN_KEYS_SQL =
+        "select pk.owner, pk.table_name, pkc.column_name,"
+        + " fk.table_name, fkc.column_name, fkc.position, fk.constraint_name"
+        + " from all_constraints fk"
+        + " join all_cons_columns fkc"
+        + " on fk.owner = fkc.owner and fk.constraint_name = fkc.constraint_name"
+        + " join all_constraints pk"
+        + " on fk.r_owner = pk.owner and fk.r_constraint_name = pk.constraint_name"
+        + " join all_cons_columns pkc"
+        + " on pk.owner = pkc.owner and pk.constraint_name = pkc.constraint_name"
+        + " and pkc.position = fkc.position"
+        + " where fk.owner = ? and fk.constraint_type = 'R'"
+        + " order by fk.table_name, fk.constraint_name, fkc.position";
+
+    public String computeFingerprint(IDatabaseConnection connection, String schema) throws SQLException
+    {
+        logger.debug("computeFingerprint(connection={}, schema={}) - start", connection, schema);
+
+        Connection jdbcConnection = connection.getConnection();
+        PreparedStatement statement = jdbcConnection.prepareStatement(FINGERPRINT_SQL);
+        ResultSet resultSet = null;
+        try
+        {
+            statement.setString(1, schema);
+            resultSet = statement.executeQuery();
+            resultSet.next();
+            return jdbcConnection.getMetaData().getDatabaseProductVersion()
+                + "|" + resultSet.getLong(1) + "|" + resultSet.getTimestamp(2);
+        }
+        finally
+        {
+            SQLHelper.close(resultSet, statement);
+        }
+    }
+
+    protected void loadPrimaryKeys(SchemaSnapshot snapshot, IDatabaseConnection connection)
+    throws SQLException
+    {
+        logger.debug("loadPrimaryKeys(snapshot={}, connection={}) - start", snapshot, connection);
+
+        Map keysByTable = new HashMap();
+        PreparedStatement statement = connection.getConnection().prepareStatement(PRIMARY_KEYS_SQL);
+        ResultSet resultSet = null;
+        try
+        {
+            statement.setString(1, snapshot.getSchema());
+            resultSet = statement.executeQuery();
+            while (resultSet.next())
+            {
+                String tableName = resultSet.getString(1);
+                String[] keys = (String[])keysByTable.get(tableName);
+                if (keys == null)
+                {
+                    keys = new String[0];
+                }
+                keysByTable.put(tableName, addKey(keys, resultSet.getString(2), resultSet.getInt(3)));
+            }
+        }
+        finally
+        {
+            SQLHelper.close(resultSet, statement);
+        }
+
+        SchemaSnapshot.TableSnapshot[] tables = snapshot.getTables();
+        for (int i = 0; i < tables.length; i++)
+        {
+            String[] keys = (String[])keysByTable.get(tables[i].getTableName());
+            if (keys != null)
+            {
+                setPrimaryKeyNames(tables[i], keys);
+            }
+        }
+    }
+
+    protected void loadForeignKeys(SchemaSnapshot snapshot, IDatabaseConnection connection)
+    throws SQLException
+    {
+        logger.debug("loadForeignKeys(snapshot={}, connection={}) - start", snapshot, connection);
+
+        PreparedStatement statement = connection.getConnection().prepareStatement(FOREIGN_KEYS_SQL);
+        ResultSet resultSet = null;
+        try
+        {
+            statement.setString(1, snapshot.getSchema());
+            resultSet = statement.executeQuery();
+            while (resultSet.next())
+            {
+                addForeignKey(snapshot, new SchemaSnapshot.ForeignKeySnapshot(
+                        resultSet.getString(1), resultSet.getString(2), resultSet.getString(3),
+                        resultSet.getString(4), resultSet.getString(5),
+                        resultSet.getInt(6), resultSet.getString(7)));
+            }
+        }
+        finally
+        {
+            SQLHelper.close(resultSet, statement);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.ext.postgresql;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.dbunit.DatabaseUnitException;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.datatype.TypeCastException;
+import org.dbunit.operation.AbstractBulkLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bulk loader for {@link org.dbunit.operation.BulkInsertOperation} using
+ * <code>COPY ... FROM STDIN</code> of the PostgreSQL JDBC driver 8.4 or later. The
+ * driver is accessed by reflection, so tables are inserted with
+ * {@link org.dbunit.operation.DatabaseOperation#INSERT} if the connection is not a
+ * <code>org.postgresql.PGConnection</code>, for example a pooled connection wrapper.
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class PostgresqlCopyBulkLoader extends AbstractBulkLoader
+{
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(PostgresqlCopyBulkLoader.class);
+
+    private static final String PG_CONNECTION_CLASS = "org.postgresql.PGConnection";
+
+    public PostgresqlCopyBulkLoader()
+    {
+        super();
+    }
+
+    /**
+     * @param chunkSize The maximum number of rows per COPY command
+     */
+    public PostgresqlCopyBulkLoader(int chunkSize)
+    {
+        super(chunkSize);
+    }
+
+    public boolean isSupported(IDatabaseConnection connection, ITableMetaData metaData)
+            throws DatabaseUnitException, SQLException
+    {
+        return getCopyApi(connection.getConnection()) != null;
+    }
+
+    /**
+     * @return The <code>org.postgresql.copy.CopyManager</code> of the connection or
+     * <code>null</code> if not available
+     */
+    private Object getCopyApi(Connection jdbcConnection)
+    {
+        try
+        {
+            Class pgConnectionClass = Class.forName(PG_CONNECTION_CLASS, true,
+                    jdbcConnection.getClass().getClassLoader());
+            if (!pgConnectionClass.isInstance(jdbcConnection))
+            {
+                return null;
+            }
+            Method getCopyApiMethod = pgConnectionClass.getMethod("getCopyAPI", new Class[0]);
+            return getCopyApiMethod.invoke(jdbcConnection, new Object[0]);
+        }
+        catch (Exception e)
+        {
+            logger.debug("COPY is not supported by the connection: " + e);
+            return null;
+        }
+    }
+
+    protected void loadChunk(IDatabaseConnection connection, String qualifiedTableName,
+            Column[] columns, List rows) throws DatabaseUnitException, SQLException
+    {
+        StringBuffer data = new StringBuffer(rows.size() * columns.length * 16);
+        for (int i = 0; i < rows.size(); i++)
+        {
+            formatRow(columns, (Object[])rows.get(i), data);
+        }
+        String sql = getSql(qualifiedTableName, columns, connection);
+        logger.debug("loadChunk: {} ({} rows)", sql, String.valueOf(rows.size()));
+
+        Object copyApi = getCopyApi(connection.getConnection());
+        try
+        {
+            Method copyInMethod = copyApi.getClass().getMethod("copyIn",
+                    new Class[] {String.class, Reader.class});
+            copyInMethod.invoke(copyApi, new Object[] {sql, new StringReader(data.toString())});
+        }
+        catch (InvocationTargetException e)
+        {
+            if (e.getTargetException() instanceof SQLException)
+            {
+                throw (SQLException)e.getTargetException();
+            }
+            throw new DatabaseUnitException("COPY into " + qualifiedTableName + " failed",
+                    e.getTargetException());
+        }
+        catch (Exception e)
+        {
+            throw new DatabaseUnitException("COPY into " + qualifiedTableName + " failed", e);
+        }
+    }
+
+    String getSql(String qualifiedTableName, Column[] columns, IDatabaseConnection connection)
+    {
+        StringBuffer sqlBuffer = new StringBuffer(128);
+        sqlBuffer.append("COPY ").append(qualifiedTableName).append(" (");
+        for (int j = 0; j < columns.length; j++)
+        {
+            if (j > 0)
+            {
+                sqlBuffer.append(", ");
+            }
+            sqlBuffer.append(getQualifiedName(null, columns[j].getColumnName(), connection));
+        }
+        sqlBuffer.append(") FROM STDIN");
+        return sqlBuffer.toString();
+    }
+
+    /**
+     * Appends a row in the text format of COPY.
+     */
+    void formatRow(Column[] columns, Object[] values, StringBuffer data) throws TypeCastException
+    {
+        for (int j = 0; j < columns.length; j++)
+        {
+            if (j > 0)
+            {
+                data.append('\t');
+            }
+            String text = toText(values[j], columns[j]);
+            if (text == null)
+            {
+                data.append("\\N");
+                continue;
+            }
+            for (int k = 0; k < text.length(); k++)
+            {
+                char c = text.charAt(k);
+                switch (c)
+                {
+                case '\\': data.append("\\\\"); break;
+                case '\t': data.append("\\t"); break;
+                case '\n': data.append("\\n"); break;
+                case '\r': data.append("\\r"); break;
+                default: data.append(c); break;
+                }
+            }
+        }
+        data.append('\n');
+    }
+
+    /**
+     * @return The bytes in the escape format of bytea, which is understood by all
+     * PostgreSQL versions
+     */
+    protected String toText(byte[] bytes)
+    {
+        StringBuffer sb = new StringBuffer(bytes.length * 4);
+        for (int i = 0; i < bytes.length; i++)
+        {
+            int b = bytes[i] & 0xFF;
+            sb.append('\\');
+            sb.append((char)('0' + (b >> 6)));
+            sb.append((char)('0' + ((b >> 3) & 7)));
+            sb.append((char)('0' + (b & 7)));
+        }
+        return sb.toString();
+    }
+
+    protected String toText(Boolean value)
+    {
+        return value.booleanValue() ? "t" : "f";
+    }
+}
@@ -29,6 +29,7 @@ import org.dbunit.database.IDatabaseConnection;
 import org.dbunit.database.statement.IPreparedBatchStatement;
 import org.dbunit.database.statement.IStatementFactory;
 import org.dbunit.dataset.Column;
+import org.dbunit.dataset.ColumnIndexMapping;
 import org.dbunit.dataset.DataSetException;
 import org.dbunit.dataset.IDataSet;
 import org.dbunit.dataset.ITable;
@@ -74,7 +75,7 @@ public abstract class AbstractBatchOperation extends AbstractOperation
         // Try to fetch first table value
         try
         {
-            table.getValue(0, columns[0].getColumnName());
+            ColumnIndexMapping.getValue(table, 0, 0);
             return false;
         }
         catch (RowOutOfBoundsException e)
@@ -124,6 +125,7 @@ public abstract class AbstractBatchOperation extends AbstractOperation
 
         DatabaseConfig databaseConfig = connection.getConfig();
         IStatementFactory factory = (IStatementFactory)databaseConfig.getProperty(DatabaseConfig.PROPERTY_STATEMENT_FACTORY);
+        IOperationMetrics metrics = getOperationMetrics(connection);
 
         // for each table
         ITableIterator iterator = iterator(dataSet);
@@ -140,9 +142,18 @@ public abstract class AbstractBatchOperation extends AbstractOperation
                 continue;
             }
 
+            long tableStart = 0;
+            if (metrics != null)
+            {
+                tableStart = System.nanoTime();
+                metrics.tableStarted(this, tableName);
+            }
+
             ITableMetaData metaData = getOperationMetaData(connection, table.getTableMetaData());
+            int rowCount = 0;
             BitSet ignoreMapping = null;
             OperationData operationData = null;
+            ColumnIndexMapping columnMapping = null;
             IPreparedBatchStatement statement = null;
 
             try
@@ -171,8 +182,16 @@ public abstract class AbstractBatchOperation extends AbstractOperation
 
                             ignoreMapping = getIgnoreMapping(table, row);
                             operationData = getOperationData(metaData, ignoreMapping, connection);
+                            columnMapping = new ColumnIndexMapping(table,
+                                    operationData.getColumns());
+                            long prepareStart = metrics == null ? 0 : System.nanoTime();
                             statement = factory.createPreparedBatchStatement(
                                     operationData.getSql(), connection);
+                            if (metrics != null)
+                            {
+                                metrics.statementPrepared(operationData.getSql(),
+                                        System.nanoTime() - prepareStart);
+                            }
                         }
 
 
@@ -185,10 +204,11 @@ public abstract class AbstractBatchOperation extends AbstractOperation
                             {
                                 Column column = columns[j];
                                 String columnName = column.getColumnName();
+                                Object value = null;
                                 try
                                 {
                                     DataType dataType = column.getDataType();
-                                    Object value = table.getValue(row, columnName);
+                                    value = columnMapping.getValue(row, j);
 
                                     if (value == "")
                                     {
@@ -206,11 +226,16 @@ public abstract class AbstractBatchOperation extends AbstractOperation
                                                     + "' and column '"
                                                     + columnName + "'";
                                     logger.error("execute: {}", msg);
+                                    if (metrics != null)
+                                    {
+                                        metrics.typeCastFailed(tableName, columnName, value, e);
+                                    }
                                     throw new TypeCastException(msg, e);
                                 }
                             }
                         }
                         statement.addBatch();
+                        rowCount++;
                     }
                 }
                 catch (RowOutOfBoundsException e)
@@ -223,6 +248,12 @@ public abstract class AbstractBatchOperation extends AbstractOperation
 
                 statement.executeBatch();
                 statement.clearBatch();
+
+                if (metrics != null)
+                {
+                    metrics.tableFinished(this, tableName, rowCount,
+                            System.nanoTime() - tableStart);
+                }
             }
             catch (SQLException e)
             {
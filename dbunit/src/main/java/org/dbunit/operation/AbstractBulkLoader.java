@@ -0,0 +1,267 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.operation;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import org.dbunit.DatabaseUnitException;
+import org.dbunit.database.DatabaseConfig;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.ColumnIndexMapping;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.RowOutOfBoundsException;
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.dataset.datatype.TypeCastException;
+import org.dbunit.util.QualifiedTableName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Base class of bulk loaders which reads the rows of a table in chunks. Like
+ * {@link InsertOperation} the columns having the value {@link ITable#NO_VALUE} are left
+ * out, so a new chunk is started whenever the set of such columns changes.
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public abstract class AbstractBulkLoader implements IBulkLoader
+{
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(AbstractBulkLoader.class);
+
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    private final int _chunkSize;
+
+    public AbstractBulkLoader()
+    {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param chunkSize The maximum number of rows passed to
+     * {@link #loadChunk(IDatabaseConnection, String, Column[], List)} at once
+     */
+    public AbstractBulkLoader(int chunkSize)
+    {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("The parameter 'chunkSize' must be greater than 0: " + chunkSize);
+        }
+        _chunkSize = chunkSize;
+    }
+
+    public int getChunkSize()
+    {
+        return _chunkSize;
+    }
+
+    public int load(IDatabaseConnection connection, ITableMetaData metaData, ITable table)
+            throws DatabaseUnitException, SQLException
+    {
+        logger.debug("load(connection={}, metaData={}, table={}) - start",
+                new Object[] {connection, metaData, table});
+
+        String tableName = metaData.getTableName();
+        String qualifiedTableName = getQualifiedName(connection.getSchema(), tableName, connection);
+        Column[] allColumns = metaData.getColumns();
+        ColumnIndexMapping mapping = new ColumnIndexMapping(table, allColumns);
+
+        int rowCount = 0;
+        BitSet ignoreMapping = null;
+        Column[] columns = null;
+        List chunk = new ArrayList();
+        try
+        {
+            for (int row = 0; ; row++)
+            {
+                Object[] allValues = new Object[allColumns.length];
+                BitSet rowIgnoreMapping = new BitSet();
+                for (int j = 0; j < allColumns.length; j++)
+                {
+                    allValues[j] = mapping.getValue(row, j);
+                    if (allValues[j] == ITable.NO_VALUE)
+                    {
+                        rowIgnoreMapping.set(j);
+                    }
+                    else if (allValues[j] == "")
+                    {
+                        handleColumnHasNoValue(tableName, allColumns[j].getColumnName());
+                    }
+                }
+
+                if (!rowIgnoreMapping.equals(ignoreMapping) || chunk.size() == _chunkSize)
+                {
+                    if (!chunk.isEmpty())
+                    {
+                        loadChunk(connection, qualifiedTableName, columns, chunk);
+                        chunk.clear();
+                    }
+                    if (!rowIgnoreMapping.equals(ignoreMapping))
+                    {
+                        ignoreMapping = rowIgnoreMapping;
+                        columns = getColumns(allColumns, ignoreMapping);
+                    }
+                }
+
+                chunk.add(getValues(allValues, ignoreMapping));
+                rowCount++;
+            }
+        }
+        catch (RowOutOfBoundsException e)
+        {
+            // end of table
+        }
+
+        if (!chunk.isEmpty())
+        {
+            loadChunk(connection, qualifiedTableName, columns, chunk);
+        }
+        return rowCount;
+    }
+
+    private Column[] getColumns(Column[] allColumns, BitSet ignoreMapping)
+    {
+        List columns = new ArrayList(allColumns.length);
+        for (int j = 0; j < allColumns.length; j++)
+        {
+            if (!ignoreMapping.get(j))
+            {
+                columns.add(allColumns[j]);
+            }
+        }
+        return (Column[])columns.toArray(new Column[columns.size()]);
+    }
+
+    private Object[] getValues(Object[] allValues, BitSet ignoreMapping)
+    {
+        Object[] values = new Object[allValues.length - ignoreMapping.cardinality()];
+        int count = 0;
+        for (int j = 0; j < allValues.length; j++)
+        {
+            if (!ignoreMapping.get(j))
+            {
+                values[count++] = allValues[j];
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Loads one chunk of rows.
+     * @param connection The connection
+     * @param qualifiedTableName The escaped table name, qualified with the schema if
+     * the connection has one
+     * @param columns The columns to be loaded
+     * @param rows The rows, each one an <code>Object[]</code> holding the dataset
+     * values of the columns
+     */
+    protected abstract void loadChunk(IDatabaseConnection connection,
+            String qualifiedTableName, Column[] columns, List rows)
+            throws DatabaseUnitException, SQLException;
+
+    /**
+     * Converts a dataset value to the text representation expected by text based bulk
+     * loaders. The value is first cast with {@link DataType#typeCast(Object)} of the
+     * column, which is the conversion {@link DataType#setSqlValue} applies for
+     * {@link InsertOperation}.
+     * @param value The dataset value
+     * @param column The column
+     * @return The text or <code>null</code> for a SQL NULL
+     */
+    protected String toText(Object value, Column column) throws TypeCastException
+    {
+        Object castValue = column.getDataType().typeCast(value);
+        if (castValue == null)
+        {
+            return null;
+        }
+        if (castValue instanceof byte[])
+        {
+            return toText((byte[])castValue);
+        }
+        if (castValue instanceof Boolean)
+        {
+            return toText((Boolean)castValue);
+        }
+        if (castValue instanceof BigDecimal)
+        {
+            return ((BigDecimal)castValue).toPlainString();
+        }
+        // Timestamp, Date and Time use the JDBC escape formats
+        return castValue.toString();
+    }
+
+    /**
+     * @return The given bytes as hexadecimal digits
+     */
+    protected String toText(byte[] bytes)
+    {
+        StringBuffer sb = new StringBuffer(bytes.length * 2);
+        for (int i = 0; i < bytes.length; i++)
+        {
+            sb.append(Character.forDigit((bytes[i] >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(bytes[i] & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    protected String toText(Boolean value)
+    {
+        return value.toString();
+    }
+
+    protected String getQualifiedName(String prefix, String name, IDatabaseConnection connection)
+    {
+        String escapePattern = (String)connection.getConfig().getProperty(DatabaseConfig.PROPERTY_ESCAPE_PATTERN);
+        return new QualifiedTableName(name, prefix, escapePattern).getQualifiedName();
+    }
+
+    protected void handleColumnHasNoValue(String tableName, String columnName)
+    {
+        final String tableColumnName = tableName + "." + columnName;
+        final String msg =
+                "table.column=" + tableColumnName
+                        + " value is empty but must contain a value";
+        logger.error("load: {}", msg);
+
+        throw new IllegalArgumentException(msg);
+    }
+
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append(getClass().getName()).append("[");
+        sb.append("_chunkSize=").append(_chunkSize);
+        sb.append("]");
+        return sb.toString();
+    }
+}
@@ -74,10 +74,17 @@ public abstract class AbstractOperation extends DatabaseOperation
     {
         logger.debug("getOperationMetaData(connection={}, metaData={}) - start", connection, metaData);
 
+        IOperationMetrics metrics = getOperationMetrics(connection);
+        long start = metrics == null ? 0 : System.nanoTime();
+
         IDataSet databaseDataSet = connection.createDataSet();
         String tableName = metaData.getTableName();
 
         ITableMetaData tableMetaData = databaseDataSet.getTableMetaData(tableName);
+        if (metrics != null)
+        {
+            metrics.metaDataLoaded(tableName, System.nanoTime() - start);
+        }
         Column[] columns = metaData.getColumns();
 
         List columnList = new ArrayList();
@@ -96,4 +103,14 @@ public abstract class AbstractOperation extends DatabaseOperation
                 (Column[])columnList.toArray(new Column[0]),
                 tableMetaData.getPrimaryKeys());
     }
+
+    /**
+     * @return The receiver of the events configured with
+     * {@link DatabaseConfig#PROPERTY_OPERATION_METRICS} or <code>null</code>
+     */
+    static IOperationMetrics getOperationMetrics(IDatabaseConnection connection)
+    {
+        return (IOperationMetrics)connection.getConfig().getProperty(
+                DatabaseConfig.PROPERTY_OPERATION_METRICS);
+    }
 }
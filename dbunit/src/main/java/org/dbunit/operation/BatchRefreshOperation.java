@@ -0,0 +1,489 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+package org.dbunit.operation;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.dbunit.DatabaseUnitException;
+import org.dbunit.DatabaseUnitRuntimeException;
+import org.dbunit.database.DatabaseConfig;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.CachedTable;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.IRowValueProvider;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableIterator;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.NoPrimaryKeyException;
+import org.dbunit.dataset.RowFilterTable;
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.dataset.filter.IRowFilter;
+import org.dbunit.util.Base64;
+import org.dbunit.util.SQLHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Set based variant of the {@link RefreshOperation}. Instead of trying an
+ * update followed by an insert for every single row, the primary keys of the
+ * dataset rows are looked up in the database using chunked <code>IN</code>
+ * list queries. The rows are then split into an update and an insert set and
+ * both sets are written using the batched {@link UpdateOperation} and
+ * {@link InsertOperation}. Like with the {@link RefreshOperation}, dataset rows
+ * repeating the new key of a previous row update the inserted row.
+ * <p>
+ * The number of keys probed per query is configured using the
+ * {@link DatabaseConfig#PROPERTY_REFRESH_PROBE_SIZE} property.
+ * Like the {@link RefreshOperation} this operation requires a primary key for
+ * every table and leaves rows which exist in the database but not in the
+ * dataset unaffected.
+ * </p>
+ *
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class BatchRefreshOperation extends AbstractOperation
+{
+
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(BatchRefreshOperation.class);
+
+    private final InsertOperation _insertOperation;
+    private final UpdateOperation _updateOperation;
+
+    BatchRefreshOperation()
+    {
+        _insertOperation = (InsertOperation)DatabaseOperation.INSERT;
+        _updateOperation = (UpdateOperation)DatabaseOperation.UPDATE;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // DatabaseOperation class
+
+    public void execute(IDatabaseConnection connection, IDataSet dataSet)
+            throws DatabaseUnitException, SQLException
+    {
+        logger.debug("execute(connection={}, dataSet) - start", connection);
+
+        DatabaseConfig config = connection.getConfig();
+        int probeSize = ((Integer)config.getProperty(
+                DatabaseConfig.PROPERTY_REFRESH_PROBE_SIZE)).intValue();
+
+        // for each table
+        ITableIterator iterator = dataSet.iterator();
+        while (iterator.next())
+        {
+            ITable table = iterator.getTable();
+
+            String tableName = table.getTableMetaData().getTableName();
+            logger.trace("execute: processing table='{}'", tableName);
+
+            // Do not process empty table
+            if (AbstractBatchOperation.isEmpty(table))
+            {
+                continue;
+            }
+
+            ITableMetaData metaData = getOperationMetaData(connection,
+                    table.getTableMetaData());
+            Column[] primaryKeys = metaData.getPrimaryKeys();
+
+            // cannot identify existing rows if no primary key
+            if (primaryKeys.length == 0)
+            {
+                throw new NoPrimaryKeyException(metaData.getTableName());
+            }
+
+            // the table is read several times so it must support random access
+            table = getRandomAccessTable(table);
+
+            Set existingKeys;
+            try
+            {
+                existingKeys = probeExistingKeys(connection, metaData, table,
+                        probeSize);
+            }
+            catch (SQLException e)
+            {
+                final String msg =
+                    "Exception processing table name='" + tableName + "'";
+                throw new DatabaseUnitException(msg, e);
+            }
+
+            ITable updateTable = new RowFilterTable(table,
+                    new KeyRowFilter(primaryKeys, existingKeys, KeyRowFilter.EXISTING));
+            ITable insertTable = new RowFilterTable(table,
+                    new KeyRowFilter(primaryKeys, existingKeys, KeyRowFilter.NEW));
+            ITable repeatedTable = new RowFilterTable(table,
+                    new KeyRowFilter(primaryKeys, existingKeys, KeyRowFilter.REPEATED));
+
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Refreshing table '{}': {} rows to update, {} rows to insert,"
+                        + " {} rows to update after the insert",
+                        new Object[] {tableName, new Integer(updateTable.getRowCount()),
+                        new Integer(insertTable.getRowCount()),
+                        new Integer(repeatedTable.getRowCount())});
+            }
+
+            // update only if columns are not all primary keys
+            boolean hasUpdatableColumns = metaData.getColumns().length > primaryKeys.length;
+            if (hasUpdatableColumns && updateTable.getRowCount() > 0)
+            {
+                _updateOperation.execute(connection, new DefaultDataSet(updateTable));
+            }
+            if (insertTable.getRowCount() > 0)
+            {
+                _insertOperation.execute(connection, new DefaultDataSet(insertTable));
+            }
+            // like the RefreshOperation, later rows with the key of an inserted
+            // row update it
+            if (hasUpdatableColumns && repeatedTable.getRowCount() > 0)
+            {
+                _updateOperation.execute(connection, new DefaultDataSet(repeatedTable));
+            }
+        }
+    }
+
+    /**
+     * Returns the given table if it supports {@link ITable#getRowCount()} or
+     * a cached copy of it otherwise (forward only and streamed tables).
+     */
+    private ITable getRandomAccessTable(ITable table) throws DataSetException
+    {
+        try
+        {
+            table.getRowCount();
+            return table;
+        }
+        catch (UnsupportedOperationException e)
+        {
+            logger.debug("Table '{}' is forward only. Caching its rows.",
+                    table.getTableMetaData().getTableName());
+            return new CachedTable(table);
+        }
+    }
+
+    /**
+     * Looks up which primary keys of the given table already exist in the
+     * database, issuing one query per chunk of <code>probeSize</code> rows.
+     * @return The set of existing keys as created by {@link #createKey}
+     */
+    Set probeExistingKeys(IDatabaseConnection connection,
+            ITableMetaData metaData, ITable table, int probeSize)
+            throws DataSetException, SQLException
+    {
+        Column[] primaryKeys = metaData.getPrimaryKeys();
+        int rowCount = table.getRowCount();
+        if (probeSize < 1)
+        {
+            probeSize = 1;
+        }
+
+        Set existingKeys = new HashSet();
+        PreparedStatement chunkStatement = null;
+        try
+        {
+            List chunk = new ArrayList(Math.min(probeSize, rowCount));
+            for (int row = 0; row < rowCount; row++)
+            {
+                Object[] values = new Object[primaryKeys.length];
+                boolean hasNull = false;
+                for (int i = 0; i < primaryKeys.length; i++)
+                {
+                    values[i] = table.getValue(row, primaryKeys[i].getColumnName());
+                    if (values[i] == null || values[i] == ITable.NO_VALUE)
+                    {
+                        hasNull = true;
+                    }
+                }
+                // a row without a complete key can never exist
+                if (!hasNull)
+                {
+                    chunk.add(values);
+                }
+
+                if (chunk.size() == probeSize)
+                {
+                    if (chunkStatement == null)
+                    {
+                        chunkStatement = connection.getConnection().prepareStatement(
+                                getProbeSql(connection, metaData, probeSize));
+                    }
+                    executeProbe(chunkStatement, primaryKeys, chunk, existingKeys);
+                    chunk.clear();
+                }
+            }
+
+            // remaining keys
+            if (chunk.size() > 0)
+            {
+                PreparedStatement statement = connection.getConnection().prepareStatement(
+                        getProbeSql(connection, metaData, chunk.size()));
+                try
+                {
+                    executeProbe(statement, primaryKeys, chunk, existingKeys);
+                }
+                finally
+                {
+                    SQLHelper.close(statement);
+                }
+            }
+        }
+        finally
+        {
+            if (chunkStatement != null)
+            {
+                SQLHelper.close(chunkStatement);
+            }
+        }
+        return existingKeys;
+    }
+
+    private void executeProbe(PreparedStatement statement, Column[] primaryKeys,
+            List chunk, Set existingKeys) throws DataSetException, SQLException
+    {
+        int index = 1;
+        for (int i = 0; i < chunk.size(); i++)
+        {
+            Object[] values = (Object[])chunk.get(i);
+            for (int j = 0; j < primaryKeys.length; j++)
+            {
+                primaryKeys[j].getDataType().setSqlValue(values[j], index++, statement);
+            }
+        }
+
+        ResultSet resultSet = statement.executeQuery();
+        try
+        {
+            while (resultSet.next())
+            {
+                Object[] values = new Object[primaryKeys.length];
+                for (int j = 0; j < primaryKeys.length; j++)
+                {
+                    values[j] = primaryKeys[j].getDataType().getSqlValue(j + 1, resultSet);
+                }
+                existingKeys.add(createKey(primaryKeys, values));
+            }
+        }
+        finally
+        {
+            SQLHelper.close(resultSet);
+        }
+    }
+
+    /**
+     * Creates the select statement probing <code>keyCount</code> keys. A
+     * single column key is probed using an <code>IN</code> list, composite
+     * keys using a disjunction of key comparisons.
+     */
+    String getProbeSql(IDatabaseConnection connection, ITableMetaData metaData,
+            int keyCount) throws DataSetException
+    {
+        Column[] primaryKeys = metaData.getPrimaryKeys();
+
+        StringBuffer sqlBuffer = new StringBuffer(128 + keyCount * 4);
+        sqlBuffer.append("select ");
+        for (int i = 0; i < primaryKeys.length; i++)
+        {
+            if (i > 0)
+            {
+                sqlBuffer.append(", ");
+            }
+            sqlBuffer.append(getQualifiedName(null, primaryKeys[i].getColumnName(), connection));
+        }
+        sqlBuffer.append(" from ");
+        sqlBuffer.append(getQualifiedName(connection.getSchema(),
+                metaData.getTableName(), connection));
+        sqlBuffer.append(" where ");
+
+        if (primaryKeys.length == 1)
+        {
+            sqlBuffer.append(getQualifiedName(null, primaryKeys[0].getColumnName(), connection));
+            sqlBuffer.append(" in (");
+            for (int i = 0; i < keyCount; i++)
+            {
+                if (i > 0)
+                {
+                    sqlBuffer.append(", ");
+                }
+                sqlBuffer.append("?");
+            }
+            sqlBuffer.append(")");
+        }
+        else
+        {
+            for (int i = 0; i < keyCount; i++)
+            {
+                if (i > 0)
+                {
+                    sqlBuffer.append(" or ");
+                }
+                sqlBuffer.append("(");
+                for (int j = 0; j < primaryKeys.length; j++)
+                {
+                    if (j > 0)
+                    {
+                        sqlBuffer.append(" and ");
+                    }
+                    sqlBuffer.append(getQualifiedName(null, primaryKeys[j].getColumnName(), connection));
+                    sqlBuffer.append(" = ?");
+                }
+                sqlBuffer.append(")");
+            }
+        }
+        return sqlBuffer.toString();
+    }
+
+    /**
+     * Creates a comparable key for the given primary key values. The values
+     * are converted using the column data types and normalized so that the key
+     * of a dataset value matches the key of the same value read from the
+     * database, for example <code>1</code> and <code>1.00</code> of a decimal
+     * column or <code>A</code> and <code>A&nbsp;&nbsp;</code> of a padded
+     * <code>CHAR</code> column.
+     */
+    static List createKey(Column[] primaryKeys, Object[] values)
+            throws DataSetException
+    {
+        List key = new ArrayList(primaryKeys.length);
+        for (int i = 0; i < primaryKeys.length; i++)
+        {
+            DataType dataType = primaryKeys[i].getDataType();
+            key.add(normalize(dataType, dataType.typeCast(values[i])));
+        }
+        return key;
+    }
+
+    /**
+     * Makes values equal which are the same key in the database
+     */
+    private static Object normalize(DataType dataType, Object value)
+    {
+        if (value instanceof BigDecimal)
+        {
+            // BigDecimal.equals compares the scale
+            BigDecimal decimal = (BigDecimal)value;
+            return decimal.signum() == 0 ? BigDecimal.ZERO : decimal.stripTrailingZeros();
+        }
+        if (value instanceof byte[])
+        {
+            // arrays do not implement equals and hashCode
+            return Base64.encodeBytes((byte[])value);
+        }
+        if (value instanceof String && isFixedLength(dataType))
+        {
+            // the database ignores the trailing blanks of a padded CHAR(n)
+            String string = (String)value;
+            int end = string.length();
+            while (end > 0 && string.charAt(end - 1) == ' ')
+            {
+                end--;
+            }
+            return string.substring(0, end);
+        }
+        return value;
+    }
+
+    private static boolean isFixedLength(DataType dataType)
+    {
+        int sqlType = dataType.getSqlType();
+        return sqlType == Types.CHAR || sqlType == DataType.NCHAR.getSqlType();
+    }
+
+    /**
+     * Accepts the rows whose key is contained in a key set of existing keys,
+     * the first rows of each key not contained in it, or the further rows
+     * having such a key. The rows must be evaluated in table order.
+     */
+    private static class KeyRowFilter implements IRowFilter
+    {
+        /**
+         * Rows whose key exists
+         */
+        static final int EXISTING = 0;
+        /**
+         * First rows of each key which does not exist and rows without a
+         * complete key
+         */
+        static final int NEW = 1;
+        /**
+         * Rows having the key of a previous row whose key does not exist
+         */
+        static final int REPEATED = 2;
+
+        private final Column[] _primaryKeys;
+        private final Set _keys;
+        private final int _rows;
+        private final Set _newKeys = new HashSet();
+
+        public KeyRowFilter(Column[] primaryKeys, Set keys, int rows)
+        {
+            _primaryKeys = primaryKeys;
+            _keys = keys;
+            _rows = rows;
+        }
+
+        public boolean accept(IRowValueProvider rowValueProvider)
+        {
+            try
+            {
+                Object[] values = new Object[_primaryKeys.length];
+                for (int i = 0; i < _primaryKeys.length; i++)
+                {
+                    values[i] = rowValueProvider.getColumnValue(
+                            _primaryKeys[i].getColumnName());
+                    if (values[i] == null || values[i] == ITable.NO_VALUE)
+                    {
+                        // incomplete keys are always inserted
+                        return _rows == NEW;
+                    }
+                }
+                List key = createKey(_primaryKeys, values);
+                if (_keys.contains(key))
+                {
+                    return _rows == EXISTING;
+                }
+                return _newKeys.add(key) ? _rows == NEW : _rows == REPEATED;
+            }
+            catch (DataSetException e)
+            {
+                throw new DatabaseUnitRuntimeException(
+                        "Cannot evaluate the primary key of the current row", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.operation;
+
+import java.sql.SQLException;
+
+import org.dbunit.DatabaseUnitException;
+import org.dbunit.database.DatabaseConfig;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableIterator;
+import org.dbunit.dataset.ITableMetaData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Inserts the dataset contents using the {@link IBulkLoader} configured with
+ * {@link DatabaseConfig#PROPERTY_BULK_LOADER}, for example
+ * <ul>
+ * <li>{@link MultiRowInsertBulkLoader} for H2, HSQLDB 2 and most other databases</li>
+ * <li>{@link org.dbunit.ext.postgresql.PostgresqlCopyBulkLoader} using <code>COPY FROM STDIN</code></li>
+ * <li>{@link org.dbunit.ext.mysql.MySqlLoadDataBulkLoader} using <code>LOAD DATA LOCAL INFILE</code></li>
+ * </ul>
+ * Tables the loader does not support, and all tables if no loader is configured, are
+ * inserted by {@link DatabaseOperation#INSERT}. Like INSERT this operation fails if a
+ * row already exists.
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class BulkInsertOperation extends AbstractOperation
+{
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(BulkInsertOperation.class);
+
+    BulkInsertOperation()
+    {
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // DatabaseOperation class
+
+    public void execute(IDatabaseConnection connection, IDataSet dataSet)
+            throws DatabaseUnitException, SQLException
+    {
+        logger.debug("execute(connection={}, dataSet={}) - start", connection, dataSet);
+
+        IBulkLoader loader = (IBulkLoader)connection.getConfig().getProperty(
+                DatabaseConfig.PROPERTY_BULK_LOADER);
+
+        // for each table
+        ITableIterator iterator = dataSet.iterator();
+        while (iterator.next())
+        {
+            ITable table = iterator.getTable();
+
+            String tableName = table.getTableMetaData().getTableName();
+            logger.trace("execute: processing table='{}'", tableName);
+
+            // Do not process empty table
+            if (AbstractBatchOperation.isEmpty(table))
+            {
+                continue;
+            }
+
+            ITableMetaData metaData = getOperationMetaData(connection, table.getTableMetaData());
+            if (loader == null || !loader.isSupported(connection, metaData))
+            {
+                logger.debug("Bulk loading not supported for table '{}'. Using INSERT.", tableName);
+                DatabaseOperation.INSERT.execute(connection, new DefaultDataSet(table));
+                continue;
+            }
+
+            try
+            {
+                int rowCount = loader.load(connection, metaData, table);
+                logger.debug("Loaded {} rows into table '{}'", String.valueOf(rowCount), tableName);
+            }
+            catch (SQLException e)
+            {
+                final String msg =
+                        "Exception processing table name='" + tableName + "'";
+                throw new DatabaseUnitException(msg, e);
+            }
+        }
+    }
+}
@@ -65,6 +65,14 @@ public class CompositeOperation extends DatabaseOperation
         _actions = actions;
     }
 
+    /**
+     * @return The operations combined by this composite
+     */
+    DatabaseOperation[] getActions()
+    {
+        return _actions;
+    }
+
     ////////////////////////////////////////////////////////////////////////////
     // DatabaseOperation class
 
@@ -44,6 +44,10 @@ public abstract class DatabaseOperation
     public static final DatabaseOperation INSERT = new InsertOperation();
     /** @see RefreshOperation */
     public static final DatabaseOperation REFRESH = new RefreshOperation();
+    /** @see BatchRefreshOperation */
+    public static final DatabaseOperation BATCH_REFRESH = new BatchRefreshOperation();
+    /** @see BulkInsertOperation */
+    public static final DatabaseOperation BULK_INSERT = new BulkInsertOperation();
     /** @see DeleteOperation */
     public static final DatabaseOperation DELETE = new DeleteOperation();
     /** @see DeleteAllOperation */
@@ -57,6 +61,8 @@ public abstract class DatabaseOperation
      */
     public static final DatabaseOperation CLEAN_INSERT = new CompositeOperation(
             DELETE_ALL, INSERT);
+    /** @see SyncOperation */
+    public static final DatabaseOperation SYNC = new SyncOperation();
 
     /** @see TransactionOperation */
     public static final DatabaseOperation TRANSACTION(DatabaseOperation operation) {
@@ -83,6 +83,7 @@ public class DeleteAllOperation extends AbstractOperation
         DatabaseConfig databaseConfig = connection.getConfig();
         IStatementFactory statementFactory = (IStatementFactory)databaseConfig.getProperty(DatabaseConfig.PROPERTY_STATEMENT_FACTORY);
         IBatchStatement statement = statementFactory.createBatchStatement(connection);
+        IOperationMetrics metrics = getOperationMetrics(connection);
         try
         {
             int count = 0;
@@ -104,9 +105,21 @@ public class DeleteAllOperation extends AbstractOperation
             while (!tableNames.isEmpty())
             {
                 String tableName = (String)tableNames.pop();
+                String dataSetTableName = tableName;
+
+                long tableStart = 0;
+                if (metrics != null)
+                {
+                    tableStart = System.nanoTime();
+                    metrics.tableStarted(this, dataSetTableName);
+                }
 
                 // Use database table name. Required to support case sensitive database.
                 ITableMetaData databaseMetaData = databaseDataSet.getTableMetaData(tableName);
+                if (metrics != null)
+                {
+                    metrics.metaDataLoaded(tableName, System.nanoTime() - tableStart);
+                }
                 tableName = databaseMetaData.getTableName();
 
                 StringBuffer sqlBuffer = new StringBuffer(128);
@@ -119,6 +132,18 @@ public class DeleteAllOperation extends AbstractOperation
                     logger.debug("Added SQL: {}", sql);
                 
                 count++;
+
+                // execute each table on its own to measure it
+                if (metrics != null)
+                {
+                    long start = System.nanoTime();
+                    int rowCount = statement.executeBatch();
+                    statement.clearBatch();
+                    long end = System.nanoTime();
+                    metrics.batchExecuted(sql, rowCount, end - start);
+                    metrics.tableFinished(this, dataSetTableName, rowCount, end - tableStart);
+                    count = 0;
+                }
             }
 
             if (count > 0)
@@ -0,0 +1,65 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.operation;
+
+import java.sql.SQLException;
+
+import org.dbunit.DatabaseUnitException;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableMetaData;
+
+/**
+ * Loads the rows of a table using a database specific bulk loading mechanism.
+ * Used by {@link BulkInsertOperation} and configured with the property
+ * {@link org.dbunit.database.DatabaseConfig#PROPERTY_BULK_LOADER}.
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public interface IBulkLoader
+{
+    /**
+     * Checks whether this loader can load the given table on the given connection,
+     * for example whether the JDBC driver provides the required API. Must not read
+     * any rows of the table.
+     * @param connection The connection
+     * @param metaData The metadata of the database table restricted to the columns
+     * of the dataset table
+     * @return <code>false</code> to fall back to {@link DatabaseOperation#INSERT}
+     */
+    public boolean isSupported(IDatabaseConnection connection, ITableMetaData metaData)
+            throws DatabaseUnitException, SQLException;
+
+    /**
+     * Loads all rows of the table.
+     * @param connection The connection
+     * @param metaData The metadata of the database table restricted to the columns
+     * of the dataset table
+     * @param table The rows to be loaded. May be forward only.
+     * @return The number of loaded rows
+     */
+    public int load(IDatabaseConnection connection, ITableMetaData metaData, ITable table)
+            throws DatabaseUnitException, SQLException;
+}
@@ -0,0 +1,98 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.operation;
+
+import org.dbunit.dataset.datatype.TypeCastException;
+
+/**
+ * Receives timing and row count events of the database operations. Configured with
+ * the property {@link org.dbunit.database.DatabaseConfig#PROPERTY_OPERATION_METRICS},
+ * see {@link OperationMetricsCollector} for an implementation keeping histograms in
+ * memory.
+ * <p>
+ * Events of batches are reported by the statements of the
+ * {@link org.dbunit.database.statement.IStatementFactory}, possibly on a different
+ * thread than the other events, and are identified by their SQL. Events of operations
+ * running concurrently on several connections sharing the configuration may
+ * interleave, so implementations must be thread safe. All durations are in
+ * nanoseconds as returned by {@link System#nanoTime()}.
+ * </p>
+ *
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public interface IOperationMetrics
+{
+    /**
+     * Called before the operation processes the rows of a table.
+     * @param operation The operation
+     * @param tableName The name of the table
+     */
+    public void tableStarted(DatabaseOperation operation, String tableName);
+
+    /**
+     * Called after the operation processed the rows of a table.
+     * @param operation The operation
+     * @param tableName The name of the table
+     * @param rowCount The number of rows processed
+     * @param nanos The time spent on the table including metadata lookups, statement
+     * preparation and execution
+     */
+    public void tableFinished(DatabaseOperation operation, String tableName, int rowCount,
+            long nanos);
+
+    /**
+     * Called when the metadata of a database table has been looked up.
+     * @param tableName The name of the table
+     * @param nanos The time of the lookup
+     */
+    public void metaDataLoaded(String tableName, long nanos);
+
+    /**
+     * Called when a statement has been prepared.
+     * @param sql The SQL of the statement
+     * @param nanos The time of the preparation
+     */
+    public void statementPrepared(String sql, long nanos);
+
+    /**
+     * Called when a batch of rows has been executed. Databases not using JDBC batches
+     * report each row as a batch of its own.
+     * @param sql The SQL of the statement
+     * @param rowCount The number of rows in the batch
+     * @param nanos The execution time of the batch
+     */
+    public void batchExecuted(String sql, int rowCount, long nanos);
+
+    /**
+     * Called when a value of the dataset could not be converted to the type of its
+     * column. The exception is thrown by the operation afterwards.
+     * @param tableName The name of the table
+     * @param columnName The name of the column
+     * @param value The value that could not be converted
+     * @param e The conversion failure
+     */
+    public void typeCastFailed(String tableName, String columnName, Object value,
+            TypeCastException e);
+}
@@ -26,6 +26,7 @@ import org.slf4j.LoggerFactory;
 
 import org.dbunit.database.IDatabaseConnection;
 import org.dbunit.dataset.Column;
+import org.dbunit.dataset.ColumnIndexMapping;
 import org.dbunit.dataset.DataSetException;
 import org.dbunit.dataset.ITable;
 import org.dbunit.dataset.ITableMetaData;
@@ -117,7 +118,7 @@ public class InsertOperation extends AbstractBatchOperation
         BitSet ignoreMapping = new BitSet();
         for (int i = 0; i < columns.length; i++)
         {
-            Object value = table.getValue(row, columns[i].getColumnName());
+            Object value = ColumnIndexMapping.getValue(table, row, i);
             if (value == ITable.NO_VALUE)
             {
                 ignoreMapping.set(i);
@@ -140,7 +141,7 @@ public class InsertOperation extends AbstractBatchOperation
         for (int i = 0; i < columns.length; i++)
         {
             boolean bit = ignoreMapping.get(i);
-            Object value = table.getValue(row, columns[i].getColumnName());
+            Object value = ColumnIndexMapping.getValue(table, row, i);
             if ((bit && value != ITable.NO_VALUE) || (!bit && value == ITable.NO_VALUE))
             {
                 return false;
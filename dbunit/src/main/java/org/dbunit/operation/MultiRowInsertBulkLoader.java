@@ -0,0 +1,165 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.operation;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.dbunit.DatabaseUnitException;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.datatype.TypeCastException;
+import org.dbunit.util.SQLHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bulk loader inserting many rows with a single
+ * <code>insert into T (A, B) values (?, ?), (?, ?), ...</code> statement. The values
+ * are bound with {@link org.dbunit.dataset.datatype.DataType#setSqlValue} exactly like
+ * {@link InsertOperation} does. Supported for example by H2, HSQLDB 2, PostgreSQL,
+ * MySQL, DB2 and SQL Server 2008. Support is checked by preparing a statement of two
+ * rows, so databases that do not know the syntax fall back to
+ * {@link DatabaseOperation#INSERT}.
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class MultiRowInsertBulkLoader extends AbstractBulkLoader
+{
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(MultiRowInsertBulkLoader.class);
+
+    public static final int DEFAULT_MAX_PARAMETERS = 2000;
+
+    private final int _maxParameters;
+
+    public MultiRowInsertBulkLoader()
+    {
+        this(DEFAULT_CHUNK_SIZE, DEFAULT_MAX_PARAMETERS);
+    }
+
+    /**
+     * @param chunkSize The maximum number of rows per statement
+     * @param maxParameters The maximum number of parameters per statement. Many
+     * databases limit it, SQL Server for example to 2100.
+     */
+    public MultiRowInsertBulkLoader(int chunkSize, int maxParameters)
+    {
+        super(chunkSize);
+        _maxParameters = maxParameters;
+    }
+
+    public boolean isSupported(IDatabaseConnection connection, ITableMetaData metaData)
+            throws DatabaseUnitException, SQLException
+    {
+        Column[] columns = metaData.getColumns();
+        if (columns.length == 0 || columns.length * 2 > _maxParameters)
+        {
+            return false;
+        }
+
+        String sql = getSql(getQualifiedName(connection.getSchema(),
+                metaData.getTableName(), connection), columns, 2, connection);
+        try
+        {
+            connection.getConnection().prepareStatement(sql).close();
+            return true;
+        }
+        catch (SQLException e)
+        {
+            logger.info("Multi row insert is not supported by the database: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    protected void loadChunk(IDatabaseConnection connection, String qualifiedTableName,
+            Column[] columns, List rows) throws DatabaseUnitException, SQLException
+    {
+        int rowsPerStatement = Math.max(1, _maxParameters / Math.max(1, columns.length));
+        for (int start = 0; start < rows.size(); start += rowsPerStatement)
+        {
+            List statementRows = rows.subList(start, Math.min(rows.size(), start + rowsPerStatement));
+            execute(connection, getSql(qualifiedTableName, columns, statementRows.size(), connection),
+                    columns, statementRows);
+        }
+    }
+
+    private void execute(IDatabaseConnection connection, String sql, Column[] columns,
+            List rows) throws SQLException, TypeCastException
+    {
+        logger.debug("execute: {} rows", String.valueOf(rows.size()));
+
+        PreparedStatement statement = connection.getConnection().prepareStatement(sql);
+        try
+        {
+            int index = 1;
+            for (int i = 0; i < rows.size(); i++)
+            {
+                Object[] values = (Object[])rows.get(i);
+                for (int j = 0; j < columns.length; j++)
+                {
+                    columns[j].getDataType().setSqlValue(values[j], index++, statement);
+                }
+            }
+            statement.executeUpdate();
+        }
+        finally
+        {
+            SQLHelper.close(statement);
+        }
+    }
+
+    String getSql(String qualifiedTableName, Column[] columns, int rowCount,
+            IDatabaseConnection connection)
+    {
+        StringBuffer sqlBuffer = new StringBuffer(128 + rowCount * columns.length * 3);
+        sqlBuffer.append("insert into ");
+        sqlBuffer.append(qualifiedTableName);
+        sqlBuffer.append(" (");
+        for (int j = 0; j < columns.length; j++)
+        {
+            if (j > 0)
+            {
+                sqlBuffer.append(", ");
+            }
+            sqlBuffer.append(getQualifiedName(null, columns[j].getColumnName(), connection));
+        }
+        sqlBuffer.append(") values ");
+        for (int i = 0; i < rowCount; i++)
+        {
+            sqlBuffer.append(i == 0 ? "(" : ", (");
+            for (int j = 0; j < columns.length; j++)
+            {
+                sqlBuffer.append(j == 0 ? "?" : ", ?");
+            }
+            sqlBuffer.append(")");
+        }
+        return sqlBuffer.toString();
+    }
+}
@@ -0,0 +1,355 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.operation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.dbunit.dataset.datatype.TypeCastException;
+
+/**
+ * Collects the events of the operations in histograms kept in memory. Set an instance
+ * with {@link org.dbunit.database.DatabaseConfig#PROPERTY_OPERATION_METRICS} and print
+ * {@link #getReport()} at the end of the test run to see which tables, statements and
+ * batches take the most time.
+ * <p>
+ * The histograms of the tables are keyed by the name of the operation and the table,
+ * for example <code>Insert PERSON</code>, the ones of statements and batches by their SQL.
+ * </p>
+ *
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class OperationMetricsCollector implements IOperationMetrics
+{
+    private static final Comparator BY_TOTAL_TIME = new Comparator()
+    {
+        public int compare(Object o1, Object o2)
+        {
+            long total1 = ((Histogram)((Map.Entry)o1).getValue()).getTotalNanos();
+            long total2 = ((Histogram)((Map.Entry)o2).getValue()).getTotalNanos();
+            return total1 > total2 ? -1 : (total1 < total2 ? 1 : 0);
+        }
+    };
+
+    private Map _tables = new HashMap();
+    private Map _metaData = new HashMap();
+    private Map _statements = new HashMap();
+    private Map _batches = new HashMap();
+    private Map _typeCastFailures = new HashMap();
+
+    ////////////////////////////////////////////////////////////////////////////
+    // IOperationMetrics interface
+
+    public void tableStarted(DatabaseOperation operation, String tableName)
+    {
+        // the time is reported when the table is finished
+    }
+
+    public void tableFinished(DatabaseOperation operation, String tableName, int rowCount,
+            long nanos)
+    {
+        getHistogram(_tables, getOperationName(operation) + " " + tableName).record(rowCount, nanos);
+    }
+
+    public void metaDataLoaded(String tableName, long nanos)
+    {
+        getHistogram(_metaData, tableName).record(0, nanos);
+    }
+
+    public void statementPrepared(String sql, long nanos)
+    {
+        getHistogram(_statements, sql).record(0, nanos);
+    }
+
+    public void batchExecuted(String sql, int rowCount, long nanos)
+    {
+        getHistogram(_batches, sql).record(rowCount, nanos);
+    }
+
+    public synchronized void typeCastFailed(String tableName, String columnName, Object value,
+            TypeCastException e)
+    {
+        String key = tableName + "." + columnName;
+        Integer count = (Integer)_typeCastFailures.get(key);
+        _typeCastFailures.put(key, new Integer(count == null ? 1 : count.intValue() + 1));
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+
+    private synchronized Histogram getHistogram(Map histograms, String key)
+    {
+        Histogram histogram = (Histogram)histograms.get(key);
+        if (histogram == null)
+        {
+            histogram = new Histogram();
+            histograms.put(key, histogram);
+        }
+        return histogram;
+    }
+
+    /**
+     * @return The simple class name of the operation without the suffix
+     * <code>Operation</code>
+     */
+    static String getOperationName(DatabaseOperation operation)
+    {
+        String name = operation.getClass().getName();
+        name = name.substring(Math.max(name.lastIndexOf('.'), name.lastIndexOf('$')) + 1);
+        if (name.endsWith("Operation") && name.length() > "Operation".length())
+        {
+            name = name.substring(0, name.length() - "Operation".length());
+        }
+        return name;
+    }
+
+    /**
+     * @return The {@link Histogram}s of the processed tables by operation and table name
+     */
+    public synchronized Map getTableHistograms()
+    {
+        return new HashMap(_tables);
+    }
+
+    /**
+     * @return The {@link Histogram}s of the metadata lookups by table name
+     */
+    public synchronized Map getMetaDataHistograms()
+    {
+        return new HashMap(_metaData);
+    }
+
+    /**
+     * @return The {@link Histogram}s of the statement preparations by SQL
+     */
+    public synchronized Map getStatementHistograms()
+    {
+        return new HashMap(_statements);
+    }
+
+    /**
+     * @return The {@link Histogram}s of the executed batches by SQL
+     */
+    public synchronized Map getBatchHistograms()
+    {
+        return new HashMap(_batches);
+    }
+
+    /**
+     * @return The number of type conversion failures as {@link Integer}s by
+     * <code>table.column</code>
+     */
+    public synchronized Map getTypeCastFailures()
+    {
+        return new HashMap(_typeCastFailures);
+    }
+
+    /**
+     * Discards all collected metrics.
+     */
+    public synchronized void reset()
+    {
+        _tables = new HashMap();
+        _metaData = new HashMap();
+        _statements = new HashMap();
+        _batches = new HashMap();
+        _typeCastFailures = new HashMap();
+    }
+
+    /**
+     * @return A text report listing the histograms of each kind ordered by their total
+     * time, largest first
+     */
+    public synchronized String getReport()
+    {
+        StringBuffer sb = new StringBuffer();
+        appendHistograms(sb, "Tables", _tables);
+        appendHistograms(sb, "Metadata lookups", _metaData);
+        appendHistograms(sb, "Statement preparations", _statements);
+        appendHistograms(sb, "Batches", _batches);
+        if (!_typeCastFailures.isEmpty())
+        {
+            sb.append("Type cast failures:\n");
+            for (Iterator i = _typeCastFailures.entrySet().iterator(); i.hasNext();)
+            {
+                Map.Entry entry = (Map.Entry)i.next();
+                sb.append(String.format("%8d  %s%n", new Object[] {entry.getValue(), entry.getKey()}));
+            }
+        }
+        return sb.toString();
+    }
+
+    private void appendHistograms(StringBuffer sb, String title, Map histograms)
+    {
+        if (histograms.isEmpty())
+        {
+            return;
+        }
+
+        List entries = new ArrayList(histograms.entrySet());
+        Collections.sort(entries, BY_TOTAL_TIME);
+
+        sb.append(title).append(" (total ms, count, rows, mean ms, p50 ms, p99 ms, max ms):\n");
+        for (Iterator i = entries.iterator(); i.hasNext();)
+        {
+            Map.Entry entry = (Map.Entry)i.next();
+            Histogram histogram = (Histogram)entry.getValue();
+            sb.append(String.format("%10.1f %8d %10d %9.3f %9.3f %9.3f %9.3f  %s%n", new Object[] {
+                    new Double(toMillis(histogram.getTotalNanos())),
+                    new Long(histogram.getCount()),
+                    new Long(histogram.getRowCount()),
+                    new Double(toMillis(histogram.getMeanNanos())),
+                    new Double(toMillis(histogram.getPercentileNanos(50))),
+                    new Double(toMillis(histogram.getPercentileNanos(99))),
+                    new Double(toMillis(histogram.getMaxNanos())),
+                    entry.getKey()}));
+        }
+    }
+
+    private static double toMillis(long nanos)
+    {
+        return nanos / 1000000.0;
+    }
+
+    public String toString()
+    {
+        return getReport();
+    }
+
+
+    /**
+     * Histogram of durations with buckets of powers of two, which keeps the exact count,
+     * total, minimum and maximum and approximates the percentiles to a factor of two.
+     */
+    public static class Histogram
+    {
+        private static final int BUCKET_COUNT = 64;
+
+        private final long[] _buckets = new long[BUCKET_COUNT];
+        private long _count = 0;
+        private long _rowCount = 0;
+        private long _totalNanos = 0;
+        private long _minNanos = Long.MAX_VALUE;
+        private long _maxNanos = 0;
+
+        /**
+         * Records a duration.
+         * @param rowCount The number of rows processed in the given time
+         * @param nanos The duration
+         */
+        public synchronized void record(int rowCount, long nanos)
+        {
+            if (nanos < 0)
+            {
+                nanos = 0;
+            }
+            // bucket i > 0 holds the durations from 2^(i-1) to 2^i - 1
+            _buckets[BUCKET_COUNT - Long.numberOfLeadingZeros(nanos)]++;
+            _count++;
+            _rowCount += rowCount;
+            _totalNanos += nanos;
+            _minNanos = Math.min(_minNanos, nanos);
+            _maxNanos = Math.max(_maxNanos, nanos);
+        }
+
+        public synchronized long getCount()
+        {
+            return _count;
+        }
+
+        public synchronized long getRowCount()
+        {
+            return _rowCount;
+        }
+
+        public synchronized long getTotalNanos()
+        {
+            return _totalNanos;
+        }
+
+        public synchronized long getMinNanos()
+        {
+            return _count == 0 ? 0 : _minNanos;
+        }
+
+        public synchronized long getMaxNanos()
+        {
+            return _maxNanos;
+        }
+
+        public synchronized long getMeanNanos()
+        {
+            return _count == 0 ? 0 : _totalNanos / _count;
+        }
+
+        /**
+         * @param percentile The percentile between 0 and 100
+         * @return The upper bound of the bucket containing the percentile, limited to the
+         * range of the recorded durations
+         */
+        public synchronized long getPercentileNanos(double percentile)
+        {
+            if (percentile < 0 || percentile > 100)
+            {
+                throw new IllegalArgumentException("The percentile must be between 0 and 100 but is " + percentile);
+            }
+            if (_count == 0)
+            {
+                return 0;
+            }
+
+            long rank = Math.max(1, (long)Math.ceil(percentile / 100 * _count));
+            long count = 0;
+            int bucket = 0;
+            for (; bucket < BUCKET_COUNT - 1; bucket++)
+            {
+                count += _buckets[bucket];
+                if (count >= rank)
+                {
+                    break;
+                }
+            }
+            long upperBound = bucket == BUCKET_COUNT - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+            return Math.max(_minNanos, Math.min(upperBound, _maxNanos));
+        }
+
+        public synchronized String toString()
+        {
+            StringBuffer sb = new StringBuffer();
+            sb.append(getClass().getName()).append("[");
+            sb.append("_count=").append(_count);
+            sb.append(", _rowCount=").append(_rowCount);
+            sb.append(", _totalNanos=").append(_totalNanos);
+            sb.append(", _minNanos=").append(getMinNanos());
+            sb.append(", _maxNanos=").append(_maxNanos);
+            sb.append("]");
+            return sb.toString();
+        }
+    }
+}
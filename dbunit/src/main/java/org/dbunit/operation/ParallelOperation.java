@@ -0,0 +1,474 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.operation;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import javax.sql.DataSource;
+
+import org.dbunit.DatabaseUnitException;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.database.TableDependencyGraph;
+import org.dbunit.database.WorkerConnectionPool;
+import org.dbunit.dataset.CachedTable;
+import org.dbunit.dataset.CompositeDataSet;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes another operation for independent tables concurrently.
+ * <p>
+ * The tables of the dataset are grouped into dependency levels using the foreign keys
+ * of the {@link TableDependencyGraph}: level 0 contains the tables that do not depend
+ * on any other table of the dataset, level 1 the tables depending only on level 0 and so
+ * on. The levels are processed one after another, the tables within a level concurrently
+ * on a pool of connections obtained from the given {@link DataSource}. Inserting operations
+ * process the levels in ascending order, deleting operations ({@link DeleteOperation},
+ * {@link DeleteAllOperation}, {@link TruncateTableOperation}) in descending order. The actions
+ * of a {@link CompositeOperation} like {@link DatabaseOperation#CLEAN_INSERT} are run one
+ * after another in this way. The worker connections commit after each table.
+ * </p>
+ * <p>
+ * The wrapped operation is executed sequentially on the given connection, exactly as
+ * without this wrapper, if no worker connection can be obtained, if the tables have
+ * cyclic dependencies or if the operation is of an unknown type, for example a
+ * {@link TransactionOperation}.
+ * </p>
+ * <p>
+ * Note that rows written by the worker connections are not visible to uncommitted
+ * transactions of the given connection and may block on its locks.
+ * </p>
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class ParallelOperation extends DatabaseOperation
+{
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ParallelOperation.class);
+
+    private final DatabaseOperation _operation;
+    private final DataSource _dataSource;
+    private final int _threadCount;
+    private final Map _timings = Collections.synchronizedMap(new LinkedHashMap());
+
+    /**
+     * @param operation The operation to be executed for each table
+     * @param dataSource The data source providing the worker connections
+     * @param threadCount The maximum number of tables processed concurrently
+     */
+    public ParallelOperation(DatabaseOperation operation, DataSource dataSource, int threadCount)
+    {
+        if (operation == null) {
+            throw new NullPointerException("The parameter 'operation' must not be null");
+        }
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("The parameter 'threadCount' must be greater than 0: " + threadCount);
+        }
+        _operation = operation;
+        _dataSource = dataSource;
+        _threadCount = threadCount;
+    }
+
+    /**
+     * Returns the time spent per table by the last execution in the order the tables
+     * were completed. Tables processed by the sequential fallback are not included.
+     * @return Table name to duration in milliseconds as {@link Long}
+     */
+    public Map getTimings()
+    {
+        synchronized (_timings)
+        {
+            return new LinkedHashMap(_timings);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // DatabaseOperation class
+
+    public void execute(IDatabaseConnection connection, IDataSet dataSet)
+            throws DatabaseUnitException, SQLException
+    {
+        logger.debug("execute(connection={}, dataSet={}) - start", connection, dataSet);
+
+        _timings.clear();
+
+        DatabaseOperation[] actions = getActions(_operation);
+        if (actions == null)
+        {
+            logger.info("Operation {} cannot be parallelized. Executing it sequentially.", _operation);
+            _operation.execute(connection, dataSet);
+            return;
+        }
+
+        List groups = getTableGroups(dataSet);
+        List levels = getLevels(connection, groups);
+        if (levels == null)
+        {
+            logger.info("Tables have cyclic dependencies. Executing {} sequentially.", _operation);
+            _operation.execute(connection, createDataSet(groups));
+            return;
+        }
+
+        int connectionCount = Math.min(_threadCount, getMaxLevelSize(levels));
+        WorkerConnectionPool workerConnections = WorkerConnectionPool.open(
+                _dataSource, connection, connectionCount);
+        if (workerConnections == null)
+        {
+            logger.info("Could not obtain worker connections. Executing {} sequentially.", _operation);
+            _operation.execute(connection, createDataSet(groups));
+            return;
+        }
+
+        ExecutorService executor = workerConnections.createExecutor("ParallelOperation");
+        try
+        {
+            for (int i = 0; i < actions.length; i++)
+            {
+                boolean reverse = isDeleteOperation(actions[i]);
+                for (int j = 0; j < levels.size(); j++)
+                {
+                    List level = (List)levels.get(reverse ? levels.size() - 1 - j : j);
+                    executeLevel(executor, workerConnections, actions[i], level);
+                }
+            }
+        }
+        finally
+        {
+            workerConnections.shutdown(executor);
+        }
+    }
+
+    /**
+     * @return The operations to be executed one after another or <code>null</code> if the
+     * given operation cannot be parallelized
+     */
+    private DatabaseOperation[] getActions(DatabaseOperation operation)
+    {
+        if (operation instanceof CompositeOperation)
+        {
+            DatabaseOperation[] actions = ((CompositeOperation)operation).getActions();
+            for (int i = 0; i < actions.length; i++)
+            {
+                if (getActions(actions[i]) == null || actions[i] instanceof CompositeOperation)
+                {
+                    return null;
+                }
+            }
+            return actions;
+        }
+        if (operation instanceof AbstractOperation || operation == DatabaseOperation.NONE)
+        {
+            return new DatabaseOperation[] {operation};
+        }
+        return null;
+    }
+
+    private boolean isDeleteOperation(DatabaseOperation operation)
+    {
+        return operation instanceof DeleteOperation || operation instanceof DeleteAllOperation;
+    }
+
+    /**
+     * Reads the tables of the dataset grouped by their name. Tables that can only be read
+     * once are cached, since they are processed after the dataset iteration has moved on.
+     * @return List of {@link TableGroup}s in dataset order
+     */
+    private List getTableGroups(IDataSet dataSet) throws DatabaseUnitException
+    {
+        Map groupsByName = new HashMap();
+        List groups = new ArrayList();
+        ITableIterator iterator = dataSet.iterator();
+        while (iterator.next())
+        {
+            ITable table = iterator.getTable();
+            try
+            {
+                table.getRowCount();
+            }
+            catch (UnsupportedOperationException e)
+            {
+                table = new CachedTable(table);
+            }
+
+            String tableName = table.getTableMetaData().getTableName();
+            String key = tableName.toUpperCase();
+            TableGroup group = (TableGroup)groupsByName.get(key);
+            if (group == null)
+            {
+                group = new TableGroup(tableName);
+                groupsByName.put(key, group);
+                groups.add(group);
+            }
+            group.addTable(table);
+        }
+        return groups;
+    }
+
+    /**
+     * Assigns each table group to a dependency level using the same
+     * {@link TableDependencyGraph} as {@link org.dbunit.database.DatabaseSequenceFilter},
+     * so that case sensitivity and the detection of cycles match. References of a
+     * table to itself are ignored.
+     * @return List of levels, each one a List of {@link TableGroup}s, or <code>null</code>
+     * if the tables have cyclic dependencies
+     */
+    private List getLevels(IDatabaseConnection connection, List groups) throws SQLException
+    {
+        String[] tableNames = new String[groups.size()];
+        Map groupsByName = new HashMap();
+        for (int i = 0; i < tableNames.length; i++)
+        {
+            TableGroup group = (TableGroup)groups.get(i);
+            tableNames[i] = group.getTableName();
+            groupsByName.put(tableNames[i], group);
+        }
+
+        TableDependencyGraph graph = TableDependencyGraph.load(connection, tableNames);
+        if (!graph.getCyclicTableGroups().isEmpty())
+        {
+            return null;
+        }
+
+        // Without cycles every component is a single table, each one after the tables it references
+        Map levelsByName = new HashMap();
+        List levels = new ArrayList();
+        List components = graph.getStronglyConnectedComponents();
+        for (Iterator it = components.iterator(); it.hasNext();)
+        {
+            String tableName = ((String[])it.next())[0];
+            int level = 0;
+            for (Iterator parents = graph.getDirectDependsOnTables(tableName).iterator(); parents.hasNext();)
+            {
+                Integer parentLevel = (Integer)levelsByName.get(parents.next());
+                if (parentLevel != null)
+                {
+                    level = Math.max(level, parentLevel.intValue() + 1);
+                }
+            }
+            levelsByName.put(tableName, new Integer(level));
+
+            while (levels.size() <= level)
+            {
+                levels.add(new ArrayList());
+            }
+            ((List)levels.get(level)).add(groupsByName.get(tableName));
+        }
+        return levels;
+    }
+
+    private int getMaxLevelSize(List levels)
+    {
+        int max = 1;
+        for (Iterator it = levels.iterator(); it.hasNext();)
+        {
+            max = Math.max(max, ((List)it.next()).size());
+        }
+        return max;
+    }
+
+    private IDataSet createDataSet(List groups) throws DatabaseUnitException
+    {
+        List tables = new ArrayList();
+        for (Iterator it = groups.iterator(); it.hasNext();)
+        {
+            tables.addAll(((TableGroup)it.next()).getTables());
+        }
+        return new CompositeDataSet(
+                (ITable[])tables.toArray(new ITable[0]), false);
+    }
+
+    /**
+     * Executes the operation for all tables of one level and waits until all of them
+     * are done.
+     */
+    private void executeLevel(ExecutorService executor, WorkerConnectionPool workerConnections,
+            DatabaseOperation action, List level) throws DatabaseUnitException, SQLException
+    {
+        List futures = new ArrayList(level.size());
+        for (Iterator it = level.iterator(); it.hasNext();)
+        {
+            TableGroup group = (TableGroup)it.next();
+            futures.add(executor.submit(new TableTask(workerConnections, action, group)));
+        }
+
+        Throwable failure = null;
+        for (Iterator it = futures.iterator(); it.hasNext();)
+        {
+            Future future = (Future)it.next();
+            try
+            {
+                future.get();
+            }
+            catch (ExecutionException e)
+            {
+                if (failure == null)
+                {
+                    failure = e.getCause();
+                }
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new DatabaseUnitException("Interrupted while waiting for table operations", e);
+            }
+        }
+
+        if (failure instanceof DatabaseUnitException)
+        {
+            throw (DatabaseUnitException)failure;
+        }
+        if (failure instanceof SQLException)
+        {
+            throw (SQLException)failure;
+        }
+        if (failure != null)
+        {
+            throw new DatabaseUnitException(failure);
+        }
+    }
+
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append(getClass().getName()).append("[");
+        sb.append("_operation=").append(_operation);
+        sb.append(", _threadCount=").append(_threadCount);
+        sb.append("]");
+        return sb.toString();
+    }
+
+
+    /**
+     * All tables of the dataset having the same name.
+     */
+    private static class TableGroup
+    {
+        private final String _tableName;
+        private final List _tables = new ArrayList();
+
+        public TableGroup(String tableName)
+        {
+            _tableName = tableName;
+        }
+
+        public String getTableName()
+        {
+            return _tableName;
+        }
+
+        public List getTables()
+        {
+            return _tables;
+        }
+
+        public void addTable(ITable table)
+        {
+            _tables.add(table);
+        }
+
+        public String toString()
+        {
+            return _tableName;
+        }
+    }
+
+
+    /**
+     * Executes the operation for one table group on a worker connection.
+     */
+    private class TableTask implements Callable
+    {
+        private final WorkerConnectionPool _connections;
+        private final DatabaseOperation _action;
+        private final TableGroup _group;
+
+        public TableTask(WorkerConnectionPool connections, DatabaseOperation action, TableGroup group)
+        {
+            _connections = connections;
+            _action = action;
+            _group = group;
+        }
+
+        public Object call() throws Exception
+        {
+            long start = System.currentTimeMillis();
+            IDatabaseConnection connection = _connections.take();
+            try
+            {
+                Connection jdbcConnection = connection.getConnection();
+                try
+                {
+                    for (Iterator it = _group.getTables().iterator(); it.hasNext();)
+                    {
+                        _action.execute(connection, new DefaultDataSet((ITable)it.next()));
+                    }
+                    if (!jdbcConnection.getAutoCommit())
+                    {
+                        jdbcConnection.commit();
+                    }
+                }
+                catch (Exception e)
+                {
+                    if (!jdbcConnection.getAutoCommit())
+                    {
+                        jdbcConnection.rollback();
+                    }
+                    throw e;
+                }
+            }
+            finally
+            {
+                _connections.release(connection);
+            }
+
+            long duration = System.currentTimeMillis() - start;
+            _timings.put(_group.getTableName(), new Long(duration));
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("{} of table '{}' took {} ms", new Object[] {
+                        _action, _group.getTableName(), String.valueOf(duration) });
+            }
+            return null;
+        }
+    }
+}
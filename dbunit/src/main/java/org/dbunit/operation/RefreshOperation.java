@@ -27,6 +27,7 @@ import org.slf4j.LoggerFactory;
 import org.dbunit.DatabaseUnitException;
 import org.dbunit.database.IDatabaseConnection;
 import org.dbunit.database.statement.IPreparedBatchStatement;
+import org.dbunit.database.statement.MetricsPreparedBatchStatement;
 import org.dbunit.database.statement.SimplePreparedStatement;
 import org.dbunit.dataset.Column;
 import org.dbunit.dataset.DataSetException;
@@ -82,7 +83,9 @@ public class RefreshOperation extends AbstractOperation
             throws DatabaseUnitException, SQLException
     {
         logger.debug("execute(connection={}, dataSet) - start", connection);
-        
+
+        IOperationMetrics metrics = getOperationMetrics(connection);
+
         // for each table
         ITableIterator iterator = dataSet.iterator();
         while (iterator.next())
@@ -98,6 +101,13 @@ public class RefreshOperation extends AbstractOperation
                 continue;
             }
 
+            long tableStart = 0;
+            if (metrics != null)
+            {
+                tableStart = System.nanoTime();
+                metrics.tableStarted(this, tableName);
+            }
+
             ITableMetaData metaData = getOperationMetaData(connection,
                     table.getTableMetaData());
             RowOperation updateRowOperation = createUpdateOperation(connection,
@@ -105,6 +115,7 @@ public class RefreshOperation extends AbstractOperation
             RowOperation insertRowOperation = new InsertRowOperation(connection,
                     metaData);
 
+            int rowCount = 0;
             try
             {
                 // refresh all rows
@@ -114,6 +125,7 @@ public class RefreshOperation extends AbstractOperation
                     {
                         insertRowOperation.execute(table, i);
                     }
+                    rowCount++;
                 }
             }
             catch (RowOutOfBoundsException e)
@@ -135,8 +147,29 @@ public class RefreshOperation extends AbstractOperation
                 updateRowOperation.close();
                 insertRowOperation.close();
             }
+
+            if (metrics != null)
+            {
+                metrics.tableFinished(this, tableName, rowCount, System.nanoTime() - tableStart);
+            }
+        }
+
+    }
+
+    private IPreparedBatchStatement createStatement(String sql,
+            IDatabaseConnection connection) throws SQLException
+    {
+        IOperationMetrics metrics = getOperationMetrics(connection);
+        if (metrics == null)
+        {
+            return new SimplePreparedStatement(sql, connection.getConnection());
         }
 
+        long start = System.nanoTime();
+        IPreparedBatchStatement statement = new SimplePreparedStatement(sql,
+                connection.getConnection());
+        metrics.statementPrepared(sql, System.nanoTime() - start);
+        return new MetricsPreparedBatchStatement(statement, sql, metrics, true);
     }
 
     private RowOperation createUpdateOperation(IDatabaseConnection connection,
@@ -251,8 +284,7 @@ public class RefreshOperation extends AbstractOperation
                 _ignoreMapping = _insertOperation.getIgnoreMapping(table, row);
                 _operationData = _insertOperation.getOperationData(_metaData,
                         _ignoreMapping, _connection);
-                _statement = new SimplePreparedStatement(_operationData.getSql(),
-                        _connection.getConnection());
+                _statement = createStatement(_operationData.getSql(), _connection);
             }
 
             return super.execute(table, row);
@@ -274,8 +306,7 @@ public class RefreshOperation extends AbstractOperation
             // setup update statement
             _operationData = _updateOperation.getOperationData(
                     metaData, null, connection);
-            _statement = new SimplePreparedStatement(_operationData.getSql(),
-                    connection.getConnection());
+            _statement = createStatement(_operationData.getSql(), connection);
         }
     }
 
@@ -291,6 +322,7 @@ public class RefreshOperation extends AbstractOperation
         private final Logger logger = LoggerFactory.getLogger(RowExistOperation.class);
 
         PreparedStatement _countStatement;
+        IOperationMetrics _metrics;
 
         public RowExistOperation(IDatabaseConnection connection,
                 ITableMetaData metaData)
@@ -298,8 +330,14 @@ public class RefreshOperation extends AbstractOperation
         {
             // setup select count statement
             _operationData = getSelectCountData(metaData, connection);
+            _metrics = getOperationMetrics(connection);
+            long start = _metrics == null ? 0 : System.nanoTime();
             _countStatement = connection.getConnection().prepareStatement(
                     _operationData.getSql());
+            if (_metrics != null)
+            {
+                _metrics.statementPrepared(_operationData.getSql(), System.nanoTime() - start);
+            }
         }
 
         private OperationData getSelectCountData(
@@ -357,6 +395,7 @@ public class RefreshOperation extends AbstractOperation
                 dataType.setSqlValue(value, i + 1, _countStatement);
             }
 
+            long start = _metrics == null ? 0 : System.nanoTime();
             ResultSet resultSet = _countStatement.executeQuery();
             try
             {
@@ -366,6 +405,10 @@ public class RefreshOperation extends AbstractOperation
             finally
             {
                 resultSet.close();
+                if (_metrics != null)
+                {
+                    _metrics.batchExecuted(_operationData.getSql(), 1, System.nanoTime() - start);
+                }
             }
         }
 
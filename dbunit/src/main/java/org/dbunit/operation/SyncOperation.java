@@ -0,0 +1,561 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.operation;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.dbunit.DatabaseUnitException;
+import org.dbunit.database.DatabaseConfig;
+import org.dbunit.database.ForwardOnlyResultSetTable;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.CachedTable;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.ColumnIndexMapping;
+import org.dbunit.dataset.CompositeTable;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.DefaultTableMetaData;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableIterator;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.OrderedTableNameMap;
+import org.dbunit.dataset.RowOutOfBoundsException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Synchronizes the rows of the dataset tables with the dataset, only changing the rows that
+ * differ.
+ * <p>
+ * The current rows of each table are read ordered by primary key and matched against the
+ * primary keys of the dataset rows. Rows missing in the dataset are deleted, rows having
+ * different values are updated and rows missing in the database are inserted, using the
+ * batched {@link DeleteOperation}, {@link UpdateOperation} and {@link InsertOperation}. Like
+ * with {@link DatabaseOperation#CLEAN_INSERT} the deletes are executed in reverse table order
+ * and the updates and inserts in dataset order. Two rows of a table having the same primary
+ * key are rejected.
+ * </p>
+ * <p>
+ * <b>The result is not the same as with CLEAN_INSERT for columns without a dataset value.</b>
+ * Only the columns of the dataset are compared and updated, so columns of existing rows which
+ * are missing in the dataset, or have no value in a dataset row, keep their current values
+ * instead of being reset to their defaults. Use CLEAN_INSERT when tests depend on such
+ * columns or list them in the dataset.
+ * </p>
+ * <p>
+ * Tables without primary key, or whose dataset columns do not contain the complete key, are
+ * synchronized by deleting and inserting all rows. A row of the database must not reference
+ * a deleted row of another table unless it is deleted or updated itself, otherwise the deletes
+ * fail on the foreign key.
+ * </p>
+ *
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class SyncOperation extends AbstractOperation
+{
+
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(SyncOperation.class);
+
+    private static final byte ROW_INSERT = 0;
+    private static final byte ROW_UPDATE = 1;
+    private static final byte ROW_UNCHANGED = 2;
+
+    public SyncOperation()
+    {
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // DatabaseOperation class
+
+    public void execute(IDatabaseConnection connection, IDataSet dataSet)
+            throws DatabaseUnitException, SQLException
+    {
+        synchronize(connection, dataSet);
+    }
+
+    /**
+     * Executes this operation.
+     * @param connection the database connection.
+     * @param dataSet the dataset to be used by this operation.
+     * @return The number of rows deleted, updated and inserted
+     */
+    public Delta synchronize(IDatabaseConnection connection, IDataSet dataSet)
+            throws DatabaseUnitException, SQLException
+    {
+        logger.debug("synchronize(connection={}, dataSet) - start", connection);
+
+        // Compute all table deltas first since the deletes are executed in reverse order
+        List tableDeltas = new ArrayList();
+        boolean caseSensitiveTableNames = connection.getConfig().getFeature(
+                DatabaseConfig.FEATURE_CASE_SENSITIVE_TABLE_NAMES);
+        for (Iterator it = getTables(dataSet, caseSensitiveTableNames).iterator(); it.hasNext();)
+        {
+            ITable table = (ITable)it.next();
+            String tableName = table.getTableMetaData().getTableName();
+            try
+            {
+                tableDeltas.add(createTableDelta(connection, table));
+            }
+            catch (SQLException e)
+            {
+                throw new DatabaseUnitException(
+                        "Exception processing table name='" + tableName + "'", e);
+            }
+        }
+
+        Delta delta = new Delta();
+        for (int i = tableDeltas.size() - 1; i >= 0; i--)
+        {
+            ((TableDelta)tableDeltas.get(i)).executeDeletes(connection);
+        }
+        for (int i = 0; i < tableDeltas.size(); i++)
+        {
+            TableDelta tableDelta = (TableDelta)tableDeltas.get(i);
+            tableDelta.executeUpdatesAndInserts(connection);
+            delta.add(tableDelta);
+        }
+
+        logger.debug("Synchronized dataset: {}", delta);
+        return delta;
+    }
+
+    /**
+     * Reads the tables of the dataset merging tables having the same name. Tables that
+     * can only be read once are cached.
+     * @param caseSensitiveTableNames Whether tables whose names only differ in case are
+     * different tables
+     * @return The tables in dataset order
+     */
+    private List getTables(IDataSet dataSet, boolean caseSensitiveTableNames)
+            throws DataSetException
+    {
+        OrderedTableNameMap tables = new OrderedTableNameMap(caseSensitiveTableNames);
+        ITableIterator iterator = dataSet.iterator();
+        while (iterator.next())
+        {
+            ITable table = iterator.getTable();
+            try
+            {
+                table.getRowCount();
+            }
+            catch (UnsupportedOperationException e)
+            {
+                table = new CachedTable(table);
+            }
+
+            String tableName = table.getTableMetaData().getTableName();
+            ITable existingTable = (ITable)tables.get(tableName);
+            if (existingTable != null)
+            {
+                tables.update(tableName, new CompositeTable(existingTable.getTableMetaData(),
+                        new ITable[] {existingTable, table}));
+            }
+            else
+            {
+                tables.add(tableName, table);
+            }
+        }
+        return new ArrayList(tables.orderedValues());
+    }
+
+    private TableDelta createTableDelta(IDatabaseConnection connection, ITable table)
+            throws DatabaseUnitException, SQLException
+    {
+        String tableName = table.getTableMetaData().getTableName();
+        ITableMetaData metaData = getOperationMetaData(connection, table.getTableMetaData());
+        Column[] columns = metaData.getColumns();
+        Column[] primaryKeys = metaData.getPrimaryKeys();
+
+        ColumnIndexMapping mapping = new ColumnIndexMapping(table, columns);
+        TableDelta tableDelta = new TableDelta(table, metaData, mapping);
+        int[] keyIndexes = getKeyIndexes(metaData);
+        if (keyIndexes == null)
+        {
+            // rows cannot be matched, replace all of them
+            tableDelta.setDeleteAll(connection.getRowCount(tableName));
+            return tableDelta;
+        }
+
+        // Index the dataset rows by primary key
+        int rowCount = table.getRowCount();
+        Map rowsByKey = new HashMap(rowCount * 4 / 3 + 1);
+        for (int row = 0; row < rowCount; row++)
+        {
+            Object[] keyValues = new Object[primaryKeys.length];
+            boolean hasNull = false;
+            for (int i = 0; i < primaryKeys.length; i++)
+            {
+                keyValues[i] = mapping.getValue(row, keyIndexes[i]);
+                if (keyValues[i] == null || keyValues[i] == ITable.NO_VALUE)
+                {
+                    hasNull = true;
+                }
+            }
+            // a row without a complete key can never exist
+            if (!hasNull)
+            {
+                Integer duplicateRow = (Integer)rowsByKey.put(
+                        BatchRefreshOperation.createKey(primaryKeys, keyValues), new Integer(row));
+                if (duplicateRow != null)
+                {
+                    throw new DataSetException("Rows " + duplicateRow + " and " + row
+                            + " of table '" + tableName + "' have the same primary key "
+                            + Arrays.asList(keyValues));
+                }
+            }
+        }
+
+        // Merge the current rows of the database into the dataset rows
+        ForwardOnlyResultSetTable databaseTable = new ForwardOnlyResultSetTable(metaData, connection);
+        try
+        {
+            for (int row = 0; ; row++)
+            {
+                Object[] values = new Object[columns.length];
+                for (int i = 0; i < columns.length; i++)
+                {
+                    values[i] = databaseTable.getValue(row, i);
+                }
+
+                Object[] keyValues = new Object[primaryKeys.length];
+                for (int i = 0; i < primaryKeys.length; i++)
+                {
+                    keyValues[i] = values[keyIndexes[i]];
+                }
+                Integer datasetRow = (Integer)rowsByKey.remove(
+                        BatchRefreshOperation.createKey(primaryKeys, keyValues));
+                if (datasetRow == null)
+                {
+                    tableDelta.addDelete(keyValues);
+                }
+                else
+                {
+                    int index = datasetRow.intValue();
+                    tableDelta.setRowState(index,
+                            isEqual(columns, mapping, index, values) ? ROW_UNCHANGED : ROW_UPDATE);
+                }
+            }
+        }
+        catch (RowOutOfBoundsException e)
+        {
+            // end of table
+        }
+        finally
+        {
+            databaseTable.close();
+        }
+        return tableDelta;
+    }
+
+    /**
+     * @return The positions of the primary key columns within the columns of the given
+     * metadata or <code>null</code> if the table has no primary key or if not all key
+     * columns are contained
+     */
+    private int[] getKeyIndexes(ITableMetaData metaData) throws DataSetException
+    {
+        Column[] columns = metaData.getColumns();
+        Column[] primaryKeys = metaData.getPrimaryKeys();
+        if (primaryKeys.length == 0)
+        {
+            return null;
+        }
+
+        int[] keyIndexes = new int[primaryKeys.length];
+        for (int i = 0; i < primaryKeys.length; i++)
+        {
+            keyIndexes[i] = -1;
+            for (int j = 0; j < columns.length; j++)
+            {
+                if (columns[j].getColumnName().equalsIgnoreCase(primaryKeys[i].getColumnName()))
+                {
+                    keyIndexes[i] = j;
+                    break;
+                }
+            }
+            if (keyIndexes[i] < 0)
+            {
+                return null;
+            }
+        }
+        return keyIndexes;
+    }
+
+    /**
+     * Compares the values of a dataset row with the values read from the database.
+     * Columns having no value in the dataset are not compared.
+     */
+    private boolean isEqual(Column[] columns, ColumnIndexMapping mapping, int row,
+            Object[] databaseValues)
+            throws DataSetException
+    {
+        for (int i = 0; i < columns.length; i++)
+        {
+            Object value = mapping.getValue(row, i);
+            if (value != ITable.NO_VALUE
+                    && columns[i].getDataType().compare(value, databaseValues[i]) != 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * The changes needed to synchronize one table.
+     */
+    private static class TableDelta
+    {
+        private final ITable _table;
+        private final ITableMetaData _metaData;
+        private final ColumnIndexMapping _mapping;
+        private final byte[] _rowStates;
+        private final DefaultTable _deleteTable;
+        private boolean _deleteAll = false;
+        private int _deletedRowCount = 0;
+        private int _updatedRowCount = 0;
+        private int _insertedRowCount = 0;
+        private int _unchangedRowCount = 0;
+
+        public TableDelta(ITable table, ITableMetaData metaData, ColumnIndexMapping mapping)
+                throws DataSetException
+        {
+            _table = table;
+            _metaData = metaData;
+            _mapping = mapping;
+            _rowStates = new byte[table.getRowCount()];
+            _deleteTable = new DefaultTable(new DefaultTableMetaData(metaData.getTableName(),
+                    metaData.getPrimaryKeys(), metaData.getPrimaryKeys()));
+        }
+
+        public void setDeleteAll(int rowCount)
+        {
+            _deleteAll = true;
+            _deletedRowCount = rowCount;
+        }
+
+        public void addDelete(Object[] keyValues) throws DataSetException
+        {
+            _deleteTable.addRow(keyValues);
+            _deletedRowCount++;
+        }
+
+        public void setRowState(int row, byte state)
+        {
+            _rowStates[row] = state;
+        }
+
+        public void executeDeletes(IDatabaseConnection connection)
+                throws DatabaseUnitException, SQLException
+        {
+            if (_deleteAll)
+            {
+                if (_deletedRowCount > 0)
+                {
+                    DatabaseOperation.DELETE_ALL.execute(connection,
+                            new DefaultDataSet(new DefaultTable(_metaData.getTableName())));
+                }
+            }
+            else if (_deleteTable.getRowCount() > 0)
+            {
+                DatabaseOperation.DELETE.execute(connection, new DefaultDataSet(_deleteTable));
+            }
+        }
+
+        public void executeUpdatesAndInserts(IDatabaseConnection connection)
+                throws DatabaseUnitException, SQLException
+        {
+            // update rows by the columns having a value, see getUpdateTable
+            Map updateTables = new LinkedHashMap();
+            DefaultTable insertTable = new DefaultTable(_metaData);
+            int columnCount = _metaData.getColumns().length;
+            for (int row = 0; row < _rowStates.length; row++)
+            {
+                if (_rowStates[row] == ROW_UNCHANGED)
+                {
+                    _unchangedRowCount++;
+                    continue;
+                }
+
+                Object[] values = new Object[columnCount];
+                for (int i = 0; i < columnCount; i++)
+                {
+                    values[i] = _mapping.getValue(row, i);
+                }
+                if (_rowStates[row] == ROW_UPDATE)
+                {
+                    addUpdateRow(updateTables, values);
+                    _updatedRowCount++;
+                }
+                else
+                {
+                    insertTable.addRow(values);
+                }
+            }
+            _insertedRowCount = insertTable.getRowCount();
+
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Synchronizing table '{}': {} rows deleted, {} to update, {} to insert, {} unchanged",
+                        new Object[] {_metaData.getTableName(), String.valueOf(_deletedRowCount),
+                        String.valueOf(_updatedRowCount), String.valueOf(_insertedRowCount),
+                        String.valueOf(_unchangedRowCount)});
+            }
+
+            for (Iterator it = updateTables.values().iterator(); it.hasNext();)
+            {
+                DatabaseOperation.UPDATE.execute(connection,
+                        new DefaultDataSet((ITable)it.next()));
+            }
+            if (_insertedRowCount > 0)
+            {
+                DatabaseOperation.INSERT.execute(connection, new DefaultDataSet(insertTable));
+            }
+        }
+
+        /**
+         * Adds an update row to the table of the columns having a value in it. The
+         * {@link UpdateOperation} would set columns without a value to
+         * <code>null</code>, so they are left out of the updated columns.
+         * @param updateTables The update tables by {@link BitSet} of the columns having
+         * a value
+         */
+        private void addUpdateRow(Map updateTables, Object[] values) throws DataSetException
+        {
+            BitSet valueMapping = new BitSet(values.length);
+            for (int i = 0; i < values.length; i++)
+            {
+                if (values[i] != ITable.NO_VALUE)
+                {
+                    valueMapping.set(i);
+                }
+            }
+
+            DefaultTable updateTable = (DefaultTable)updateTables.get(valueMapping);
+            if (updateTable == null)
+            {
+                Column[] columns = _metaData.getColumns();
+                Column[] updateColumns = new Column[valueMapping.cardinality()];
+                for (int i = 0, j = 0; i < columns.length; i++)
+                {
+                    if (valueMapping.get(i))
+                    {
+                        updateColumns[j++] = columns[i];
+                    }
+                }
+                updateTable = new DefaultTable(new DefaultTableMetaData(
+                        _metaData.getTableName(), updateColumns, _metaData.getPrimaryKeys()));
+                updateTables.put(valueMapping, updateTable);
+            }
+
+            Object[] updateValues = new Object[valueMapping.cardinality()];
+            for (int i = 0, j = 0; i < values.length; i++)
+            {
+                if (valueMapping.get(i))
+                {
+                    updateValues[j++] = values[i];
+                }
+            }
+            updateTable.addRow(updateValues);
+        }
+    }
+
+
+    /**
+     * The number of rows changed by a {@link SyncOperation}.
+     */
+    public static class Delta
+    {
+        private int _deletedRowCount = 0;
+        private int _updatedRowCount = 0;
+        private int _insertedRowCount = 0;
+        private int _unchangedRowCount = 0;
+
+        void add(TableDelta tableDelta)
+        {
+            _deletedRowCount += tableDelta._deletedRowCount;
+            _updatedRowCount += tableDelta._updatedRowCount;
+            _insertedRowCount += tableDelta._insertedRowCount;
+            _unchangedRowCount += tableDelta._unchangedRowCount;
+        }
+
+        public int getDeletedRowCount()
+        {
+            return _deletedRowCount;
+        }
+
+        public int getUpdatedRowCount()
+        {
+            return _updatedRowCount;
+        }
+
+        public int getInsertedRowCount()
+        {
+            return _insertedRowCount;
+        }
+
+        /**
+         * @return The number of dataset rows that already existed with the same values
+         */
+        public int getUnchangedRowCount()
+        {
+            return _unchangedRowCount;
+        }
+
+        /**
+         * @return The total number of deleted, updated and inserted rows
+         */
+        public int getSize()
+        {
+            return _deletedRowCount + _updatedRowCount + _insertedRowCount;
+        }
+
+        public String toString()
+        {
+            StringBuffer sb = new StringBuffer();
+            sb.append(getClass().getName()).append("[");
+            sb.append("_deletedRowCount=").append(_deletedRowCount);
+            sb.append(", _updatedRowCount=").append(_updatedRowCount);
+            sb.append(", _insertedRowCount=").append(_insertedRowCount);
+            sb.append(", _unchangedRowCount=").append(_unchangedRowCount);
+            sb.append("]");
+            return sb.toString();
+        }
+    }
+}
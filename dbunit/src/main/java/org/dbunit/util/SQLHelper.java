@@ -413,6 +413,39 @@ public class SQLHelper {
             logger.debug(msg, tableName, columnName, e);
         }
 
+        return createColumn(tableName, columnName, sqlType, sqlTypeName,
+                nullable, remarks, columnDefaultValue, isAutoIncrement,
+                dataTypeFactory, datatypeWarning);
+    }
+
+    /**
+     * Utility method to create a {@link Column} object from the raw values of a
+     * {@link DatabaseMetaData#getColumns(String, String, String, String)} row.
+     * This allows column metadata to be captured once and turned into {@link Column}
+     * objects later on, possibly using different {@link IDataTypeFactory} instances.
+     * 
+     * @param tableName The name of the table the column belongs to
+     * @param columnName The name of the column
+     * @param sqlType The SQL type from {@link java.sql.Types}
+     * @param sqlTypeName The database specific type name
+     * @param nullable The nullable flag as returned by the JDBC metadata
+     * @param remarks The column comment
+     * @param columnDefaultValue The column default value
+     * @param isAutoIncrement The auto increment flag as returned by the JDBC metadata
+     * @param dataTypeFactory The factory used to lookup the {@link DataType} for this column
+     * @param datatypeWarning Whether or not a warning should be printed if the column could not
+     * be created because of an unknown datatype.
+     * @return The {@link Column} or <code>null</code> if the column could not be initialized because of an
+     * unknown datatype.
+     * @throws DataTypeException
+     * @since 2.5.1
+     */
+    public static final Column createColumn(String tableName, String columnName,
+            int sqlType, String sqlTypeName, int nullable, String remarks,
+            String columnDefaultValue, String isAutoIncrement,
+            IDataTypeFactory dataTypeFactory, boolean datatypeWarning)
+                    throws DataTypeException
+                    {
         // Convert SQL type to DataType
         DataType dataType =
                 dataTypeFactory.createDataType(sqlType, sqlTypeName, tableName, columnName);
@@ -47,6 +47,7 @@ public abstract class AbstractDataFileLoader implements DataFileLoader {
 
     private Map replacementObjects;
     private Map replacementSubstrings;
+    private boolean useCache = false;
 
     /** Create new instance. */
     public AbstractDataFileLoader() {
@@ -111,7 +112,7 @@ public abstract class AbstractDataFileLoader implements DataFileLoader {
             }
 
             try {
-                ds = loadDataSet(url);
+                ds = loadCachedDataSet(url);
                 ds = processReplacementTokens(ds);
             } catch (DataSetException e) {
                 final String msg =
@@ -148,6 +149,76 @@ public abstract class AbstractDataFileLoader implements DataFileLoader {
     protected abstract IDataSet loadDataSet(URL url) throws DataSetException,
             IOException;
 
+    /**
+     * Get the dataset of the specified url from the {@link DataSetCache},
+     * loading and caching it when it is not cached yet.
+     * 
+     * @param url
+     *            The dbUnit data file url.
+     * @return dbUnit dataset of the corresponding input file type.
+     * @throws DataSetException
+     *             On data errors.
+     * @throws IOException
+     *             On file errors.
+     * @since 2.5.1
+     */
+    private IDataSet loadCachedDataSet(URL url) throws DataSetException,
+            IOException {
+        String options = useCache ? getCacheOptions() : null;
+        if (options == null) {
+            return loadDataSet(url);
+        }
+
+        DataSetCache cache = DataSetCache.getInstance();
+        String key = DataSetCache.createKey(url, options);
+        IDataSet ds = cache.get(key);
+        if (ds == null) {
+            ds = cache.put(key, loadDataSet(url));
+        } else {
+            LOG.debug("load: using cached data set of url={}", url);
+        }
+        return ds;
+    }
+
+    /**
+     * Get the options of this loader which affect the loaded dataset, used in
+     * the key of the {@link DataSetCache}. Loaders are only cached when they
+     * return their options, because two loaders with different options must
+     * not share a dataset. The built-in loaders do; subclasses adding options
+     * must include them.
+     * 
+     * @return The options or <code>null</code> if the datasets must not be
+     *         cached, which is the default.
+     * @since 2.5.1
+     */
+    protected String getCacheOptions() {
+        return null;
+    }
+
+    /**
+     * Get whether the loaded datasets are shared through the
+     * {@link DataSetCache}. The tables of a cached dataset are read only, so
+     * tests modifying the loaded tables must not use the cache.
+     * 
+     * @return Whether the cache is used, defaults to false.
+     * @since 2.5.1
+     */
+    public boolean isUseCache() {
+        return useCache;
+    }
+
+    /**
+     * Set whether the loaded datasets are shared through the
+     * {@link DataSetCache}.
+     * 
+     * @param useCache
+     *            Whether the cache is used.
+     * @since 2.5.1
+     */
+    public void setUseCache(boolean useCache) {
+        this.useCache = useCache;
+    }
+
     /**
      * Add the replacements in the maps (objects and substrings) to the
      * specified dataset.
@@ -75,4 +75,11 @@ public class CsvDataFileLoader extends AbstractDataFileLoader {
 
         return ds;
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected String getCacheOptions() {
+        return getClass().getName();
+    }
 }
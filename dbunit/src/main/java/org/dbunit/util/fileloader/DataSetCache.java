@@ -0,0 +1,313 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.util.fileloader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.dbunit.database.AmbiguousTableNameException;
+import org.dbunit.dataset.ColumnarTable;
+import org.dbunit.dataset.CompositeTable;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * JVM wide cache of the datasets parsed by the data file loaders. The tables
+ * of a cached dataset are copied into {@link ColumnarTable}s once and shared:
+ * each lookup returns a new dataset of read only views on them, which the
+ * loaders then wrap into their own
+ * {@link org.dbunit.dataset.ReplacementDataSet}.
+ * 
+ * The entries are keyed by the resource URL, its last modified time and the
+ * loader options, so that changed files are parsed again. The least recently
+ * used entries are evicted when the total number of cells exceeds the
+ * maximum.
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class DataSetCache {
+    private static final Logger LOG = LoggerFactory.getLogger(DataSetCache.class);
+
+    /** The default maximum number of cached cells of {@link #getInstance()}. */
+    public static final long DEFAULT_MAXIMUM_CELL_COUNT = 5000000;
+
+    private static final DataSetCache INSTANCE =
+            new DataSetCache(DEFAULT_MAXIMUM_CELL_COUNT);
+
+    private final Map entries = new LinkedHashMap(16, 0.75f, true);
+    private long maximumCellCount;
+    private long cellCount;
+    private long hitCount;
+    private long missCount;
+
+    /**
+     * Create new instance.
+     * 
+     * @param maximumCellCount
+     *            The maximum number of cells of all cached tables, 0 disables
+     *            the cache.
+     */
+    public DataSetCache(long maximumCellCount) {
+        this.maximumCellCount = maximumCellCount;
+    }
+
+    /**
+     * @return The cache shared by the data file loaders.
+     */
+    public static DataSetCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Create the key of a resource.
+     * 
+     * @param url
+     *            The resource.
+     * @param options
+     *            The options of the loader affecting the parsed dataset.
+     * @return The key made of the URL, its last modified time and the options.
+     * @throws IOException
+     *             If the last modified time cannot be read.
+     */
+    public static String createKey(URL url, String options) throws IOException {
+        return url.toExternalForm() + '|' + getLastModified(url) + '|' + options;
+    }
+
+    private static long getLastModified(URL url) throws IOException {
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return new File(url.toURI()).lastModified();
+            } catch (URISyntaxException e) {
+                // fall back to the connection
+            } catch (IllegalArgumentException e) {
+                // fall back to the connection
+            }
+        }
+
+        URLConnection connection = url.openConnection();
+        long lastModified = connection.getLastModified();
+        // The connection has been opened to read the header fields
+        InputStream in = connection.getInputStream();
+        in.close();
+        return lastModified;
+    }
+
+    /**
+     * Get a cached dataset.
+     * 
+     * @param key
+     *            The key, see {@link #createKey(URL, String)}.
+     * @return A new view on the cached dataset or <code>null</code> if it is
+     *         not cached.
+     * @throws DataSetException
+     *             If the view cannot be created.
+     */
+    public IDataSet get(String key) throws DataSetException {
+        Entry entry;
+        synchronized (this) {
+            entry = (Entry) entries.get(key);
+            if (entry == null) {
+                missCount++;
+                return null;
+            }
+            hitCount++;
+        }
+        return entry.createView();
+    }
+
+    /**
+     * Cache a dataset, replacing any dataset cached with the same key. Datasets
+     * with more cells than the maximum are not cached.
+     * 
+     * @param key
+     *            The key, see {@link #createKey(URL, String)}.
+     * @param dataSet
+     *            The parsed dataset, which is read completely.
+     * @return A view on the cached copy of the dataset or the dataset itself if
+     *         it has not been cached.
+     * @throws DataSetException
+     *             If the dataset cannot be read.
+     */
+    public IDataSet put(String key, IDataSet dataSet) throws DataSetException {
+        long maximum = getMaximumCellCount();
+        if (maximum <= 0) {
+            return dataSet;
+        }
+
+        List tables = new ArrayList();
+        long cells = 0;
+        ITableIterator iterator = dataSet.iterator();
+        while (iterator.next()) {
+            ITable table = new ColumnarTable(iterator.getTable());
+            cells += (long) table.getRowCount()
+                    * Math.max(1, table.getTableMetaData().getColumns().length);
+            if (cells > maximum) {
+                LOG.debug("put: dataset of key={} is larger than the cache", key);
+                return dataSet;
+            }
+            tables.add(table);
+        }
+
+        Entry entry = new Entry((ITable[]) tables.toArray(new ITable[0]),
+                dataSet.isCaseSensitiveTableNames(), cells);
+        IDataSet view;
+        try {
+            view = entry.createView();
+        } catch (AmbiguousTableNameException e) {
+            LOG.debug("put: dataset of key={} has duplicate table names", key);
+            return dataSet;
+        }
+
+        synchronized (this) {
+            Entry previous = (Entry) entries.put(key, entry);
+            if (previous != null) {
+                cellCount -= previous.cellCount;
+            }
+            cellCount += cells;
+            evict();
+        }
+        return view;
+    }
+
+    private void evict() {
+        Iterator iterator = entries.values().iterator();
+        while (cellCount > maximumCellCount && iterator.hasNext()) {
+            Entry entry = (Entry) iterator.next();
+            iterator.remove();
+            cellCount -= entry.cellCount;
+        }
+    }
+
+    /**
+     * Remove all cached datasets and reset the statistics.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        cellCount = 0;
+        hitCount = 0;
+        missCount = 0;
+    }
+
+    /**
+     * @return The maximum number of cells of all cached tables.
+     */
+    public synchronized long getMaximumCellCount() {
+        return maximumCellCount;
+    }
+
+    /**
+     * Set the maximum number of cells, evicting the least recently used
+     * datasets if needed.
+     * 
+     * @param maximumCellCount
+     *            The maximum number of cells, 0 disables the cache.
+     */
+    public synchronized void setMaximumCellCount(long maximumCellCount) {
+        this.maximumCellCount = maximumCellCount;
+        evict();
+    }
+
+    /**
+     * @return The number of cells of all cached tables.
+     */
+    public synchronized long getCellCount() {
+        return cellCount;
+    }
+
+    /**
+     * @return The number of cached datasets.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return The number of lookups finding a cached dataset.
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return The number of lookups not finding a cached dataset.
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized String toString() {
+        StringBuffer sb = new StringBuffer();
+        sb.append(getClass().getName()).append("[");
+        sb.append("size=").append(entries.size());
+        sb.append(", cellCount=").append(cellCount);
+        sb.append(", maximumCellCount=").append(maximumCellCount);
+        sb.append(", hitCount=").append(hitCount);
+        sb.append(", missCount=").append(missCount);
+        sb.append("]");
+        return sb.toString();
+    }
+
+    /**
+     * The shared tables of a cached dataset.
+     */
+    private static class Entry {
+        private final ITable[] tables;
+        private final boolean caseSensitiveTableNames;
+        private final long cellCount;
+
+        public Entry(ITable[] tables, boolean caseSensitiveTableNames,
+                long cellCount) {
+            this.tables = tables;
+            this.caseSensitiveTableNames = caseSensitiveTableNames;
+            this.cellCount = cellCount;
+        }
+
+        /**
+         * @return A new dataset of read only views on the shared tables.
+         */
+        public IDataSet createView() throws AmbiguousTableNameException {
+            ITable[] views = new ITable[tables.length];
+            for (int i = 0; i < tables.length; i++) {
+                views[i] = new CompositeTable(tables[i].getTableMetaData(),
+                        tables[i]);
+            }
+            return new DefaultDataSet(views, caseSensitiveTableNames);
+        }
+    }
+}
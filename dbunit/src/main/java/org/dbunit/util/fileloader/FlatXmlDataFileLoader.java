@@ -107,6 +107,21 @@ public class FlatXmlDataFileLoader extends AbstractDataFileLoader {
         return ds;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    protected String getCacheOptions() {
+        if (builder.getMetaDataSet() != null) {
+            // the metadata is not part of the key
+            return null;
+        }
+
+        return getClass().getName() + "[dtdMetadata="
+                + builder.isDtdMetadata() + ", columnSensing="
+                + builder.isColumnSensing() + ", caseSensitiveTableNames="
+                + builder.isCaseSensitiveTableNames() + "]";
+    }
+
     /**
      * Get the builder.
      * 
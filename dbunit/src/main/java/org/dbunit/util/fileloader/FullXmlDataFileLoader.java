@@ -76,4 +76,11 @@ public class FullXmlDataFileLoader extends AbstractDataFileLoader {
 
         return ds;
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected String getCacheOptions() {
+        return getClass().getName();
+    }
 }
@@ -73,8 +73,20 @@ public class XlsDataFileLoader extends AbstractDataFileLoader {
     protected IDataSet loadDataSet(URL url) throws DataSetException,
             IOException {
         InputStream in = url.openStream();
-        IDataSet ds = new XlsDataSet(in);
+        IDataSet ds;
+        try {
+            ds = new XlsDataSet(in);
+        } finally {
+            in.close();
+        }
 
         return ds;
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected String getCacheOptions() {
+        return getClass().getName();
+    }
 }
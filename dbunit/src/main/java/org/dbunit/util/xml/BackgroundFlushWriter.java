@@ -0,0 +1,310 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.util.xml;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Writer which writes to another writer in a background thread. The characters are
+ * collected in a few reused chunks. A full chunk is handed to the thread while the
+ * caller fills the next one, so that the encoding and I/O of the underlying writer
+ * overlap with the work of the caller. When all chunks are in use the caller waits.
+ * <p>
+ * Errors of the underlying writer are thrown by the next call of this writer.
+ * {@link #finish()} or {@link #close()} must be called to stop the thread.
+ * </p>
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class BackgroundFlushWriter extends Writer
+{
+    public static final int DEFAULT_CHUNK_SIZE = 8192;
+    public static final int DEFAULT_CHUNK_COUNT = 4;
+
+    /**
+     * Handed to the thread to stop it
+     */
+    private static final Chunk END = new Chunk(0);
+
+    private final Writer _out;
+    private final BlockingQueue _filledChunks;
+    private final BlockingQueue _freeChunks;
+    private final Thread _thread;
+    private final Object _lock = new Object();
+
+    private Chunk _chunk;
+    /**
+     * The number of chunks handed to the thread and not written yet. Guarded by _lock
+     */
+    private int _pendingCount;
+    private volatile IOException _error;
+    private boolean _finished;
+
+    public BackgroundFlushWriter(Writer out)
+    {
+        this(out, DEFAULT_CHUNK_SIZE, DEFAULT_CHUNK_COUNT);
+    }
+
+    /**
+     * @param out The writer to write to
+     * @param chunkSize The number of characters per chunk
+     * @param chunkCount The number of chunks, at least 2
+     */
+    public BackgroundFlushWriter(Writer out, int chunkSize, int chunkCount)
+    {
+        if (chunkCount < 2)
+        {
+            throw new IllegalArgumentException("At least 2 chunks are needed but was " + chunkCount);
+        }
+        _out = out;
+        _filledChunks = new ArrayBlockingQueue(chunkCount + 1);
+        _freeChunks = new ArrayBlockingQueue(chunkCount);
+        for (int i = 1; i < chunkCount; i++)
+        {
+            _freeChunks.add(new Chunk(chunkSize));
+        }
+        _chunk = new Chunk(chunkSize);
+
+        _thread = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                writeChunks();
+            }
+        }, "dbunit-background-flush");
+        _thread.setDaemon(true);
+        _thread.start();
+    }
+
+    /**
+     * @return The writer this writer writes to
+     */
+    public Writer getWriter()
+    {
+        return _out;
+    }
+
+    private void writeChunks()
+    {
+        try
+        {
+            for (Chunk chunk = (Chunk)_filledChunks.take(); chunk != END;
+                    chunk = (Chunk)_filledChunks.take())
+            {
+                if (_error == null)
+                {
+                    try
+                    {
+                        _out.write(chunk.chars, 0, chunk.length);
+                    }
+                    catch (IOException e)
+                    {
+                        _error = e;
+                    }
+                }
+                chunk.length = 0;
+                _freeChunks.put(chunk);
+                synchronized (_lock)
+                {
+                    _pendingCount--;
+                    _lock.notifyAll();
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            _error = new InterruptedIOException("Background flush interrupted");
+        }
+    }
+
+    private void checkState() throws IOException
+    {
+        if (_finished)
+        {
+            throw new IOException("Writer already finished");
+        }
+        if (_error != null)
+        {
+            throw _error;
+        }
+    }
+
+    private void handOff() throws IOException
+    {
+        try
+        {
+            synchronized (_lock)
+            {
+                _pendingCount++;
+            }
+            _filledChunks.put(_chunk);
+            _chunk = (Chunk)_freeChunks.take();
+        }
+        catch (InterruptedException e)
+        {
+            throw new InterruptedIOException("Interrupted while waiting for a free chunk");
+        }
+    }
+
+    private void waitForPendingChunks() throws IOException
+    {
+        synchronized (_lock)
+        {
+            while (_pendingCount > 0)
+            {
+                try
+                {
+                    _lock.wait();
+                }
+                catch (InterruptedException e)
+                {
+                    throw new InterruptedIOException("Interrupted while waiting for the flush");
+                }
+            }
+        }
+        if (_error != null)
+        {
+            throw _error;
+        }
+    }
+
+    public void write(int c) throws IOException
+    {
+        checkState();
+        if (_chunk.length == _chunk.chars.length)
+        {
+            handOff();
+        }
+        _chunk.chars[_chunk.length++] = (char)c;
+    }
+
+    public void write(char[] chars, int offset, int length) throws IOException
+    {
+        checkState();
+        while (length > 0)
+        {
+            if (_chunk.length == _chunk.chars.length)
+            {
+                handOff();
+            }
+            int copyLength = Math.min(length, _chunk.chars.length - _chunk.length);
+            System.arraycopy(chars, offset, _chunk.chars, _chunk.length, copyLength);
+            _chunk.length += copyLength;
+            offset += copyLength;
+            length -= copyLength;
+        }
+    }
+
+    public void write(String str, int offset, int length) throws IOException
+    {
+        checkState();
+        while (length > 0)
+        {
+            if (_chunk.length == _chunk.chars.length)
+            {
+                handOff();
+            }
+            int copyLength = Math.min(length, _chunk.chars.length - _chunk.length);
+            str.getChars(offset, offset + copyLength, _chunk.chars, _chunk.length);
+            _chunk.length += copyLength;
+            offset += copyLength;
+            length -= copyLength;
+        }
+    }
+
+    /**
+     * Waits until everything written so far is written to the underlying writer and
+     * flushes it.
+     */
+    public void flush() throws IOException
+    {
+        checkState();
+        if (_chunk.length > 0)
+        {
+            handOff();
+        }
+        waitForPendingChunks();
+        _out.flush();
+    }
+
+    /**
+     * Flushes this writer and stops the background thread without closing the
+     * underlying writer.
+     */
+    public void finish() throws IOException
+    {
+        if (_finished)
+        {
+            return;
+        }
+        try
+        {
+            flush();
+        }
+        finally
+        {
+            _finished = true;
+            try
+            {
+                _filledChunks.put(END);
+                _thread.join();
+            }
+            catch (InterruptedException e)
+            {
+                throw new InterruptedIOException("Interrupted while stopping the background flush");
+            }
+        }
+    }
+
+    /**
+     * Finishes this writer and closes the underlying writer.
+     */
+    public void close() throws IOException
+    {
+        try
+        {
+            finish();
+        }
+        finally
+        {
+            _out.close();
+        }
+    }
+
+    private static class Chunk
+    {
+        final char[] chars;
+        int length;
+
+        Chunk(int size)
+        {
+            chars = new char[size];
+        }
+    }
+}
@@ -58,7 +58,6 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
-import java.util.Stack;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -67,6 +66,11 @@ import org.slf4j.LoggerFactory;
  * Makes writing XML much much easier.
  * Improved from
  * <a href="http://builder.com.com/article.jhtml?id=u00220020318yan01.htm&page=1&vf=tt">article</a>
+ * <p>
+ * The output is collected in a character buffer which is reused for the whole document
+ * and written to the underlying writer when it is full, on {@link #flush()} and on
+ * {@link #close()}. Values are escaped with lookup tables straight into that buffer.
+ * </p>
  *
  * @author <a href="mailto:bayard@apache.org">Henri Yandell</a>
  * @author <a href="mailto:pete@fingertipsoft.com">Peter Cassetta</a>
@@ -89,19 +93,57 @@ public class XmlWriter
      * Default encoding value which is {@value}
      */
     public static final String DEFAULT_ENCODING = "UTF-8";
-    
+
     /**
      * Logger for this class
      */
     private static final Logger logger = LoggerFactory.getLogger(XmlWriter.class);
 
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * The entities of the ASCII characters which are escaped. The other characters
+     * are written as they are.
+     */
+    private static final String[] ESCAPES = new String[0x80];
+    /**
+     * The entities of the ASCII characters which are escaped when writing literally,
+     * which additionally preserves newlines and carriage returns
+     */
+    private static final String[] LITERAL_ESCAPES;
+
+    static
+    {
+        for (char c = 0; c < 0x20; c++)
+        {
+            if (!isValidXmlChar(c))
+            {
+                ESCAPES[c] = "&#" + (int)c + ";";
+            }
+        }
+        ESCAPES['\t'] = "&#09;";
+        ESCAPES['&'] = "&amp;";
+        ESCAPES['<'] = "&lt;";
+        ESCAPES['>'] = "&gt;";
+        ESCAPES['\"'] = "&quot;";
+        ESCAPES['\''] = "&apos;";
+
+        LITERAL_ESCAPES = (String[])ESCAPES.clone();
+        LITERAL_ESCAPES['\n'] = "&#xA;";
+        LITERAL_ESCAPES['\r'] = "&#xD;";
+    }
+
     private Writer out;      // underlying writer
     private String encoding; // the encoding to be written into the XML header/metatag
-    private Stack stack = new Stack();        // of xml element names
-    private StringBuffer attrs; // current attribute string
+
+    private final char[] buffer = new char[BUFFER_SIZE]; // output not yet written to out
+    private int count;                                   // number of chars in buffer
+
+    private String[] stack = new String[16]; // of xml element names
+    private int depth;                       // number of elements in stack
+    private StringBuffer attrs; // attributes given while no opening tag was open
     private boolean empty;      // is the current node empty
     private boolean closed = true;     // is the current node closed...
-
     private boolean pretty = true;    // is pretty printing enabled?
     /**
      * was text the last thing output?
@@ -115,8 +157,13 @@ public class XmlWriter
      * output this to end a line when pretty printing
      */
     private String newline = "\n";
+    /**
+     * The writer which writes to the actual underlying writer in a background thread.
+     * Null if background flushing is disabled.
+     */
+    private BackgroundFlushWriter backgroundWriter;
+
 
-    
     /**
      * Create an XmlWriter on top of an existing java.io.Writer.
      */
@@ -153,7 +200,6 @@ public class XmlWriter
         setWriter(writer, encoding);
     }
 
-
     /**
      * Turn pretty printing on or off.
      * Pretty printing is enabled by default, but it can be turned off
@@ -169,6 +215,46 @@ public class XmlWriter
         this.pretty = enable;
     }
 
+    /**
+     * Turn background flushing on or off. When it is enabled, the full buffers are
+     * written to the underlying writer by a background thread, so that encoding and
+     * I/O overlap with producing the next values. The thread is stopped by
+     * {@link #close()}. Background flushing is disabled by default.
+     *
+     * @param enable true to enable, false to disable background flushing.
+     * @throws IOException if the output written so far could not be flushed
+     * @since 2.5.1
+     */
+    public void enableBackgroundFlush(boolean enable) throws IOException
+    {
+    	if(logger.isDebugEnabled())
+    		logger.debug("enableBackgroundFlush(enable={}) - start", String.valueOf(enable));
+
+        flushBuffer();
+        if (enable && this.backgroundWriter == null)
+        {
+            this.backgroundWriter = new BackgroundFlushWriter(this.out);
+            this.out = this.backgroundWriter;
+        }
+        else if (!enable && this.backgroundWriter != null)
+        {
+            stopBackgroundFlush();
+        }
+    }
+
+    private void stopBackgroundFlush() throws IOException
+    {
+        try
+        {
+            this.backgroundWriter.finish();
+        }
+        finally
+        {
+            this.out = this.backgroundWriter.getWriter();
+            this.backgroundWriter = null;
+        }
+    }
+
 	/**
      * Specify the string to prepend to a line for each level of indent.
      * It is 2 spaces ("  ") by default. Some may prefer a single tab ("\t")
@@ -209,8 +295,6 @@ public class XmlWriter
      */
     public XmlWriter writeElementWithText(String name, String text) throws IOException
     {
-        logger.debug("writeElementWithText(name={}, text={}) - start", name, text);
-
         writeElement(name);
         writeText(text);
         return endElement();
@@ -223,8 +307,6 @@ public class XmlWriter
      */
     public XmlWriter writeEmptyElement(String name) throws IOException
     {
-        logger.debug("writeEmptyElement(name={}) - start", name);
-
         writeElement(name);
         return endElement();
     }
@@ -237,8 +319,6 @@ public class XmlWriter
      */
     public XmlWriter writeElement(String name) throws IOException
     {
-        logger.debug("writeElement(name={}) - start", name);
-
         return openElement(name);
     }
 
@@ -249,8 +329,6 @@ public class XmlWriter
      */
     private XmlWriter openElement(String name) throws IOException
     {
-        logger.debug("openElement(name={}) - start", name);
-
         boolean wasClosed = this.closed;
         closeOpeningTag();
         this.closed = false;
@@ -263,42 +341,54 @@ public class XmlWriter
             // entities which contain both text and child entities.
             if (!wasClosed || this.wroteText)
             {
-                this.out.write(newline);
-            }
-            for (int i = 0; i < this.stack.size(); i++)
-            {
-                this.out.write(indent); // Indent opening tag to proper level
+                write(newline);
             }
+            writeIndent(); // Indent opening tag to proper level
         }
-        this.out.write("<");
-        this.out.write(name);
-        stack.add(name);
+        write('<');
+        write(name);
+        push(name);
         this.empty = true;
         this.wroteText = false;
         return this;
     }
 
+    private void push(String name)
+    {
+        if (this.depth == this.stack.length)
+        {
+            String[] newStack = new String[this.depth * 2];
+            System.arraycopy(this.stack, 0, newStack, 0, this.depth);
+            this.stack = newStack;
+        }
+        this.stack[this.depth++] = name;
+    }
+
+    private void writeIndent() throws IOException
+    {
+        for (int i = 0; i < this.depth; i++)
+        {
+            write(indent);
+        }
+    }
+
     // close off the opening tag
     private void closeOpeningTag() throws IOException
     {
-        logger.debug("closeOpeningTag() - start");
-
         if (!this.closed)
         {
             writeAttributes();
             this.closed = true;
-            this.out.write(">");
+            write('>');
         }
     }
 
-    // write out all current attributes
+    // write out all attributes given while no opening tag was open
     private void writeAttributes() throws IOException
     {
-        logger.debug("writeAttributes() - start");
-
         if (this.attrs != null)
         {
-            this.out.write(this.attrs.toString());
+            write(this.attrs.toString());
             this.attrs.setLength(0);
             this.empty = false;
         }
@@ -316,7 +406,6 @@ public class XmlWriter
      */
     public XmlWriter writeAttribute(String attr, String value) throws IOException
     {
-        logger.debug("writeAttribute(attr={}, value={}) - start", attr, value);
         return this.writeAttribute(attr, value, false);
     }
 
@@ -334,25 +423,31 @@ public class XmlWriter
      */
     public XmlWriter writeAttribute(String attr, String value, boolean literally) throws IOException
     {
-    	if(logger.isDebugEnabled())
-    		logger.debug("writeAttribute(attr={}, value={}, literally={}) - start", 
-    				new Object[] {attr, value, String.valueOf(literally)} );
-
     	if(this.wroteText==true) {
     		throw new IllegalStateException("The text for the current element has already been written. Cannot add attributes afterwards.");
     	}
-        // maintain API
-        if (false) throw new IOException();
 
-        if (this.attrs == null)
+        if (!this.closed)
+        {
+            // Nothing has been written after the opening tag yet
+            write(' ');
+            write(attr);
+            write("=\"");
+            writeEscaped(value, literally);
+            write('\"');
+        }
+        else
         {
-            this.attrs = new StringBuffer();
+            if (this.attrs == null)
+            {
+                this.attrs = new StringBuffer();
+            }
+            this.attrs.append(" ");
+            this.attrs.append(attr);
+            this.attrs.append("=\"");
+            this.attrs.append(escapeXml(value, literally));
+            this.attrs.append("\"");
         }
-        this.attrs.append(" ");
-        this.attrs.append(attr);
-        this.attrs.append("=\"");
-        this.attrs.append(escapeXml(value, literally));
-        this.attrs.append("\"");
         return this;
     }
 
@@ -363,35 +458,31 @@ public class XmlWriter
      */
     public XmlWriter endElement() throws IOException
     {
-        logger.debug("endElement() - start");
-
-        if (this.stack.empty())
+        if (this.depth == 0)
         {
             throw new IOException("Called endElement too many times. ");
         }
-        String name = (String)this.stack.pop();
+        String name = this.stack[--this.depth];
+        this.stack[this.depth] = null;
         if (name != null)
         {
             if (this.empty)
             {
                 writeAttributes();
-                this.out.write("/>");
+                write("/>");
             }
             else
             {
                 if (this.pretty && !this.wroteText)
                 {
-                    for (int i = 0; i < this.stack.size(); i++)
-                    {
-                        this.out.write(indent); // Indent closing tag to proper level
-                    }
+                    writeIndent(); // Indent closing tag to proper level
                 }
-                this.out.write("</");
-                this.out.write(name);
-                this.out.write(">");
+                write("</");
+                write(name);
+                write('>');
             }
             if (this.pretty)
-                this.out.write(newline); // Add a newline after the closing tag
+                write(newline); // Add a newline after the closing tag
             this.empty = false;
             this.closed = true;
             this.wroteText = false;
@@ -399,6 +490,17 @@ public class XmlWriter
         return this;
     }
 
+    /**
+     * Writes the buffered output to the underlying writer and flushes it.
+     * @throws IOException
+     * @since 2.5.1
+     */
+    public void flush() throws IOException
+    {
+        flushBuffer();
+        this.out.flush();
+    }
+
     /**
      * Close this writer. It does not close the underlying
      * writer, but does throw an exception if there are
@@ -408,12 +510,16 @@ public class XmlWriter
     {
         logger.debug("close() - start");
 
+        flushBuffer();
+        if (this.backgroundWriter != null)
+        {
+            stopBackgroundFlush();
+        }
         this.out.flush();
-
-        if (!this.stack.empty())
+        if (this.depth > 0)
         {
             throw new IOException("Tags are not all closed. " +
-                    "Possibly, " + this.stack.pop() + " is unclosed. ");
+                    "Possibly, " + this.stack[this.depth - 1] + " is unclosed. ");
         }
     }
 
@@ -426,7 +532,6 @@ public class XmlWriter
      */
     public XmlWriter writeText(String text) throws IOException
     {
-        logger.debug("writeText(text={}) - start", text);
         return this.writeText(text, false);
     }
 
@@ -441,14 +546,11 @@ public class XmlWriter
      */
     public XmlWriter writeText(String text, boolean literally) throws IOException
     {
-    	if(logger.isDebugEnabled())
-    		logger.debug("writeText(text={}, literally={}) - start", text, String.valueOf(literally));
-
         closeOpeningTag();
         this.empty = false;
         this.wroteText = true;
 
-        this.out.write(escapeXml(text, literally));
+        writeEscaped(text, literally);
         return this;
     }
 
@@ -460,8 +562,6 @@ public class XmlWriter
      */
     public XmlWriter writeCData(String cdata) throws IOException
     {
-        logger.debug("writeCData(cdata={}) - start", cdata);
-
         closeOpeningTag();
         
         boolean hasAlreadyEnclosingCdata = cdata.startsWith(CDATA_START) && cdata.endsWith(CDATA_END);
@@ -473,16 +573,16 @@ public class XmlWriter
         // so that the top CDATA section is split into many valid CDATA sections (you
         // can look at the "]]]]>" as if it was an escape sequence for "]]>").
         if(!hasAlreadyEnclosingCdata) {
-            cdata = cdata.replaceAll(CDATA_END, "]]]]><![CDATA[>");
+            cdata = replace(cdata, CDATA_END, "]]]]><![CDATA[>");
         }
         
         this.empty = false;
         this.wroteText = true;
         if(!hasAlreadyEnclosingCdata)
-            this.out.write(CDATA_START);
-        this.out.write(cdata);
+            write(CDATA_START);
+        write(cdata);
         if(!hasAlreadyEnclosingCdata)
-            this.out.write(CDATA_END);
+            write(CDATA_END);
         return this;
     }
 
@@ -494,31 +594,58 @@ public class XmlWriter
      */
     public XmlWriter writeComment(String comment) throws IOException
     {
-        logger.debug("writeComment(comment={}) - start", comment);
-
-        writeChunk("<!-- " + comment + " -->");
+        closeOpeningTag();
+        this.empty = false;
+        if (this.pretty && !this.wroteText)
+        {
+            writeIndent();
+        }
+        write("<!-- ");
+        write(comment);
+        write(" -->");
+        if (this.pretty)
+        {
+            write(newline);
+        }
         return this;
     }
 
-    private void writeChunk(String data) throws IOException
+    private void write(char c) throws IOException
+    {
+        if (this.count == this.buffer.length)
+        {
+            flushBuffer();
+        }
+        this.buffer[this.count++] = c;
+    }
+
+    private void write(String str) throws IOException
     {
-        logger.debug("writeChunk(data={}) - start", data);
+        write(str, 0, str.length());
+    }
 
-        closeOpeningTag();
-        this.empty = false;
-        if (this.pretty && !this.wroteText)
+    private void write(String str, int start, int end) throws IOException
+    {
+        int length = end - start;
+        if (length > this.buffer.length - this.count)
         {
-            for (int i = 0; i < this.stack.size(); i++)
+            flushBuffer();
+            if (length > this.buffer.length)
             {
-                this.out.write(indent);
+                this.out.write(str, start, length);
+                return;
             }
         }
+        str.getChars(start, end, this.buffer, this.count);
+        this.count += length;
+    }
 
-        this.out.write(data);
-
-        if (this.pretty)
+    private void flushBuffer() throws IOException
+    {
+        if (this.count > 0)
         {
-            this.out.write(newline);
+            this.out.write(this.buffer, 0, this.count);
+            this.count = 0;
         }
     }
 
@@ -576,98 +703,88 @@ public class XmlWriter
      * so that a reader will not filter out those symbols.  This code is modified
      * from xmlrpc:
      * https://svn.apache.org/repos/asf/webservices/xmlrpc/branches/XMLRPC_1_2_BRANCH/src/java/org/apache/xmlrpc/XmlWriter.java
+     * <p>
+     * The escaped value is written to the output buffer. Runs of characters that
+     * need no escaping are copied at once.
+     * </p>
      *
      * @param str The string to be escaped
      * @param literally If the writer should be literally on the given value
      * which means that meta characters will also be preserved by escaping them. 
      * Mainly preserves newlines and carriage returns.
-     * @return The escaped string
      */
-    private String escapeXml(String str, boolean literally)
+    private void writeEscaped(String str, boolean literally) throws IOException
     {
-        logger.debug("escapeXml(str={}, literally={}) - start", str, Boolean.toString(literally));
-
-        char [] block = null;
+        String[] escapes = literally ? LITERAL_ESCAPES : ESCAPES;
+        int length = str.length();
         int last = 0;
-        StringBuffer buffer = null;
-        int strLength = str.length();
-        int index = 0;
-
-        for (index=0; index<strLength; index++)
+        for (int index = 0; index < length; index++)
         {
-            String entity = null;
             char currentChar = str.charAt(index);
-            switch (currentChar)
-            {
-                case '\t':
-                    entity = "&#09;";
-                    break;
-                case '\n':
-                    if (literally) { entity = "&#xA;"; }
-                    break;
-                case '\r':
-                    if (literally) { entity = "&#xD;"; }
-                    break;
-                case '&':
-                    entity = "&amp;";
-                    break;
-                case '<':
-                    entity = "&lt;";
-                    break;
-                case '>':
-                    entity = "&gt;";
-                    break;
-                case '\"':
-                    entity = "&quot;";
-                    break;
-                case '\'':
-                    entity = "&apos;";
-                    break;
-                default:
-                    if ((currentChar > 0x7f) || !isValidXmlChar(currentChar))
-                    {
-                        entity = "&#" + String.valueOf((int) currentChar) + ";";
-                    }
-                    break;
-            }
-
-            // If we found something to substitute, then copy over previous
-            // data then do the substitution.
-            if (entity != null)
+            if (currentChar < 0x80)
             {
-                if (block == null)
-                {
-                    block = str.toCharArray();
-                }
-                if (buffer == null)
+                String entity = escapes[currentChar];
+                if (entity == null)
                 {
-                    buffer = new StringBuffer();
+                    continue;
                 }
-                buffer.append(block, last, index - last);
-                buffer.append(entity);
-                last = index + 1;
+                write(str, last, index);
+                write(entity);
             }
+            else
+            {
+                write(str, last, index);
+                writeCharReference(currentChar);
+            }
+            last = index + 1;
         }
+        write(str, last, length);
+    }
 
-        // nothing found, just return source
-        if (last == 0)
+    /**
+     * Writes the decimal character reference of the given character
+     */
+    private void writeCharReference(char c) throws IOException
+    {
+        write('&');
+        write('#');
+        int value = c;
+        int divisor = 1;
+        while (divisor * 10 <= value)
+        {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10)
         {
-            return str;
+            write((char)('0' + value / divisor % 10));
         }
+        write(';');
+    }
 
-        if (last < strLength)
+    /**
+     * @return The escaped string
+     * @see #writeEscaped(String, boolean)
+     */
+    private static String escapeXml(String str, boolean literally)
+    {
+        String[] escapes = literally ? LITERAL_ESCAPES : ESCAPES;
+        StringBuffer buffer = new StringBuffer(str.length());
+        for (int index = 0; index < str.length(); index++)
         {
-            if (block == null)
+            char currentChar = str.charAt(index);
+            if (currentChar >= 0x80)
             {
-                block = str.toCharArray();
+                buffer.append("&#").append((int)currentChar).append(';');
             }
-            if (buffer == null)
+            else if (escapes[currentChar] != null)
             {
-                buffer = new StringBuffer();
+                buffer.append(escapes[currentChar]);
+            }
+            else
+            {
+                buffer.append(currentChar);
             }
-            buffer.append(block, last, index - last);
         }
-
         return buffer.toString();
     }
 
@@ -817,10 +934,10 @@ public class XmlWriter
 
         if (this.encoding != null)
         {
-            this.out.write("<?xml version='1.0'");
-            this.out.write(" encoding='" + this.encoding + "'");
-            this.out.write("?>");
-            this.out.write(this.newline);
+            write("<?xml version='1.0'");
+            write(" encoding='" + this.encoding + "'");
+            write("?>");
+            write(this.newline);
         }
 
         return this;
@@ -832,24 +949,24 @@ public class XmlWriter
 
         if (systemId != null || publicId != null)
         {
-            this.out.write("<!DOCTYPE dataset");
+            write("<!DOCTYPE dataset");
 
             if (systemId != null)
             {
-                this.out.write(" SYSTEM \"");
-                this.out.write(systemId);
-                this.out.write("\"");
+                write(" SYSTEM \"");
+                write(systemId);
+                write("\"");
             }
 
             if (publicId != null)
             {
-                this.out.write(" PUBLIC \"");
-                this.out.write(publicId);
-                this.out.write("\"");
+                write(" PUBLIC \"");
+                write(publicId);
+                write("\"");
             }
 
-            this.out.write(">");
-            this.out.write(this.newline);
+            write(">");
+            write(this.newline);
         }
 
         return this;
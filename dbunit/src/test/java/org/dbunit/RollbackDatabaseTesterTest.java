@@ -0,0 +1,236 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import junit.framework.TestCase;
+
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.operation.DatabaseOperation;
+
+/**
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class RollbackDatabaseTesterTest extends TestCase
+{
+    private static final String DATABASE = "mem:rollbackdb";
+
+    private Connection _jdbcConnection;
+    private RollbackDatabaseTester _tester;
+    private int _setUpCount;
+
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+
+        _jdbcConnection = HypersonicEnvironment.createJdbcConnection(DATABASE);
+        HypersonicEnvironment.executeSql(_jdbcConnection,
+                "CREATE TABLE ITEM (ID INTEGER NOT NULL, NAME VARCHAR(32), PRIMARY KEY (ID))");
+
+        _tester = new RollbackDatabaseTester(new JdbcDatabaseTester(
+                "org.hsqldb.jdbcDriver", "jdbc:hsqldb:" + DATABASE, "sa", ""));
+        _tester.setDataSet(createDataSet(2));
+        _tester.setSetUpOperation(new DatabaseOperation()
+        {
+            public void execute(IDatabaseConnection connection, IDataSet dataSet)
+                    throws DatabaseUnitException, SQLException
+            {
+                _setUpCount++;
+                DatabaseOperation.CLEAN_INSERT.execute(connection, dataSet);
+            }
+        });
+    }
+
+    protected void tearDown() throws Exception
+    {
+        _tester.close();
+        HypersonicEnvironment.shutdown(_jdbcConnection);
+        _jdbcConnection.close();
+
+        super.tearDown();
+    }
+
+    private IDataSet createDataSet(int rowCount) throws DataSetException
+    {
+        DefaultTable table = new DefaultTable("ITEM", new Column[] {
+                new Column("ID", DataType.INTEGER),
+                new Column("NAME", DataType.VARCHAR),
+        });
+        for (int i = 0; i < rowCount; i++)
+        {
+            table.addRow(new Object[] {new Integer(i), "item " + i});
+        }
+        return new DefaultDataSet(table);
+    }
+
+    private int getRowCount() throws SQLException
+    {
+        Statement statement = _jdbcConnection.createStatement();
+        try
+        {
+            ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM ITEM");
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+        finally
+        {
+            statement.close();
+        }
+    }
+
+    private void execute(String sql) throws Exception
+    {
+        Statement statement = _tester.getConnection().getConnection().createStatement();
+        try
+        {
+            statement.execute(sql);
+        }
+        finally
+        {
+            statement.close();
+        }
+    }
+
+    public void testChangesAreRolledBack() throws Exception
+    {
+        _tester.onSetup();
+        assertEquals(2, getRowCount());
+        execute("INSERT INTO ITEM (ID, NAME) VALUES (10, 'new')");
+        execute("DELETE FROM ITEM WHERE ID = 0");
+        _tester.getConnection().getConnection().commit();
+        _tester.getConnection().close();
+        _tester.onTearDown();
+
+        assertFalse(_tester.isResetNeeded());
+        assertEquals(2, getRowCount());
+
+        _tester.onSetup();
+        assertEquals(2, getRowCount());
+        assertEquals(1, _setUpCount);
+        _tester.onTearDown();
+    }
+
+    public void testConnectionIsShared() throws Exception
+    {
+        IDatabaseConnection connection = _tester.getConnection();
+        _tester.closeConnection(connection);
+        assertSame(connection, _tester.getConnection());
+
+        Statement statement = connection.getConnection().createStatement();
+        assertSame(connection.getConnection(), statement.getConnection());
+        statement.close();
+    }
+
+    public void testDdlResetsDatabase() throws Exception
+    {
+        _tester.onSetup();
+        execute("/* comment */ create table OTHER (ID INTEGER)");
+        _tester.onTearDown();
+
+        assertTrue(_tester.isResetNeeded());
+        _tester.onSetup();
+        assertEquals(2, _setUpCount);
+        assertFalse(_tester.isResetNeeded());
+        _tester.onTearDown();
+    }
+
+    public void testPreparedDdlResetsDatabase() throws Exception
+    {
+        _tester.onSetup();
+        _tester.getConnection().getConnection().prepareStatement("DROP TABLE ITEM").close();
+        _tester.onTearDown();
+
+        assertTrue(_tester.isResetNeeded());
+    }
+
+    public void testAutoCommitResetsDatabase() throws Exception
+    {
+        _tester.onSetup();
+        Connection connection = _tester.getConnection().getConnection();
+        connection.setAutoCommit(true);
+        execute("INSERT INTO ITEM (ID, NAME) VALUES (10, 'new')");
+        _tester.onTearDown();
+
+        assertTrue(_tester.isResetNeeded());
+        assertFalse(connection.getAutoCommit());
+        assertEquals(3, getRowCount());
+
+        _tester.onSetup();
+        assertEquals(2, getRowCount());
+        assertEquals(2, _setUpCount);
+        _tester.onTearDown();
+    }
+
+    public void testNewDataSetIsLoaded() throws Exception
+    {
+        _tester.onSetup();
+        _tester.onTearDown();
+        _tester.setDataSet(createDataSet(5));
+        _tester.onSetup();
+
+        assertEquals(5, getRowCount());
+        assertEquals(2, _setUpCount);
+        _tester.onTearDown();
+    }
+
+    public void testClose() throws Exception
+    {
+        _tester.onSetup();
+        IDatabaseConnection connection = _tester.getConnection();
+        execute("INSERT INTO ITEM (ID, NAME) VALUES (10, 'new')");
+        _tester.close();
+
+        assertEquals(2, getRowCount());
+        assertTrue(_tester.isResetNeeded());
+        assertNotSame(connection, _tester.getConnection());
+
+        _tester.onSetup();
+        assertEquals(2, _setUpCount);
+        _tester.onTearDown();
+    }
+
+    public void testGetImplicitCommitCommand() throws Exception
+    {
+        assertEquals("CREATE", RollbackDatabaseTester.getImplicitCommitCommand("create table A (ID INTEGER)"));
+        assertEquals("TRUNCATE", RollbackDatabaseTester.getImplicitCommitCommand("  -- empty it\n TRUNCATE TABLE A"));
+        assertEquals("ALTER", RollbackDatabaseTester.getImplicitCommitCommand("/* x */ Alter table A"));
+        assertEquals("COMMIT", RollbackDatabaseTester.getImplicitCommitCommand("commit"));
+        assertNull(RollbackDatabaseTester.getImplicitCommitCommand("insert into CREATED values (1)"));
+        assertNull(RollbackDatabaseTester.getImplicitCommitCommand("select * from A"));
+        assertNull(RollbackDatabaseTester.getImplicitCommitCommand("/* drop"));
+        assertNull(RollbackDatabaseTester.getImplicitCommitCommand(""));
+        assertNull(RollbackDatabaseTester.getImplicitCommitCommand(null));
+    }
+}
@@ -37,6 +37,8 @@ public class AllTests extends TestSuite
         suite.addTest(new TestSuite(DefaultFailureHandlerTest.class));
         suite.addTest(new TestSuite(DbUnitAssertIT.class));
         suite.addTest(new TestSuite(DiffCollectingFailureHandlerTest.class));
+        suite.addTest(new TestSuite(ConcurrentDiffCollectingFailureHandlerTest.class));
+        suite.addTest(new TestSuite(ParallelDataSetAssertTest.class));
         return suite;
     }
 
@@ -0,0 +1,100 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.assertion;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.datatype.DataType;
+
+/**
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class ConcurrentDiffCollectingFailureHandlerTest extends TestCase
+{
+    private static final int DIFF_COUNT = 500;
+
+    public ConcurrentDiffCollectingFailureHandlerTest(String s)
+    {
+        super(s);
+    }
+
+    private ITable createTable(String tableName)
+    {
+        return new DefaultTable(tableName, new Column[] {new Column("COL", DataType.VARCHAR)});
+    }
+
+    public void testDiffsAreOrderedByTable() throws Exception
+    {
+        final ConcurrentDiffCollectingFailureHandler handler = new ConcurrentDiffCollectingFailureHandler();
+        final ITable[] tables = {createTable("c"), createTable("B"), createTable("a")};
+
+        Thread[] threads = new Thread[tables.length];
+        for (int i = 0; i < tables.length; i++)
+        {
+            final ITable table = tables[i];
+            threads[i] = new Thread()
+            {
+                public void run()
+                {
+                    for (int row = 0; row < DIFF_COUNT; row++)
+                    {
+                        handler.handle(new Difference(table, table, row, "COL", "x", "y"));
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i++)
+        {
+            threads[i].join();
+        }
+
+        List diffList = handler.getDiffList();
+        assertEquals(DIFF_COUNT * tables.length, diffList.size());
+        for (int i = 0; i < diffList.size(); i++)
+        {
+            Difference diff = (Difference)diffList.get(i);
+            assertSame(tables[tables.length - 1 - i / DIFF_COUNT], diff.getExpectedTable());
+            assertEquals(i % DIFF_COUNT, diff.getRowIndex());
+        }
+    }
+
+    public void testDiffListIsCopy() throws Exception
+    {
+        ConcurrentDiffCollectingFailureHandler handler = new ConcurrentDiffCollectingFailureHandler();
+        ITable table = createTable("TEST_TABLE");
+        handler.handle(new Difference(table, table, 0, "COL", "x", "y"));
+
+        List diffList = handler.getDiffList();
+        diffList.clear();
+        assertEquals(1, handler.getDiffList().size());
+    }
+
+}
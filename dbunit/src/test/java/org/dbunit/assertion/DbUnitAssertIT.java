@@ -24,7 +24,10 @@ package org.dbunit.assertion;
 import java.io.FileReader;
 import java.io.StringReader;
 import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
 
+import junit.framework.AssertionFailedError;
 import junit.framework.ComparisonFailure;
 import junit.framework.TestCase;
 
@@ -37,10 +40,14 @@ import org.dbunit.dataset.DataSetException;
 import org.dbunit.dataset.DataSetUtils;
 import org.dbunit.dataset.DefaultDataSet;
 import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.DefaultTableMetaData;
 import org.dbunit.dataset.FilteredDataSet;
+import org.dbunit.dataset.ForwardOnlyTable;
 import org.dbunit.dataset.IDataSet;
 import org.dbunit.dataset.ITable;
 import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.NoPrimaryKeyException;
+import org.dbunit.dataset.NoSuchColumnException;
 import org.dbunit.dataset.datatype.DataType;
 import org.dbunit.dataset.xml.FlatXmlDataSetBuilder;
 import org.dbunit.dataset.xml.XmlDataSet;
@@ -557,6 +564,204 @@ public class DbUnitAssertIT extends TestCase
 
     
     
+    private ITable createKeyedTable(String[] primaryKeys, Object[][] rows) throws Exception
+    {
+        Column[] columns = new Column[] {
+                new Column("ID", DataType.INTEGER),
+                new Column("NAME", DataType.VARCHAR),
+                new Column("AMOUNT", DataType.NUMERIC),
+        };
+        DefaultTable table = new DefaultTable(
+                new DefaultTableMetaData("KEYED_TABLE", columns, primaryKeys));
+        for (int i = 0; i < rows.length; i++)
+        {
+            table.addRow(rows[i]);
+        }
+        return table;
+    }
+
+    public void testAssertEqualsByKeyDifferentRowOrder() throws Exception
+    {
+        ITable expected = createKeyedTable(null, new Object[][] {
+                {"1", "a", "1.50"}, {"2", "b", "2"}, {"3", "c", null}});
+        ITable actual = createKeyedTable(null, new Object[][] {
+                {new Integer(3), "c", null},
+                {new Integer(1), "a", new BigDecimal("1.5")},
+                {new Integer(2), "b", new BigDecimal("2.00")}});
+
+        assertion.assertEqualsByKey(expected, actual, new String[] {"id"}, null);
+    }
+
+    public void testAssertEqualsByKeyPrimaryKey() throws Exception
+    {
+        ITable expected = createKeyedTable(new String[] {"ID"}, new Object[][] {
+                {"1", "a", "1"}, {"2", "b", "2"}});
+        ITable actual = createKeyedTable(null, new Object[][] {
+                {"2", "b", "2"}, {"1", "a", "1"}});
+
+        assertion.assertEqualsByKey(expected, actual);
+    }
+
+    public void testAssertEqualsByKeyCompositeDecimalKey() throws Exception
+    {
+        ITable expected = createKeyedTable(null, new Object[][] {
+                {"1", "a", "1.0"}, {"1", "a", "2.0"}});
+        ITable actual = createKeyedTable(null, new Object[][] {
+                {"1", "a", new BigDecimal("2")}, {"1", "a", new BigDecimal("1.000")}});
+
+        assertion.assertEqualsByKey(expected, actual, new String[] {"ID", "AMOUNT"}, null);
+    }
+
+    public void testAssertEqualsByKeyForwardOnly() throws Exception
+    {
+        ITable expected = createKeyedTable(null, new Object[][] {
+                {"1", "a", "1"}, {"2", "b", "2"}, {"3", "c", "3"}});
+        ITable actual = createKeyedTable(null, new Object[][] {
+                {"3", "c", "3"}, {"2", "b", "2"}, {"1", "a", "1"}});
+
+        assertion.assertEqualsByKey(expected, new ForwardOnlyTable(actual),
+                new String[] {"ID"}, null);
+        assertion.assertEqualsByKey(new ForwardOnlyTable(expected), new ForwardOnlyTable(actual),
+                new String[] {"ID"}, null);
+    }
+
+    public void testAssertEqualsByKeyDifferences() throws Exception
+    {
+        ITable expected = createKeyedTable(null, new Object[][] {
+                {"1", "a", "1"}, {"2", "b", "2"}, {"3", "c", "3"}});
+        ITable actual = createKeyedTable(null, new Object[][] {
+                {"3", "x", "3"}, {"1", "a", "1"}, {"4", "d", "4"}});
+
+        DiffCollectingFailureHandler failureHandler = new DiffCollectingFailureHandler();
+        assertion.assertEqualsByKey(expected, actual, new String[] {"ID"}, failureHandler);
+
+        List diffs = failureHandler.getDiffList();
+        assertEquals(3, diffs.size());
+
+        Difference changed = (Difference)diffs.get(0);
+        assertEquals(Difference.VALUE_MISMATCH, changed.getType());
+        assertEquals(2, changed.getRowIndex());
+        assertEquals(0, changed.getActualRowIndex());
+        assertEquals("NAME", changed.getColumnName());
+        assertEquals("c", changed.getExpectedValue());
+        assertEquals("x", changed.getActualValue());
+        assertEquals(Arrays.asList(new Object[] {"3"}), Arrays.asList(changed.getKeyValues()));
+
+        Difference unexpected = (Difference)diffs.get(1);
+        assertEquals(Difference.UNEXPECTED_ROW, unexpected.getType());
+        assertEquals(-1, unexpected.getRowIndex());
+        assertEquals(2, unexpected.getActualRowIndex());
+        assertEquals(Arrays.asList(new Object[] {"4"}), Arrays.asList(unexpected.getKeyValues()));
+
+        Difference missing = (Difference)diffs.get(2);
+        assertEquals(Difference.MISSING_ROW, missing.getType());
+        assertEquals(1, missing.getRowIndex());
+        assertEquals(-1, missing.getActualRowIndex());
+        assertEquals(Arrays.asList(new Object[] {"2"}), Arrays.asList(missing.getKeyValues()));
+    }
+
+    public void testAssertEqualsByKeyFewerActualRows() throws Exception
+    {
+        ITable expected = createKeyedTable(null, new Object[][] {
+                {"1", "a", "1"}, {"2", "b", "2"}, {"3", "c", "3"}});
+        ITable actual = createKeyedTable(null, new Object[][] {
+                {"3", "c", "3"}, {"1", "a", "1"}});
+
+        DiffCollectingFailureHandler failureHandler = new DiffCollectingFailureHandler();
+        assertion.assertEqualsByKey(expected, actual, new String[] {"ID"}, failureHandler);
+
+        List diffs = failureHandler.getDiffList();
+        assertEquals(1, diffs.size());
+        Difference missing = (Difference)diffs.get(0);
+        assertEquals(Difference.MISSING_ROW, missing.getType());
+        assertEquals(1, missing.getRowIndex());
+    }
+
+    public void testAssertEqualsByKeyDuplicateKeys() throws Exception
+    {
+        ITable expected = createKeyedTable(null, new Object[][] {
+                {"1", "a", "1"}, {"1", "b", "2"}});
+        ITable actual = createKeyedTable(null, new Object[][] {
+                {"1", "a", "1"}, {"1", "b", "2"}, {"1", "c", "3"}});
+
+        DiffCollectingFailureHandler failureHandler = new DiffCollectingFailureHandler();
+        assertion.assertEqualsByKey(expected, actual, new String[] {"ID"}, failureHandler);
+
+        List diffs = failureHandler.getDiffList();
+        assertEquals(1, diffs.size());
+        Difference unexpected = (Difference)diffs.get(0);
+        assertEquals(Difference.UNEXPECTED_ROW, unexpected.getType());
+        assertEquals(2, unexpected.getActualRowIndex());
+    }
+
+    public void testAssertEqualsByKeyFailureMessage() throws Exception
+    {
+        ITable expected = createKeyedTable(null, new Object[][] {
+                {"1", "a", "1"}, {"2", "b", "2"}});
+        ITable actual = createKeyedTable(null, new Object[][] {
+                {"1", "a", "1"}});
+
+        try
+        {
+            assertion.assertEqualsByKey(expected, actual, new String[] {"ID"}, null);
+            throw new IllegalStateException("Should throw an AssertionFailedError");
+        }
+        catch (AssertionFailedError expectedError)
+        {
+            assertEquals("missing row (table=KEYED_TABLE, row=1, key=(ID=2))",
+                    expectedError.getMessage());
+        }
+
+        actual = createKeyedTable(null, new Object[][] {
+                {"2", "b", "2"}, {"1", "x", "1"}});
+        try
+        {
+            assertion.assertEqualsByKey(expected, actual, new String[] {"ID"}, null);
+            throw new IllegalStateException("Should throw an AssertionFailedError");
+        }
+        catch (ComparisonFailure expectedError)
+        {
+            assertEquals("a", expectedError.getExpected());
+            assertEquals("x", expectedError.getActual());
+            assertTrue(expectedError.getMessage(), expectedError.getMessage().startsWith(
+                    "value (table=KEYED_TABLE, row=0, actual row=1, col=NAME, key=(ID=1))"));
+        }
+    }
+
+    public void testAssertEqualsByKeyWithoutKey() throws Exception
+    {
+        ITable expected = createKeyedTable(null, new Object[][] {{"1", "a", "1"}});
+        ITable actual = createKeyedTable(null, new Object[][] {{"1", "a", "1"}});
+
+        try
+        {
+            assertion.assertEqualsByKey(expected, actual);
+            fail("Should throw a NoPrimaryKeyException");
+        }
+        catch (NoPrimaryKeyException expectedException)
+        {
+        }
+
+        try
+        {
+            assertion.assertEqualsByKey(expected, actual, new String[] {"UNKNOWN"}, null);
+            fail("Should throw a NoSuchColumnException");
+        }
+        catch (NoSuchColumnException expectedException)
+        {
+        }
+    }
+
+    public void testAssertEqualsByKeyDataSets() throws Exception
+    {
+        ITable expected = createKeyedTable(new String[] {"ID"}, new Object[][] {
+                {"1", "a", "1"}, {"2", "b", "2"}});
+        ITable actual = createKeyedTable(new String[] {"ID"}, new Object[][] {
+                {"2", "b", "2"}, {"1", "a", "1"}});
+
+        assertion.assertEqualsByKey(new DefaultDataSet(expected), new DefaultDataSet(actual), null);
+    }
+
     /**
      * Test utility that modifies all values for a specific column arbitrarily
      */
@@ -0,0 +1,327 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.assertion;
+
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import junit.framework.AssertionFailedError;
+import junit.framework.TestCase;
+
+import org.dbunit.DatabaseUnitException;
+import org.dbunit.HypersonicEnvironment;
+import org.dbunit.database.DatabaseConnection;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.testutil.HypersonicDataSource;
+
+/**
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class ParallelDataSetAssertTest extends TestCase
+{
+    private static final String DATABASE = "mem:paralleldatasetassertdb";
+
+    private static final String[] TABLE_NAMES = {"T4", "T3", "T2", "T1"};
+
+    private static final int ROW_COUNT = 20;
+
+    private Connection _jdbcConnection;
+    private IDatabaseConnection _connection;
+    private HypersonicDataSource _dataSource;
+
+    public ParallelDataSetAssertTest(String s)
+    {
+        super(s);
+    }
+
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+
+        _jdbcConnection = HypersonicEnvironment.createJdbcConnection(DATABASE);
+        for (int i = 0; i < TABLE_NAMES.length; i++)
+        {
+            HypersonicEnvironment.executeSql(_jdbcConnection, "CREATE TABLE " + TABLE_NAMES[i]
+                    + " (ID INTEGER NOT NULL, NAME VARCHAR(20), PRIMARY KEY (ID))");
+            for (int row = 0; row < ROW_COUNT; row++)
+            {
+                HypersonicEnvironment.executeSql(_jdbcConnection, "INSERT INTO " + TABLE_NAMES[i]
+                        + " VALUES (" + row + ", 'name " + row + "')");
+            }
+        }
+        _connection = new DatabaseConnection(_jdbcConnection);
+        _dataSource = new HypersonicDataSource(DATABASE);
+    }
+
+    protected void tearDown() throws Exception
+    {
+        super.tearDown();
+
+        HypersonicEnvironment.shutdown(_jdbcConnection);
+        _jdbcConnection.close();
+    }
+
+    private DataSource createDataSource()
+    {
+        return _dataSource.getDataSource();
+    }
+
+    /**
+     * @param wrongTables The tables whose expected name of row 3 is wrong
+     */
+    private IDataSet createExpectedDataSet(String[] wrongTables) throws Exception
+    {
+        Column[] columns = new Column[] {
+                new Column("ID", DataType.INTEGER),
+                new Column("NAME", DataType.VARCHAR)
+        };
+        DefaultDataSet dataSet = new DefaultDataSet();
+        for (int i = 0; i < TABLE_NAMES.length; i++)
+        {
+            DefaultTable table = new DefaultTable(TABLE_NAMES[i], columns);
+            boolean wrong = Arrays.asList(wrongTables).contains(TABLE_NAMES[i]);
+            for (int row = 0; row < ROW_COUNT; row++)
+            {
+                String name = wrong && row == 3 ? "wrong" : "name " + row;
+                table.addRow(new Object[] {new Integer(row), name});
+            }
+            dataSet.addTable(table);
+        }
+        return dataSet;
+    }
+
+    public void testEqualTables() throws Exception
+    {
+        ParallelDataSetAssert assertion = new ParallelDataSetAssert(_connection,
+                createDataSource(), 3);
+        assertion.assertEquals(createExpectedDataSet(new String[0]));
+        assertEquals("worker connections", 3, _dataSource.getOpenedConnections());
+    }
+
+    public void testFirstFailedTableIsThrown() throws Exception
+    {
+        ParallelDataSetAssert assertion = new ParallelDataSetAssert(_connection,
+                createDataSource(), 2);
+        try
+        {
+            assertion.assertEquals(createExpectedDataSet(new String[] {"T4", "T2"}));
+            fail("Should throw an AssertionFailedError");
+        }
+        catch (AssertionFailedError expected)
+        {
+            String message = expected.getMessage();
+            assertTrue(message, message.indexOf("table=T2") >= 0);
+        }
+    }
+
+    public void testFirstFailedTableIsThrownAfterSlowerTables() throws Exception
+    {
+        ParallelDataSetAssert assertion = new ParallelDataSetAssert(_connection,
+                createDataSource(), 2);
+        assertion.setShutdownTimeout(0);
+        assertion.setDbUnitAssert(new DbUnitAssert()
+        {
+            public void assertEquals(ITable expectedTable,
+                    ITable actualTable, FailureHandler failureHandler)
+                    throws DatabaseUnitException
+            {
+                if (expectedTable.getTableMetaData().getTableName().equals("T2"))
+                {
+                    // T4 fails while T2 is still being compared
+                    long end = System.currentTimeMillis() + 500;
+                    while (System.currentTimeMillis() < end)
+                    {
+                        try
+                        {
+                            Thread.sleep(10);
+                        }
+                        catch (InterruptedException e)
+                        {
+                        }
+                    }
+                }
+                super.assertEquals(expectedTable, actualTable, failureHandler);
+            }
+        });
+        try
+        {
+            assertion.assertEquals(createExpectedDataSet(new String[] {"T4", "T2"}));
+            fail("Should throw an AssertionFailedError");
+        }
+        catch (AssertionFailedError expected)
+        {
+            String message = expected.getMessage();
+            assertTrue(message, message.indexOf("table=T2") >= 0);
+        }
+    }
+
+    public void testFailureSkipsRemainingTables() throws Exception
+    {
+        ParallelDataSetAssert assertion = new ParallelDataSetAssert(_connection,
+                createDataSource(), 1);
+        final int[] comparedTables = new int[1];
+        assertion.setDbUnitAssert(new DbUnitAssert()
+        {
+            public void assertEquals(ITable expectedTable,
+                    ITable actualTable, FailureHandler failureHandler)
+                    throws DatabaseUnitException
+            {
+                comparedTables[0]++;
+                super.assertEquals(expectedTable, actualTable, failureHandler);
+            }
+        });
+        try
+        {
+            assertion.assertEquals(createExpectedDataSet(new String[] {"T1"}));
+            fail("Should throw an AssertionFailedError");
+        }
+        catch (AssertionFailedError expected)
+        {
+            String message = expected.getMessage();
+            assertTrue(message, message.indexOf("table=T1") >= 0);
+        }
+        assertEquals("compared tables", 1, comparedTables[0]);
+    }
+
+    public void testFailureDoesNotWaitForBlockedTables() throws Exception
+    {
+        ParallelDataSetAssert assertion = new ParallelDataSetAssert(_connection,
+                createDataSource(), 2);
+        assertion.setShutdownTimeout(200);
+        assertion.setDbUnitAssert(new DbUnitAssert()
+        {
+            public void assertEquals(ITable expectedTable,
+                    ITable actualTable, FailureHandler failureHandler)
+                    throws DatabaseUnitException
+            {
+                if (expectedTable.getTableMetaData().getTableName().equals("T2"))
+                {
+                    // Ignores interrupts like a blocked JDBC call
+                    long end = System.currentTimeMillis() + 3000;
+                    while (System.currentTimeMillis() < end)
+                    {
+                        try
+                        {
+                            Thread.sleep(10);
+                        }
+                        catch (InterruptedException e)
+                        {
+                        }
+                    }
+                }
+                super.assertEquals(expectedTable, actualTable, failureHandler);
+            }
+        });
+
+        long start = System.currentTimeMillis();
+        try
+        {
+            assertion.assertEquals(createExpectedDataSet(new String[] {"T1"}));
+            fail("Should throw an AssertionFailedError");
+        }
+        catch (AssertionFailedError expected)
+        {
+            String message = expected.getMessage();
+            assertTrue(message, message.indexOf("table=T1") >= 0);
+        }
+        long duration = System.currentTimeMillis() - start;
+        assertTrue("duration " + duration, duration < 2000);
+    }
+
+    public void testDiffCollectingFailureHandler() throws Exception
+    {
+        IDataSet expectedDataSet = createExpectedDataSet(new String[] {"T4", "T1", "T3"});
+
+        DiffCollectingFailureHandler sequentialHandler = new DiffCollectingFailureHandler();
+        new DbUnitAssert().assertEquals(expectedDataSet,
+                _connection.createDataSet(TABLE_NAMES), sequentialHandler);
+
+        DiffCollectingFailureHandler parallelHandler = new DiffCollectingFailureHandler();
+        ParallelDataSetAssert assertion = new ParallelDataSetAssert(_connection,
+                createDataSource(), 4);
+        assertion.assertEquals(expectedDataSet, parallelHandler);
+
+        assertDiffs(sequentialHandler.getDiffList(), parallelHandler.getDiffList());
+        assertEquals(new String[] {"T1", "T3", "T4"}, parallelHandler.getDiffList());
+    }
+
+    public void testConcurrentDiffCollectingFailureHandler() throws Exception
+    {
+        ConcurrentDiffCollectingFailureHandler handler = new ConcurrentDiffCollectingFailureHandler();
+        ParallelDataSetAssert assertion = new ParallelDataSetAssert(_connection,
+                createDataSource(), 4);
+        assertion.assertEquals(createExpectedDataSet(new String[] {"T3", "T2"}), handler);
+
+        assertEquals(new String[] {"T2", "T3"}, handler.getDiffList());
+    }
+
+    public void testWithoutDataSource() throws Exception
+    {
+        DiffCollectingFailureHandler handler = new DiffCollectingFailureHandler();
+        ParallelDataSetAssert assertion = new ParallelDataSetAssert(_connection, null, 4);
+        assertion.assertEquals(createExpectedDataSet(new String[] {"T2"}), handler);
+
+        assertEquals(new String[] {"T2"}, handler.getDiffList());
+        assertEquals("worker connections", 0, _dataSource.getOpenedConnections());
+    }
+
+    private void assertDiffs(List expectedDiffs, List actualDiffs)
+    {
+        assertEquals("diff count", expectedDiffs.size(), actualDiffs.size());
+        for (int i = 0; i < expectedDiffs.size(); i++)
+        {
+            Difference expected = (Difference)expectedDiffs.get(i);
+            Difference actual = (Difference)actualDiffs.get(i);
+            assertEquals(expected.getExpectedTable().getTableMetaData().getTableName(),
+                    actual.getExpectedTable().getTableMetaData().getTableName());
+            assertEquals(expected.getRowIndex(), actual.getRowIndex());
+            assertEquals(expected.getColumnName(), actual.getColumnName());
+            assertEquals(expected.getExpectedValue(), actual.getExpectedValue());
+            assertEquals(expected.getActualValue(), actual.getActualValue());
+        }
+    }
+
+    private void assertEquals(String[] expectedTableNames, List diffList)
+    {
+        assertEquals("diff count", expectedTableNames.length, diffList.size());
+        for (int i = 0; i < expectedTableNames.length; i++)
+        {
+            Difference diff = (Difference)diffList.get(i);
+            assertEquals(expectedTableNames[i],
+                    diff.getExpectedTable().getTableMetaData().getTableName());
+            assertEquals("NAME", diff.getColumnName());
+            assertEquals(3, diff.getRowIndex());
+        }
+    }
+}
@@ -35,6 +35,7 @@ public class AllTests extends TestSuite
         TestSuite suite = new TestSuite();
         suite.addTest(org.dbunit.database.statement.AllTests.suite());
         suite.addTest(new TestSuite(CachedResultSetTableIT.class));
+        suite.addTest(new TestSuite(ColumnarResultSetTableIT.class));
         suite.addTest(new TestSuite(DatabaseConfigTest.class));
         suite.addTest(new TestSuite(DatabaseConnectionIT.class));
         suite.addTest(new TestSuite(DatabaseDataSetIT.class));
@@ -43,10 +44,16 @@ public class AllTests extends TestSuite
         suite.addTest(new TestSuite(DatabaseTableMetaDataIT.class));
         suite.addTest(new TestSuite(ForwardOnlyResultSetTableIT.class));
         suite.addTest(new TestSuite(QueryDataSetIT.class));
+        suite.addTest(new TestSuite(ParallelExportProducerTest.class));
+        suite.addTest(new TestSuite(PrimaryKeyFilterTest.class));
         suite.addTest(new TestSuite(PrimaryKeyFilteredTableWrapperTest.class));  
         suite.addTest(new TestSuite(JdbcDatabaseTesterConnectionIT.class));
         suite.addTest(new TestSuite(DefaultDatabaseTesterConnectionIT.class));
         suite.addTest(new TestSuite(ResultSetTableMetaDataIT.class));
+        suite.addTest(new TestSuite(SchemaSnapshotCacheIT.class));
+        suite.addTest(new TestSuite(SpillingResultSetTableIT.class));
+        suite.addTest(new TestSuite(TableDependencyGraphTest.class));
+        suite.addTest(new TestSuite(WorkerConnectionPoolTest.class));
 
         return suite;
     }
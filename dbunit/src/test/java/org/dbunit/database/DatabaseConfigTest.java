@@ -23,6 +23,7 @@ package org.dbunit.database;
 import org.dbunit.dataset.datatype.DataType;
 import org.dbunit.dataset.datatype.DataTypeException;
 import org.dbunit.dataset.datatype.IDataTypeFactory;
+import org.dbunit.dataset.filter.DefaultColumnFilter;
 
 import junit.framework.TestCase;
 
@@ -112,4 +113,22 @@ public class DatabaseConfigTest extends TestCase
         assertEquals(true, config.getFeature(DatabaseConfig.FEATURE_BATCHED_STATEMENTS));
     }
 
+    public void testCopyTo() throws Exception
+    {
+        DatabaseConfig config = new DatabaseConfig();
+        config.setProperty(DatabaseConfig.PROPERTY_BATCH_SIZE, new Integer(42));
+        config.setProperty(DatabaseConfig.PROPERTY_ESCAPE_PATTERN, "\"?\"");
+        config.setFeature(DatabaseConfig.FEATURE_BATCHED_STATEMENTS, true);
+
+        DatabaseConfig target = new DatabaseConfig();
+        target.setProperty(DatabaseConfig.PROPERTY_PRIMARY_KEY_FILTER, new DefaultColumnFilter());
+        config.copyTo(target);
+
+        for (int i = 0; i < DatabaseConfig.ALL_PROPERTIES.length; i++)
+        {
+            String property = DatabaseConfig.ALL_PROPERTIES[i].getProperty();
+            assertEquals(property, config.getProperty(property), target.getProperty(property));
+        }
+    }
+
 }
@@ -0,0 +1,311 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.database;
+
+import java.io.StringWriter;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import junit.framework.TestCase;
+
+import org.dbunit.HypersonicEnvironment;
+import org.dbunit.dataset.CachedDataSet;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.stream.IDataSetConsumer;
+import org.dbunit.dataset.xml.FlatXmlWriter;
+import org.dbunit.testutil.HypersonicDataSource;
+
+/**
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class ParallelExportProducerTest extends TestCase
+{
+    private static final String DATABASE = "mem:parallelexportdb";
+
+    private static final String[] TABLE_NAMES = {"NUMBERS", "WORDS", "NOKEY"};
+
+    private Connection _jdbcConnection;
+    private IDatabaseConnection _connection;
+
+    public ParallelExportProducerTest(String s)
+    {
+        super(s);
+    }
+
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+
+        _jdbcConnection = HypersonicEnvironment.createJdbcConnection(DATABASE);
+        HypersonicEnvironment.executeSql(_jdbcConnection,
+                "CREATE TABLE NUMBERS (ID INTEGER NOT NULL, NAME VARCHAR(20), PRIMARY KEY (ID))");
+        HypersonicEnvironment.executeSql(_jdbcConnection,
+                "CREATE TABLE WORDS (CODE VARCHAR(10) NOT NULL, AMOUNT INTEGER, PRIMARY KEY (CODE))");
+        HypersonicEnvironment.executeSql(_jdbcConnection,
+                "CREATE TABLE NOKEY (VAL INTEGER)");
+
+        // Keys with gaps, inserted in descending order
+        insertRows("INSERT INTO NUMBERS VALUES (?, ?)", 1000, 3);
+        insertRows("INSERT INTO WORDS VALUES (?, ?)", 250, 1);
+        insertRows("INSERT INTO NOKEY VALUES (?)", 30, 1);
+
+        _connection = new DatabaseConnection(_jdbcConnection);
+    }
+
+    protected void tearDown() throws Exception
+    {
+        super.tearDown();
+
+        HypersonicEnvironment.shutdown(_jdbcConnection);
+        _jdbcConnection.close();
+    }
+
+    private void insertRows(String sql, int rowCount, int step) throws Exception
+    {
+        PreparedStatement statement = _jdbcConnection.prepareStatement(sql);
+        try
+        {
+            for (int i = rowCount - 1; i >= 0; i--)
+            {
+                if (sql.indexOf("WORDS") >= 0)
+                {
+                    statement.setString(1, "K" + (1000 + i));
+                    statement.setInt(2, i);
+                }
+                else
+                {
+                    statement.setInt(1, i * step);
+                    if (sql.indexOf("NUMBERS") >= 0)
+                    {
+                        statement.setString(2, "name " + i);
+                    }
+                }
+                statement.executeUpdate();
+            }
+        }
+        finally
+        {
+            statement.close();
+        }
+    }
+
+    private DataSource createDataSource()
+    {
+        return new HypersonicDataSource(DATABASE).getDataSource();
+    }
+
+    private String getExpectedFlatXml() throws Exception
+    {
+        StringWriter out = new StringWriter();
+        new FlatXmlWriter(out).write(_connection.createDataSet(TABLE_NAMES));
+        return out.toString();
+    }
+
+    private String toFlatXml(ParallelExportProducer producer) throws Exception
+    {
+        StringWriter out = new StringWriter();
+        producer.setConsumer(new FlatXmlWriter(out));
+        producer.produce();
+        return out.toString();
+    }
+
+    public void testProduce() throws Exception
+    {
+        ParallelExportProducer producer = new ParallelExportProducer(
+                _connection, TABLE_NAMES, createDataSource(), 3);
+        producer.setChunkSize(100);
+
+        assertEquals(getExpectedFlatXml(), toFlatXml(producer));
+    }
+
+    public void testProduceSampledSplitPoints() throws Exception
+    {
+        ParallelExportProducer producer = new ParallelExportProducer(
+                _connection, TABLE_NAMES, createDataSource(), 2);
+        producer.setChunkSize(70);
+        producer.setSampleSplitPoints(true);
+
+        assertEquals(getExpectedFlatXml(), toFlatXml(producer));
+    }
+
+    public void testProduceSingleRange() throws Exception
+    {
+        ParallelExportProducer producer = new ParallelExportProducer(
+                _connection, TABLE_NAMES, createDataSource(), 4);
+
+        assertEquals(getExpectedFlatXml(), toFlatXml(producer));
+    }
+
+    public void testProduceWithoutDataSource() throws Exception
+    {
+        ParallelExportProducer producer = new ParallelExportProducer(
+                _connection, TABLE_NAMES, null, 4);
+        producer.setChunkSize(100);
+
+        assertEquals(getExpectedFlatXml(), toFlatXml(producer));
+    }
+
+    public void testProduceParts() throws Exception
+    {
+        ParallelExportProducer producer = new ParallelExportProducer(
+                _connection, TABLE_NAMES, createDataSource(), 3);
+        producer.setChunkSize(100);
+        PartCollector collector = new PartCollector();
+        producer.produceParts(collector);
+
+        // Keys 0 to 2997 are split into 10 ranges of the width 300
+        for (int i = 0; i < 10; i++)
+        {
+            ITable part = collector.getPart("NUMBERS", i);
+            assertEquals(100, part.getRowCount());
+            assertEquals(new Integer(i * 300), part.getValue(0, "ID"));
+        }
+        // Keys are sampled since they are not numeric
+        assertEquals(100, collector.getPart("WORDS", 0).getRowCount());
+        assertEquals(100, collector.getPart("WORDS", 1).getRowCount());
+        assertEquals(50, collector.getPart("WORDS", 2).getRowCount());
+        assertEquals("K1100", collector.getPart("WORDS", 1).getValue(0, "CODE"));
+        assertEquals(30, collector.getPart("NOKEY", 0).getRowCount());
+        assertEquals(14, collector.getPartCount());
+        assertEquals(14, collector.getReleaseCount());
+    }
+
+    public void testProducePartsWithoutDataSource() throws Exception
+    {
+        ParallelExportProducer producer = new ParallelExportProducer(
+                _connection, TABLE_NAMES, null, 3);
+        producer.setChunkSize(100);
+        PartCollector collector = new PartCollector();
+        producer.produceParts(collector);
+
+        assertEquals(14, collector.getPartCount());
+        assertEquals(14, collector.getReleaseCount());
+    }
+
+    public void testProducePartsFailure() throws Exception
+    {
+        ParallelExportProducer producer = new ParallelExportProducer(
+                _connection, TABLE_NAMES, createDataSource(), 3);
+        producer.setChunkSize(100);
+        PartCollector collector = new PartCollector()
+        {
+            public IDataSetConsumer createConsumer(String tableName, int part)
+                    throws DataSetException
+            {
+                if (part == 5)
+                {
+                    throw new DataSetException("Part 5 failed");
+                }
+                return super.createConsumer(tableName, part);
+            }
+        };
+        try
+        {
+            producer.produceParts(collector);
+            fail("Should not be able to export all parts");
+        }
+        catch (DataSetException expected)
+        {
+            assertEquals("Part 5 failed", expected.getMessage());
+        }
+    }
+
+    public void testUnknownTable() throws Exception
+    {
+        ParallelExportProducer producer = new ParallelExportProducer(
+                _connection, new String[] {"UNKNOWN"}, createDataSource(), 2);
+        try
+        {
+            toFlatXml(producer);
+            fail("Should not be able to export an unknown table");
+        }
+        catch (DataSetException expected)
+        {
+        }
+    }
+
+    public void testInvalidArguments() throws Exception
+    {
+        try
+        {
+            new ParallelExportProducer(_connection, TABLE_NAMES, null, 0);
+            fail("Should not accept thread count 0");
+        }
+        catch (IllegalArgumentException expected)
+        {
+        }
+        try
+        {
+            new ParallelExportProducer(_connection, TABLE_NAMES, null, 1).setChunkSize(0);
+            fail("Should not accept chunk size 0");
+        }
+        catch (IllegalArgumentException expected)
+        {
+        }
+    }
+
+
+    private static class PartCollector implements IPartConsumerFactory
+    {
+        private final Map _parts = Collections.synchronizedMap(new HashMap());
+        private int _releaseCount = 0;
+
+        public IDataSetConsumer createConsumer(String tableName, int part)
+                throws DataSetException
+        {
+            CachedDataSet dataSet = new CachedDataSet();
+            _parts.put(tableName + "-" + part, dataSet);
+            return dataSet;
+        }
+
+        public synchronized void releaseConsumer(IDataSetConsumer consumer)
+        {
+            _releaseCount++;
+        }
+
+        public ITable getPart(String tableName, int part) throws DataSetException
+        {
+            CachedDataSet dataSet = (CachedDataSet)_parts.get(tableName + "-" + part);
+            assertNotNull(tableName + "-" + part, dataSet);
+            return dataSet.getTable(tableName);
+        }
+
+        public int getPartCount()
+        {
+            return _parts.size();
+        }
+
+        public synchronized int getReleaseCount()
+        {
+            return _releaseCount;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.database;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.dbunit.AbstractHSQLTestCase;
+import org.dbunit.database.PrimaryKeyFilter.PkTableMap;
+import org.dbunit.database.search.ImportedAndExportedKeysSearchCallbackFilteredByPKs;
+import org.dbunit.dataset.FilteredDataSet;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITableIterator;
+import org.dbunit.util.CollectionsHelper;
+import org.dbunit.util.search.DepthFirstSearch;
+
+/**
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class PrimaryKeyFilterTest extends AbstractHSQLTestCase
+{
+    private static final String[] TABLES = {A, B, C, D, E, F, G, H};
+
+    public PrimaryKeyFilterTest(String testName)
+    {
+        super(testName, "hypersonic_dataset.sql");
+    }
+
+    private PrimaryKeyFilter scan(int scanSize) throws Exception
+    {
+        IDatabaseConnection connection = getConnection();
+        connection.getConfig().setProperty(DatabaseConfig.PROPERTY_KEY_SCAN_SIZE, new Integer(scanSize));
+
+        PkTableMap input = new PkTableMap();
+        input.put(B, new TreeSet(Arrays.asList(new String[] {B1, B2, B3, B4, B5, B6, B7, B8})));
+        ImportedAndExportedKeysSearchCallbackFilteredByPKs callback =
+                new ImportedAndExportedKeysSearchCallbackFilteredByPKs(connection, input);
+        DepthFirstSearch search = new DepthFirstSearch();
+        Set tables = search.search(new String[] {B}, callback);
+
+        PrimaryKeyFilter filter = (PrimaryKeyFilter)callback.getFilter();
+        IDataSet dataSet = new FilteredDataSet(filter,
+                connection.createDataSet(CollectionsHelper.setToStrings(tables)));
+        // iterating triggers the scan
+        ITableIterator iterator = dataSet.iterator();
+        while (iterator.next())
+        {
+            iterator.getTable();
+        }
+        return filter;
+    }
+
+    public void testScanSizeReducesQueries() throws Exception
+    {
+        PrimaryKeyFilter singleKeyFilter = scan(1);
+        PrimaryKeyFilter chunkedFilter = scan(3);
+        PrimaryKeyFilter setFilter = scan(500);
+
+        for (int i = 0; i < TABLES.length; i++)
+        {
+            String table = TABLES[i];
+            assertEquals("allowed keys of " + table, singleKeyFilter.getAllowedPKCount(table),
+                    setFilter.getAllowedPKCount(table));
+            assertEquals("allowed keys of " + table, singleKeyFilter.getAllowedPKCount(table),
+                    chunkedFilter.getAllowedPKCount(table));
+            assertEquals("scanned rows of " + table, singleKeyFilter.getScannedRowCount(table),
+                    setFilter.getScannedRowCount(table));
+        }
+        assertEquals("all rows of B", 8, setFilter.getAllowedPKCount(B));
+        assertEquals("all rows of C", 4, setFilter.getAllowedPKCount(C));
+
+        assertTrue("queries " + chunkedFilter.getQueryCount() + " < " + singleKeyFilter.getQueryCount(),
+                chunkedFilter.getQueryCount() < singleKeyFilter.getQueryCount());
+        assertTrue("queries " + setFilter.getQueryCount() + " < " + chunkedFilter.getQueryCount(),
+                setFilter.getQueryCount() < chunkedFilter.getQueryCount());
+        assertTrue("queries of B", setFilter.getQueryCount(B) < chunkedFilter.getQueryCount(B));
+        assertTrue("queries of B", chunkedFilter.getQueryCount(B) < singleKeyFilter.getQueryCount(B));
+        assertEquals(singleKeyFilter.getScanRunCount(), setFilter.getScanRunCount());
+    }
+
+    public void testInvalidScanSizeScansSingleKeys() throws Exception
+    {
+        PrimaryKeyFilter singleKeyFilter = scan(1);
+        PrimaryKeyFilter zeroFilter = scan(0);
+        PrimaryKeyFilter negativeFilter = scan(-5);
+
+        for (int i = 0; i < TABLES.length; i++)
+        {
+            String table = TABLES[i];
+            assertEquals("allowed keys of " + table, singleKeyFilter.getAllowedPKCount(table),
+                    zeroFilter.getAllowedPKCount(table));
+            assertEquals("allowed keys of " + table, singleKeyFilter.getAllowedPKCount(table),
+                    negativeFilter.getAllowedPKCount(table));
+        }
+        assertEquals(singleKeyFilter.getQueryCount(), zeroFilter.getQueryCount());
+        assertEquals(singleKeyFilter.getQueryCount(), negativeFilter.getQueryCount());
+    }
+}
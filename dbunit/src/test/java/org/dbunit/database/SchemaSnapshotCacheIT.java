@@ -0,0 +1,345 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.database;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.ObjectOutputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.dbunit.AbstractDatabaseIT;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.NoSuchTableException;
+
+/**
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class SchemaSnapshotCacheIT extends AbstractDatabaseIT
+{
+    private File _directory;
+
+    public SchemaSnapshotCacheIT(String s)
+    {
+        super(s);
+    }
+
+    protected void tearDown() throws Exception
+    {
+        if (_directory != null)
+        {
+            File[] files = _directory.listFiles();
+            for (int i = 0; files != null && i < files.length; i++)
+            {
+                files[i].delete();
+            }
+            _directory.delete();
+        }
+        super.tearDown();
+    }
+
+    private IDatabaseConnection createConnection(SchemaSnapshotCache cache) throws Exception
+    {
+        IDatabaseConnection connection = new DatabaseConnection(
+                _connection.getConnection(), _connection.getSchema());
+        connection.getConfig().setProperty(DatabaseConfig.PROPERTY_SCHEMA_SNAPSHOT_CACHE, cache);
+        return connection;
+    }
+
+    private File createDirectory() throws Exception
+    {
+        File file = File.createTempFile("schemaSnapshot", "");
+        file.delete();
+        _directory = file;
+        return _directory;
+    }
+
+    private void execute(String sql) throws SQLException
+    {
+        Connection jdbcConnection = _connection.getConnection();
+        Statement statement = jdbcConnection.createStatement();
+        try
+        {
+            statement.execute(sql);
+        }
+        finally
+        {
+            statement.close();
+        }
+    }
+
+    public void testTableNames() throws Exception
+    {
+        IDataSet expected = createConnection(null).createDataSet();
+        IDataSet actual = createConnection(new SchemaSnapshotCache()).createDataSet();
+
+        assertEquals(Arrays.asList(expected.getTableNames()), Arrays.asList(actual.getTableNames()));
+    }
+
+    public void testTableMetaData() throws Exception
+    {
+        IDataSet expectedDataSet = createConnection(null).createDataSet();
+        IDataSet actualDataSet = createConnection(new SchemaSnapshotCache()).createDataSet();
+
+        String[] tableNames = expectedDataSet.getTableNames();
+        for (int i = 0; i < tableNames.length; i++)
+        {
+            ITableMetaData expected = expectedDataSet.getTableMetaData(tableNames[i]);
+            ITableMetaData actual = actualDataSet.getTableMetaData(tableNames[i]);
+            assertColumnsEquals(tableNames[i], expected.getColumns(), actual.getColumns());
+            assertColumnsEquals(tableNames[i], expected.getPrimaryKeys(), actual.getPrimaryKeys());
+        }
+    }
+
+    private void assertColumnsEquals(String tableName, Column[] expected, Column[] actual)
+    {
+        assertEquals(tableName + " column count", expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++)
+        {
+            assertEquals(tableName + " column", expected[i].getColumnName(), actual[i].getColumnName());
+            assertEquals(tableName + " type", expected[i].getDataType(), actual[i].getDataType());
+            assertEquals(tableName + " nullable", expected[i].getNullable(), actual[i].getNullable());
+            assertEquals(tableName + " autoIncrement", expected[i].getAutoIncrement(), actual[i].getAutoIncrement());
+        }
+    }
+
+    public void testCaseInsensitiveTableName() throws Exception
+    {
+        IDatabaseConnection connection = createConnection(new SchemaSnapshotCache());
+
+        ITableMetaData metaData = new DatabaseTableMetaData("pk_table", connection);
+
+        assertEquals(3, metaData.getPrimaryKeys().length);
+    }
+
+    public void testNoSuchTable() throws Exception
+    {
+        IDatabaseConnection connection = createConnection(new SchemaSnapshotCache());
+        try
+        {
+            new DatabaseTableMetaData("UNKNOWN_TABLE", connection);
+            fail("Should not be able to create metadata for an unknown table");
+        }
+        catch (NoSuchTableException expected)
+        {
+            // expected
+        }
+    }
+
+    public void testSharedAcrossConnections() throws Exception
+    {
+        SchemaSnapshotCache cache = new SchemaSnapshotCache();
+        IDatabaseConnection connection1 = createConnection(cache);
+        IDatabaseConnection connection2 = createConnection(cache);
+
+        assertSame(cache.getSnapshot(connection1, connection1.getSchema()),
+                cache.getSnapshot(connection2, connection2.getSchema()));
+    }
+
+    public void testInvalidate() throws Exception
+    {
+        SchemaSnapshotCache cache = new SchemaSnapshotCache();
+        IDatabaseConnection connection = createConnection(cache);
+        SchemaSnapshot snapshot = cache.getSnapshot(connection, connection.getSchema());
+
+        cache.invalidate(connection, connection.getSchema());
+
+        assertNotSame(snapshot, cache.getSnapshot(connection, connection.getSchema()));
+    }
+
+    public void testForeignKeys() throws Exception
+    {
+        execute("CREATE TABLE SNAPSHOT_PARENT (ID INTEGER NOT NULL PRIMARY KEY)");
+        try
+        {
+            execute("CREATE TABLE SNAPSHOT_CHILD (ID INTEGER NOT NULL PRIMARY KEY, PARENT_ID INTEGER,"
+                    + " FOREIGN KEY (PARENT_ID) REFERENCES SNAPSHOT_PARENT (ID))");
+            try
+            {
+                SchemaSnapshotCache cache = new SchemaSnapshotCache();
+                IDatabaseConnection connection = createConnection(cache);
+                SchemaSnapshot snapshot = cache.getSnapshot(connection, connection.getSchema());
+
+                SchemaSnapshot.ForeignKeySnapshot[] imported =
+                    snapshot.getTable("SNAPSHOT_CHILD", true).getImportedKeys();
+                assertEquals(1, imported.length);
+                assertEquals("SNAPSHOT_PARENT", imported[0].getPkTableName());
+                assertEquals("ID", imported[0].getPkColumnName());
+                assertEquals("PARENT_ID", imported[0].getFkColumnName());
+
+                SchemaSnapshot.ForeignKeySnapshot[] exported =
+                    snapshot.getTable("SNAPSHOT_PARENT", true).getExportedKeys();
+                assertEquals(1, exported.length);
+                assertEquals("SNAPSHOT_CHILD", exported[0].getFkTableName());
+            }
+            finally
+            {
+                execute("DROP TABLE SNAPSHOT_CHILD");
+            }
+        }
+        finally
+        {
+            execute("DROP TABLE SNAPSHOT_PARENT");
+        }
+    }
+
+    public void testPersistedSnapshot() throws Exception
+    {
+        File directory = createDirectory();
+        IDatabaseConnection connection = createConnection(null);
+        SchemaSnapshot snapshot = new SchemaSnapshotCache(directory).getSnapshot(
+                connection, connection.getSchema());
+
+        SchemaSnapshot persisted = new SchemaSnapshotCache(directory).getSnapshot(
+                connection, connection.getSchema());
+
+        assertNotSame(snapshot, persisted);
+        assertEquals(snapshot.getCreationTime(), persisted.getCreationTime());
+        assertEquals(snapshot.getFingerprint(), persisted.getFingerprint());
+        assertEquals(Arrays.asList(snapshot.getTableNames()), Arrays.asList(persisted.getTableNames()));
+
+        SchemaSnapshot.TableSnapshot[] tables = snapshot.getTables();
+        for (int i = 0; i < tables.length; i++)
+        {
+            SchemaSnapshot.TableSnapshot table = persisted.getTable(tables[i].getTableName(), true);
+            assertEquals(tables[i].getTableType(), table.getTableType());
+            assertEquals(tables[i].getColumns().length, table.getColumns().length);
+            assertEquals(Arrays.asList(tables[i].getPrimaryKeyNames()),
+                    Arrays.asList(table.getPrimaryKeyNames()));
+            assertEquals(tables[i].getImportedKeys().length, table.getImportedKeys().length);
+            assertEquals(tables[i].getExportedKeys().length, table.getExportedKeys().length);
+        }
+    }
+
+    public void testUnreadableSnapshotFileIgnored() throws Exception
+    {
+        File directory = createDirectory();
+        IDatabaseConnection connection = createConnection(null);
+        SchemaSnapshot snapshot = new SchemaSnapshotCache(directory).getSnapshot(
+                connection, connection.getSchema());
+
+        // Replace the snapshot file with an arbitrary serialized object
+        File[] files = directory.listFiles();
+        assertEquals(1, files.length);
+        ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(files[0]));
+        out.writeObject(new Date());
+        out.close();
+
+        SchemaSnapshot reloaded = new SchemaSnapshotCache(directory).getSnapshot(
+                connection, connection.getSchema());
+
+        assertEquals(snapshot.getFingerprint(), reloaded.getFingerprint());
+        assertEquals(Arrays.asList(snapshot.getTableNames()), Arrays.asList(reloaded.getTableNames()));
+        // The unreadable file has been replaced
+        assertEquals(reloaded.getCreationTime(), new SchemaSnapshotCache(directory).getSnapshot(
+                connection, connection.getSchema()).getCreationTime());
+    }
+
+    public void testPersistedSnapshotInvalidatedBySchemaChange() throws Exception
+    {
+        File directory = createDirectory();
+        IDatabaseConnection connection = createConnection(null);
+        SchemaSnapshot snapshot = new SchemaSnapshotCache(directory).getSnapshot(
+                connection, connection.getSchema());
+        assertNull(snapshot.getTable("SNAPSHOT_NEW", true));
+
+        execute("CREATE TABLE SNAPSHOT_NEW (ID INTEGER NOT NULL PRIMARY KEY)");
+        try
+        {
+            SchemaSnapshot reloaded = new SchemaSnapshotCache(directory).getSnapshot(
+                    connection, connection.getSchema());
+
+            assertFalse(snapshot.getFingerprint().equals(reloaded.getFingerprint()));
+            assertNotNull(reloaded.getTable("SNAPSHOT_NEW", true));
+        }
+        finally
+        {
+            execute("DROP TABLE SNAPSHOT_NEW");
+        }
+    }
+
+    public void testPersistedSnapshotInvalidatedByColumnChange() throws Exception
+    {
+        execute("CREATE TABLE SNAPSHOT_ALTERED (ID INTEGER NOT NULL PRIMARY KEY)");
+        try
+        {
+            File directory = createDirectory();
+            IDatabaseConnection connection = createConnection(null);
+            SchemaSnapshot snapshot = new SchemaSnapshotCache(directory).getSnapshot(
+                    connection, connection.getSchema());
+            assertEquals(1, snapshot.getTable("SNAPSHOT_ALTERED", true).getColumns().length);
+
+            execute("ALTER TABLE SNAPSHOT_ALTERED ADD COLUMN NAME VARCHAR(20)");
+            SchemaSnapshot reloaded = new SchemaSnapshotCache(directory).getSnapshot(
+                    connection, connection.getSchema());
+
+            assertFalse(snapshot.getFingerprint().equals(reloaded.getFingerprint()));
+            assertEquals(2, reloaded.getTable("SNAPSHOT_ALTERED", true).getColumns().length);
+        }
+        finally
+        {
+            execute("DROP TABLE SNAPSHOT_ALTERED");
+        }
+    }
+
+    public void testPersistedSnapshotInvalidatedByForeignKeyChange() throws Exception
+    {
+        execute("CREATE TABLE SNAPSHOT_PARENT (ID INTEGER NOT NULL PRIMARY KEY)");
+        try
+        {
+            execute("CREATE TABLE SNAPSHOT_CHILD (ID INTEGER NOT NULL PRIMARY KEY, PARENT_ID INTEGER)");
+            try
+            {
+                File directory = createDirectory();
+                IDatabaseConnection connection = createConnection(null);
+                SchemaSnapshot snapshot = new SchemaSnapshotCache(directory).getSnapshot(
+                        connection, connection.getSchema());
+                assertEquals(0, snapshot.getTable("SNAPSHOT_CHILD", true).getImportedKeys().length);
+
+                execute("ALTER TABLE SNAPSHOT_CHILD ADD CONSTRAINT SNAPSHOT_FK"
+                        + " FOREIGN KEY (PARENT_ID) REFERENCES SNAPSHOT_PARENT (ID)");
+                SchemaSnapshot reloaded = new SchemaSnapshotCache(directory).getSnapshot(
+                        connection, connection.getSchema());
+
+                assertFalse(snapshot.getFingerprint().equals(reloaded.getFingerprint()));
+                assertEquals(1, reloaded.getTable("SNAPSHOT_CHILD", true).getImportedKeys().length);
+                assertEquals(1, reloaded.getTable("SNAPSHOT_PARENT", true).getExportedKeys().length);
+            }
+            finally
+            {
+                execute("DROP TABLE SNAPSHOT_CHILD");
+            }
+        }
+        finally
+        {
+            execute("DROP TABLE SNAPSHOT_PARENT");
+        }
+    }
+}
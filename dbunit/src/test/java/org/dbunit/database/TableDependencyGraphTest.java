@@ -0,0 +1,229 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.database;
+
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.dbunit.HypersonicEnvironment;
+import org.dbunit.database.search.ForeignKeyRelationshipEdge;
+import org.dbunit.testutil.TestUtils;
+
+/**
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class TableDependencyGraphTest extends TestCase
+{
+    private Connection _jdbcConnection;
+
+    public TableDependencyGraphTest(String s)
+    {
+        super(s);
+    }
+
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+
+        _jdbcConnection = HypersonicEnvironment.createJdbcConnection("mem:graphdb");
+    }
+
+    protected void tearDown() throws Exception
+    {
+        super.tearDown();
+
+        HypersonicEnvironment.shutdown(_jdbcConnection);
+        _jdbcConnection.close();
+    }
+
+    private TableDependencyGraph createGraph(String[] tableNames, String[][] foreignKeys)
+    {
+        TableDependencyGraph graph = new TableDependencyGraph(tableNames, false);
+        for (int i = 0; i < foreignKeys.length; i++)
+        {
+            graph.addForeignKey(foreignKeys[i][0], foreignKeys[i][1], "FK", "PK");
+        }
+        return graph;
+    }
+
+    public void testSort() throws Exception
+    {
+        TableDependencyGraph graph = createGraph(new String[] {"ORDERS", "ITEM", "CUSTOMER"},
+                new String[][] {{"ITEM", "ORDERS"}, {"ORDERS", "CUSTOMER"}});
+
+        assertEquals(Arrays.asList(new String[] {"CUSTOMER", "ORDERS", "ITEM"}),
+                Arrays.asList(graph.sort()));
+        assertEquals(2, graph.getDependencyCount());
+    }
+
+    public void testSortIgnoresSelfReferenceAndUnknownTables() throws Exception
+    {
+        TableDependencyGraph graph = createGraph(new String[] {"EMPLOYEE", "DEPARTMENT"},
+                new String[][] {{"employee", "EMPLOYEE"}, {"EMPLOYEE", "DEPARTMENT"},
+                        {"DEPARTMENT", "COMPANY"}});
+
+        assertEquals(Arrays.asList(new String[] {"DEPARTMENT", "EMPLOYEE"}),
+                Arrays.asList(graph.sort()));
+        assertEquals(new HashSet(Arrays.asList(new String[] {"EMPLOYEE", "DEPARTMENT"})),
+                graph.getDirectDependsOnTables("EMPLOYEE"));
+        assertEquals(0, graph.getForeignKeys("DEPARTMENT").length);
+    }
+
+    public void testCyclicGroups() throws Exception
+    {
+        TableDependencyGraph graph = createGraph(new String[] {"A", "B", "C", "D", "E", "F"},
+                new String[][] {{"A", "B"}, {"B", "A"}, {"C", "A"}, {"D", "E"}, {"E", "F"},
+                        {"F", "D"}});
+
+        List groups = graph.getCyclicTableGroups();
+        assertEquals(2, groups.size());
+        assertEquals(Arrays.asList(new String[] {"A", "B"}), Arrays.asList((String[])groups.get(0)));
+        assertEquals(Arrays.asList(new String[] {"D", "E", "F"}),
+                Arrays.asList((String[])groups.get(1)));
+        assertEquals(3, graph.getStronglyConnectedComponents().size());
+
+        try
+        {
+            graph.sort();
+            fail("Should not be here!");
+        }
+        catch (CyclicTablesDependencyException expected)
+        {
+            assertEquals(groups.size(), expected.getCyclicTableGroups().size());
+            assertEquals("Cyclic dependencies between tables: [A, B], [D, E, F]",
+                    expected.getMessage());
+        }
+    }
+
+    public void testTransitiveDependencies() throws Exception
+    {
+        TableDependencyGraph graph = createGraph(new String[] {"A", "B", "C", "D"},
+                new String[][] {{"B", "A"}, {"C", "B"}, {"D", "A"}});
+
+        assertEquals(new HashSet(Arrays.asList(new String[] {"A", "B"})),
+                graph.getAllDependsOnTables("C"));
+        assertEquals(new HashSet(Arrays.asList(new String[] {"B", "C", "D"})),
+                graph.getAllDependentTables("A"));
+        assertEquals(new HashSet(Arrays.asList(new String[] {"B", "D"})),
+                graph.getDirectDependentTables("A"));
+        try
+        {
+            graph.getAllDependentTables("X");
+            fail("Should not be here!");
+        }
+        catch (IllegalArgumentException expected)
+        {
+        }
+    }
+
+    public void testSortDeepChain() throws Exception
+    {
+        int count = 20000;
+        String[] tableNames = new String[count];
+        for (int i = 0; i < count; i++)
+        {
+            tableNames[i] = "T" + i;
+        }
+        TableDependencyGraph graph = new TableDependencyGraph(tableNames, true);
+        for (int i = 1; i < count; i++)
+        {
+            graph.addForeignKey(tableNames[i - 1], tableNames[i], "FK", "PK");
+        }
+
+        String[] sorted = graph.sort();
+        assertEquals(tableNames[count - 1], sorted[0]);
+        assertEquals(tableNames[0], sorted[count - 1]);
+    }
+
+    public void testLoad() throws Exception
+    {
+        HypersonicEnvironment.executeDdlFile(TestUtils.getFile("sql/hypersonic_fk.sql"),
+                _jdbcConnection);
+        IDatabaseConnection connection = new DatabaseConnection(_jdbcConnection);
+
+        TableDependencyGraph graph = TableDependencyGraph.load(connection);
+        assertEquals(Arrays.asList(new String[] {"D", "A", "F", "C", "G", "E", "H", "B"}),
+                Arrays.asList(graph.sort()));
+        assertEquals(new HashSet(Arrays.asList(new String[] {"C", "E", "H"})),
+                graph.getDirectDependsOnTables("B"));
+    }
+
+    public void testLoadFromSchemaSnapshot() throws Exception
+    {
+        HypersonicEnvironment.executeDdlFile(TestUtils.getFile("sql/hypersonic_fk.sql"),
+                _jdbcConnection);
+        IDatabaseConnection connection = new DatabaseConnection(_jdbcConnection, "PUBLIC");
+        connection.getConfig().setProperty(DatabaseConfig.PROPERTY_SCHEMA_SNAPSHOT_CACHE,
+                new SchemaSnapshotCache());
+
+        TableDependencyGraph graph = TableDependencyGraph.load(connection);
+        assertEquals(Arrays.asList(new String[] {"D", "A", "F", "C", "G", "E", "H", "B"}),
+                Arrays.asList(graph.sort()));
+        assertEquals(TableDependencyGraph.load(connection, new String[] {"A", "B", "C", "D",
+                "E", "F", "G", "H"}).getDependencyCount(), graph.getDependencyCount());
+    }
+
+    public void testSchemaGraph() throws Exception
+    {
+        HypersonicEnvironment.executeDdlFile(TestUtils.getFile("sql/hypersonic_fk.sql"),
+                _jdbcConnection);
+        IDatabaseConnection connection = new DatabaseConnection(_jdbcConnection, "PUBLIC");
+        assertNull(TableDependencyGraph.getSchemaGraph(connection));
+
+        SchemaSnapshotCache cache = new SchemaSnapshotCache();
+        connection.getConfig().setProperty(DatabaseConfig.PROPERTY_SCHEMA_SNAPSHOT_CACHE, cache);
+        TableDependencyGraph graph = TableDependencyGraph.getSchemaGraph(connection);
+        assertSame(graph, TableDependencyGraph.getSchemaGraph(connection));
+        assertTrue(graph.containsTable("b"));
+        assertEquals(TableDependencyGraph.load(connection).getDependencyCount(),
+                graph.getDependencyCount());
+
+        ForeignKeyRelationshipEdge[] referencing = graph.getReferencingForeignKeys("C");
+        HashSet referencingTables = new HashSet();
+        for (int i = 0; i < referencing.length; i++)
+        {
+            assertEquals("C", referencing[i].getTo());
+            referencingTables.add(referencing[i].getFrom());
+        }
+        assertEquals(graph.getDirectDependentTables("C"), referencingTables);
+
+        try
+        {
+            graph.addForeignKey("A", "B", "FK", "PK");
+            fail("The shared graph must not be modifiable");
+        }
+        catch (IllegalStateException expected)
+        {
+            // expected
+        }
+
+        cache.invalidate(connection, "PUBLIC");
+        assertNotSame(graph, TableDependencyGraph.getSchemaGraph(connection));
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.database;
+
+import java.sql.Connection;
+import java.util.concurrent.ExecutorService;
+
+import junit.framework.TestCase;
+
+import org.dbunit.HypersonicEnvironment;
+import org.dbunit.testutil.HypersonicDataSource;
+
+/**
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class WorkerConnectionPoolTest extends TestCase
+{
+    private static final String DATABASE = "mem:workerconnectionpooldb";
+
+    private Connection _jdbcConnection;
+    private IDatabaseConnection _connection;
+
+    public WorkerConnectionPoolTest(String s)
+    {
+        super(s);
+    }
+
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+
+        _jdbcConnection = HypersonicEnvironment.createJdbcConnection(DATABASE);
+        _connection = new DatabaseConnection(_jdbcConnection);
+        _connection.getConfig().setProperty(DatabaseConfig.PROPERTY_BATCH_SIZE, new Integer(7));
+    }
+
+    protected void tearDown() throws Exception
+    {
+        super.tearDown();
+
+        HypersonicEnvironment.shutdown(_jdbcConnection);
+        _jdbcConnection.close();
+    }
+
+    public void testOpenWithoutDataSource() throws Exception
+    {
+        assertNull(WorkerConnectionPool.open(null, _connection, 2));
+    }
+
+    public void testOpen() throws Exception
+    {
+        HypersonicDataSource dataSource = new HypersonicDataSource(DATABASE);
+        WorkerConnectionPool pool = WorkerConnectionPool.open(
+                dataSource.getDataSource(), _connection, 3);
+        try
+        {
+            assertEquals(3, pool.size());
+            assertEquals(3, dataSource.getOpenedConnections());
+
+            IDatabaseConnection connection = pool.take();
+            assertNotSame(_connection, connection);
+            assertEquals(new Integer(7), connection.getConfig().getProperty(
+                    DatabaseConfig.PROPERTY_BATCH_SIZE));
+            pool.release(connection);
+        }
+        finally
+        {
+            pool.close();
+        }
+    }
+
+    public void testCloseIncludesTakenConnections() throws Exception
+    {
+        WorkerConnectionPool pool = WorkerConnectionPool.open(
+                new HypersonicDataSource(DATABASE).getDataSource(), _connection, 2);
+        IDatabaseConnection taken = pool.take();
+        pool.close();
+
+        assertTrue(taken.getConnection().isClosed());
+    }
+
+    public void testShutdownDoesNotWaitForeverForBlockedWorkers() throws Exception
+    {
+        WorkerConnectionPool pool = WorkerConnectionPool.open(
+                new HypersonicDataSource(DATABASE).getDataSource(), _connection, 1);
+        pool.setShutdownTimeout(100);
+        final IDatabaseConnection taken = pool.take();
+        final boolean[] released = new boolean[1];
+
+        ExecutorService executor = pool.createExecutor("WorkerConnectionPoolTest");
+        executor.execute(new Runnable()
+        {
+            public void run()
+            {
+                // Ignores interrupts like a blocked JDBC call until the connection is closed
+                try
+                {
+                    while (!taken.getConnection().isClosed())
+                    {
+                        try
+                        {
+                            Thread.sleep(10);
+                        }
+                        catch (InterruptedException e)
+                        {
+                        }
+                    }
+                    synchronized (released)
+                    {
+                        released[0] = true;
+                        released.notifyAll();
+                    }
+                }
+                catch (Exception e)
+                {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+
+        long start = System.currentTimeMillis();
+        assertFalse(pool.awaitTermination(executor));
+        pool.close();
+        assertTrue(System.currentTimeMillis() - start < 5000);
+
+        synchronized (released)
+        {
+            if (!released[0])
+            {
+                released.wait(5000);
+            }
+        }
+        assertTrue("worker released by closing the connection", released[0]);
+    }
+}
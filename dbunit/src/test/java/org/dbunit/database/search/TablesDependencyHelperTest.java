@@ -29,9 +29,11 @@ import junit.framework.TestCase;
 import junitx.framework.ArrayAssert;
 
 import org.dbunit.HypersonicEnvironment;
+import org.dbunit.database.DatabaseConfig;
 import org.dbunit.database.DatabaseConnection;
 import org.dbunit.database.IDatabaseConnection;
 import org.dbunit.database.PrimaryKeyFilter.PkTableMap;
+import org.dbunit.database.SchemaSnapshotCache;
 import org.dbunit.dataset.IDataSet;
 import org.dbunit.dataset.NoSuchTableException;
 import org.dbunit.testutil.TestUtils;
@@ -188,6 +190,40 @@ public class TablesDependencyHelperTest extends TestCase {
         }           
     }
 
+    public void testGetDependentTablesFromSchemaGraph() throws Exception {
+        setUp( ImportNodesFilterSearchCallbackTest.SQL_FILE );
+        IDatabaseConnection cachedConnection = new DatabaseConnection(this.jdbcConnection, "PUBLIC");
+        cachedConnection.getConfig().setProperty(DatabaseConfig.PROPERTY_SCHEMA_SNAPSHOT_CACHE,
+                new SchemaSnapshotCache());
+        String[][] allInput = ImportNodesFilterSearchCallbackTest.SINGLE_INPUT;
+        for (int i = 0; i < allInput.length; i++) {
+            String[] input = allInput[i];
+            ArrayAssert.assertEquals( "output didn't match for i=" + i,
+                    TablesDependencyHelper.getDependentTables( this.connection, input[0]),
+                    TablesDependencyHelper.getDependentTables( cachedConnection, input[0]) );
+            assertEquals( "output didn't match for i=" + i,
+                    TablesDependencyHelper.getDirectDependsOnTables( this.connection, input[0]),
+                    TablesDependencyHelper.getDirectDependsOnTables( cachedConnection, input[0]) );
+        }
+    }
+
+    public void testGetAllDatasetFromSchemaGraph() throws Exception {
+        setUp( ImportAndExportKeysSearchCallbackOwnFileTest.SQL_FILE );
+        IDatabaseConnection cachedConnection = new DatabaseConnection(this.jdbcConnection, "PUBLIC");
+        cachedConnection.getConfig().setProperty(DatabaseConfig.PROPERTY_SCHEMA_SNAPSHOT_CACHE,
+                new SchemaSnapshotCache());
+        String[][] allInput = ImportAndExportKeysSearchCallbackOwnFileTest.SINGLE_INPUT;
+        String[][] allExpectedOutput = ImportAndExportKeysSearchCallbackOwnFileTest.SINGLE_OUTPUT;
+        for (int i = 0; i < allInput.length; i++) {
+            String[] input = allInput[i];
+            String[] expectedOutput = allExpectedOutput[i];
+            ArrayAssert.assertEquals( "output didn't match for i=" + i, expectedOutput,
+                    TablesDependencyHelper.getAllDependentTables( cachedConnection, input[0]) );
+            IDataSet actualOutput = TablesDependencyHelper.getAllDataset( cachedConnection, input[0], new HashSet());
+            ArrayAssert.assertEquals( "output didn't match for i=" + i, expectedOutput, actualOutput.getTableNames() );
+        }
+    }
+
 
     // TODO ImportAndExportKeysSearchCallbackOwnFileTest
 
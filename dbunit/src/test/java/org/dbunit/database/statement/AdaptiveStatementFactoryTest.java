@@ -0,0 +1,191 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.database.statement;
+
+import java.sql.Connection;
+
+import junit.framework.TestCase;
+
+import org.dbunit.DatabaseUnitException;
+import org.dbunit.HypersonicEnvironment;
+import org.dbunit.database.DatabaseConfig;
+import org.dbunit.database.DatabaseConnection;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.operation.DatabaseOperation;
+
+/**
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class AdaptiveStatementFactoryTest extends TestCase
+{
+    private static final int ROW_COUNT = 200;
+
+    private Connection _jdbcConnection;
+    private IDatabaseConnection _connection;
+
+    public AdaptiveStatementFactoryTest(String s)
+    {
+        super(s);
+    }
+
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+
+        _jdbcConnection = HypersonicEnvironment.createJdbcConnection("mem:adaptivedb");
+        HypersonicEnvironment.executeSql(_jdbcConnection, "CREATE TABLE ADAPTIVE_TABLE"
+                + " (ID INTEGER NOT NULL PRIMARY KEY, NAME VARCHAR(20), NOTE VARCHAR(20))");
+        _connection = new DatabaseConnection(_jdbcConnection);
+        _connection.getConfig().setFeature(DatabaseConfig.FEATURE_BATCHED_STATEMENTS, true);
+    }
+
+    protected void tearDown() throws Exception
+    {
+        super.tearDown();
+
+        HypersonicEnvironment.shutdown(_jdbcConnection);
+        _jdbcConnection.close();
+    }
+
+    /**
+     * @return A table whose rows alternate between two column sets, with duplicate
+     * IDs if requested
+     */
+    private DefaultTable createSparseTable(boolean duplicate) throws Exception
+    {
+        DefaultTable table = new DefaultTable("ADAPTIVE_TABLE", new Column[] {
+            new Column("ID", DataType.INTEGER),
+            new Column("NAME", DataType.VARCHAR),
+            new Column("NOTE", DataType.VARCHAR)
+        });
+        for (int i = 0; i < ROW_COUNT; i++)
+        {
+            int id = duplicate && i == ROW_COUNT - 1 ? 0 : i;
+            Object note = (i / 10) % 2 == 0 ? (Object)"note" : ITable.NO_VALUE;
+            table.addRow(new Object[] {new Integer(id), "name" + i, note});
+        }
+        return table;
+    }
+
+    private int getRowCount() throws Exception
+    {
+        return _connection.getRowCount("ADAPTIVE_TABLE");
+    }
+
+    public void testInsertReusesStatements() throws Exception
+    {
+        AdaptiveStatementFactory factory = new AdaptiveStatementFactory(2, 8);
+        _connection.getConfig().setProperty(DatabaseConfig.PROPERTY_STATEMENT_FACTORY, factory);
+
+        DatabaseOperation.INSERT.execute(_connection, new DefaultDataSet(createSparseTable(false)));
+
+        assertEquals(ROW_COUNT, getRowCount());
+        // 20 switches between the 2 column sets, only the first ones are prepared
+        PreparedStatementCache cache = factory.getStatementCache();
+        assertEquals("misses", 2, cache.getMissCount());
+        assertEquals("hits", 18, cache.getHitCount());
+        assertEquals(8, factory.getBatchSizeTuner().getMaxBatchSize());
+    }
+
+    public void testInsertWithoutBatches() throws Exception
+    {
+        AdaptiveStatementFactory factory = new AdaptiveStatementFactory(2, 8,
+                PreparedStatementCache.DEFAULT_MAX_SIZE, true);
+        _connection.getConfig().setProperty(DatabaseConfig.PROPERTY_STATEMENT_FACTORY, factory);
+        _connection.getConfig().setFeature(DatabaseConfig.FEATURE_BATCHED_STATEMENTS, false);
+
+        DatabaseOperation.INSERT.execute(_connection, new DefaultDataSet(createSparseTable(false)));
+
+        assertEquals(ROW_COUNT, getRowCount());
+        assertEquals("hits", 18, factory.getStatementCache().getHitCount());
+        assertEquals("batch size not tuned", 8, factory.getBatchSizeTuner().getBatchSize());
+    }
+
+    public void testInsertWithoutCache() throws Exception
+    {
+        AdaptiveStatementFactory factory = new AdaptiveStatementFactory(2, 8, 0, false);
+        _connection.getConfig().setProperty(DatabaseConfig.PROPERTY_STATEMENT_FACTORY, factory);
+
+        DatabaseOperation.INSERT.execute(_connection, new DefaultDataSet(createSparseTable(false)));
+
+        assertEquals(ROW_COUNT, getRowCount());
+        assertEquals("hits", 0, factory.getStatementCache().getHitCount());
+    }
+
+    public void testInsertPipelined() throws Exception
+    {
+        AdaptiveStatementFactory factory = new AdaptiveStatementFactory(2, 8,
+                PreparedStatementCache.DEFAULT_MAX_SIZE, true);
+        _connection.getConfig().setProperty(DatabaseConfig.PROPERTY_STATEMENT_FACTORY, factory);
+
+        DatabaseOperation.CLEAN_INSERT.execute(_connection, new DefaultDataSet(createSparseTable(false)));
+
+        assertEquals(ROW_COUNT, getRowCount());
+        ITable table = _connection.createQueryTable("ADAPTIVE_TABLE",
+                "SELECT * FROM ADAPTIVE_TABLE WHERE ID = 15");
+        assertEquals("name15", table.getValue(0, "NAME"));
+        assertNull(table.getValue(0, "NOTE"));
+    }
+
+    public void testPipelinedFailureIsReported() throws Exception
+    {
+        AdaptiveStatementFactory factory = new AdaptiveStatementFactory(2, 8,
+                PreparedStatementCache.DEFAULT_MAX_SIZE, true);
+        _connection.getConfig().setProperty(DatabaseConfig.PROPERTY_STATEMENT_FACTORY, factory);
+
+        try
+        {
+            DatabaseOperation.INSERT.execute(_connection, new DefaultDataSet(createSparseTable(true)));
+            fail("Should not be able to insert a duplicate key");
+        }
+        catch (DatabaseUnitException expected)
+        {
+            assertEquals("Exception processing table name='ADAPTIVE_TABLE'", expected.getMessage());
+        }
+
+        // the statements can be used again after the failure
+        DatabaseOperation.CLEAN_INSERT.execute(_connection, new DefaultDataSet(createSparseTable(false)));
+        assertEquals(ROW_COUNT, getRowCount());
+    }
+
+    public void testCloseStatements() throws Exception
+    {
+        AdaptiveStatementFactory factory = new AdaptiveStatementFactory();
+        _connection.getConfig().setProperty(DatabaseConfig.PROPERTY_STATEMENT_FACTORY, factory);
+
+        DatabaseOperation.INSERT.execute(_connection, new DefaultDataSet(createSparseTable(false)));
+        factory.closeStatements(_connection);
+        DatabaseOperation.DELETE_ALL.execute(_connection, new DefaultDataSet(createSparseTable(false)));
+        DatabaseOperation.INSERT.execute(_connection, new DefaultDataSet(createSparseTable(false)));
+
+        assertEquals(ROW_COUNT, getRowCount());
+        assertEquals("misses", 4, factory.getStatementCache().getMissCount());
+    }
+}
@@ -33,7 +33,9 @@ public class AllTests extends TestSuite
     public static Test suite()
     {
         TestSuite suite = new TestSuite();
+        suite.addTest(new TestSuite(AdaptiveStatementFactoryTest.class));
         suite.addTest(new TestSuite(BatchStatementDecoratorTest.class));
+        suite.addTest(new TestSuite(BatchSizeTunerTest.class));
 
         return suite;
     }
@@ -0,0 +1,112 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.database.statement;
+
+import junit.framework.TestCase;
+
+/**
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class BatchSizeTunerTest extends TestCase
+{
+    public BatchSizeTunerTest(String s)
+    {
+        super(s);
+    }
+
+    public void testInitialBatchSizeIsClamped() throws Exception
+    {
+        assertEquals(10, new BatchSizeTuner(1, 10, 100).getBatchSize());
+        assertEquals(100, new BatchSizeTuner(1000, 10, 100).getBatchSize());
+        assertEquals(50, new BatchSizeTuner(50, 10, 100).getBatchSize());
+    }
+
+    public void testInvalidBounds() throws Exception
+    {
+        try
+        {
+            new BatchSizeTuner(10, 0, 100);
+            fail("Should not accept a minimum of 0");
+        }
+        catch (IllegalArgumentException expected)
+        {
+        }
+        try
+        {
+            new BatchSizeTuner(10, 20, 10);
+            fail("Should not accept a maximum below the minimum");
+        }
+        catch (IllegalArgumentException expected)
+        {
+        }
+    }
+
+    public void testIncreasesWhileThroughputImproves() throws Exception
+    {
+        BatchSizeTuner tuner = new BatchSizeTuner(10, 10, 1000);
+        // constant cost per batch, so larger batches are always faster
+        tuner.batchExecuted(10, 1000000);
+        assertEquals(20, tuner.getBatchSize());
+        tuner.batchExecuted(20, 1000000);
+        assertEquals(40, tuner.getBatchSize());
+        tuner.batchExecuted(40, 1000000);
+        assertEquals(80, tuner.getBatchSize());
+        assertEquals(40 * 1000.0, tuner.getLastThroughput(), 0.001);
+        assertEquals(1000000, tuner.getLastLatency());
+    }
+
+    public void testReversesWhenThroughputDrops() throws Exception
+    {
+        BatchSizeTuner tuner = new BatchSizeTuner(10, 10, 1000);
+        tuner.batchExecuted(10, 1000000);
+        assertEquals(20, tuner.getBatchSize());
+        tuner.batchExecuted(20, 1000000);
+        assertEquals(40, tuner.getBatchSize());
+        // 40 rows take 4 times longer than 20 rows
+        tuner.batchExecuted(40, 4000000);
+        assertEquals(20, tuner.getBatchSize());
+        // 20 rows are faster again, keep decreasing
+        tuner.batchExecuted(20, 1000000);
+        assertEquals(10, tuner.getBatchSize());
+    }
+
+    public void testStaysWithinBounds() throws Exception
+    {
+        BatchSizeTuner tuner = new BatchSizeTuner(50, 10, 100);
+        tuner.batchExecuted(50, 1000000);
+        assertEquals(100, tuner.getBatchSize());
+        tuner.batchExecuted(100, 1000000);
+        assertEquals(100, tuner.getBatchSize());
+    }
+
+    public void testIgnoresPartialBatches() throws Exception
+    {
+        BatchSizeTuner tuner = new BatchSizeTuner(10, 10, 1000);
+        tuner.batchExecuted(5, 1000000);
+        tuner.batchExecuted(10, 0);
+        assertEquals(10, tuner.getBatchSize());
+        assertEquals(-1, tuner.getLastThroughput(), 0.001);
+    }
+}
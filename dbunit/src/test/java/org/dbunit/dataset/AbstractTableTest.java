@@ -99,6 +99,20 @@ public abstract class AbstractTableTest extends TestCase
         }
     }
 
+    public void testGetValueByColumnIndex() throws Exception
+    {
+        ITable table = createTable();
+        for (int i = 0; i < ROW_COUNT; i++)
+        {
+            for (int j = 0; j < COLUMN_COUNT; j++)
+            {
+                String expected = "row " + i + " col " + j;
+                Object value = ColumnIndexMapping.getValue(table, i, j);
+                assertEquals("value", expected, value);
+            }
+        }
+    }
+
     public void testGetValueCaseInsensitive() throws Exception
     {
         ITable table = createTable();
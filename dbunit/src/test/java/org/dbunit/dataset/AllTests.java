@@ -41,9 +41,12 @@ public class AllTests extends TestSuite
         suite.addTest(org.dbunit.dataset.sqlloader.AllTests.suite());
         suite.addTest(org.dbunit.dataset.xml.AllTests.suite());
         suite.addTest(org.dbunit.dataset.csv.AllTests.suite());
+        suite.addTest(org.dbunit.dataset.binary.AllTests.suite());
         suite.addTest(new TestSuite(CaseInsensitiveDataSetTest.class));
         suite.addTest(new TestSuite(CaseInsensitiveTableTest.class));
+        suite.addTest(new TestSuite(ColumnIndexMappingTest.class));
         suite.addTest(new TestSuite(ColumnTest.class));
+        suite.addTest(new TestSuite(ColumnarTableTest.class));
         suite.addTest(new TestSuite(ColumnsTest.class));
         suite.addTest(new TestSuite(CompositeDataSetTest.class));
         suite.addTest(new TestSuite(CompositeTableTest.class));
@@ -62,8 +65,11 @@ public class AllTests extends TestSuite
         suite.addTest(new TestSuite(LowerCaseTableMetaDataTest.class));
         suite.addTest(new TestSuite(ReplacementDataSetTest.class));
         suite.addTest(new TestSuite(ReplacementTableTest.class));
+        suite.addTest(new TestSuite(CompiledReplacementTableTest.class));
+        suite.addTest(new TestSuite(SubstringReplacerTest.class));
         suite.addTest(new TestSuite(SortedDataSetTest.class));
         suite.addTest(new TestSuite(SortedTableTest.class));
+        suite.addTest(new TestSuite(SpillingTableTest.class));
 
         return suite;
     }
@@ -0,0 +1,150 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+package org.dbunit.dataset;
+
+import junit.framework.TestCase;
+
+import org.dbunit.dataset.datatype.DataType;
+
+/**
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class ColumnIndexMappingTest extends TestCase
+{
+    private DefaultTable createTable() throws Exception
+    {
+        Column[] columns = new Column[] {
+                new Column("ID", DataType.INTEGER),
+                new Column("NAME", DataType.VARCHAR),
+                new Column("VALUE", DataType.VARCHAR)
+        };
+        DefaultTable table = new DefaultTable("TEST", columns);
+        table.addRow(new Object[] {"1", "one", "v1"});
+        table.addRow(new Object[] {"2", "two", "v2"});
+        return table;
+    }
+
+    public void testMappingInDifferentOrder() throws Exception
+    {
+        DefaultTable table = createTable();
+        ColumnIndexMapping mapping = new ColumnIndexMapping(table,
+                new String[] {"value", "Id"});
+
+        assertEquals(2, mapping.getColumnCount());
+        assertEquals("v1", mapping.getValue(0, 0));
+        assertEquals("1", mapping.getValue(0, 1));
+        assertEquals("v2", mapping.getValue(1, 0));
+        assertEquals("2", mapping.getValue(1, 1));
+    }
+
+    public void testMappingOnNonIndexedTable() throws Exception
+    {
+        ITable table = new NonIndexedTable(createTable());
+        ColumnIndexMapping mapping = new ColumnIndexMapping(table,
+                new String[] {"NAME"});
+
+        assertEquals("one", mapping.getValue(0, 0));
+        assertEquals("two", mapping.getValue(1, 0));
+        assertEquals("two", ColumnIndexMapping.getValue(table, 1, 1));
+    }
+
+    public void testMissingColumnIsReportedOnAccess() throws Exception
+    {
+        ColumnIndexMapping mapping = new ColumnIndexMapping(createTable(),
+                new String[] {"UNKNOWN"});
+        try
+        {
+            mapping.getValue(0, 0);
+            fail("Should not be able to read unknown column");
+        }
+        catch (NoSuchColumnException expected)
+        {
+        }
+    }
+
+    public void testMissingColumnOfEmptyTable() throws Exception
+    {
+        DefaultTable table = new DefaultTable("TEST", new Column[] {
+                new Column("ID", DataType.INTEGER)});
+        ColumnIndexMapping mapping = new ColumnIndexMapping(table,
+                new String[] {"UNKNOWN"});
+        try
+        {
+            mapping.getValue(0, 0);
+            fail("Should not be able to read row of empty table");
+        }
+        catch (RowOutOfBoundsException expected)
+        {
+        }
+    }
+
+    public void testColumnIndexOutOfRange() throws Exception
+    {
+        DefaultTable table = createTable();
+        try
+        {
+            table.getValue(0, 3);
+            fail("Should not be able to read column index 3");
+        }
+        catch (NoSuchColumnException expected)
+        {
+        }
+        try
+        {
+            ColumnIndexMapping.getValue(new NonIndexedTable(table), 0, -1);
+            fail("Should not be able to read column index -1");
+        }
+        catch (NoSuchColumnException expected)
+        {
+        }
+    }
+
+    /**
+     * Plain {@link ITable} without positional access
+     */
+    private static class NonIndexedTable implements ITable
+    {
+        private final ITable _table;
+
+        public NonIndexedTable(ITable table)
+        {
+            _table = table;
+        }
+
+        public ITableMetaData getTableMetaData()
+        {
+            return _table.getTableMetaData();
+        }
+
+        public int getRowCount()
+        {
+            return _table.getRowCount();
+        }
+
+        public Object getValue(int row, String column) throws DataSetException
+        {
+            return _table.getValue(row, column);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.dataset;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Time;
+import java.sql.Timestamp;
+
+import org.dbunit.dataset.datatype.DataType;
+
+/**
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class ColumnarTableTest extends DefaultTableTest
+{
+    public ColumnarTableTest(String s)
+    {
+        super(s);
+    }
+
+    protected ITable createTable(int columnCount, int rowCount, int startRow)
+            throws Exception
+    {
+        return new ColumnarTable(super.createTable(columnCount, rowCount, startRow));
+    }
+
+    private ColumnarTable createTypedTable() throws Exception
+    {
+        return new ColumnarTable(new DefaultTableMetaData("TYPED", new Column[] {
+                new Column("I", DataType.INTEGER),
+                new Column("L", DataType.BIGINT_AUX_LONG),
+                new Column("B", DataType.BIGINT),
+                new Column("D", DataType.DOUBLE),
+                new Column("Z", DataType.BOOLEAN),
+                new Column("TS", DataType.TIMESTAMP),
+                new Column("DT", DataType.DATE),
+                new Column("T", DataType.TIME),
+                new Column("S", DataType.VARCHAR),
+                new Column("N", DataType.NUMERIC),
+        }));
+    }
+
+    public void testGetMissingValue() throws Exception
+    {
+        ColumnarTable table = new ColumnarTable(createTableMetaData(COLUMN_COUNT));
+        table.addRow(new Object[]{ITable.NO_VALUE, ITable.NO_VALUE, ITable.NO_VALUE,
+                                  ITable.NO_VALUE});
+        assertEquals("no value", ITable.NO_VALUE, table.getValue(0, "COLUMN0"));
+    }
+
+    public void testTypedValues() throws Exception
+    {
+        ColumnarTable table = createTypedTable();
+        Timestamp timestamp = new Timestamp(1262304000123L);
+        timestamp.setNanos(123456789);
+        Object[][] rows = new Object[200][];
+        for (int i = 0; i < rows.length; i++)
+        {
+            if (i % 3 == 0)
+            {
+                rows[i] = new Object[10];
+            }
+            else
+            {
+                rows[i] = new Object[] {
+                        new Integer(i),
+                        new Long(Long.MAX_VALUE - i),
+                        BigInteger.valueOf(Long.MIN_VALUE + i),
+                        new Double(i / 3.0),
+                        Boolean.valueOf(i % 2 == 0),
+                        timestamp,
+                        new java.sql.Date(86400000L * i),
+                        new Time(1000L * i),
+                        "value " + (i % 7),
+                        BigDecimal.valueOf(i, 2),
+                };
+            }
+            table.addRow(rows[i]);
+        }
+
+        assertEquals(rows.length, table.getRowCount());
+        for (int i = 0; i < rows.length; i++)
+        {
+            for (int j = 0; j < rows[i].length; j++)
+            {
+                Object value = table.getValue(i, j);
+                assertEquals("row " + i + " col " + j, rows[i][j], value);
+                if (value != null)
+                {
+                    assertEquals(rows[i][j].getClass(), value.getClass());
+                }
+            }
+        }
+        assertEquals(123456789, ((Timestamp)table.getValue(1, "TS")).getNanos());
+
+        assertTrue(table.getColumnVector(0) instanceof ColumnarTable.IntVector);
+        assertTrue(table.getColumnVector(2) instanceof ColumnarTable.LongVector);
+        assertTrue(table.getColumnVector(4) instanceof ColumnarTable.BooleanVector);
+        assertTrue(table.getColumnVector(5) instanceof ColumnarTable.DateVector);
+        assertEquals(7, ((ColumnarTable.StringVector)table.getColumnVector(8)).getDictionarySize());
+        assertTrue(table.getColumnVector(9) instanceof ColumnarTable.ObjectVector);
+    }
+
+    public void testValueOfOtherClassSwitchesToObjects() throws Exception
+    {
+        ColumnarTable table = createTypedTable();
+        table.addRow(new Object[] {new Integer(1), null, BigInteger.ONE});
+        table.addRow(new Object[] {"2", null, new BigInteger("123456789012345678901234567890")});
+
+        assertTrue(table.getColumnVector(0) instanceof ColumnarTable.ObjectVector);
+        assertTrue(table.getColumnVector(2) instanceof ColumnarTable.ObjectVector);
+        assertEquals(new Integer(1), table.getValue(0, "I"));
+        assertEquals("2", table.getValue(1, "I"));
+        assertEquals(new BigInteger("123456789012345678901234567890"), table.getValue(1, "B"));
+        assertNull(table.getValue(1, "L"));
+        assertNull(table.getValue(1, "S"));
+    }
+
+    public void testSetValue() throws Exception
+    {
+        ColumnarTable table = createTypedTable();
+        table.addRow();
+        table.addRow(new Object[] {new Integer(5), null, null, null, Boolean.TRUE});
+
+        assertNull(table.setValue(0, "I", new Integer(7)));
+        assertEquals(new Integer(5), table.setValue(1, "I", null));
+        assertEquals(Boolean.TRUE, table.setValue(1, "Z", Boolean.FALSE));
+        assertNull(table.setValue(0, "S", "text"));
+        assertTrue(table.getColumnVector(0) instanceof ColumnarTable.IntVector);
+
+        assertEquals(new Integer(7), table.getValue(0, "I"));
+        assertNull(table.getValue(1, "I"));
+        assertEquals(Boolean.FALSE, table.getValue(1, "Z"));
+        assertEquals("text", table.getValue(0, "S"));
+
+        assertNull(table.setValue(0, "D", ITable.NO_VALUE));
+        assertEquals(ITable.NO_VALUE, table.getValue(0, "D"));
+        assertNull(table.getValue(1, "D"));
+    }
+
+    public void testDictionaryOverflow() throws Exception
+    {
+        ColumnarTable table = new ColumnarTable(createTableMetaData(1));
+        int rowCount = ColumnarTable.MAX_DICTIONARY_SIZE + 10;
+        for (int i = 0; i < rowCount; i++)
+        {
+            table.addRow(new Object[] {"value " + i});
+        }
+
+        assertTrue(table.getColumnVector(0) instanceof ColumnarTable.ObjectVector);
+        assertEquals(rowCount, table.getRowCount());
+        assertEquals("value 0", table.getValue(0, 0));
+        assertEquals("value " + (rowCount - 1), table.getValue(rowCount - 1, 0));
+    }
+
+    public void testHighCardinalityStrings() throws Exception
+    {
+        ColumnarTable table = new ColumnarTable(createTableMetaData(2));
+        int rowCount = 5000;
+        for (int i = 0; i < rowCount; i++)
+        {
+            table.addRow(new Object[] {"value " + (i % 100), "value " + i});
+        }
+
+        assertEquals(100, ((ColumnarTable.StringVector)table.getColumnVector(0)).getDictionarySize());
+        assertTrue(table.getColumnVector(1) instanceof ColumnarTable.ObjectVector);
+        assertEquals("value 99", table.getValue(rowCount - 1, 0));
+        assertEquals("value " + (rowCount - 1), table.getValue(rowCount - 1, 1));
+    }
+
+    public void testCachedDataSet() throws Exception
+    {
+        ITable source = super.createTable(COLUMN_COUNT, ROW_COUNT, 0);
+        CachedDataSet dataSet = new CachedDataSet(new DefaultDataSet(source), true);
+
+        ITable table = dataSet.getTable("myTable");
+        assertTrue(table instanceof ColumnarTable);
+        assertEquals(ROW_COUNT, table.getRowCount());
+        assertEquals("row 5 col 3", table.getValue(5, "COLUMN3"));
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.dataset;
+
+import java.io.StringReader;
+
+import org.dbunit.Assertion;
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.dataset.stream.StreamingDataSet;
+import org.dbunit.dataset.xml.FlatXmlDataSetBuilder;
+import org.dbunit.dataset.xml.FlatXmlProducer;
+import org.dbunit.testutil.TestUtils;
+import org.xml.sax.InputSource;
+
+/**
+ * Runs the tests of {@link ReplacementTableTest} in the compiled and
+ * materialized replacement mode.
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class CompiledReplacementTableTest extends ReplacementTableTest
+{
+    public CompiledReplacementTableTest(String s)
+    {
+        super(s);
+    }
+
+    protected IDataSet createDataSet() throws Exception
+    {
+        ReplacementDataSet dataSet = new ReplacementDataSet(new FlatXmlDataSetBuilder().build(
+                TestUtils.getFile("xml/flatXmlTableTest.xml")));
+        dataSet.setCompiled(true);
+        dataSet.setMaterialized(true);
+        return dataSet;
+    }
+
+    protected ReplacementTable createReplacementTable(ITable table)
+    {
+        ReplacementTable replacementTable = new ReplacementTable(table);
+        replacementTable.setCompiled(true);
+        replacementTable.setMaterialized(true);
+        return replacementTable;
+    }
+
+    public void testMaterializedTableShared() throws Exception
+    {
+        DefaultTable originalTable = new DefaultTable("TABLE_NAME", new Column[] {
+                new Column("REPLACED", DataType.CHAR),
+                new Column("NOT_REPLACED", DataType.CHAR),
+        });
+        originalTable.addRow(new Object[] {"[A] and [B]", "plain"});
+        originalTable.addRow(new Object[] {"[B]", null});
+
+        ReplacementDataSet dataSet = new ReplacementDataSet(new DefaultDataSet(originalTable));
+        dataSet.setCompiled(true);
+        dataSet.setMaterialized(true);
+        dataSet.addReplacementSubstring("[A]", "a");
+        dataSet.addReplacementSubstring("[B]", "b");
+
+        ITable table = dataSet.getTable("TABLE_NAME");
+        assertSame(table, dataSet.getTable("TABLE_NAME"));
+        assertEquals("a and b", table.getValue(0, "REPLACED"));
+        assertEquals("b", table.getValue(1, "REPLACED"));
+        assertEquals("plain", table.getValue(0, "NOT_REPLACED"));
+        assertNull(table.getValue(1, "NOT_REPLACED"));
+
+        // the replaced values are kept
+        originalTable.setValue(1, "REPLACED", "[A]");
+        assertEquals("b", table.getValue(1, "REPLACED"));
+
+        // changing the replacements discards them
+        dataSet.addReplacementSubstring("[C]", "c");
+        table = dataSet.getTable("TABLE_NAME");
+        assertEquals("a", table.getValue(1, "REPLACED"));
+
+        try
+        {
+            table.getValue(2, "REPLACED");
+            fail("Should not be able to read row 2");
+        }
+        catch (RowOutOfBoundsException expected)
+        {
+        }
+    }
+
+    public void testMaterializedStreamingDataSet() throws Exception
+    {
+        IDataSet streamingDataSet = new StreamingDataSet(new FlatXmlProducer(new InputSource(
+                new StringReader("<dataset><TABLE_NAME VALUE='[A]'/><TABLE_NAME VALUE='[B]'/>"
+                        + "</dataset>"))));
+        ReplacementDataSet dataSet = new ReplacementDataSet(streamingDataSet);
+        dataSet.setMaterialized(true);
+        dataSet.addReplacementSubstring("[A]", "a");
+        dataSet.addReplacementSubstring("[B]", "b");
+
+        ITableIterator iterator = dataSet.iterator();
+        assertTrue(iterator.next());
+        ITable table = iterator.getTable();
+        assertEquals("a", table.getValue(0, "VALUE"));
+        assertEquals("b", table.getValue(1, "VALUE"));
+        assertFalse(iterator.next());
+    }
+
+    public void testMaterializedTableOfNewDecoratedTable() throws Exception
+    {
+        final DefaultTable originalTable = new DefaultTable("TABLE_NAME", new Column[] {
+                new Column("VALUE", DataType.CHAR),
+        });
+        originalTable.addRow(new Object[] {"[A]"});
+        // returns a new table for each access
+        IDataSet decoratedDataSet = new DefaultDataSet(originalTable)
+        {
+            public ITable getTable(String tableName) throws DataSetException
+            {
+                return new CompositeTable(originalTable.getTableMetaData(),
+                        new ITable[] {originalTable});
+            }
+        };
+        ReplacementDataSet dataSet = new ReplacementDataSet(decoratedDataSet);
+        dataSet.setMaterialized(true);
+        dataSet.addReplacementSubstring("[A]", "a");
+
+        ITable first = dataSet.getTable("TABLE_NAME");
+        assertEquals("a", first.getValue(0, "VALUE"));
+        originalTable.setValue(0, "VALUE", "[A][A]");
+        ITable second = dataSet.getTable("TABLE_NAME");
+        assertNotSame(first, second);
+        assertEquals("aa", second.getValue(0, "VALUE"));
+    }
+
+    public void testCompiledSameAsUncompiled() throws Exception
+    {
+        DefaultTable originalTable = new DefaultTable("TABLE_NAME", new Column[] {
+                new Column("VALUE", DataType.CHAR),
+        });
+        String[] values = {"[DATE] ${USER}", "no token", "[DATE][DATE]", "", "[DAT[DATE]"};
+        for (int i = 0; i < values.length; i++)
+        {
+            originalTable.addRow(new Object[] {values[i]});
+        }
+
+        ReplacementTable expectedTable = new ReplacementTable(originalTable);
+        ReplacementTable actualTable = createReplacementTable(originalTable);
+        String[][] replacements = {{"[DATE]", "2014-05-01"}, {"${USER}", "sa"}};
+        for (int i = 0; i < replacements.length; i++)
+        {
+            expectedTable.addReplacementSubstring(replacements[i][0], replacements[i][1]);
+            actualTable.addReplacementSubstring(replacements[i][0], replacements[i][1]);
+        }
+
+        Assertion.assertEquals(expectedTable, actualTable);
+    }
+}
@@ -49,12 +49,17 @@ public class ReplacementTableTest extends AbstractTableTest
         return createDataSet().getTable("TEST_TABLE");
     }
 
-    private IDataSet createDataSet() throws Exception
+    protected IDataSet createDataSet() throws Exception
     {
         FlatXmlDataSet fds = new FlatXmlDataSetBuilder().build(TestUtils.getFile("xml/flatXmlTableTest.xml"));
         return new ReplacementDataSet(fds);
     }
 
+    protected ReplacementTable createReplacementTable(ITable table)
+    {
+        return new ReplacementTable(table);
+    }
+
     public void testGetMissingValue() throws Exception
     {
         // TODO test something usefull
@@ -92,7 +97,7 @@ public class ReplacementTableTest extends AbstractTableTest
 
         DefaultTable originalTable = new DefaultTable(tableName, columns);
         originalTable.addRow(actualRow);
-        ReplacementTable actualTable = new ReplacementTable(originalTable);
+        ReplacementTable actualTable = createReplacementTable(originalTable);
         actualTable.addReplacementObject(Boolean.TRUE, trueObject);
         actualTable.addReplacementObject(Boolean.FALSE, falseObject);
         actualTable.addReplacementObject("now", now);
@@ -146,7 +151,7 @@ public class ReplacementTableTest extends AbstractTableTest
 
         DefaultTable originalTable = new DefaultTable(tableName, columns);
         originalTable.addRow(actualRow);
-        ReplacementTable actualTable = new ReplacementTable(originalTable);
+        ReplacementTable actualTable = createReplacementTable(originalTable);
         actualTable.addReplacementSubstring("substring", "replacement");
 
         // Setup expected table
@@ -193,7 +198,7 @@ public class ReplacementTableTest extends AbstractTableTest
 
         DefaultTable originalTable = new DefaultTable(tableName, columns);
         originalTable.addRow(actualRow);
-        ReplacementTable actualTable = new ReplacementTable(originalTable);
+        ReplacementTable actualTable = createReplacementTable(originalTable);
         actualTable.addReplacementSubstring("substring", replacedValue);
         actualTable.setSubstringDelimiters("${", "}");
 
@@ -298,7 +303,7 @@ public class ReplacementTableTest extends AbstractTableTest
 
         DefaultTable originalTable = new DefaultTable(tableName, columns);
         originalTable.addRow(actualRow);
-        ReplacementTable actualTable = new ReplacementTable(originalTable);
+        ReplacementTable actualTable = createReplacementTable(originalTable);
         actualTable.addReplacementSubstring("substring", "replacement");
         actualTable.setSubstringDelimiters("${", "}");
 
@@ -384,7 +389,7 @@ public class ReplacementTableTest extends AbstractTableTest
 
         DefaultTable originalTable = new DefaultTable(tableName, columns);
         originalTable.addRow(actualRow);
-        ReplacementTable actualTable = new ReplacementTable(originalTable);
+        ReplacementTable actualTable = createReplacementTable(originalTable);
         actualTable.addReplacementSubstring("substring", "replacement");
         actualTable.setSubstringDelimiters("!", "!");
 
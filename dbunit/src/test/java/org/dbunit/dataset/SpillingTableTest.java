@@ -0,0 +1,187 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.dataset;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Arrays;
+
+import org.dbunit.Assertion;
+import org.dbunit.dataset.datatype.DataType;
+
+/**
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class SpillingTableTest extends DefaultTableTest
+{
+    public SpillingTableTest(String s)
+    {
+        super(s);
+    }
+
+    protected ITable createTable(int columnCount, int rowCount, int startRow)
+            throws Exception
+    {
+        // keeps the first two rows in memory
+        SpillingTable table = new SpillingTable(createTableMetaData(columnCount), 600, null, 64);
+        table.addTableRows(super.createTable(columnCount, rowCount, startRow));
+        return table;
+    }
+
+    public void testGetMissingValue() throws Exception
+    {
+        SpillingTable table = new SpillingTable(createTableMetaData(COLUMN_COUNT), 0, null);
+        table.addRow(new Object[]{ITable.NO_VALUE, ITable.NO_VALUE, ITable.NO_VALUE,
+                                  ITable.NO_VALUE});
+        assertEquals(1, table.getSpilledRowCount());
+        assertEquals("no value", ITable.NO_VALUE, table.getValue(0, "COLUMN0"));
+        table.close();
+    }
+
+    public void testMemoryBudget() throws Exception
+    {
+        SpillingTable table = (SpillingTable)createTable();
+        assertEquals(ROW_COUNT - 2, table.getSpilledRowCount());
+        assertTrue(table.getSpillFile().exists());
+
+        table.close();
+        assertFalse(table.getSpillFile().exists());
+    }
+
+    public void testAllRowsInMemory() throws Exception
+    {
+        SpillingTable table = new SpillingTable(createTableMetaData(COLUMN_COUNT));
+        table.addTableRows(super.createTable(COLUMN_COUNT, ROW_COUNT, 0));
+        assertEquals(0, table.getSpilledRowCount());
+        assertNull(table.getSpillFile());
+        assertEquals("row 5 col 3", table.getValue(5, "COLUMN3"));
+    }
+
+    public void testValueTypes() throws Exception
+    {
+        Timestamp timestamp = new Timestamp(1262304000123L);
+        timestamp.setNanos(123456789);
+        Object[] values = new Object[] {
+                null,
+                ITable.NO_VALUE,
+                "\u00e4\u00f6\u00fc text",
+                new Integer(-1),
+                new Long(Long.MAX_VALUE),
+                new Double(1.5),
+                new Float(2.5f),
+                new Short((short)3),
+                new Byte((byte)4),
+                Boolean.TRUE,
+                Boolean.FALSE,
+                new BigDecimal("-1234567890.123456789"),
+                new BigInteger("123456789012345678901234567890"),
+                timestamp,
+                new java.sql.Date(86400000L),
+                new Time(3600000L),
+                new java.util.Date(1000L),
+                new byte[] {0, 1, -1},
+                Arrays.asList(new String[] {"serialized"}),
+        };
+        Column[] columns = new Column[values.length];
+        for (int i = 0; i < columns.length; i++)
+        {
+            columns[i] = new Column("C" + i, DataType.UNKNOWN);
+        }
+        SpillingTable table = new SpillingTable(new DefaultTableMetaData("TYPES", columns), 0, null);
+        table.addRow(values);
+        table.addRow(new Object[0]);
+
+        for (int i = 0; i < values.length; i++)
+        {
+            Object value = table.getValue(0, i);
+            if (values[i] instanceof byte[])
+            {
+                assertTrue(Arrays.equals((byte[])values[i], (byte[])value));
+            }
+            else
+            {
+                assertEquals("column " + i, values[i], value);
+            }
+            if (value != null)
+            {
+                assertEquals(values[i].getClass(), value.getClass());
+            }
+            assertNull(table.getValue(1, i));
+        }
+        assertEquals(123456789, ((Timestamp)table.getValue(0, "C13")).getNanos());
+        table.close();
+    }
+
+    public void testNotSerializableValue() throws Exception
+    {
+        SpillingTable table = new SpillingTable(createTableMetaData(1), 0, null);
+        try
+        {
+            table.addRow(new Object[] {new Object()});
+            fail("Should not be able to write an Object");
+        }
+        catch (DataSetException expected)
+        {
+        }
+        table.close();
+    }
+
+    public void testSortedTableAndAssertion() throws Exception
+    {
+        Column[] columns = new Column[] {
+                new Column("ID", DataType.INTEGER),
+                new Column("NAME", DataType.VARCHAR),
+        };
+        DefaultTable expected = new DefaultTable("T", columns);
+        SpillingTable actual = new SpillingTable(expected.getTableMetaData(), 1000, null, 4096);
+        int rowCount = 5000;
+        for (int i = 0; i < rowCount; i++)
+        {
+            expected.addRow(new Object[] {new Integer(i), "name " + i});
+            int reversed = rowCount - 1 - i;
+            actual.addRow(new Object[] {new Integer(reversed), "name " + reversed});
+        }
+        assertTrue(actual.getSpilledRowCount() > 0);
+        assertTrue(actual.getSpillFile().length() > 4096);
+
+        SortedTable sorted = new SortedTable(actual, new String[] {"ID"});
+        sorted.setUseComparable(true);
+        Assertion.assertEquals(expected, sorted);
+        actual.close();
+    }
+
+    public void testDirectory() throws Exception
+    {
+        File directory = new File(System.getProperty("java.io.tmpdir"));
+        SpillingTable table = new SpillingTable(createTableMetaData(1), 0, directory);
+        table.addRow(new Object[] {"value"});
+        assertEquals(directory.getCanonicalFile(),
+                table.getSpillFile().getParentFile().getCanonicalFile());
+        table.close();
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.dataset;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class SubstringReplacerTest extends TestCase
+{
+    private static String replace(String value, String[] substrings)
+    {
+        Map map = new LinkedHashMap();
+        for (int i = 0; i < substrings.length; i += 2)
+        {
+            map.put(substrings[i], substrings[i + 1]);
+        }
+        return new SubstringReplacer(map).replace(value);
+    }
+
+    /**
+     * Replaces the leftmost longest substrings by trying each of them at each position.
+     */
+    private static String replaceNaive(String value, Map map)
+    {
+        StringBuffer buffer = new StringBuffer();
+        int i = 0;
+        while (i < value.length())
+        {
+            String longest = null;
+            for (Iterator it = map.keySet().iterator(); it.hasNext();)
+            {
+                String original = (String)it.next();
+                if (value.startsWith(original, i)
+                        && (longest == null || original.length() > longest.length()))
+                {
+                    longest = original;
+                }
+            }
+            if (longest == null)
+            {
+                buffer.append(value.charAt(i++));
+            }
+            else
+            {
+                buffer.append(map.get(longest));
+                i += longest.length();
+            }
+        }
+        return buffer.toString();
+    }
+
+    public void testReplace() throws Exception
+    {
+        assertEquals("replacement_replacement", replace("substring_substring",
+                new String[] {"substring", "replacement"}));
+        assertEquals("1 and 2", replace("[A] and [B]",
+                new String[] {"[A]", "1", "[B]", "2"}));
+        assertEquals("abc", replace("abc", new String[] {"", "x"}));
+    }
+
+    public void testNoMatchReturnsSameInstance() throws Exception
+    {
+        String value = "nothing to replace here";
+        assertSame(value, new SubstringReplacer(new HashMap()).replace(value));
+        Map map = new HashMap();
+        map.put("[TOKEN]", "value");
+        assertSame(value, new SubstringReplacer(map).replace(value));
+    }
+
+    public void testLeftmostLongest() throws Exception
+    {
+        assertEquals("u-rs", replace("ushers",
+                new String[] {"he", "x", "she", "-", "hers", "y"}));
+        assertEquals("2d", replace("abcd", new String[] {"ab", "1", "abc", "2"}));
+        assertEquals("1 2", replace("ab cd", new String[] {"ab", "1", "cd", "2", "zzzzzz", "3"}));
+    }
+
+    public void testReplacementNotSearchedAgain() throws Exception
+    {
+        assertEquals("ba", replace("ab", new String[] {"a", "b", "b", "a"}));
+        assertEquals("[A]", replace("[B]", new String[] {"[B]", "[A]", "[A]", "x"}));
+    }
+
+    public void testSameAsNaiveReplacement() throws Exception
+    {
+        Random random = new Random(17);
+        for (int run = 0; run < 200; run++)
+        {
+            Map map = new HashMap();
+            int substringCount = 1 + random.nextInt(6);
+            for (int i = 0; i < substringCount; i++)
+            {
+                map.put(randomString(random, 1 + random.nextInt(4)), "<" + i + ">");
+            }
+            String value = randomString(random, random.nextInt(60));
+            assertEquals(map + " in " + value, replaceNaive(value, map),
+                    new SubstringReplacer(map).replace(value));
+        }
+    }
+
+    private static String randomString(Random random, int length)
+    {
+        StringBuffer buffer = new StringBuffer();
+        for (int i = 0; i < length; i++)
+        {
+            buffer.append("abc\u20ac".charAt(random.nextInt(4)));
+        }
+        return buffer.toString();
+    }
+}
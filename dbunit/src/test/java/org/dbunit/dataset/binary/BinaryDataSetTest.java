@@ -0,0 +1,282 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.dataset.binary;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+
+import org.dbunit.Assertion;
+import org.dbunit.dataset.AbstractDataSetTest;
+import org.dbunit.dataset.CachedDataSet;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.dataset.xml.FlatXmlDataSetBuilder;
+import org.dbunit.dataset.xml.FlatXmlDataSetTest;
+
+/**
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class BinaryDataSetTest extends AbstractDataSetTest
+{
+    private File _file;
+
+    public BinaryDataSetTest(String s)
+    {
+        super(s);
+    }
+
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        _file = File.createTempFile("dbunit", ".dbub");
+        _file.deleteOnExit();
+    }
+
+    protected void tearDown() throws Exception
+    {
+        super.tearDown();
+        _file.delete();
+    }
+
+    private IDataSet convert(IDataSet dataSet) throws Exception
+    {
+        BinaryDataSetWriter.write(dataSet, _file);
+        return new BinaryDataSet(_file);
+    }
+
+    protected IDataSet createDataSet() throws Exception
+    {
+        return convert(new FlatXmlDataSetBuilder().build(FlatXmlDataSetTest.DATASET_FILE));
+    }
+
+    protected IDataSet createDuplicateDataSet() throws Exception
+    {
+        return convert(new FlatXmlDataSetBuilder().build(
+                FlatXmlDataSetTest.DUPLICATE_DATASET_FILE));
+    }
+
+    protected IDataSet createMultipleCaseDuplicateDataSet() throws Exception
+    {
+        return convert(new FlatXmlDataSetBuilder().build(
+                FlatXmlDataSetTest.DUPLICATE_DATASET_MULTIPLE_CASE_FILE));
+    }
+
+    /**
+     * Overridden from parent because the binary format merges the occurrences of the same
+     * table like the flat XML format it is converted from.
+     * @see org.dbunit.dataset.AbstractDataSetTest#testCreateDuplicateDataSet()
+     */
+    public void testCreateDuplicateDataSet() throws Exception
+    {
+        ITable[] tables = createDuplicateDataSet().getTables();
+        assertEquals(2, tables.length);
+        assertEquals("DUPLICATE_TABLE", tables[0].getTableMetaData().getTableName());
+        assertEquals(3, tables[0].getRowCount());
+        assertEquals("EMPTY_TABLE", tables[1].getTableMetaData().getTableName());
+        assertEquals(0, tables[1].getRowCount());
+    }
+
+    /**
+     * Overridden from parent because the binary format merges the occurrences of the same
+     * table like the flat XML format it is converted from.
+     * @see org.dbunit.dataset.AbstractDataSetTest#testCreateMultipleCaseDuplicateDataSet()
+     */
+    public void testCreateMultipleCaseDuplicateDataSet() throws Exception
+    {
+        ITable[] tables = createMultipleCaseDuplicateDataSet().getTables();
+        assertEquals(2, tables.length);
+        assertEquals("DUPLICATE_TABLE", tables[0].getTableMetaData().getTableName());
+        assertEquals(3, tables[0].getRowCount());
+    }
+
+    public void testDuplicateTableBlocks() throws Exception
+    {
+        FileOutputStream out = new FileOutputStream(_file);
+        try
+        {
+            BinaryDataSetWriter writer = new BinaryDataSetWriter(out);
+            DefaultTable table = createTypedTable(5);
+            writer.startDataSet();
+            for (int i = 0; i < 2; i++)
+            {
+                writer.startTable(table.getTableMetaData());
+                writer.row(new Object[] {String.valueOf(i), "1", null, null});
+                writer.endTable();
+            }
+            writer.endDataSet();
+        }
+        finally
+        {
+            out.close();
+        }
+
+        ITable table = new BinaryDataSet(_file).getTable("TYPED");
+        assertEquals(2, table.getRowCount());
+        assertEquals(new Integer(1), table.getValue(1, "ID"));
+    }
+
+    private DefaultTable createTypedTable(int rowCount) throws Exception
+    {
+        DefaultTable table = new DefaultTable("TYPED", new Column[] {
+                new Column("ID", DataType.INTEGER, Column.NO_NULLS),
+                new Column("AMOUNT", DataType.NUMERIC),
+                new Column("CREATED", DataType.TIMESTAMP),
+                new Column("NAME", DataType.UNKNOWN),
+        });
+        for (int i = 0; i < rowCount; i++)
+        {
+            table.addRow(new Object[] {String.valueOf(i), i + ".50", "2010-01-01 10:00:00.0",
+                    i % 3 == 0 ? null : "name " + (i % 10)});
+        }
+        return table;
+    }
+
+    public void testProducer() throws Exception
+    {
+        IDataSet expected = new FlatXmlDataSetBuilder().build(FlatXmlDataSetTest.DATASET_FILE);
+        BinaryDataSetWriter.write(expected, _file, false);
+
+        IDataSet actual = new CachedDataSet(new BinaryProducer(_file));
+        Assertion.assertEquals(expected, actual);
+    }
+
+    public void testProducerFromStream() throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryDataSetWriter writer = new BinaryDataSetWriter(out, true);
+        writer.setRowsPerBlock(7);
+        IDataSet expected = new DefaultDataSet(createTypedTable(50));
+        writer.write(expected);
+
+        IDataSet actual = new CachedDataSet(new BinaryProducer(
+                new ByteArrayInputStream(out.toByteArray())));
+        Assertion.assertEquals(expected, actual);
+        assertEquals(50, actual.getTable("TYPED").getRowCount());
+    }
+
+    public void testTypeCastValues() throws Exception
+    {
+        IDataSet dataSet = convert(new DefaultDataSet(createTypedTable(3)));
+        ITable table = dataSet.getTable("TYPED");
+
+        assertEquals(new Integer(2), table.getValue(2, "ID"));
+        assertEquals(new BigDecimal("2.50"), table.getValue(2, "AMOUNT"));
+        assertEquals(Timestamp.valueOf("2010-01-01 10:00:00.0"), table.getValue(2, "CREATED"));
+        assertEquals("name 2", table.getValue(2, "NAME"));
+        assertNull(table.getValue(0, "NAME"));
+
+        Column[] columns = table.getTableMetaData().getColumns();
+        assertEquals(DataType.INTEGER, columns[0].getDataType());
+        assertEquals(Column.NO_NULLS, columns[0].getNullable());
+        assertEquals(DataType.TIMESTAMP, columns[2].getDataType());
+        assertEquals(DataType.UNKNOWN, columns[3].getDataType());
+    }
+
+    public void testBlocks() throws Exception
+    {
+        DefaultTable expected = createTypedTable(2500);
+
+        BinaryDataSetWriter.write(new DefaultDataSet(expected), _file, false);
+        long plainLength = _file.length();
+        BinaryDataSetWriter.write(new DefaultDataSet(expected), _file, true);
+        assertTrue(_file.length() < plainLength);
+
+        ITable actual = new BinaryDataSet(_file).getTable("TYPED");
+        assertEquals(2500, actual.getRowCount());
+        assertEquals(new Integer(2499), actual.getValue(2499, "ID"));
+        assertEquals(new Integer(0), actual.getValue(0, "ID"));
+        assertEquals(new Integer(1024), actual.getValue(1024, "ID"));
+        assertEquals(new Integer(1023), actual.getValue(1023, "ID"));
+        Assertion.assertEquals(new BinaryDataSet(_file).getTable("TYPED"), actual);
+    }
+
+    public void testEmptyTable() throws Exception
+    {
+        IDataSet dataSet = convert(new DefaultDataSet(createTypedTable(0)));
+        assertEquals(0, dataSet.getTable("TYPED").getRowCount());
+        assertEquals(4, dataSet.getTableMetaData("TYPED").getColumns().length);
+    }
+
+    public void testSerializableValueNotWritten() throws Exception
+    {
+        DefaultTable table = createTypedTable(0);
+        table.addRow(new Object[] {"1", "1.50", null, new StringBuffer("name")});
+        try
+        {
+            convert(new DefaultDataSet(table));
+            fail("Should not serialize a StringBuffer");
+        }
+        catch (DataSetException expected)
+        {
+            assertTrue(expected.getMessage(), expected.getMessage().indexOf("NAME") >= 0);
+        }
+    }
+
+    public void testSerializedValueNotRead() throws Exception
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        ValueCodec.writeValue(out, new StringBuffer("name"), true);
+        out.close();
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        try
+        {
+            ValueCodec.readValue(buffer, false);
+            fail("Should not deserialize a value");
+        }
+        catch (DataSetException expected)
+        {
+        }
+        buffer.rewind();
+        assertEquals("name", ValueCodec.readValue(buffer, true).toString());
+    }
+
+    public void testNoBinaryDataSet() throws Exception
+    {
+        FileOutputStream out = new FileOutputStream(_file);
+        out.write("<dataset/>".getBytes());
+        out.close();
+        try
+        {
+            new BinaryDataSet(_file);
+            fail("Should not read a flat XML file");
+        }
+        catch (DataSetException expected)
+        {
+        }
+    }
+}
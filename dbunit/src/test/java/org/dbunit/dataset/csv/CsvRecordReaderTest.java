@@ -0,0 +1,186 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.dataset.csv;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.LineNumberReader;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.dbunit.testutil.TestUtils;
+
+/**
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class CsvRecordReaderTest extends TestCase
+{
+    public CsvRecordReaderTest(String s)
+    {
+        super(s);
+    }
+
+    private CsvRecordReader createReader(String csv)
+    {
+        return new CsvRecordReader(new StringReader(csv), "test");
+    }
+
+    private void assertRecord(String[] expected, String[] actual)
+    {
+        assertNotNull("Expected a record", actual);
+        assertEquals(Arrays.asList(expected), Arrays.asList(actual));
+    }
+
+    public void testUnquotedFields() throws Exception
+    {
+        CsvRecordReader reader = createReader("A, B ,C\n1,2,3");
+        assertRecord(new String[] {"A", "B ", "C"}, reader.readRecord());
+        assertRecord(new String[] {"1", "2", "3"}, reader.readRecord());
+        assertNull(reader.readRecord());
+        assertNull(reader.readRecord());
+    }
+
+    public void testLineEndings() throws Exception
+    {
+        CsvRecordReader reader = createReader("A,B\r\n1,2\r3,4\n5,6\r\n");
+        assertRecord(new String[] {"A", "B"}, reader.readRecord());
+        assertRecord(new String[] {"1", "2"}, reader.readRecord());
+        assertRecord(new String[] {"3", "4"}, reader.readRecord());
+        assertRecord(new String[] {"5", "6"}, reader.readRecord());
+        assertNull(reader.readRecord());
+        assertEquals(4, reader.getLineNumber());
+    }
+
+    public void testEmptyFields() throws Exception
+    {
+        CsvRecordReader reader = createReader(",a,\n\n   ");
+        assertRecord(new String[] {"", "a", ""}, reader.readRecord());
+        assertRecord(new String[] {""}, reader.readRecord());
+        assertRecord(new String[] {""}, reader.readRecord());
+        assertNull(reader.readRecord());
+    }
+
+    public void testQuotedFields() throws Exception
+    {
+        CsvRecordReader reader = createReader("\" Hello, \",\" world \",\"a\"b,\"x\" ,\"y\"  z");
+        assertRecord(new String[] {" Hello, ", " world ", "ab", "x", "yz"}, reader.readRecord());
+    }
+
+    public void testQuotedFieldWithLineBreaks() throws Exception
+    {
+        CsvRecordReader reader = createReader("\"AA\r\nAAA\",\"BB\nBBB\"\n1,2");
+        assertRecord(new String[] {"AA\nAAA", "BB\nBBB"}, reader.readRecord());
+        assertEquals(3, reader.getLineNumber());
+        assertRecord(new String[] {"1", "2"}, reader.readRecord());
+        assertEquals(4, reader.getLineNumber());
+    }
+
+    public void testEscapedCharacters() throws Exception
+    {
+        CsvRecordReader reader = createReader("a\\\"b,\"c\\\"d\\\\\",\\\"e");
+        assertRecord(new String[] {"a\"b", "c\"d\\", "\"e"}, reader.readRecord());
+    }
+
+    public void testIllegalEscape() throws Exception
+    {
+        CsvRecordReader reader = createReader("a\\b");
+        try
+        {
+            reader.readRecord();
+            fail("Should not accept an escaped 'b'");
+        }
+        catch (CsvParserException expected)
+        {
+            // expected
+        }
+    }
+
+    public void testUnterminatedQuote() throws Exception
+    {
+        CsvRecordReader reader = createReader("AAAAA,\"BB\nCC");
+        try
+        {
+            reader.readRecord();
+            fail("Should not accept an unterminated quote");
+        }
+        catch (CsvParserException expected)
+        {
+            // expected
+        }
+    }
+
+    public void testRecordsSpanningBuffer() throws Exception
+    {
+        StringBuffer csv = new StringBuffer();
+        StringBuffer longValue = new StringBuffer();
+        for (int i = 0; i < 20000; i++)
+        {
+            longValue.append((char)('a' + i % 26));
+            if (i % 100 == 99)
+            {
+                longValue.append('\n');
+            }
+        }
+        for (int i = 0; i < 3; i++)
+        {
+            csv.append(i).append(",\"").append(longValue).append("\"\r\n");
+        }
+
+        CsvRecordReader reader = createReader(csv.toString());
+        for (int i = 0; i < 3; i++)
+        {
+            assertRecord(new String[] {String.valueOf(i), longValue.toString()}, reader.readRecord());
+        }
+        assertNull(reader.readRecord());
+    }
+
+    public void testSameResultAsPipeline() throws Exception
+    {
+        File sample = TestUtils.getFile("csv/sample.csv");
+        LineNumberReader lineReader = new LineNumberReader(new FileReader(sample));
+        CsvParser parser = new CsvParserImpl();
+        try
+        {
+            String line;
+            while ((line = lineReader.readLine()) != null)
+            {
+                if (line.startsWith("#") || line.trim().length() == 0)
+                {
+                    continue;
+                }
+                List expected = parser.parse(line);
+                String[] actual = createReader(line).readRecord();
+                assertEquals("line " + lineReader.getLineNumber(), expected, Arrays.asList(actual));
+            }
+        }
+        finally
+        {
+            lineReader.close();
+        }
+    }
+}
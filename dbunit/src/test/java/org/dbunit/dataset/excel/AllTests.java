@@ -35,6 +35,8 @@ public class AllTests extends TestSuite
     {
         TestSuite suite = new TestSuite();
         suite.addTest(new TestSuite(XlsDataSetTest.class));
+        suite.addTest(new TestSuite(XlsProducerTest.class));
+        suite.addTest(new TestSuite(XlsStreamingWriterTest.class));
         suite.addTest(new TestSuite(XlsTableTest.class));
         suite.addTest(new TestSuite(XlsTableWriteTest.class));
 
@@ -0,0 +1,89 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.dataset.excel;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+
+import org.dbunit.Assertion;
+import org.dbunit.dataset.CachedDataSet;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.testutil.TestUtils;
+
+/**
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class XlsProducerTest extends XlsTableTest
+{
+    public XlsProducerTest(String s)
+    {
+        super(s);
+    }
+
+    protected IDataSet createDataSet() throws Exception
+    {
+        return new CachedDataSet(new XlsProducer(TestUtils.getFile("xml/tableTest.xls")));
+    }
+
+    public void testProduceFromStream() throws Exception
+    {
+        InputStream in = new FileInputStream(TestUtils.getFile("xml/tableTest.xls"));
+        try
+        {
+            IDataSet dataSet = new CachedDataSet(new XlsProducer(in));
+            Assertion.assertEquals(createDataSet(), dataSet);
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    public void testProduceSameAsXlsDataSet() throws Exception
+    {
+        String[] fileNames = {"xml/tableTest.xls", "xml/dataSetTest.xls", "xml/contactor.xls"};
+        for (int i = 0; i < fileNames.length; i++)
+        {
+            File file = TestUtils.getFile(fileNames[i]);
+            IDataSet expected = new XlsDataSet(file);
+            IDataSet actual = new CachedDataSet(new XlsProducer(file));
+
+            String[] tableNames = expected.getTableNames();
+            assertEquals(fileNames[i], tableNames.length, actual.getTableNames().length);
+            for (int j = 0; j < tableNames.length; j++)
+            {
+                ITable expectedTable = expected.getTable(tableNames[j]);
+                ITable actualTable = actual.getTable(tableNames[j]);
+                assertEquals(tableNames[j], expectedTable.getRowCount(), actualTable.getRowCount());
+                if (expectedTable.getTableMetaData().getColumns().length > 0)
+                {
+                    Assertion.assertEquals(expectedTable, actualTable);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.dataset.excel;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+import org.dbunit.Assertion;
+import org.dbunit.dataset.CachedDataSet;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.datatype.DataType;
+
+/**
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class XlsStreamingWriterTest extends XlsTableTest
+{
+    public XlsStreamingWriterTest(String s)
+    {
+        super(s);
+    }
+
+    protected IDataSet createDataSet() throws Exception
+    {
+        return new XlsDataSet(new ByteArrayInputStream(write(super.createDataSet())));
+    }
+
+    private static byte[] write(IDataSet dataSet) throws DataSetException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new XlsStreamingWriter(out).write(dataSet);
+        return out.toByteArray();
+    }
+
+    private static IDataSet createLargeDataSet() throws DataSetException
+    {
+        StringBuffer longText = new StringBuffer();
+        for (int i = 0; i < 10000; i++)
+        {
+            longText.append((char)('a' + i % 26));
+        }
+
+        DefaultTable table = new DefaultTable("LARGE_TABLE", new Column[] {
+                new Column("ID", DataType.UNKNOWN),
+                new Column("NAME", DataType.UNKNOWN),
+                new Column("AMOUNT", DataType.UNKNOWN),
+                new Column("CREATED", DataType.UNKNOWN),
+        });
+        for (int i = 0; i < 3000; i++)
+        {
+            if (i % 100 == 50)
+            {
+                // rows without any value have to survive
+                table.addRow(new Object[4]);
+                continue;
+            }
+            String name = i % 7 == 0 ? "repeated" : "name \u20ac " + i;
+            if (i % 1000 == 999)
+            {
+                name = longText.toString() + (i % 3 == 0 ? "\u20ac" : "");
+            }
+            table.addRow(new Object[] {
+                    String.valueOf(i),
+                    name,
+                    i % 2 == 0 ? null : BigDecimal.valueOf(i * 101L, 2),
+                    new Timestamp(1262304000000L + i * 1000L),
+            });
+        }
+        table.addRow(new Object[4]);
+        return new DefaultDataSet(new ITable[] {table, new DefaultTable("EMPTY")});
+    }
+
+    public void testWriteLargeDataSet() throws Exception
+    {
+        IDataSet dataSet = createLargeDataSet();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new XlsDataSetWriter().write(dataSet, out);
+        IDataSet expected = new XlsDataSet(new ByteArrayInputStream(out.toByteArray()));
+
+        byte[] bytes = write(dataSet);
+        IDataSet actual = new XlsDataSet(new ByteArrayInputStream(bytes));
+        assertEquals(3001, actual.getTable("LARGE_TABLE").getRowCount());
+        Assertion.assertEquals(expected, actual);
+        assertEquals(0, actual.getTable("EMPTY").getRowCount());
+
+        IDataSet produced = new CachedDataSet(new XlsProducer(new ByteArrayInputStream(bytes)));
+        Assertion.assertEquals(expected.getTable("LARGE_TABLE"), produced.getTable("LARGE_TABLE"));
+    }
+
+    public void testWriteTooManyColumns() throws Exception
+    {
+        Column[] columns = new Column[XlsStreamingWriter.MAX_COLUMNS + 1];
+        for (int i = 0; i < columns.length; i++)
+        {
+            columns[i] = new Column("C" + i, DataType.UNKNOWN);
+        }
+        try
+        {
+            write(new DefaultDataSet(new DefaultTable("WIDE", columns)));
+            fail("Should not be able to write " + columns.length + " columns");
+        }
+        catch (DataSetException expected)
+        {
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+package org.dbunit.dataset.stream;
+
+import java.util.concurrent.Executor;
+
+import junit.framework.TestCase;
+
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultTableMetaData;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableIterator;
+import org.dbunit.dataset.RowOutOfBoundsException;
+import org.dbunit.dataset.datatype.DataType;
+
+/**
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class StreamingIteratorTest extends TestCase
+{
+    public StreamingIteratorTest(String s)
+    {
+        super(s);
+    }
+
+    private MockDataSetProducer createProducer(int tableCount, int rowCount)
+    {
+        MockDataSetProducer producer = new MockDataSetProducer();
+        producer.setupTableCount(tableCount);
+        producer.setupColumnCount(2);
+        producer.setupRowCount(rowCount);
+        return producer;
+    }
+
+    public void testChunkedRows() throws Exception
+    {
+        ITableIterator iterator = new StreamingIterator(createProducer(3, 250), 7, 2, null);
+
+        int tableCount = 0;
+        while (iterator.next())
+        {
+            ITable table = iterator.getTable();
+            assertEquals("TABLE" + tableCount, table.getTableMetaData().getTableName());
+            for (int row = 0; row < 250; row++)
+            {
+                assertEquals(row + ",0", table.getValue(row, "COLUMN0"));
+                assertEquals(row + ",1", table.getValue(row, "COLUMN1"));
+            }
+            try
+            {
+                table.getValue(250, "COLUMN0");
+                fail("Should not be able to read beyond the last row");
+            }
+            catch (RowOutOfBoundsException expected)
+            {
+                // expected
+            }
+            tableCount++;
+        }
+        assertEquals(3, tableCount);
+        assertFalse(iterator.next());
+    }
+
+    public void testSkipTables() throws Exception
+    {
+        ITableIterator iterator = new StreamingIterator(createProducer(4, 100), 3, 1, null);
+
+        int tableCount = 0;
+        while (iterator.next())
+        {
+            tableCount++;
+        }
+        assertEquals(4, tableCount);
+    }
+
+    public void testExecutor() throws Exception
+    {
+        final int[] executions = new int[1];
+        Executor executor = new Executor()
+        {
+            public void execute(Runnable command)
+            {
+                executions[0]++;
+                new Thread(command).start();
+            }
+        };
+        StreamingDataSet dataSet = new StreamingDataSet(createProducer(2, 10), 4, 2, executor);
+
+        ITableIterator iterator = dataSet.iterator();
+        assertTrue(iterator.next());
+        assertEquals("0,0", iterator.getTable().getValue(0, "COLUMN0"));
+        assertEquals(1, executions[0]);
+    }
+
+    public void testProducerFailureInTable() throws Exception
+    {
+        final IllegalStateException failure = new IllegalStateException("expected failure");
+        IDataSetProducer producer = new AbstractTestProducer()
+        {
+            public void produce() throws DataSetException
+            {
+                _consumer.startDataSet();
+                _consumer.startTable(createMetaData("FAILING"));
+                _consumer.row(new Object[] {"1"});
+                throw failure;
+            }
+        };
+        ITableIterator iterator = new StreamingIterator(producer, 10, 2, null);
+        assertTrue(iterator.next());
+        assertEquals("1", iterator.getTable().getValue(0, "COLUMN0"));
+        try
+        {
+            iterator.getTable().getValue(1, "COLUMN0");
+            fail("Should have rethrown the producer failure");
+        }
+        catch (DataSetException expected)
+        {
+            assertSame(failure, expected.getCause());
+        }
+        assertFalse(iterator.next());
+    }
+
+    public void testProducerWithoutEndDataSet() throws Exception
+    {
+        IDataSetProducer producer = new AbstractTestProducer()
+        {
+            public void produce() throws DataSetException
+            {
+                _consumer.startDataSet();
+                _consumer.startTable(createMetaData("UNTERMINATED"));
+                _consumer.row(new Object[] {"1"});
+                _consumer.endTable();
+            }
+        };
+        ITableIterator iterator = new StreamingIterator(producer);
+        assertTrue(iterator.next());
+        assertFalse(iterator.next());
+    }
+
+    public void testCancel() throws Exception
+    {
+        final Thread[] producerThread = new Thread[1];
+        Executor executor = new Executor()
+        {
+            public void execute(Runnable command)
+            {
+                producerThread[0] = new Thread(command);
+                producerThread[0].start();
+            }
+        };
+        StreamingIterator iterator = new StreamingIterator(createProducer(1, 10000), 1, 1, executor);
+        assertTrue(iterator.next());
+        assertEquals("0,0", iterator.getTable().getValue(0, "COLUMN0"));
+
+        iterator.cancel();
+
+        producerThread[0].join(10000);
+        assertFalse("Producer should have stopped", producerThread[0].isAlive());
+        assertFalse(iterator.next());
+    }
+
+    private static abstract class AbstractTestProducer implements IDataSetProducer
+    {
+        protected IDataSetConsumer _consumer;
+
+        public void setConsumer(IDataSetConsumer consumer) throws DataSetException
+        {
+            _consumer = consumer;
+        }
+
+        protected DefaultTableMetaData createMetaData(String tableName)
+        {
+            return new DefaultTableMetaData(tableName,
+                    new Column[] {new Column("COLUMN0", DataType.UNKNOWN)});
+        }
+    }
+}
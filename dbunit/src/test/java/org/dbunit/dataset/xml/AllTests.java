@@ -38,6 +38,7 @@ public class AllTests extends TestSuite
         suite.addTest(new TestSuite(FlatDtdWriterTest.class));
         suite.addTest(new TestSuite(FlatXmlDataSetTest.class));
         suite.addTest(new TestSuite(FlatXmlProducerTest.class));
+        suite.addTest(new TestSuite(StaxFlatXmlProducerTest.class));
         suite.addTest(new TestSuite(FlatXmlTableTest.class));
         suite.addTest(new TestSuite(FlatXmlTableWriteTest.class));
         suite.addTest(new TestSuite(FlatXmlWriterTest.class));
@@ -0,0 +1,343 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.dataset.xml;
+
+import java.io.File;
+import java.io.StringReader;
+
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.NoSuchTableException;
+import org.dbunit.dataset.stream.AbstractProducerTest;
+import org.dbunit.dataset.stream.IDataSetProducer;
+import org.dbunit.dataset.stream.MockDataSetConsumer;
+import org.dbunit.testutil.TestUtils;
+import org.xml.sax.InputSource;
+
+/**
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class StaxFlatXmlProducerTest extends AbstractProducerTest
+{
+    private static final File DATASET_FILE =
+            TestUtils.getFile("xml/flatXmlProducerTest.xml");
+
+    private static final String SENSING_CONTENT =
+            "<?xml version=\"1.0\"?>" +
+            "<dataset>" +
+                "<T1 A=\"a0\"/>" +
+                "<T1 A=\"a1\" B=\"b1\"/>" +
+                "<T2 X=\"x0\"/>" +
+                "<T1 C=\"c2\" A=\"a2\"/>" +
+                "<T1 A=\"a3\" B=\"b3\" C=\"c3\"/>" +
+                "<t2 Y=\"y1\"/>" +
+            "</dataset>";
+
+    public StaxFlatXmlProducerTest(String s)
+    {
+        super(s);
+    }
+
+    protected IDataSetProducer createProducer() throws Exception
+    {
+        String uri = DATASET_FILE.getAbsoluteFile().toURL().toString();
+        InputSource source = new InputSource(uri);
+
+        return new StaxFlatXmlProducer(source);
+    }
+
+    public void testProduceEmptyDataSet() throws Exception
+    {
+        // Setup consumer
+        MockDataSetConsumer consumer = new MockDataSetConsumer();
+        consumer.addExpectedStartDataSet();
+        consumer.addExpectedEndDataSet();
+
+        // Setup producer
+        String content =
+                "<?xml version=\"1.0\"?>" +
+                "<dataset/>";
+        InputSource source = new InputSource(new StringReader(content));
+        IDataSetProducer producer = new StaxFlatXmlProducer(source);
+        producer.setConsumer(consumer);
+
+        // Produce and verify consumer
+        producer.produce();
+        consumer.verify();
+    }
+
+    public void testProduceIgnoreDtd() throws Exception
+    {
+        // Setup consumer
+        String tableName = "EMPTY_TABLE";
+        MockDataSetConsumer consumer = new MockDataSetConsumer();
+        consumer.addExpectedStartDataSet();
+        Column[] expectedColumns = new Column[0];
+        consumer.addExpectedEmptyTable(tableName, expectedColumns);
+        consumer.addExpectedEndDataSet();
+
+        // Setup producer
+        String content =
+                "<?xml version=\"1.0\"?>" +
+                "<!DOCTYPE dataset SYSTEM \"uri:/dummy.dtd\">" +
+                "<dataset>" +
+                    "<EMPTY_TABLE/>" +
+                "</dataset>";
+        InputSource source = new InputSource(new StringReader(content));
+        IDataSetProducer producer = new StaxFlatXmlProducer(source, false, false, false);
+        producer.setConsumer(consumer);
+
+        // Produce and verify consumer
+        producer.produce();
+        consumer.verify();
+    }
+
+    public void testProduceMetaDataSet() throws Exception
+    {
+        // Setup consumer
+        String tableName = "EMPTY_TABLE";
+        MockDataSetConsumer consumer = new MockDataSetConsumer();
+        consumer.addExpectedStartDataSet();
+        Column[] expectedColumns = createExpectedColumns(Column.NULLABLE);
+        consumer.addExpectedEmptyTable(tableName, expectedColumns);
+        consumer.addExpectedEndDataSet();
+
+        // Setup producer
+        String content =
+                "<?xml version=\"1.0\"?>" +
+                "<!DOCTYPE dataset SYSTEM \"urn:/dummy.dtd\">" +
+                "<dataset>" +
+                    "<EMPTY_TABLE/>" +
+                "</dataset>";
+        InputSource source = new InputSource(new StringReader(content));
+        DefaultDataSet metaDataSet = new DefaultDataSet();
+        metaDataSet.addTable(new DefaultTable(tableName, expectedColumns));
+        IDataSetProducer producer = new StaxFlatXmlProducer(source, metaDataSet);
+        producer.setConsumer(consumer);
+
+        // Produce and verify consumer
+        producer.produce();
+        consumer.verify();
+    }
+
+    public void testProduceInternalDtd() throws Exception
+    {
+        String content =
+                "<?xml version=\"1.0\"?>" +
+                "<!DOCTYPE dataset [" +
+                    "<!ELEMENT dataset (T)*>" +
+                    "<!ELEMENT T EMPTY>" +
+                    "<!ATTLIST T B CDATA #IMPLIED A CDATA #REQUIRED>" +
+                "]>" +
+                "<dataset>" +
+                    "<T A=\"a0\" X=\"ignored\"/>" +
+                "</dataset>";
+        IDataSet dataSet = new FlatXmlDataSetBuilder().setStax(true).build(new StringReader(content));
+
+        Column[] columns = dataSet.getTableMetaData("T").getColumns();
+        assertEquals(2, columns.length);
+        assertEquals("B", columns[0].getColumnName());
+        assertEquals(Column.NULLABLE, columns[0].getNullable());
+        assertEquals("A", columns[1].getColumnName());
+        assertEquals(Column.NO_NULLS, columns[1].getNullable());
+        assertEquals("a0", dataSet.getTable("T").getValue(0, "A"));
+    }
+
+    public void testProduceNotWellFormedXml() throws Exception
+    {
+        // Setup consumer
+        MockDataSetConsumer consumer = new MockDataSetConsumer();
+        consumer.addExpectedStartDataSet();
+
+        // Setup producer
+        String content =
+                "<?xml version=\"1.0\"?>" +
+                "<dataset>";
+        InputSource source = new InputSource(new StringReader(content));
+        IDataSetProducer producer = new StaxFlatXmlProducer(source);
+        producer.setConsumer(consumer);
+
+        // Produce and verify consumer
+        try
+        {
+            producer.produce();
+            fail("Should not be here!");
+        }
+        catch (DataSetException e)
+        {
+        }
+
+        consumer.verify();
+    }
+
+    public void testProduceNoDataSetRoot() throws Exception
+    {
+        InputSource source = new InputSource(new StringReader("<TEST_TABLE A=\"1\"/>"));
+        try
+        {
+            new StaxFlatXmlProducer(source).produce();
+            fail("Should not be here!");
+        }
+        catch (DataSetException expected)
+        {
+            assertEquals("Line 1: Expected root element 'dataset' but was 'TEST_TABLE'",
+                    expected.getMessage());
+        }
+    }
+
+    public void testColumnSensing() throws Exception
+    {
+        FlatXmlDataSetBuilder builder = new FlatXmlDataSetBuilder().setColumnSensing(true);
+        IDataSet expected = builder.build(new StringReader(SENSING_CONTENT));
+        IDataSet actual = builder.setStax(true).build(new StringReader(SENSING_CONTENT));
+        assertSameDataSet(expected, actual);
+
+        ITable table = actual.getTable("T1");
+        assertEquals(4, table.getRowCount());
+        assertEquals(3, table.getTableMetaData().getColumns().length);
+        assertEquals("c2", table.getValue(2, "C"));
+        assertNull(table.getValue(2, "B"));
+        assertNull(table.getValue(0, "C"));
+        assertEquals(2, actual.getTable("T2").getRowCount());
+    }
+
+    public void testColumnSensingCaseSensitive() throws Exception
+    {
+        FlatXmlDataSetBuilder builder = new FlatXmlDataSetBuilder().setColumnSensing(true)
+                .setCaseSensitiveTableNames(true);
+        IDataSet expected = builder.build(new StringReader(SENSING_CONTENT));
+        IDataSet actual = builder.setStax(true).build(new StringReader(SENSING_CONTENT));
+        assertSameDataSet(expected, actual);
+        assertEquals(3, actual.getTableNames().length);
+    }
+
+    public void testExtraColumnsIgnoredWithoutColumnSensing() throws Exception
+    {
+        FlatXmlDataSetBuilder builder = new FlatXmlDataSetBuilder();
+        IDataSet expected = builder.build(new StringReader(SENSING_CONTENT));
+        IDataSet actual = builder.setStax(true).build(new StringReader(SENSING_CONTENT));
+        assertSameDataSet(expected, actual);
+        assertEquals(1, actual.getTableMetaData("T1").getColumns().length);
+    }
+
+    public void testSameAsSaxProducer() throws Exception
+    {
+        File[] files = new File[] {
+                DATASET_FILE,
+                FlatXmlDataSetTest.DATASET_FILE,
+                FlatXmlDataSetTest.DUPLICATE_DATASET_FILE,
+                FlatXmlDataSetTest.DUPLICATE_DATASET_MULTIPLE_CASE_FILE,
+                TestUtils.getFile("xml/flatXmlDataSetDtdDifferentCaseTest.xml"),
+        };
+        for (int i = 0; i < files.length; i++)
+        {
+            for (int options = 0; options < 8; options++)
+            {
+                FlatXmlDataSetBuilder builder = new FlatXmlDataSetBuilder()
+                        .setDtdMetadata((options & 1) != 0)
+                        .setColumnSensing((options & 2) != 0)
+                        .setCaseSensitiveTableNames((options & 4) != 0);
+                String message = files[i].getName() + " " + builder;
+
+                IDataSet expected;
+                try
+                {
+                    expected = builder.build(files[i]);
+                }
+                catch (DataSetException e)
+                {
+                    try
+                    {
+                        builder.setStax(true).build(files[i]);
+                        fail(message + " should fail with " + e);
+                    }
+                    catch (DataSetException actual)
+                    {
+                        assertEquals(message, e.getClass(), actual.getClass());
+                    }
+                    continue;
+                }
+                assertSameDataSet(message, expected, builder.setStax(true).build(files[i]));
+            }
+        }
+    }
+
+    public void testUnknownTableWithDtd() throws Exception
+    {
+        String content =
+                "<?xml version=\"1.0\"?>" +
+                "<!DOCTYPE dataset [<!ELEMENT dataset ANY>]>" +
+                "<dataset>" +
+                    "<T A=\"a0\"/>" +
+                "</dataset>";
+        try
+        {
+            new FlatXmlDataSetBuilder().setStax(true).build(new StringReader(content));
+            fail("Should not be here!");
+        }
+        catch (NoSuchTableException expected)
+        {
+        }
+    }
+
+    private static void assertSameDataSet(IDataSet expected, IDataSet actual) throws Exception
+    {
+        assertSameDataSet("", expected, actual);
+    }
+
+    private static void assertSameDataSet(String message, IDataSet expected, IDataSet actual)
+            throws Exception
+    {
+        String[] tableNames = expected.getTableNames();
+        assertEquals(message, tableNames.length, actual.getTableNames().length);
+        for (int i = 0; i < tableNames.length; i++)
+        {
+            assertEquals(message, tableNames[i], actual.getTableNames()[i]);
+            ITable expectedTable = expected.getTable(tableNames[i]);
+            ITable actualTable = actual.getTable(tableNames[i]);
+            Column[] columns = expectedTable.getTableMetaData().getColumns();
+            Column[] actualColumns = actualTable.getTableMetaData().getColumns();
+            assertEquals(message, columns.length, actualColumns.length);
+            for (int j = 0; j < columns.length; j++)
+            {
+                assertEquals(message, columns[j], actualColumns[j]);
+            }
+            assertEquals(message, expectedTable.getRowCount(), actualTable.getRowCount());
+            for (int row = 0; row < expectedTable.getRowCount(); row++)
+            {
+                for (int j = 0; j < columns.length; j++)
+                {
+                    assertEquals(message + " " + tableNames[i] + " row " + row,
+                            expectedTable.getValue(row, columns[j].getColumnName()),
+                            actualTable.getValue(row, columns[j].getColumnName()));
+                }
+            }
+        }
+    }
+}
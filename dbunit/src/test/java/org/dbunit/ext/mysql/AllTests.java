@@ -34,6 +34,7 @@ public class AllTests extends TestSuite
     {
         TestSuite suite = new TestSuite();
         suite.addTest(new TestSuite(MySqlDataTypeFactoryTest.class));
+        suite.addTest(new TestSuite(MySqlLoadDataBulkLoaderTest.class));
         return suite;
     }
 }
@@ -0,0 +1,88 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.ext.mysql;
+
+import java.sql.Connection;
+
+import junit.framework.TestCase;
+
+import org.dbunit.HypersonicEnvironment;
+import org.dbunit.database.MockDatabaseConnection;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.datatype.DataType;
+
+/**
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class MySqlLoadDataBulkLoaderTest extends TestCase
+{
+    private static final Column[] COLUMNS = new Column[] {
+        new Column("ID", DataType.NUMERIC),
+        new Column("NAME", DataType.VARCHAR),
+        new Column("ACTIVE", DataType.BOOLEAN),
+        new Column("DATA", DataType.BINARY)
+    };
+
+    public MySqlLoadDataBulkLoaderTest(String s)
+    {
+        super(s);
+    }
+
+    public void testFormatRow() throws Exception
+    {
+        StringBuffer data = new StringBuffer();
+        MySqlLoadDataBulkLoader loader = new MySqlLoadDataBulkLoader();
+        loader.formatRow(COLUMNS, new Object[] {"1", "a\tb\\c\u0000d", "true", new byte[] {0, 65, (byte)255}}, data);
+        loader.formatRow(COLUMNS, new Object[] {"2", null, Boolean.FALSE, null}, data);
+
+        assertEquals("1\ta\\tb\\\\c\\0d\t1\t0041ff\n"
+                + "2\t\\N\t0\t\\N\n", data.toString());
+    }
+
+    public void testGetSql() throws Exception
+    {
+        MockDatabaseConnection connection = new MockDatabaseConnection();
+        String sql = new MySqlLoadDataBulkLoader().getSql("TEST", COLUMNS, connection);
+        assertEquals("LOAD DATA LOCAL INFILE 'dbunit.txt' INTO TABLE TEST CHARACTER SET utf8"
+                + " FIELDS TERMINATED BY '\\t' ESCAPED BY '\\\\' LINES TERMINATED BY '\\n'"
+                + " (ID, NAME, ACTIVE, @dbunit3) SET DATA = UNHEX(@dbunit3)", sql);
+    }
+
+    public void testIsSupportedWithoutMySqlStatement() throws Exception
+    {
+        Connection jdbcConnection = HypersonicEnvironment.createJdbcConnection("mem:loaddatadb");
+        try
+        {
+            MockDatabaseConnection connection = new MockDatabaseConnection();
+            connection.setupConnection(jdbcConnection);
+            assertFalse(new MySqlLoadDataBulkLoader().isSupported(connection, null));
+        }
+        finally
+        {
+            HypersonicEnvironment.shutdown(jdbcConnection);
+            jdbcConnection.close();
+        }
+    }
+}
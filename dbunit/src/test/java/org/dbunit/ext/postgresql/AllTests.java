@@ -33,7 +33,8 @@ public class AllTests extends TestSuite
     public static Test suite()
     {
         TestSuite suite = new TestSuite();
-        suite.addTest(new TestSuite(PostgresqlDataTypeFactoryTest.class));
+        suite.addTest(new TestSuite(PostgresqlDataTypeFactoryTest.class));
+        suite.addTest(new TestSuite(PostgresqlCopyBulkLoaderTest.class));
         suite.addTest(new TestSuite(SQLHelperDomainPostgreSQLIT.class));
         return suite;
     }
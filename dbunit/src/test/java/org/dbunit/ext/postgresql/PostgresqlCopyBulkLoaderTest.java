@@ -0,0 +1,87 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.ext.postgresql;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+
+import junit.framework.TestCase;
+
+import org.dbunit.HypersonicEnvironment;
+import org.dbunit.database.MockDatabaseConnection;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.datatype.DataType;
+
+/**
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class PostgresqlCopyBulkLoaderTest extends TestCase
+{
+    private static final Column[] COLUMNS = new Column[] {
+        new Column("ID", DataType.NUMERIC),
+        new Column("NAME", DataType.VARCHAR),
+        new Column("ACTIVE", DataType.BOOLEAN),
+        new Column("DATA", DataType.BINARY)
+    };
+
+    public PostgresqlCopyBulkLoaderTest(String s)
+    {
+        super(s);
+    }
+
+    public void testFormatRow() throws Exception
+    {
+        StringBuffer data = new StringBuffer();
+        PostgresqlCopyBulkLoader loader = new PostgresqlCopyBulkLoader();
+        loader.formatRow(COLUMNS, new Object[] {"1.50", "a\tb\\c\nd", "true", new byte[] {0, 65, (byte)255}}, data);
+        loader.formatRow(COLUMNS, new Object[] {new BigDecimal("2"), null, Boolean.FALSE, null}, data);
+
+        assertEquals("1.50\ta\\tb\\\\c\\nd\tt\t\\\\000\\\\101\\\\377\n"
+                + "2\t\\N\tf\t\\N\n", data.toString());
+    }
+
+    public void testGetSql() throws Exception
+    {
+        MockDatabaseConnection connection = new MockDatabaseConnection();
+        String sql = new PostgresqlCopyBulkLoader().getSql("SCHEMA.TEST", COLUMNS, connection);
+        assertEquals("COPY SCHEMA.TEST (ID, NAME, ACTIVE, DATA) FROM STDIN", sql);
+    }
+
+    public void testIsSupportedWithoutPgConnection() throws Exception
+    {
+        Connection jdbcConnection = HypersonicEnvironment.createJdbcConnection("mem:copydb");
+        try
+        {
+            MockDatabaseConnection connection = new MockDatabaseConnection();
+            connection.setupConnection(jdbcConnection);
+            assertFalse(new PostgresqlCopyBulkLoader().isSupported(connection, null));
+        }
+        finally
+        {
+            HypersonicEnvironment.shutdown(jdbcConnection);
+            jdbcConnection.close();
+        }
+    }
+}
@@ -36,12 +36,17 @@ public class AllTests extends TestSuite
         TestSuite suite = new TestSuite();
 
         suite.addTest(new TestSuite(AbstractBatchOperationIT.class));
+        suite.addTest(new TestSuite(BatchRefreshOperationIT.class));
+        suite.addTest(new TestSuite(BulkInsertOperationTest.class));
         suite.addTest(new TestSuite(CloseConnectionOperationIT.class));
         suite.addTest(new TestSuite(CompositeOperationIT.class));
         suite.addTest(new TestSuite(DeleteAllOperationIT.class));
         suite.addTest(new TestSuite(DeleteOperationIT.class));
         suite.addTest(new TestSuite(InsertOperationIT.class));
+        suite.addTest(new TestSuite(ParallelOperationTest.class));
         suite.addTest(new TestSuite(RefreshOperationIT.class));
+        suite.addTest(new TestSuite(SyncOperationTest.class));
+        suite.addTest(new TestSuite(OperationMetricsCollectorTest.class));
         suite.addTest(new TestSuite(TransactionOperationIT.class));
         suite.addTest(new TestSuite(TruncateTableOperationIT.class));
         suite.addTest(new TestSuite(UpdateOperationIT.class));
@@ -0,0 +1,252 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2004, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+package org.dbunit.operation;
+
+import java.io.Reader;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.dbunit.AbstractDatabaseIT;
+import org.dbunit.Assertion;
+import org.dbunit.database.DatabaseConfig;
+import org.dbunit.database.DatabaseConnection;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.ForwardOnlyDataSet;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.LowerCaseDataSet;
+import org.dbunit.dataset.NoPrimaryKeyException;
+import org.dbunit.dataset.SortedTable;
+import org.dbunit.dataset.xml.FlatXmlDataSetBuilder;
+import org.dbunit.testutil.TestUtils;
+
+/**
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class BatchRefreshOperationIT extends AbstractDatabaseIT
+{
+    public BatchRefreshOperationIT(String s)
+    {
+        super(s);
+    }
+
+    protected void tearDown() throws Exception
+    {
+        _connection.getConfig().setProperty(
+                DatabaseConfig.PROPERTY_REFRESH_PROBE_SIZE, new Integer(500));
+        super.tearDown();
+    }
+
+    public void testExecute() throws Exception
+    {
+        Reader reader = TestUtils.getFileReader("xml/refreshOperationTest.xml");
+        IDataSet dataSet = new FlatXmlDataSetBuilder().build(reader);
+
+        testExecute(dataSet);
+    }
+
+    public void testExecuteCaseInsensitive() throws Exception
+    {
+        Reader reader = TestUtils.getFileReader("xml/refreshOperationTest.xml");
+        IDataSet dataSet = new FlatXmlDataSetBuilder().build(reader);
+
+        testExecute(new LowerCaseDataSet(dataSet));
+    }
+
+    public void testExecuteForwardOnly() throws Exception
+    {
+        Reader reader = TestUtils.getFileReader("xml/refreshOperationTest.xml");
+        IDataSet dataSet = new FlatXmlDataSetBuilder().build(reader);
+
+        testExecute(new ForwardOnlyDataSet(dataSet));
+    }
+
+    public void testExecuteWithSmallProbeSize() throws Exception
+    {
+        _connection.getConfig().setProperty(
+                DatabaseConfig.PROPERTY_REFRESH_PROBE_SIZE, new Integer(2));
+
+        Reader reader = TestUtils.getFileReader("xml/refreshOperationTest.xml");
+        IDataSet dataSet = new FlatXmlDataSetBuilder().build(reader);
+
+        testExecute(dataSet);
+    }
+
+    private void testExecute(IDataSet dataSet) throws Exception
+    {
+        String[] tableNames = {"PK_TABLE", "ONLY_PK_TABLE"};
+        int[] tableRowCount = {3, 1};
+        String primaryKey = "PK0";
+
+        // verify table before
+        for (int i = 0; i < tableNames.length; i++)
+        {
+            ITable tableBefore = createOrderedTable(tableNames[i], primaryKey);
+            assertEquals("row count before", tableRowCount[i], tableBefore.getRowCount());
+        }
+
+        DatabaseOperation.BATCH_REFRESH.execute(_connection, dataSet);
+
+        // verify table after
+        IDataSet expectedDataSet = new FlatXmlDataSetBuilder().build(
+                TestUtils.getFileReader("xml/refreshOperationTestExpected.xml"));
+
+        for (int i = 0; i < tableNames.length; i++)
+        {
+            ITable expectedTable = expectedDataSet.getTable(tableNames[i]);
+            ITable tableAfter = createOrderedTable(tableNames[i], primaryKey);
+            Assertion.assertEquals(expectedTable, tableAfter);
+        }
+    }
+
+    public void testExecuteWithDecimalKey() throws Exception
+    {
+        testExecuteWithKey("DECIMAL(10,2)", "1.00", "1");
+    }
+
+    public void testExecuteWithCharKey() throws Exception
+    {
+        testExecuteWithKey("CHAR(5)", "'A'", "A");
+    }
+
+    /**
+     * Updates a row whose key is written differently in the dataset than it
+     * is read from the database.
+     */
+    private void testExecuteWithKey(String keyType, String databaseKey,
+            String dataSetKey) throws Exception
+    {
+        String tableName = "REFRESH_KEY_TABLE";
+        execute("CREATE TABLE " + tableName + " (PK0 " + keyType
+                + " NOT NULL, COL0 VARCHAR(20), PRIMARY KEY (PK0))");
+        try
+        {
+            execute("INSERT INTO " + tableName + " VALUES (" + databaseKey + ", 'before')");
+
+            // A connection of its own, the table names of _connection are cached
+            IDatabaseConnection connection = new DatabaseConnection(
+                    _connection.getConnection(), _connection.getSchema());
+            connection.getConfig().setProperty(DatabaseConfig.PROPERTY_DATATYPE_FACTORY,
+                    _connection.getConfig().getProperty(DatabaseConfig.PROPERTY_DATATYPE_FACTORY));
+
+            DefaultTable table = new DefaultTable(
+                    connection.createDataSet().getTableMetaData(tableName));
+            table.addRow(new Object[] {dataSetKey, "after"});
+            DatabaseOperation.BATCH_REFRESH.execute(connection, new DefaultDataSet(table));
+
+            ITable tableAfter = connection.createTable(tableName);
+            assertEquals("row count after", 1, tableAfter.getRowCount());
+            assertEquals("after", tableAfter.getValue(0, "COL0"));
+        }
+        finally
+        {
+            execute("DROP TABLE " + tableName);
+        }
+    }
+
+    /**
+     * Rows repeating a key are applied in dataset order like with the
+     * RefreshOperation, whether the key exists or not.
+     */
+    public void testExecuteWithRepeatedKey() throws Exception
+    {
+        String tableName = "REFRESH_KEY_TABLE";
+        execute("CREATE TABLE " + tableName
+                + " (PK0 INTEGER NOT NULL, COL0 VARCHAR(20), PRIMARY KEY (PK0))");
+        try
+        {
+            execute("INSERT INTO " + tableName + " VALUES (1, 'before')");
+
+            // A connection of its own, the table names of _connection are cached
+            IDatabaseConnection connection = new DatabaseConnection(
+                    _connection.getConnection(), _connection.getSchema());
+            connection.getConfig().setProperty(DatabaseConfig.PROPERTY_DATATYPE_FACTORY,
+                    _connection.getConfig().getProperty(DatabaseConfig.PROPERTY_DATATYPE_FACTORY));
+
+            DefaultTable table = new DefaultTable(
+                    connection.createDataSet().getTableMetaData(tableName));
+            table.addRow(new Object[] {"2", "first"});
+            table.addRow(new Object[] {"1", "updated"});
+            table.addRow(new Object[] {"2", "second"});
+            table.addRow(new Object[] {"1", "updated again"});
+            table.addRow(new Object[] {"2", "third"});
+            DatabaseOperation.BATCH_REFRESH.execute(connection, new DefaultDataSet(table));
+
+            ITable tableAfter = new SortedTable(connection.createTable(tableName));
+            assertEquals("row count after", 2, tableAfter.getRowCount());
+            assertEquals("updated again", tableAfter.getValue(0, "COL0"));
+            assertEquals("third", tableAfter.getValue(1, "COL0"));
+        }
+        finally
+        {
+            execute("DROP TABLE " + tableName);
+        }
+    }
+
+    private void execute(String sql) throws SQLException
+    {
+        Statement statement = _connection.getConnection().createStatement();
+        try
+        {
+            statement.execute(sql);
+        }
+        finally
+        {
+            statement.close();
+        }
+    }
+
+    public void testExecuteAndNoPrimaryKeys() throws Exception
+    {
+        String tableName = "TEST_TABLE";
+
+        Reader reader = TestUtils.getFileReader("xml/refreshOperationNoPKTest.xml");
+        IDataSet dataSet = new FlatXmlDataSetBuilder().build(reader);
+
+        assertEquals("row count before", 6, _connection.getRowCount(tableName));
+
+        try
+        {
+            DatabaseOperation.BATCH_REFRESH.execute(_connection, dataSet);
+            fail("Should not be here!");
+        }
+        catch (NoPrimaryKeyException e)
+        {
+
+        }
+
+        assertEquals("row count after", 6, _connection.getRowCount(tableName));
+    }
+
+    public void testGetProbeSql() throws Exception
+    {
+        BatchRefreshOperation operation = new BatchRefreshOperation();
+        String sql = operation.getProbeSql(_connection,
+                _connection.createDataSet().getTableMetaData("ONLY_PK_TABLE"), 3);
+        assertTrue(sql, sql.startsWith("select PK0 from "));
+        assertTrue(sql, sql.endsWith("ONLY_PK_TABLE where PK0 in (?, ?, ?)"));
+    }
+}
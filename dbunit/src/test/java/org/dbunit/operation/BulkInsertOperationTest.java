@@ -0,0 +1,219 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.operation;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.dbunit.DatabaseUnitException;
+import org.dbunit.H2Environment;
+import org.dbunit.HypersonicEnvironment;
+import org.dbunit.database.DatabaseConfig;
+import org.dbunit.database.DatabaseConnection;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.database.MockDatabaseConnection;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.datatype.DataType;
+
+/**
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class BulkInsertOperationTest extends TestCase
+{
+    private static final String DDL = "CREATE TABLE TEST_TABLE (ID INTEGER NOT NULL PRIMARY KEY,"
+            + " NAME VARCHAR(20) DEFAULT 'default', AMOUNT DECIMAL(10,2))";
+
+    private static final Column[] COLUMNS = new Column[] {
+        new Column("ID", DataType.INTEGER),
+        new Column("NAME", DataType.VARCHAR),
+        new Column("AMOUNT", DataType.DECIMAL)
+    };
+
+    public BulkInsertOperationTest(String s)
+    {
+        super(s);
+    }
+
+    private DefaultTable createTable() throws Exception
+    {
+        DefaultTable table = new DefaultTable("TEST_TABLE", COLUMNS);
+        table.addRow(new Object[] {"1", "one", "1.50"});
+        table.addRow(new Object[] {"2", "two", null});
+        table.addRow(new Object[] {"3", "three", "3"});
+        table.addRow(new Object[] {"4", ITable.NO_VALUE, "4"});
+        table.addRow(new Object[] {"5", ITable.NO_VALUE, "5"});
+        return table;
+    }
+
+    private void assertTable(IDatabaseConnection connection) throws Exception
+    {
+        ITable actual = connection.createQueryTable("TEST_TABLE",
+                "SELECT ID, NAME, AMOUNT FROM TEST_TABLE ORDER BY ID");
+        assertEquals("row count", 5, actual.getRowCount());
+        assertEquals("one", actual.getValue(0, "NAME"));
+        assertEquals(0, new BigDecimal("1.50").compareTo((BigDecimal)actual.getValue(0, "AMOUNT")));
+        assertNull(actual.getValue(1, "AMOUNT"));
+        assertEquals("three", actual.getValue(2, "NAME"));
+        assertEquals("default", actual.getValue(3, "NAME"));
+        assertEquals("default", actual.getValue(4, "NAME"));
+    }
+
+    public void testExecuteWithMultiRowInsert() throws Exception
+    {
+        Connection jdbcConnection = H2Environment.createJdbcConnection("bulkdb");
+        try
+        {
+            H2Environment.executeSql(jdbcConnection, DDL);
+            IDatabaseConnection connection = new DatabaseConnection(jdbcConnection);
+            MultiRowInsertBulkLoader loader = new MultiRowInsertBulkLoader(2, 100);
+            connection.getConfig().setProperty(DatabaseConfig.PROPERTY_BULK_LOADER, loader);
+
+            ITableMetaData metaData = connection.createDataSet().getTableMetaData("TEST_TABLE");
+            assertTrue("supported", loader.isSupported(connection, metaData));
+
+            DatabaseOperation.BULK_INSERT.execute(connection, new DefaultDataSet(createTable()));
+            assertTable(connection);
+        }
+        finally
+        {
+            // closing the last connection drops the in-memory database
+            jdbcConnection.close();
+        }
+    }
+
+    public void testExecuteFallbackToInsert() throws Exception
+    {
+        Connection jdbcConnection = HypersonicEnvironment.createJdbcConnection("mem:bulkdb");
+        try
+        {
+            HypersonicEnvironment.executeSql(jdbcConnection, DDL);
+            IDatabaseConnection connection = new DatabaseConnection(jdbcConnection);
+            MultiRowInsertBulkLoader loader = new MultiRowInsertBulkLoader();
+            connection.getConfig().setProperty(DatabaseConfig.PROPERTY_BULK_LOADER, loader);
+
+            // HSQLDB 1.8 does not support multi row VALUES
+            ITableMetaData metaData = connection.createDataSet().getTableMetaData("TEST_TABLE");
+            assertFalse("supported", loader.isSupported(connection, metaData));
+
+            DatabaseOperation.BULK_INSERT.execute(connection, new DefaultDataSet(createTable()));
+            assertTable(connection);
+        }
+        finally
+        {
+            HypersonicEnvironment.shutdown(jdbcConnection);
+            jdbcConnection.close();
+        }
+    }
+
+    public void testExecuteWithoutLoader() throws Exception
+    {
+        Connection jdbcConnection = HypersonicEnvironment.createJdbcConnection("mem:bulkdb");
+        try
+        {
+            HypersonicEnvironment.executeSql(jdbcConnection, DDL);
+            IDatabaseConnection connection = new DatabaseConnection(jdbcConnection);
+
+            DatabaseOperation.BULK_INSERT.execute(connection, new DefaultDataSet(createTable()));
+            assertTable(connection);
+        }
+        finally
+        {
+            HypersonicEnvironment.shutdown(jdbcConnection);
+            jdbcConnection.close();
+        }
+    }
+
+    public void testLoadSplitsChunks() throws Exception
+    {
+        RecordingBulkLoader loader = new RecordingBulkLoader(2);
+        int rowCount = loader.load(new MockDatabaseConnection(),
+                createTable().getTableMetaData(), createTable());
+
+        assertEquals("row count", 5, rowCount);
+        // chunk size limit after 2 rows, column change before row 4
+        assertEquals("[ID,NAME,AMOUNT:2, ID,NAME,AMOUNT:1, ID,AMOUNT:2]",
+                loader.chunks.toString());
+    }
+
+    public void testLoadEmptyValue() throws Exception
+    {
+        DefaultTable table = new DefaultTable("TEST_TABLE", COLUMNS);
+        table.addRow(new Object[] {"1", "", "1"});
+        try
+        {
+            new RecordingBulkLoader(2).load(new MockDatabaseConnection(),
+                    table.getTableMetaData(), table);
+            fail("Should not be able to load an empty value");
+        }
+        catch (IllegalArgumentException expected)
+        {
+            assertEquals("table.column=TEST_TABLE.NAME value is empty but must contain a value",
+                    expected.getMessage());
+        }
+    }
+
+    public void testMultiRowInsertSql() throws Exception
+    {
+        MultiRowInsertBulkLoader loader = new MultiRowInsertBulkLoader();
+        String sql = loader.getSql("TEST_TABLE", COLUMNS, 2, new MockDatabaseConnection());
+        assertEquals("insert into TEST_TABLE (ID, NAME, AMOUNT) values (?, ?, ?), (?, ?, ?)",
+                sql);
+    }
+
+    private static class RecordingBulkLoader extends AbstractBulkLoader
+    {
+        private final List chunks = new ArrayList();
+
+        public RecordingBulkLoader(int chunkSize)
+        {
+            super(chunkSize);
+        }
+
+        public boolean isSupported(IDatabaseConnection connection, ITableMetaData metaData)
+        {
+            return true;
+        }
+
+        protected void loadChunk(IDatabaseConnection connection, String qualifiedTableName,
+                Column[] columns, List rows) throws DatabaseUnitException
+        {
+            StringBuffer sb = new StringBuffer();
+            for (int j = 0; j < columns.length; j++)
+            {
+                sb.append(j > 0 ? "," : "").append(columns[j].getColumnName());
+            }
+            sb.append(':').append(rows.size());
+            chunks.add(sb.toString());
+        }
+    }
+}
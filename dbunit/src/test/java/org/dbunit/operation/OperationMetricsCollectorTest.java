@@ -0,0 +1,254 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.operation;
+
+import java.io.StringReader;
+import java.sql.Connection;
+import java.util.Iterator;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.dbunit.HypersonicEnvironment;
+import org.dbunit.database.DatabaseConfig;
+import org.dbunit.database.DatabaseConnection;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.database.statement.AdaptiveStatementFactory;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.datatype.TypeCastException;
+import org.dbunit.dataset.xml.FlatXmlDataSetBuilder;
+import org.dbunit.operation.OperationMetricsCollector.Histogram;
+
+/**
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class OperationMetricsCollectorTest extends TestCase
+{
+    private static final String DATABASE = "mem:metricsdb";
+
+    private static final String DATASET = "<dataset>"
+            + "<ITEM ID='1' NAME='one'/><ITEM ID='2' NAME='two'/><ITEM ID='3' NAME='three'/>"
+            + "</dataset>";
+
+    private Connection _jdbcConnection;
+    private IDatabaseConnection _connection;
+    private OperationMetricsCollector _collector;
+
+    public OperationMetricsCollectorTest(String s)
+    {
+        super(s);
+    }
+
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+
+        _jdbcConnection = HypersonicEnvironment.createJdbcConnection(DATABASE);
+        HypersonicEnvironment.executeSql(_jdbcConnection,
+                "CREATE TABLE ITEM (ID INTEGER NOT NULL, NAME VARCHAR(20), PRIMARY KEY (ID))");
+        _connection = new DatabaseConnection(_jdbcConnection);
+        _collector = new OperationMetricsCollector();
+        _connection.getConfig().setProperty(DatabaseConfig.PROPERTY_OPERATION_METRICS, _collector);
+    }
+
+    protected void tearDown() throws Exception
+    {
+        super.tearDown();
+
+        HypersonicEnvironment.shutdown(_jdbcConnection);
+        _jdbcConnection.close();
+    }
+
+    private IDataSet createDataSet(String xml) throws Exception
+    {
+        return new FlatXmlDataSetBuilder().build(new StringReader(xml));
+    }
+
+    private Histogram getHistogram(Map histograms, String key)
+    {
+        Histogram histogram = (Histogram)histograms.get(key);
+        assertNotNull(key + " in " + histograms.keySet(), histogram);
+        return histogram;
+    }
+
+    private long getBatchRowCount()
+    {
+        long rowCount = 0;
+        Map batches = _collector.getBatchHistograms();
+        for (Iterator i = batches.values().iterator(); i.hasNext();)
+        {
+            rowCount += ((Histogram)i.next()).getRowCount();
+        }
+        return rowCount;
+    }
+
+    public void testHistogram() throws Exception
+    {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getPercentileNanos(50));
+        assertEquals(0, histogram.getMinNanos());
+
+        for (int i = 1; i <= 100; i++)
+        {
+            histogram.record(2, i * 1000);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(200, histogram.getRowCount());
+        assertEquals(5050000, histogram.getTotalNanos());
+        assertEquals(1000, histogram.getMinNanos());
+        assertEquals(100000, histogram.getMaxNanos());
+        assertEquals(50500, histogram.getMeanNanos());
+
+        // the percentiles are upper bounds of power of two buckets
+        long median = histogram.getPercentileNanos(50);
+        assertTrue("median " + median, median >= 50000 && median < 100000);
+        assertEquals(100000, histogram.getPercentileNanos(100));
+        assertEquals(1023, histogram.getPercentileNanos(0));
+    }
+
+    public void testHistogramWithExtremeValues() throws Exception
+    {
+        Histogram histogram = new Histogram();
+        histogram.record(0, 0);
+        histogram.record(0, -5);
+        histogram.record(0, Long.MAX_VALUE);
+        assertEquals(0, histogram.getMinNanos());
+        assertEquals(0, histogram.getPercentileNanos(50));
+        assertEquals(Long.MAX_VALUE, histogram.getPercentileNanos(100));
+
+        try
+        {
+            histogram.getPercentileNanos(101);
+            fail("Should not be able to get percentile above 100");
+        }
+        catch (IllegalArgumentException expected)
+        {
+        }
+    }
+
+    public void testGetOperationName() throws Exception
+    {
+        assertEquals("Insert", OperationMetricsCollector.getOperationName(DatabaseOperation.INSERT));
+        assertEquals("DeleteAll", OperationMetricsCollector.getOperationName(DatabaseOperation.DELETE_ALL));
+        assertEquals("Composite", OperationMetricsCollector.getOperationName(DatabaseOperation.CLEAN_INSERT));
+    }
+
+    public void testCleanInsert() throws Exception
+    {
+        DatabaseOperation.CLEAN_INSERT.execute(_connection, createDataSet(DATASET));
+
+        Map tables = _collector.getTableHistograms();
+        assertEquals(2, tables.size());
+        assertEquals(0, getHistogram(tables, "DeleteAll ITEM").getRowCount());
+        assertEquals(3, getHistogram(tables, "Insert ITEM").getRowCount());
+        assertEquals(1, getHistogram(tables, "Insert ITEM").getCount());
+
+        // looked up by both operations
+        assertEquals(2, getHistogram(_collector.getMetaDataHistograms(), "ITEM").getCount());
+        assertEquals(1, _collector.getStatementHistograms().size());
+        // delete statement and the inserted rows
+        assertEquals(3, getBatchRowCount());
+        assertEquals(2, _collector.getBatchHistograms().size());
+
+        DatabaseOperation.DELETE_ALL.execute(_connection, createDataSet(DATASET));
+        assertEquals(3, getHistogram(_collector.getTableHistograms(), "DeleteAll ITEM").getRowCount());
+    }
+
+    public void testBatchedInsert() throws Exception
+    {
+        _connection.getConfig().setProperty(DatabaseConfig.FEATURE_BATCHED_STATEMENTS, Boolean.TRUE);
+        _connection.getConfig().setProperty(DatabaseConfig.PROPERTY_BATCH_SIZE, new Integer(2));
+
+        DatabaseOperation.INSERT.execute(_connection, createDataSet(DATASET));
+
+        Map batches = _collector.getBatchHistograms();
+        assertEquals(1, batches.size());
+        Histogram histogram = (Histogram)batches.values().iterator().next();
+        assertEquals(2, histogram.getCount());
+        assertEquals(3, histogram.getRowCount());
+    }
+
+    public void testAdaptiveStatementFactory() throws Exception
+    {
+        _connection.getConfig().setProperty(DatabaseConfig.FEATURE_BATCHED_STATEMENTS, Boolean.TRUE);
+        _connection.getConfig().setProperty(DatabaseConfig.PROPERTY_STATEMENT_FACTORY,
+                new AdaptiveStatementFactory());
+
+        DatabaseOperation.INSERT.execute(_connection, createDataSet(DATASET));
+        assertEquals(3, getBatchRowCount());
+
+        _collector.reset();
+        _connection.getConfig().setProperty(DatabaseConfig.FEATURE_BATCHED_STATEMENTS, Boolean.FALSE);
+        DatabaseOperation.UPDATE.execute(_connection, createDataSet(DATASET));
+        Histogram histogram = (Histogram)_collector.getBatchHistograms().values().iterator().next();
+        assertEquals(3, histogram.getCount());
+        assertEquals(3, histogram.getRowCount());
+    }
+
+    public void testRefresh() throws Exception
+    {
+        HypersonicEnvironment.executeSql(_jdbcConnection, "INSERT INTO ITEM VALUES (1, 'old')");
+
+        DatabaseOperation.REFRESH.execute(_connection, createDataSet(DATASET));
+
+        Histogram table = getHistogram(_collector.getTableHistograms(), "Refresh ITEM");
+        assertEquals(3, table.getRowCount());
+        // three updates of which two failed and two inserts
+        assertEquals(5, getBatchRowCount());
+        assertEquals(2, _collector.getStatementHistograms().size());
+    }
+
+    public void testTypeCastFailure() throws Exception
+    {
+        try
+        {
+            DatabaseOperation.INSERT.execute(_connection,
+                    createDataSet("<dataset><ITEM ID='x' NAME='one'/></dataset>"));
+            fail("Should not be able to insert a non numeric id");
+        }
+        catch (TypeCastException expected)
+        {
+        }
+
+        assertEquals(new Integer(1), _collector.getTypeCastFailures().get("ITEM.ID"));
+        assertTrue(_collector.getTableHistograms().isEmpty());
+    }
+
+    public void testReport() throws Exception
+    {
+        assertEquals("", _collector.getReport());
+
+        DatabaseOperation.CLEAN_INSERT.execute(_connection, createDataSet(DATASET));
+        String report = _collector.getReport();
+        assertTrue(report, report.indexOf("Tables (") >= 0);
+        assertTrue(report, report.indexOf("Insert ITEM") >= 0);
+        assertTrue(report, report.indexOf("Metadata lookups (") >= 0);
+        assertTrue(report, report.indexOf("Statement preparations (") >= 0);
+        assertTrue(report, report.indexOf("Batches (") >= 0);
+
+        _collector.reset();
+        assertEquals("", _collector.getReport());
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.operation;
+
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import junit.framework.TestCase;
+
+import org.dbunit.HypersonicEnvironment;
+import org.dbunit.database.DatabaseConnection;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.xml.FlatXmlDataSetBuilder;
+import org.dbunit.testutil.HypersonicDataSource;
+import org.dbunit.testutil.TestUtils;
+
+/**
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class ParallelOperationTest extends TestCase
+{
+    private static final String DATABASE = "mem:paralleldb";
+
+    /**
+     * Rows of the tables created by hypersonic_fk.sql, children before their parents
+     */
+    private static final String DATASET = "<dataset>"
+            + "<B PKB='1' FKC='1' FKE='1' FKH='1'/><B PKB='2' FKC='2' FKE='1' FKH='1'/>"
+            + "<C PKC='1' FKA='1' FKF='1'/><C PKC='2' FKA='2' FKF='1'/>"
+            + "<E PKE='1' FKA='1' FKG='1'/>"
+            + "<A PKA='1' FKD='1'/><A PKA='2' FKD='1'/>"
+            + "<F PKF='1' FKD='1'/>"
+            + "<D PKD='1'/>"
+            + "<G PKG='1'/>"
+            + "<H PKH='1'/>"
+            + "</dataset>";
+
+    private Connection _jdbcConnection;
+    private IDatabaseConnection _connection;
+
+    public ParallelOperationTest(String s)
+    {
+        super(s);
+    }
+
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+
+        _jdbcConnection = HypersonicEnvironment.createJdbcConnection(DATABASE);
+        HypersonicEnvironment.executeDdlFile(TestUtils.getFile("sql/hypersonic_fk.sql"),
+                _jdbcConnection);
+        _connection = new DatabaseConnection(_jdbcConnection);
+    }
+
+    protected void tearDown() throws Exception
+    {
+        super.tearDown();
+
+        HypersonicEnvironment.shutdown(_jdbcConnection);
+        _jdbcConnection.close();
+    }
+
+    private IDataSet createDataSet() throws Exception
+    {
+        return new FlatXmlDataSetBuilder().build(new StringReader(DATASET));
+    }
+
+    private DataSource createDataSource()
+    {
+        return new HypersonicDataSource(DATABASE).getDataSource();
+    }
+
+    private void assertRowCounts(int expectedRowCount) throws Exception
+    {
+        String[] tableNames = {"A", "B", "C", "D", "E", "F", "G", "H"};
+        int[] rowCounts = {2, 2, 2, 1, 1, 1, 1, 1};
+        for (int i = 0; i < tableNames.length; i++)
+        {
+            assertEquals(tableNames[i], expectedRowCount * rowCounts[i],
+                    _connection.getRowCount(tableNames[i]));
+        }
+    }
+
+    public void testInsert() throws Exception
+    {
+        ParallelOperation operation = new ParallelOperation(
+                DatabaseOperation.INSERT, createDataSource(), 3);
+        operation.execute(_connection, createDataSet());
+
+        assertRowCounts(1);
+        Map timings = operation.getTimings();
+        assertEquals(8, timings.size());
+        assertTrue(timings.keySet().containsAll(
+                Arrays.asList(new String[] {"A", "B", "C", "D", "E", "F", "G", "H"})));
+    }
+
+    public void testCleanInsert() throws Exception
+    {
+        ParallelOperation operation = new ParallelOperation(
+                DatabaseOperation.CLEAN_INSERT, createDataSource(), 4);
+        operation.execute(_connection, createDataSet());
+        operation.execute(_connection, createDataSet());
+
+        assertRowCounts(1);
+    }
+
+    public void testDeleteAll() throws Exception
+    {
+        new ParallelOperation(DatabaseOperation.INSERT, createDataSource(), 2)
+                .execute(_connection, createDataSet());
+        new ParallelOperation(DatabaseOperation.DELETE_ALL, createDataSource(), 2)
+                .execute(_connection, createDataSet());
+
+        assertRowCounts(0);
+    }
+
+    public void testSingleThread() throws Exception
+    {
+        ParallelOperation operation = new ParallelOperation(
+                DatabaseOperation.INSERT, createDataSource(), 1);
+        operation.execute(_connection, createDataSet());
+
+        assertRowCounts(1);
+        assertEquals(8, operation.getTimings().size());
+    }
+
+    public void testWithoutDataSource() throws Exception
+    {
+        // The sequential fallback executes the operation in dataset order
+        IDataSet dataSet = new FlatXmlDataSetBuilder().build(new StringReader(
+                "<dataset><D PKD='1'/><A PKA='1' FKD='1'/></dataset>"));
+        ParallelOperation operation = new ParallelOperation(
+                DatabaseOperation.INSERT, null, 4);
+        operation.execute(_connection, dataSet);
+
+        assertEquals(1, _connection.getRowCount("A"));
+        assertEquals(1, _connection.getRowCount("D"));
+        assertEquals(0, operation.getTimings().size());
+    }
+
+    public void testFailure() throws Exception
+    {
+        ParallelOperation operation = new ParallelOperation(
+                DatabaseOperation.INSERT, createDataSource(), 3);
+        operation.execute(_connection, createDataSet());
+        try
+        {
+            operation.execute(_connection, createDataSet());
+            fail("Should not be able to insert duplicate primary keys");
+        }
+        catch (Exception expected)
+        {
+        }
+
+        assertRowCounts(1);
+    }
+
+    public void testLowerCaseTableNames() throws Exception
+    {
+        ParallelOperation operation = new ParallelOperation(
+                DatabaseOperation.INSERT, createDataSource(), 3);
+        operation.execute(_connection, new FlatXmlDataSetBuilder().build(
+                new StringReader(DATASET.toLowerCase())));
+
+        assertRowCounts(1);
+        assertEquals(8, operation.getTimings().size());
+    }
+
+    public void testCyclicTables() throws Exception
+    {
+        Statement statement = _jdbcConnection.createStatement();
+        try
+        {
+            statement.execute("CREATE TABLE X (PKX INTEGER NOT NULL PRIMARY KEY, FKY INTEGER)");
+            statement.execute("CREATE TABLE Y (PKY INTEGER NOT NULL PRIMARY KEY, FKX INTEGER,"
+                    + " FOREIGN KEY (FKX) REFERENCES X (PKX))");
+            statement.execute("ALTER TABLE X ADD CONSTRAINT X_FK FOREIGN KEY (FKY) REFERENCES Y (PKY)");
+        }
+        finally
+        {
+            statement.close();
+        }
+
+        // The sequential fallback executes the operation in dataset order
+        IDataSet dataSet = new FlatXmlDataSetBuilder().build(new StringReader(
+                "<dataset><X PKX='1'/><Y PKY='1' FKX='1'/><D PKD='1'/></dataset>"));
+        ParallelOperation operation = new ParallelOperation(
+                DatabaseOperation.INSERT, createDataSource(), 3);
+        operation.execute(_connection, dataSet);
+
+        assertEquals(1, _connection.getRowCount("X"));
+        assertEquals(1, _connection.getRowCount("Y"));
+        assertEquals(0, operation.getTimings().size());
+    }
+
+    public void testInvalidThreadCount() throws Exception
+    {
+        try
+        {
+            new ParallelOperation(DatabaseOperation.INSERT, null, 0);
+            fail("Should not accept thread count 0");
+        }
+        catch (IllegalArgumentException expected)
+        {
+        }
+    }
+}
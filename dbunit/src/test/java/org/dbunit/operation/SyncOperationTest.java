@@ -0,0 +1,292 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.operation;
+
+import java.io.StringReader;
+import java.sql.Connection;
+
+import junit.framework.TestCase;
+
+import org.dbunit.Assertion;
+import org.dbunit.HypersonicEnvironment;
+import org.dbunit.database.DatabaseConfig;
+import org.dbunit.database.DatabaseConnection;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.SortedTable;
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.dataset.stream.StreamingDataSet;
+import org.dbunit.dataset.xml.FlatXmlDataSetBuilder;
+import org.dbunit.dataset.xml.FlatXmlProducer;
+import org.xml.sax.InputSource;
+
+/**
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class SyncOperationTest extends TestCase
+{
+    private static final String DATABASE = "mem:syncdb";
+
+    private static final String DATASET = "<dataset>"
+            + "<PARENT ID='1' NAME='one'/><PARENT ID='2' NAME='two'/><PARENT ID='3'/>"
+            + "<CHILD ID='10' PARENT_ID='1' VAL='10'/><CHILD ID='11' PARENT_ID='1' VAL='11'/>"
+            + "<CHILD ID='20' PARENT_ID='2' VAL='20'/>"
+            + "<NOKEY VAL='1'/><NOKEY VAL='2'/>"
+            + "</dataset>";
+
+    private Connection _jdbcConnection;
+    private IDatabaseConnection _connection;
+
+    public SyncOperationTest(String s)
+    {
+        super(s);
+    }
+
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+
+        _jdbcConnection = HypersonicEnvironment.createJdbcConnection(DATABASE);
+        HypersonicEnvironment.executeSql(_jdbcConnection,
+                "CREATE TABLE PARENT (ID INTEGER NOT NULL, NAME VARCHAR(20), PRIMARY KEY (ID))");
+        HypersonicEnvironment.executeSql(_jdbcConnection,
+                "CREATE TABLE CHILD (ID INTEGER NOT NULL, PARENT_ID INTEGER, VAL INTEGER,"
+                + " PRIMARY KEY (ID), FOREIGN KEY (PARENT_ID) REFERENCES PARENT (ID))");
+        HypersonicEnvironment.executeSql(_jdbcConnection,
+                "CREATE TABLE NOKEY (VAL INTEGER)");
+        _connection = new DatabaseConnection(_jdbcConnection);
+    }
+
+    protected void tearDown() throws Exception
+    {
+        super.tearDown();
+
+        HypersonicEnvironment.shutdown(_jdbcConnection);
+        _jdbcConnection.close();
+    }
+
+    private IDataSet createDataSet(String xml) throws Exception
+    {
+        return new FlatXmlDataSetBuilder().setColumnSensing(true).build(new StringReader(xml));
+    }
+
+    private void execute(String sql) throws Exception
+    {
+        HypersonicEnvironment.executeSql(_jdbcConnection, sql);
+    }
+
+    private void assertDatabaseEquals(IDataSet expectedDataSet) throws Exception
+    {
+        String[] tableNames = expectedDataSet.getTableNames();
+        for (int i = 0; i < tableNames.length; i++)
+        {
+            ITable expected = expectedDataSet.getTable(tableNames[i]);
+            ITable actual = _connection.createTable(tableNames[i]);
+            String[] columns = {"VAL"};
+            if (!tableNames[i].equals("NOKEY"))
+            {
+                columns = new String[] {"ID"};
+            }
+            Assertion.assertEquals(new SortedTable(expected, columns),
+                    new SortedTable(actual, expected.getTableMetaData()));
+        }
+    }
+
+    private void assertDelta(SyncOperation.Delta delta, int deleted, int updated,
+            int inserted, int unchanged)
+    {
+        assertEquals("deleted", deleted, delta.getDeletedRowCount());
+        assertEquals("updated", updated, delta.getUpdatedRowCount());
+        assertEquals("inserted", inserted, delta.getInsertedRowCount());
+        assertEquals("unchanged", unchanged, delta.getUnchangedRowCount());
+        assertEquals("size", deleted + updated + inserted, delta.getSize());
+    }
+
+    public void testSyncEmptyDatabase() throws Exception
+    {
+        IDataSet dataSet = createDataSet(DATASET);
+        SyncOperation.Delta delta = new SyncOperation().synchronize(_connection, dataSet);
+
+        assertDelta(delta, 0, 0, 8, 0);
+        assertDatabaseEquals(dataSet);
+    }
+
+    public void testSyncUnchanged() throws Exception
+    {
+        IDataSet dataSet = createDataSet(DATASET);
+        DatabaseOperation.CLEAN_INSERT.execute(_connection, dataSet);
+        SyncOperation.Delta delta = new SyncOperation().synchronize(_connection, dataSet);
+
+        // the table without primary key is always replaced
+        assertDelta(delta, 2, 0, 2, 6);
+        assertDatabaseEquals(dataSet);
+    }
+
+    public void testSyncChanges() throws Exception
+    {
+        IDataSet dataSet = createDataSet(DATASET);
+        DatabaseOperation.CLEAN_INSERT.execute(_connection, dataSet);
+        execute("UPDATE PARENT SET NAME='changed' WHERE ID=2");
+        execute("UPDATE PARENT SET NAME='set' WHERE ID=3");
+        execute("INSERT INTO PARENT VALUES (4, 'four')");
+        execute("INSERT INTO CHILD VALUES (40, 4, 40)");
+        execute("DELETE FROM CHILD WHERE ID=11");
+        execute("UPDATE CHILD SET PARENT_ID=2 WHERE ID=10");
+
+        SyncOperation.Delta delta = new SyncOperation().synchronize(_connection,
+                createDataSet(DATASET));
+
+        assertDelta(delta, 2 + 2, 3, 1 + 2, 2);
+        assertDatabaseEquals(dataSet);
+    }
+
+    public void testSyncDifferentDataSet() throws Exception
+    {
+        DatabaseOperation.CLEAN_INSERT.execute(_connection, createDataSet(DATASET));
+        IDataSet dataSet = createDataSet("<dataset>"
+                + "<PARENT ID='2' NAME='two'/><PARENT ID='5' NAME='five'/>"
+                + "<CHILD ID='50' PARENT_ID='5' VAL='50'/>"
+                + "</dataset>");
+        SyncOperation.Delta delta = new SyncOperation().synchronize(_connection, dataSet);
+
+        assertDelta(delta, 2 + 3, 0, 2, 1);
+        assertDatabaseEquals(dataSet);
+        // tables missing in the dataset are not affected
+        assertEquals(2, _connection.getRowCount("NOKEY"));
+    }
+
+    public void testSyncEmptyTable() throws Exception
+    {
+        DatabaseOperation.CLEAN_INSERT.execute(_connection, createDataSet(DATASET));
+        SyncOperation.Delta delta = new SyncOperation().synchronize(_connection,
+                createDataSet("<dataset><CHILD/><NOKEY/></dataset>"));
+
+        assertDelta(delta, 3 + 2, 0, 0, 0);
+        assertEquals(0, _connection.getRowCount("CHILD"));
+        assertEquals(0, _connection.getRowCount("NOKEY"));
+        assertEquals(3, _connection.getRowCount("PARENT"));
+    }
+
+    public void testSyncDuplicateTables() throws Exception
+    {
+        // a streamed dataset returns the table twice
+        IDataSet dataSet = new StreamingDataSet(new FlatXmlProducer(new InputSource(
+                new StringReader("<dataset><PARENT ID='1' NAME='one'/><NOKEY/>"
+                        + "<PARENT ID='2' NAME='two'/></dataset>"))));
+        DatabaseOperation.INSERT.execute(_connection,
+                createDataSet("<dataset><PARENT ID='1' NAME='old'/><PARENT ID='3'/></dataset>"));
+        SyncOperation.Delta delta = new SyncOperation().synchronize(_connection, dataSet);
+
+        assertDelta(delta, 1, 1, 1, 0);
+        assertEquals(0, _connection.getRowCount("NOKEY"));
+        assertDatabaseEquals(createDataSet(
+                "<dataset><PARENT ID='1' NAME='one'/><PARENT ID='2' NAME='two'/></dataset>"));
+    }
+
+    public void testSyncCaseSensitiveTableNames() throws Exception
+    {
+        execute("CREATE TABLE \"lower\" (ID INTEGER NOT NULL, PRIMARY KEY (ID))");
+        execute("CREATE TABLE LOWER (ID INTEGER NOT NULL, PRIMARY KEY (ID))");
+        _connection.getConfig().setProperty(DatabaseConfig.FEATURE_CASE_SENSITIVE_TABLE_NAMES,
+                Boolean.TRUE);
+        _connection.getConfig().setProperty(DatabaseConfig.PROPERTY_ESCAPE_PATTERN, "\"?\"");
+        IDataSet dataSet = new StreamingDataSet(new FlatXmlProducer(new InputSource(
+                new StringReader("<dataset><lower ID='1'/><LOWER ID='2'/></dataset>")), false,
+                false, true));
+        SyncOperation.Delta delta = new SyncOperation().synchronize(_connection, dataSet);
+
+        assertDelta(delta, 0, 0, 2, 0);
+        assertEquals(new Integer(1), _connection.createQueryTable("lower",
+                "SELECT ID FROM \"lower\"").getValue(0, "ID"));
+        assertEquals(new Integer(2), _connection.createQueryTable("LOWER",
+                "SELECT ID FROM LOWER").getValue(0, "ID"));
+    }
+
+    public void testSyncDuplicateKey() throws Exception
+    {
+        DatabaseOperation.CLEAN_INSERT.execute(_connection, createDataSet(DATASET));
+        try
+        {
+            new SyncOperation().synchronize(_connection, createDataSet("<dataset>"
+                    + "<PARENT ID='1' NAME='one'/><PARENT ID='1' NAME='two'/></dataset>"));
+            fail("Should not synchronize two rows with the same key");
+        }
+        catch (DataSetException expected)
+        {
+            assertTrue(expected.getMessage(), expected.getMessage().indexOf("PARENT") >= 0);
+        }
+        // nothing has been changed
+        assertEquals(3, _connection.getRowCount("PARENT"));
+    }
+
+    public void testSyncKeepsColumnsMissingInDataSet() throws Exception
+    {
+        DatabaseOperation.CLEAN_INSERT.execute(_connection, createDataSet(DATASET));
+        execute("UPDATE CHILD SET VAL=99 WHERE ID=10");
+        SyncOperation.Delta delta = new SyncOperation().synchronize(_connection, createDataSet(
+                "<dataset><CHILD ID='10' PARENT_ID='2'/></dataset>"));
+
+        // unlike CLEAN_INSERT the value of VAL is not reset
+        assertDelta(delta, 2, 1, 0, 0);
+        assertEquals(new Integer(99), _connection.createTable("CHILD").getValue(0, "VAL"));
+    }
+
+    public void testSyncKeepsColumnsWithoutValueInChangedRow() throws Exception
+    {
+        DatabaseOperation.CLEAN_INSERT.execute(_connection, createDataSet(DATASET));
+        execute("UPDATE CHILD SET VAL=99 WHERE ID=11");
+        DefaultTable child = new DefaultTable("CHILD", new Column[] {
+                new Column("ID", DataType.UNKNOWN),
+                new Column("PARENT_ID", DataType.UNKNOWN),
+                new Column("VAL", DataType.UNKNOWN)});
+        child.addRow(new Object[] {"10", "2", "10"});
+        // VAL has no value in this row
+        child.addRow(new Object[] {"11", "2", ITable.NO_VALUE});
+        child.addRow(new Object[] {"20", "2", "20"});
+        SyncOperation.Delta delta = new SyncOperation().synchronize(_connection,
+                new DefaultDataSet(child));
+
+        assertDelta(delta, 0, 2, 0, 1);
+        ITable table = new SortedTable(_connection.createTable("CHILD"), new String[] {"ID"});
+        assertEquals(new Integer(2), table.getValue(0, "PARENT_ID"));
+        assertEquals(new Integer(10), table.getValue(0, "VAL"));
+        assertEquals(new Integer(2), table.getValue(1, "PARENT_ID"));
+        assertEquals(new Integer(99), table.getValue(1, "VAL"));
+    }
+
+    public void testDatabaseOperationSync() throws Exception
+    {
+        IDataSet dataSet = createDataSet(DATASET);
+        DatabaseOperation.SYNC.execute(_connection, dataSet);
+        DatabaseOperation.SYNC.execute(_connection, dataSet);
+
+        assertDatabaseEquals(dataSet);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.testutil;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import javax.sql.DataSource;
+
+import org.dbunit.HypersonicEnvironment;
+
+/**
+ * A {@link DataSource} opening a new connection to a HSQLDB database for every
+ * <code>getConnection</code> call, for tests of operations using worker connections.
+ * It is a proxy so that it compiles against the <code>DataSource</code> of every JDK.
+ * 
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class HypersonicDataSource implements InvocationHandler
+{
+    private final String _databaseName;
+    private int _openedConnections = 0;
+
+    /**
+     * @param databaseName The database name as passed to
+     * {@link HypersonicEnvironment#createJdbcConnection(String)}
+     */
+    public HypersonicDataSource(String databaseName)
+    {
+        _databaseName = databaseName;
+    }
+
+    public DataSource getDataSource()
+    {
+        return (DataSource)Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[] {DataSource.class}, this);
+    }
+
+    /**
+     * @return The number of connections opened so far
+     */
+    public synchronized int getOpenedConnections()
+    {
+        return _openedConnections;
+    }
+
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+    {
+        if (method.getName().equals("getConnection"))
+        {
+            synchronized (this)
+            {
+                _openedConnections++;
+            }
+            return HypersonicEnvironment.createJdbcConnection(_databaseName);
+        }
+        throw new UnsupportedOperationException(method.getName());
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.util.fileloader;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.dbunit.Assertion;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.dataset.xml.FlatXmlDataSetBuilder;
+
+/**
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class DataSetCacheTest extends TestCase {
+    private static final String FILENAME = "/xml/flatXmlDataSetTest.xml";
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void setUp() throws Exception {
+        DataSetCache.getInstance().clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void tearDown() throws Exception {
+        DataSetCache.getInstance().clear();
+    }
+
+    private static ITable createTable(String name, int rowCount) throws Exception {
+        DefaultTable table = new DefaultTable(name, new Column[] {
+                new Column("ID", DataType.UNKNOWN),
+                new Column("NAME", DataType.UNKNOWN)});
+        for (int i = 0; i < rowCount; i++) {
+            table.addRow(new Object[] {String.valueOf(i), "name " + i});
+        }
+        return table;
+    }
+
+    private static AbstractDataFileLoader cached(AbstractDataFileLoader loader) {
+        loader.setUseCache(true);
+        return loader;
+    }
+
+    public void testLoaderSharesParsedDataSet() throws Exception {
+        DataSetCache cache = DataSetCache.getInstance();
+        IDataSet expected = new FlatXmlDataSetBuilder().build(
+                getClass().getResource(FILENAME));
+
+        IDataSet first = cached(new FlatXmlDataFileLoader()).load(FILENAME);
+        IDataSet second = cached(new FlatXmlDataFileLoader()).load(FILENAME);
+
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+        Assertion.assertEquals(expected, first);
+        Assertion.assertEquals(expected, second);
+    }
+
+    public void testReplacementPerLoad() throws Exception {
+        Map substrings = new HashMap();
+        substrings.put("row 0", "first row");
+        IDataSet replaced =
+                cached(new FlatXmlDataFileLoader(new HashMap(), substrings)).load(FILENAME);
+        IDataSet plain = cached(new FlatXmlDataFileLoader()).load(FILENAME);
+
+        assertEquals(1, DataSetCache.getInstance().size());
+        assertEquals("first row col 0",
+                replaced.getTable("TEST_TABLE").getValue(0, "COLUMN0"));
+        assertEquals("row 0 col 0",
+                plain.getTable("TEST_TABLE").getValue(0, "COLUMN0"));
+    }
+
+    public void testLoaderOptionsAreKeys() throws Exception {
+        cached(new FlatXmlDataFileLoader(
+                new FlatXmlDataSetBuilder().setColumnSensing(true))).load(FILENAME);
+        cached(new FlatXmlDataFileLoader()).load(FILENAME);
+        cached(new CsvDataFileLoader()).load("/csv/orders/orders_row.csv");
+
+        assertEquals(3, DataSetCache.getInstance().size());
+    }
+
+    public void testCacheDisabledByDefault() throws Exception {
+        FlatXmlDataFileLoader loader = new FlatXmlDataFileLoader();
+        assertFalse(loader.isUseCache());
+        loader.load(FILENAME);
+
+        assertEquals(0, DataSetCache.getInstance().size());
+        assertEquals(0, DataSetCache.getInstance().getMissCount());
+    }
+
+    public void testCustomLoaderNotCached() throws Exception {
+        AbstractDataFileLoader loader = cached(new AbstractDataFileLoader() {
+            protected IDataSet loadDataSet(URL url) throws DataSetException,
+                    IOException {
+                return new FlatXmlDataSetBuilder().build(url);
+            }
+        });
+        loader.load(FILENAME);
+
+        assertNull(loader.getCacheOptions());
+        assertEquals(0, DataSetCache.getInstance().size());
+    }
+
+    public void testMetaDataSetNotCached() throws Exception {
+        FlatXmlDataFileLoader loader = new FlatXmlDataFileLoader(
+                new FlatXmlDataSetBuilder().setMetaDataSet(new DefaultDataSet()));
+        assertNull(loader.getCacheOptions());
+    }
+
+    public void testViewsAreNotShared() throws Exception {
+        DataSetCache cache = new DataSetCache(100);
+        IDataSet first = cache.put("key", new DefaultDataSet(createTable("T", 3)));
+        IDataSet second = cache.get("key");
+
+        assertNotSame(first, second);
+        assertNotSame(first.getTable("T"), second.getTable("T"));
+        assertFalse(first.getTable("T") instanceof DefaultTable);
+        Assertion.assertEquals(first, second);
+    }
+
+    public void testLeastRecentlyUsedEvicted() throws Exception {
+        DataSetCache cache = new DataSetCache(20);
+        cache.put("a", new DefaultDataSet(createTable("A", 4)));
+        cache.put("b", new DefaultDataSet(createTable("B", 4)));
+        assertNotNull(cache.get("a"));
+        cache.put("c", new DefaultDataSet(createTable("C", 4)));
+
+        assertEquals(2, cache.size());
+        assertEquals(16, cache.getCellCount());
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+
+        cache.setMaximumCellCount(8);
+        assertEquals(1, cache.size());
+        assertNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+    }
+
+    public void testLargeDataSetNotCached() throws Exception {
+        DataSetCache cache = new DataSetCache(10);
+        IDataSet dataSet = new DefaultDataSet(createTable("A", 6));
+
+        assertSame(dataSet, cache.put("a", dataSet));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getCellCount());
+    }
+
+    public void testKeyChangesWithFile() throws Exception {
+        File file = File.createTempFile("dataSetCacheTest", ".xml");
+        try {
+            URL url = file.toURI().toURL();
+            file.setLastModified(1000000000000L);
+            String key = DataSetCache.createKey(url, "options");
+
+            OutputStream out = new FileOutputStream(file);
+            out.write("<dataset/>".getBytes());
+            out.close();
+            file.setLastModified(1000000060000L);
+
+            assertFalse(key.equals(DataSetCache.createKey(url, "options")));
+            assertFalse(key.equals(DataSetCache.createKey(url, "other")));
+        } finally {
+            file.delete();
+        }
+    }
+}
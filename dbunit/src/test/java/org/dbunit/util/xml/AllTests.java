@@ -34,6 +34,7 @@ public class AllTests extends TestSuite
     public static Test suite()
     {
         TestSuite suite = new TestSuite();
+        suite.addTest(new TestSuite(BackgroundFlushWriterTest.class));
         suite.addTest(new TestSuite(XmlWriterTest.class));
         return suite;
     }
@@ -0,0 +1,133 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2008, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+
+
+package org.dbunit.util.xml;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import junit.framework.TestCase;
+
+/**
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.5.1
+ */
+public class BackgroundFlushWriterTest extends TestCase
+{
+    public void testWrite() throws Exception
+    {
+        StringWriter out = new StringWriter();
+        BackgroundFlushWriter writer = new BackgroundFlushWriter(out, 16, 2);
+        StringBuffer expected = new StringBuffer();
+        for (int i = 0; i < 1000; i++)
+        {
+            String text = "line " + i + "\n";
+            expected.append(text).append('x');
+            writer.write(text);
+            writer.write('x');
+        }
+        char[] chars = new char[100];
+        for (int i = 0; i < chars.length; i++)
+        {
+            chars[i] = (char)('a' + i % 26);
+        }
+        writer.write(chars, 10, 80);
+        expected.append(chars, 10, 80);
+
+        writer.flush();
+        assertEquals(expected.toString(), out.toString());
+        writer.finish();
+        assertEquals(expected.toString(), out.toString());
+    }
+
+    public void testFinishDoesNotCloseWriter() throws Exception
+    {
+        CloseCountingWriter out = new CloseCountingWriter();
+        BackgroundFlushWriter writer = new BackgroundFlushWriter(out);
+        writer.write("text");
+        writer.finish();
+        assertEquals(0, out.closeCount);
+        assertEquals("text", out.toString());
+        try
+        {
+            writer.write("more");
+            fail("Should not write after finish");
+        }
+        catch (IOException expected)
+        {
+        }
+        writer.close();
+        assertEquals(1, out.closeCount);
+    }
+
+    public void testError() throws Exception
+    {
+        Writer out = new Writer()
+        {
+            public void write(char[] chars, int offset, int length) throws IOException
+            {
+                throw new IOException("disk full");
+            }
+
+            public void flush()
+            {
+            }
+
+            public void close()
+            {
+            }
+        };
+        BackgroundFlushWriter writer = new BackgroundFlushWriter(out, 4, 2);
+        writer.write("0123456789");
+        try
+        {
+            writer.flush();
+            fail("Should throw the error of the underlying writer");
+        }
+        catch (IOException expected)
+        {
+            assertEquals("disk full", expected.getMessage());
+        }
+        try
+        {
+            writer.close();
+            fail("Should throw the error of the underlying writer");
+        }
+        catch (IOException expected)
+        {
+            assertEquals("disk full", expected.getMessage());
+        }
+    }
+
+    private static class CloseCountingWriter extends StringWriter
+    {
+        int closeCount;
+
+        public void close() throws IOException
+        {
+            closeCount++;
+            super.close();
+        }
+    }
+}
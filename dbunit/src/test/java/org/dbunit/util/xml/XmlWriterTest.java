@@ -21,6 +21,7 @@
 package org.dbunit.util.xml;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
 
@@ -166,4 +167,154 @@ public class XmlWriterTest extends TestCase
 		assertEquals(expectedXml, actualXml);
 	}
 	
+	public void testEscapeAllCharacters() throws Exception
+	{
+		StringBuffer textBuilder = new StringBuffer();
+		for (int c = 0; c <= 0xffff; c++)
+		{
+			textBuilder.append((char)c);
+		}
+		String text = textBuilder.toString();
+
+		for (int i = 0; i < 2; i++)
+		{
+			boolean literally = i == 1;
+			String expectedText = escapeXml(text, literally);
+			String expectedXml = "<COLUMN1 ATTR=\"" + expectedText + "\">" + expectedText + "</COLUMN1>\n";
+
+			Writer writer = new StringWriter();
+			XmlWriter xmlWriter = new XmlWriter(writer);
+			xmlWriter.writeElement("COLUMN1");
+			xmlWriter.writeAttribute("ATTR", text, literally);
+			xmlWriter.writeText(text, literally);
+			xmlWriter.endElement();
+			xmlWriter.close();
+			assertEquals(expectedXml, writer.toString());
+		}
+	}
+
+	public void testAttributeAfterChildElement() throws Exception
+	{
+		Writer writer = new StringWriter();
+		XmlWriter xmlWriter = new XmlWriter(writer);
+		xmlWriter.enablePrettyPrint(false);
+		xmlWriter.writeElement("a");
+		xmlWriter.writeEmptyElement("b");
+		xmlWriter.writeAttribute("x", "<1>");
+		xmlWriter.writeEmptyElement("c");
+		xmlWriter.endElement();
+		xmlWriter.close();
+		assertEquals("<a><b/><c x=\"&lt;1&gt;\"/></a>", writer.toString());
+	}
+
+	public void testCloseWithOpenElement() throws Exception
+	{
+		Writer writer = new StringWriter();
+		XmlWriter xmlWriter = new XmlWriter(writer);
+		xmlWriter.writeElement("a");
+		xmlWriter.writeElement("b");
+		try
+		{
+			xmlWriter.close();
+			fail("Should not be able to close with open elements");
+		}
+		catch (IOException expected)
+		{
+			assertEquals("Tags are not all closed. Possibly, b is unclosed. ", expected.getMessage());
+		}
+		assertEquals("<a>\n  <b", writer.toString());
+	}
+
+	public void testFlush() throws Exception
+	{
+		Writer writer = new StringWriter();
+		XmlWriter xmlWriter = new XmlWriter(writer);
+		xmlWriter.writeElement("a");
+		assertEquals("", writer.toString());
+		xmlWriter.flush();
+		assertEquals("<a", writer.toString());
+	}
+
+	public void testBackgroundFlush() throws Exception
+	{
+		Writer expected = new StringWriter();
+		Writer actual = new StringWriter();
+		writeRows(new XmlWriter(expected), false);
+		writeRows(new XmlWriter(actual), true);
+		assertEquals(expected.toString(), actual.toString());
+	}
+
+	private void writeRows(XmlWriter xmlWriter, boolean backgroundFlush) throws IOException
+	{
+		xmlWriter.enableBackgroundFlush(backgroundFlush);
+		xmlWriter.writeDeclaration();
+		xmlWriter.writeElement("dataset");
+		for (int i = 0; i < 10000; i++)
+		{
+			xmlWriter.writeElement("TABLE");
+			xmlWriter.writeAttribute("ID", String.valueOf(i));
+			xmlWriter.writeAttribute("NAME", "name <" + i + "> & \u00e9", true);
+			xmlWriter.endElement();
+		}
+		xmlWriter.endElement();
+		xmlWriter.close();
+	}
+
+	/**
+	 * The escaping of the former implementation, which the output must not differ from.
+	 */
+	private static String escapeXml(String str, boolean literally)
+	{
+		StringBuffer buffer = new StringBuffer();
+		for (int index = 0; index < str.length(); index++)
+		{
+			String entity = null;
+			char currentChar = str.charAt(index);
+			switch (currentChar)
+			{
+				case '\t':
+					entity = "&#09;";
+					break;
+				case '\n':
+					if (literally) { entity = "&#xA;"; }
+					break;
+				case '\r':
+					if (literally) { entity = "&#xD;"; }
+					break;
+				case '&':
+					entity = "&amp;";
+					break;
+				case '<':
+					entity = "&lt;";
+					break;
+				case '>':
+					entity = "&gt;";
+					break;
+				case '\"':
+					entity = "&quot;";
+					break;
+				case '\'':
+					entity = "&apos;";
+					break;
+				default:
+					if ((currentChar > 0x7f) || !(currentChar == 0x9 || currentChar == 0xa
+							|| currentChar == 0xd || (0x20 <= currentChar && currentChar <= 0xd7ff)
+							|| (0xe000 <= currentChar && currentChar <= 0xfffd)))
+					{
+						entity = "&#" + String.valueOf((int) currentChar) + ";";
+					}
+					break;
+			}
+			if (entity != null)
+			{
+				buffer.append(entity);
+			}
+			else
+			{
+				buffer.append(currentChar);
+			}
+		}
+		return buffer.toString();
+	}
+
 }